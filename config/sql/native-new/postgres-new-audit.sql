@@ -320,6 +320,57 @@ In short, for our case PK and constraints are created automatically, but FK are
 
     END loop;
 END $$;
+
+-- Returns table suffixes (e.g. _202301) of monthly partitions that contain only records older than the parameter.
+-- Default partitions are never returned.
+CREATE OR REPLACE FUNCTION audit_partitions_older_than(olderThan TIMESTAMPTZ)
+    RETURNS SETOF text
+    LANGUAGE sql
+AS $$
+    SELECT substring(c.relname from length('ma_audit_event') + 1)
+    FROM pg_inherits i
+    JOIN pg_class c ON c.oid = i.inhrelid
+    WHERE i.inhparent = 'ma_audit_event'::regclass
+        -- upper bound of the range, e.g. FOR VALUES FROM ('...') TO ('2023-02-01 00:00:00+01')
+        AND substring(pg_get_expr(c.relpartbound, c.oid) from 'TO \(''([^'']+)''\)')::timestamptz
+            <= olderThan
+    ORDER BY c.relname;
+$$;
+
+-- Drops whole monthly partitions (event, delta and ref) that contain only records older than the parameter.
+-- Records in other partitions are not touched. Default partitions are never dropped.
+-- Dropping a partition locks its parent table exclusively, so each partition is dropped in its own
+-- transaction and the audit tables are not locked for the whole run.
+-- That's why this is a procedure, it must be called outside of an explicit transaction.
+-- The application does the same from Java, each drop in its own JDBC transaction.
+CREATE OR REPLACE PROCEDURE audit_drop_partitions_older_than(olderThan TIMESTAMPTZ)
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    tableSuffix text;
+BEGIN
+    FOR tableSuffix IN SELECT audit_partitions_older_than(olderThan)
+    LOOP
+        RAISE NOTICE 'Dropping audit partitions with suffix %', tableSuffix;
+        -- delta and ref partitions have FK to the event partition, so they go first
+        EXECUTE format('DROP TABLE IF EXISTS %I', 'ma_audit_delta' || tableSuffix);
+        COMMIT;
+        EXECUTE format('DROP TABLE IF EXISTS %I', 'ma_audit_ref' || tableSuffix);
+        COMMIT;
+        EXECUTE format('DROP TABLE IF EXISTS %I', 'ma_audit_event' || tableSuffix);
+        COMMIT;
+    END LOOP;
+END $$;
+
+-- Returns true if there are any timestamp range partitions, that is audit_create_monthly_partitions was used.
+CREATE OR REPLACE FUNCTION audit_has_monthly_partitions()
+    RETURNS boolean
+    LANGUAGE sql
+AS $$
+    SELECT EXISTS (SELECT 1 FROM pg_inherits
+        WHERE inhparent = 'ma_audit_event'::regclass
+            AND inhrelid <> 'ma_audit_event_default'::regclass);
+$$;
 -- endregion
 
 /*
@@ -338,6 +389,11 @@ however it may be complicated to organize it into proper partitions after the fa
 Create past partitions if needed, e.g. for migration. E.g., for last 12 months (including current):
 call audit_create_monthly_partitions(-12);
 
+Partitions older than the max age of the audit cleanup policy are dropped by the cleanup
+and future partitions are created by it as well (see cleanupFuturePartitions of the audit configuration).
+Partitions with records older than some date can be dropped manually too:
+call audit_drop_partitions_older_than('2020-01-01');
+
 Check the existing partitions with this SQL query:
 select inhrelid::regclass as partition
 from pg_inherits
@@ -352,4 +408,4 @@ limit 50;
 
 -- Initializing the last change number used in postgres-new-upgrade.sql.
 -- This is important to avoid applying any change more than once.
-call apply_audit_change(3, $$ SELECT 1 $$, true);
+call apply_audit_change(4, $$ SELECT 1 $$, true);
@@ -323,6 +323,438 @@ call apply_change(15, $aa$
 ALTER TABLE m_resource ADD abstract BOOLEAN;
 $aa$);
 
+-- Incremental maintenance of org closure, materialized view is replaced by a table
+call apply_change(16, $aa$
+DROP TRIGGER m_ref_object_parent_mark_refresh_tr ON m_ref_object_parent_org;
+DROP TRIGGER m_ref_object_parent_mark_refresh_trunc_tr ON m_ref_object_parent_org;
+DROP TRIGGER m_org_mark_refresh_tr ON m_org;
+DROP TRIGGER m_org_mark_refresh_trunc_tr ON m_org;
+DROP FUNCTION mark_org_closure_for_refresh();
+DROP FUNCTION mark_org_closure_for_refresh_org();
+DROP MATERIALIZED VIEW m_org_closure;
+
+/*
+Closure of the org hierarchy is maintained incrementally by triggers on m_ref_object_parent_org
+and m_org. Each row means that ancestor => descendant (=> means "is parent of") and stores
+the number of different paths between them, so removal of a parent-org reference is handled
+correctly also when the org hierarchy is not a tree (org with multiple parents).
+Closure contains also identity (org = org) entries for orgs in the hierarchy because:
+* It actually makes some query easier and requires AND instead of OR conditions.
+* While the table shows that o => o, this is not the semantics of isParent/ChildOf searches
+and they never return parameter OID as a result.
+
+Path counts can't be maintained for hierarchy with cycles. If a cycle is created, a path count
+overflows (or the tables are truncated), the closure is flagged for full rebuild in one m_global_metadata
+row, and the rebuild is done by m_refresh_org_closure called from the application before the closure
+is used. If the rebuild can't compute the path counts either, it stores only the ancestor-descendant
+pairs and incremental changes are suspended until a rebuild computes the path counts again.
+Changes of the closure are serialized by a transaction advisory lock, which is also used by the rebuild.
+The lock is held until the end of the transaction, that's why the application writes orgs
+outside of the repository commit batch (if it is used).
+Only changes of orgs and of parent-org refs owned by orgs take the lock. Refs owned by other objects
+(e.g. users) only add the identity row of the target org, which is idempotent and needs no lock.
+Identity rows of orgs that are not in the hierarchy anymore are removed only by the rebuild;
+they don't change results of org queries, as those always start from an existing parent-org ref.
+*/
+CREATE TABLE m_org_closure (
+    ancestor_oid UUID NOT NULL,
+    descendant_oid UUID NOT NULL,
+    paths BIGINT NOT NULL,
+
+    PRIMARY KEY (ancestor_oid, descendant_oid)
+);
+
+CREATE INDEX m_org_closure_desc_asc_idx
+    ON m_org_closure (descendant_oid, ancestor_oid);
+
+CREATE OR REPLACE FUNCTION m_org_closure_mark_for_rebuild()
+    RETURNS void
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    INSERT INTO m_global_metadata VALUES ('orgClosureRefreshNeeded', 'true')
+        ON CONFLICT (name) DO UPDATE SET value = 'true';
+END $$;
+
+-- Locks the closure for changes until the end of the transaction and returns true,
+-- if the closure can be changed incrementally; otherwise it flags the closure for rebuild.
+-- The lock is always exclusive, also for org inserts changing identity rows only. A transaction often
+-- inserts the org first and its parent-org refs later, and upgrading a shared lock to the exclusive one
+-- would deadlock two such transactions. Refs owned by non-org objects don't use this function at all.
+CREATE OR REPLACE FUNCTION m_org_closure_lock_for_change()
+    RETURNS boolean
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(47);
+    IF EXISTS (SELECT 1 FROM m_global_metadata WHERE name = 'orgClosureRefreshNeeded') THEN
+        RETURN false;
+    END IF;
+    IF EXISTS (SELECT 1 FROM m_global_metadata WHERE name = 'orgClosureWithoutPathCounts') THEN
+        PERFORM m_org_closure_mark_for_rebuild();
+        RETURN false;
+    END IF;
+    RETURN true;
+END $$;
+
+-- Adds paths going through the new parent-org reference (child => parent).
+-- For each ancestor of the parent (including the parent) and each descendant of the child
+-- (including the child) the number of paths increases by the product of their path counts.
+-- If any path count overflows, the change is undone and the closure is flagged for rebuild.
+CREATE OR REPLACE FUNCTION m_org_closure_add_edge(childOid UUID, parentOid UUID)
+    RETURNS void
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF NOT m_org_closure_lock_for_change() THEN
+        RETURN;
+    END IF;
+
+    IF childOid = parentOid OR EXISTS (SELECT 1 FROM m_org_closure
+            WHERE ancestor_oid = childOid AND descendant_oid = parentOid) THEN
+        -- cycle, path counts can't be maintained
+        PERFORM m_org_closure_mark_for_rebuild();
+        RETURN;
+    END IF;
+
+    -- identity rows for orgs that are now in the hierarchy
+    INSERT INTO m_org_closure (ancestor_oid, descendant_oid, paths)
+        SELECT oid, oid, 1 FROM m_org WHERE oid IN (childOid, parentOid)
+        ON CONFLICT DO NOTHING;
+
+    BEGIN
+        INSERT INTO m_org_closure (ancestor_oid, descendant_oid, paths)
+            SELECT anc.oid, des.oid, anc.paths * des.paths
+            FROM (SELECT parentOid AS oid, 1 AS paths
+                    UNION ALL
+                    SELECT ancestor_oid, paths FROM m_org_closure
+                        WHERE descendant_oid = parentOid AND ancestor_oid <> parentOid) anc,
+                (SELECT childOid AS oid, 1 AS paths
+                    UNION ALL
+                    SELECT descendant_oid, paths FROM m_org_closure
+                        WHERE ancestor_oid = childOid AND descendant_oid <> childOid) des
+            ON CONFLICT (ancestor_oid, descendant_oid)
+                DO UPDATE SET paths = m_org_closure.paths + EXCLUDED.paths;
+    EXCEPTION WHEN numeric_value_out_of_range THEN
+        PERFORM m_org_closure_mark_for_rebuild();
+    END;
+END $$;
+
+-- Removes paths going through the removed parent-org reference (child => parent).
+-- Without cycles, the ancestors of the parent and descendants of the child are not affected
+-- by the removal, so the same sets are used for the update and the delete of rows without paths.
+-- Identity rows are kept, they may be needed by refs of non-org objects added concurrently without the lock.
+CREATE OR REPLACE FUNCTION m_org_closure_remove_edge(childOid UUID, parentOid UUID)
+    RETURNS void
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF NOT m_org_closure_lock_for_change() THEN
+        RETURN;
+    END IF;
+
+    UPDATE m_org_closure oc SET paths = oc.paths - anc.paths * des.paths
+        FROM (SELECT parentOid AS oid, 1 AS paths
+                UNION ALL
+                SELECT ancestor_oid, paths FROM m_org_closure
+                    WHERE descendant_oid = parentOid AND ancestor_oid <> parentOid) anc,
+            (SELECT childOid AS oid, 1 AS paths
+                UNION ALL
+                SELECT descendant_oid, paths FROM m_org_closure
+                    WHERE ancestor_oid = childOid AND descendant_oid <> childOid) des
+        WHERE oc.ancestor_oid = anc.oid AND oc.descendant_oid = des.oid;
+
+    DELETE FROM m_org_closure oc
+        USING (SELECT parentOid AS oid
+                UNION ALL
+                SELECT ancestor_oid FROM m_org_closure
+                    WHERE descendant_oid = parentOid AND ancestor_oid <> parentOid) anc,
+            (SELECT childOid AS oid
+                UNION ALL
+                SELECT descendant_oid FROM m_org_closure
+                    WHERE ancestor_oid = childOid AND descendant_oid <> childOid) des
+        WHERE oc.ancestor_oid = anc.oid AND oc.descendant_oid = des.oid AND oc.paths <= 0;
+END $$;
+
+-- Adds identity row for the org referenced as a parent by a non-org object (e.g. user).
+-- No lock is taken, so concurrent changes of users (and other non-org objects) are not serialized.
+-- The insert is idempotent, and if the closure is flagged for rebuild, the row is simply replaced by it.
+CREATE OR REPLACE FUNCTION m_org_closure_add_identity(orgOid UUID)
+    RETURNS void
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    INSERT INTO m_org_closure (ancestor_oid, descendant_oid, paths)
+        SELECT oid, oid, 1 FROM m_org WHERE oid = orgOid
+        ON CONFLICT DO NOTHING;
+END $$;
+
+-- Computes path counts of the closure for m_org_closure_rebuild (which deletes the closure first).
+-- Paths are not enumerated, as their number can grow exponentially with the depth of the hierarchy.
+-- Instead, orgs are processed level by level in topological order (parents before children):
+-- when all parents of an org are done, its rows are the sums of the rows of its parents.
+-- Returns false if some orgs are never done, because they are on a cycle (or below it).
+-- Path count overflow is not handled here, it raises numeric_value_out_of_range.
+CREATE OR REPLACE FUNCTION m_org_closure_compute_paths()
+    RETURNS boolean
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    done_count integer;
+BEGIN
+    -- identity rows for orgs in the hierarchy
+    INSERT INTO m_org_closure (ancestor_oid, descendant_oid, paths)
+        SELECT o.oid, o.oid, 1 FROM m_org o
+            WHERE EXISTS(SELECT 1 FROM m_ref_object_parent_org r WHERE r.targetOid = o.oid)
+                OR EXISTS(SELECT 1 FROM m_ref_object_parent_org r WHERE r.ownerOid = o.oid)
+        -- identity row can be inserted concurrently by a non-org object ref change (without the lock)
+        ON CONFLICT (ancestor_oid, descendant_oid) DO NOTHING;
+
+    -- Orgs with parents and the number of their parent-org refs pointing to orgs not done yet.
+    -- Orgs without parents have no ancestors, they are done from the start.
+    DROP TABLE IF EXISTS m_org_closure_pending;
+    CREATE TEMPORARY TABLE m_org_closure_pending (
+        oid UUID PRIMARY KEY,
+        waiting INTEGER NOT NULL
+    ) ON COMMIT DROP;
+    INSERT INTO m_org_closure_pending
+        SELECT DISTINCT ownerOid, 0 FROM m_ref_object_parent_org WHERE ownerType = 'ORG';
+    UPDATE m_org_closure_pending pen SET waiting = w.refs
+        FROM (SELECT r.ownerOid, count(*) AS refs FROM m_ref_object_parent_org r
+                JOIN m_org_closure_pending par ON par.oid = r.targetOid
+                WHERE r.ownerType = 'ORG'
+                GROUP BY r.ownerOid) w
+        WHERE pen.oid = w.ownerOid;
+    ANALYZE m_org_closure_pending;
+
+    LOOP
+        -- orgs of the next level (waiting for nothing) are marked with -1
+        UPDATE m_org_closure_pending SET waiting = -1 WHERE waiting = 0;
+        GET DIAGNOSTICS done_count = ROW_COUNT;
+        EXIT WHEN done_count = 0;
+
+        -- Each parent-org ref adds paths through the parent: the parent itself and its ancestors.
+        INSERT INTO m_org_closure (ancestor_oid, descendant_oid, paths)
+            SELECT anc.oid, r.ownerOid, sum(anc.paths)
+            FROM m_ref_object_parent_org r
+                JOIN m_org_closure_pending pen ON pen.oid = r.ownerOid AND pen.waiting = -1
+                CROSS JOIN LATERAL (SELECT r.targetOid AS oid, 1::bigint AS paths
+                    UNION ALL
+                    SELECT ancestor_oid, paths FROM m_org_closure
+                        WHERE descendant_oid = r.targetOid AND ancestor_oid <> r.targetOid) anc
+            WHERE r.ownerType = 'ORG'
+            GROUP BY anc.oid, r.ownerOid;
+
+        UPDATE m_org_closure_pending pen SET waiting = pen.waiting - w.refs
+            FROM (SELECT r.ownerOid, count(*) AS refs FROM m_ref_object_parent_org r
+                    JOIN m_org_closure_pending par ON par.oid = r.targetOid AND par.waiting = -1
+                    WHERE r.ownerType = 'ORG'
+                    GROUP BY r.ownerOid) w
+            WHERE pen.oid = w.ownerOid;
+        DELETE FROM m_org_closure_pending WHERE waiting = -1;
+    END LOOP;
+
+    RETURN NOT EXISTS (SELECT 1 FROM m_org_closure_pending);
+END $$;
+
+-- Full rebuild of the closure, also used as a fallback when incremental changes are not possible.
+-- If the path counts can't be computed (cycle or overflow), only the ancestor-descendant pairs
+-- are stored (with paths = 1) and incremental changes are suspended until the next rebuild.
+CREATE OR REPLACE FUNCTION m_org_closure_rebuild()
+    RETURNS void
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    paths_computed boolean;
+BEGIN
+    -- DELETE instead of TRUNCATE, so the old closure is still readable for other transactions
+    DELETE FROM m_org_closure;
+
+    BEGIN
+        paths_computed := m_org_closure_compute_paths();
+    EXCEPTION WHEN numeric_value_out_of_range THEN
+        paths_computed := false;
+    END;
+
+    IF paths_computed THEN
+        DELETE FROM m_global_metadata WHERE name = 'orgClosureWithoutPathCounts';
+        RETURN;
+    END IF;
+
+    -- Set-based closure (UNION, not UNION ALL) stops at cycles and never enumerates paths.
+    DELETE FROM m_org_closure;
+    INSERT INTO m_org_closure (ancestor_oid, descendant_oid, paths)
+    WITH RECURSIVE org_h (
+        ancestor_oid, -- ref.targetoid
+        descendant_oid --ref.ownerOid
+    ) AS (
+        -- non-recursive term:
+        -- Gather all organization oids from parent-org refs and initialize identity lines (o => o).
+        -- We don't want the orgs not in org hierarchy.
+        SELECT o.oid, o.oid FROM m_org o
+            WHERE EXISTS(SELECT 1 FROM m_ref_object_parent_org r WHERE r.targetOid = o.oid)
+                OR EXISTS(SELECT 1 FROM m_ref_object_parent_org r WHERE r.ownerOid = o.oid)
+        UNION
+        -- recursive (iterative) term:
+        -- Generate their parents (anc => desc, that is target => owner), => means "is parent of".
+        SELECT par.targetoid, chi.descendant_oid
+            FROM m_ref_object_parent_org as par, org_h as chi
+            WHERE par.ownerOid = chi.ancestor_oid
+                AND par.ownerType = 'ORG'
+    )
+    SELECT ancestor_oid, descendant_oid, 1 FROM org_h
+    -- identity row can be inserted concurrently by a non-org object ref change (without the lock)
+    ON CONFLICT (ancestor_oid, descendant_oid) DO UPDATE SET paths = EXCLUDED.paths;
+
+    INSERT INTO m_global_metadata VALUES ('orgClosureWithoutPathCounts', 'true')
+        ON CONFLICT (name) DO UPDATE SET value = 'true';
+END $$;
+
+-- The trigger for m_ref_object_parent_org that changes the closure.
+CREATE OR REPLACE FUNCTION m_org_closure_ref_change()
+    RETURNS trigger
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        PERFORM m_org_closure_mark_for_rebuild();
+        RETURN NULL;
+    END IF;
+
+    -- Only refs owned by orgs are edges of the hierarchy, others only make the target org part of it.
+    -- Removal of other refs changes nothing, identity rows left behind are removed by the next rebuild.
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.ownerType = 'ORG' THEN
+        PERFORM m_org_closure_remove_edge(OLD.ownerOid, OLD.targetOid);
+    END IF;
+    IF TG_OP IN ('UPDATE', 'INSERT') THEN
+        IF NEW.ownerType = 'ORG' THEN
+            PERFORM m_org_closure_add_edge(NEW.ownerOid, NEW.targetOid);
+        ELSE
+            PERFORM m_org_closure_add_identity(NEW.targetOid);
+        END IF;
+    END IF;
+
+    -- after trigger returns null
+    RETURN NULL;
+END $$;
+
+CREATE TRIGGER m_ref_object_parent_closure_tr
+    AFTER INSERT OR UPDATE OR DELETE ON m_ref_object_parent_org
+    FOR EACH ROW EXECUTE FUNCTION m_org_closure_ref_change();
+CREATE TRIGGER m_ref_object_parent_closure_trunc_tr
+    AFTER TRUNCATE ON m_ref_object_parent_org
+    FOR EACH STATEMENT EXECUTE FUNCTION m_org_closure_ref_change();
+
+-- The trigger for m_org that changes identity rows of the closure.
+-- Org can be referenced as a parent before it is added, e.g. during import.
+CREATE OR REPLACE FUNCTION m_org_closure_org_change()
+    RETURNS trigger
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        PERFORM m_org_closure_mark_for_rebuild();
+        RETURN NULL;
+    END IF;
+
+    IF NOT m_org_closure_lock_for_change() THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO m_org_closure (ancestor_oid, descendant_oid, paths)
+            SELECT NEW.oid, NEW.oid, 1
+            WHERE EXISTS (SELECT 1 FROM m_ref_object_parent_org r WHERE r.targetOid = NEW.oid)
+                OR EXISTS (SELECT 1 FROM m_ref_object_parent_org r WHERE r.ownerOid = NEW.oid)
+            ON CONFLICT DO NOTHING;
+    ELSE
+        DELETE FROM m_org_closure WHERE ancestor_oid = OLD.oid AND descendant_oid = OLD.oid;
+    END IF;
+
+    -- after trigger returns null
+    RETURN NULL;
+END $$;
+
+-- Update is not necessary, it does not change relations between orgs.
+-- If it does, it is handled by trigger on m_ref_object_parent_org.
+CREATE TRIGGER m_org_closure_tr
+    AFTER INSERT OR DELETE ON m_org
+    FOR EACH ROW EXECUTE FUNCTION m_org_closure_org_change();
+CREATE TRIGGER m_org_closure_trunc_tr
+    AFTER TRUNCATE ON m_org
+    FOR EACH STATEMENT EXECUTE FUNCTION m_org_closure_org_change();
+
+-- This procedure for conditional rebuild when needed is called from the application code.
+-- Normally the closure is up-to-date and this only checks the flag.
+-- The rebuild can be forced, e.g. after many changes with triggers off (or just to be sure).
+CREATE OR REPLACE PROCEDURE m_refresh_org_closure(force boolean = false)
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    flag_val text;
+BEGIN
+    SELECT value INTO flag_val FROM m_global_metadata WHERE name = 'orgClosureRefreshNeeded';
+    IF flag_val = 'true' OR force THEN
+        -- We use advisory session lock only for the check + rebuild, then release it immediately.
+        -- The same lock is held by transactions changing the closure incrementally until they end.
+        -- This can still dead-lock two transactions in a single thread on the select/delete combo,
+        -- (I mean, who would do that?!) but works fine for parallel transactions.
+        PERFORM pg_advisory_lock(47);
+        BEGIN
+            SELECT value INTO flag_val FROM m_global_metadata WHERE name = 'orgClosureRefreshNeeded';
+            IF flag_val = 'true' OR force THEN
+                PERFORM m_org_closure_rebuild();
+                DELETE FROM m_global_metadata WHERE name = 'orgClosureRefreshNeeded';
+            END IF;
+            PERFORM pg_advisory_unlock(47);
+        EXCEPTION WHEN OTHERS THEN
+            -- Whatever happens we definitely want to release the lock.
+            PERFORM pg_advisory_unlock(47);
+            RAISE;
+        END;
+    END IF;
+END; $$;
+
+-- the closure is built before it is used for the first time
+SELECT m_org_closure_mark_for_rebuild();
+$aa$);
+
+-- Work bucket table for distributed activities
+call apply_change(17, $aa$
+CREATE TYPE WorkBucketStateType AS ENUM ('READY', 'DELEGATED', 'COMPLETE');
+
+-- Buckets of distributed activities, used instead of buckets stored in the coordinator task
+-- if workBucketTable repository option is enabled. Workers allocate buckets with SKIP LOCKED,
+-- so they do not contend for the coordinator task. Bucket content is stored in fullObject,
+-- state and worker (if delegated) are stored only in the columns.
+CREATE TABLE m_work_bucket (
+    coordinatorOid UUID NOT NULL REFERENCES m_object_oid(oid) ON DELETE CASCADE,
+    activityPath TEXT NOT NULL, -- activity identifiers separated by /, empty for the root activity
+    sequentialNumber INTEGER NOT NULL,
+    state WorkBucketStateType NOT NULL,
+    workerOid UUID,
+    fullObject BYTEA,
+
+    PRIMARY KEY (coordinatorOid, activityPath, sequentialNumber)
+);
+
+CREATE INDEX m_work_bucket_workerOid_idx ON m_work_bucket (workerOid);
+$aa$);
+
+-- Adaptive bucket size of distributed activities with buckets in m_work_bucket table
+call apply_change(18, $aa$
+-- Per-activity data of distributed activities with buckets in m_work_bucket table.
+-- Currently only the bucket size determined by adaptive sizing, so workers do not need
+-- to read or modify the coordinator task for it.
+CREATE TABLE m_work_bucket_activity (
+    coordinatorOid UUID NOT NULL REFERENCES m_object_oid(oid) ON DELETE CASCADE,
+    activityPath TEXT NOT NULL, -- activity identifiers separated by /, empty for the root activity
+    adaptiveBucketSize NUMERIC,
+
+    PRIMARY KEY (coordinatorOid, activityPath)
+);
+$aa$);
+
 -- WRITE CHANGES ABOVE ^^
 -- IMPORTANT: update apply_change number at the end of postgres-new.sql
 -- to match the number used in the last change here!
@@ -236,6 +236,26 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
      */
     private FetchErrorHandlingType errorHandling;
 
+    /**
+     * Whether the count operation can return an estimate instead of the exact count.
+     * The repository may use database statistics for large counts and may return a recently cached count.
+     * Exact counts are still returned where the estimate would be small or is not supported.
+     * Intended for GUI paging of huge collections, where the exact count is too expensive.
+     */
+    @Experimental
+    private Boolean approximateCount;
+
+    /**
+     * Whether the caller needs only the items explicitly included by `retrieve` option (in addition to OID and name).
+     * The repository may then return a partial object built from indexed columns without reading the full object.
+     * Such object is marked with `RepositoryService.KEY_PARTIAL_OBJECT` user data and must not be used for
+     * modifications or cached as a complete object.
+     * If any of the included items is not available without the full object, the full object is returned.
+     * Intended for large list views and reports that need only a couple of items.
+     */
+    @Experimental
+    private Boolean projection;
+
     /*
      *  !!! After adding option here don't forget to update equals, clone, merge, etc. !!!
      */
@@ -975,6 +995,66 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
         return opts;
     }
 
+    public Boolean getApproximateCount() {
+        return approximateCount;
+    }
+
+    public void setApproximateCount(Boolean approximateCount) {
+        this.approximateCount = approximateCount;
+    }
+
+    public GetOperationOptions approximateCount(Boolean approximateCount) {
+        this.approximateCount = approximateCount;
+        return this;
+    }
+
+    public static boolean isApproximateCount(GetOperationOptions options) {
+        if (options == null) {
+            return false;
+        }
+        if (options.approximateCount == null) {
+            return false;
+        }
+        return options.approximateCount;
+    }
+
+    @Experimental
+    public static GetOperationOptions createApproximateCount() {
+        GetOperationOptions opts = new GetOperationOptions();
+        opts.setApproximateCount(true);
+        return opts;
+    }
+
+    public Boolean getProjection() {
+        return projection;
+    }
+
+    public void setProjection(Boolean projection) {
+        this.projection = projection;
+    }
+
+    public GetOperationOptions projection(Boolean projection) {
+        this.projection = projection;
+        return this;
+    }
+
+    public static boolean isProjection(GetOperationOptions options) {
+        if (options == null) {
+            return false;
+        }
+        if (options.projection == null) {
+            return false;
+        }
+        return options.projection;
+    }
+
+    @Experimental
+    public static GetOperationOptions createProjection() {
+        GetOperationOptions opts = new GetOperationOptions();
+        opts.setProjection(true);
+        return opts;
+    }
+
     public FetchErrorHandlingType getErrorHandling() {
         return errorHandling;
     }
@@ -1032,6 +1112,8 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
                 Objects.equals(definitionProcessing, that.definitionProcessing) &&
                 Objects.equals(iterationMethod, that.iterationMethod) &&
                 Objects.equals(executionPhase, that.executionPhase) &&
+                Objects.equals(approximateCount, that.approximateCount) &&
+                Objects.equals(projection, that.projection) &&
                 Containerable.equivalent(errorHandling, that.errorHandling);
     }
 
@@ -1065,6 +1147,8 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
         clone.definitionProcessing = this.definitionProcessing;
         clone.iterationMethod = this.iterationMethod;
         clone.executionPhase = this.executionPhase;
+        clone.approximateCount = this.approximateCount;
+        clone.projection = this.projection;
         if (this.errorHandling != null) {
             clone.errorHandling = this.errorHandling.clone();
         }
@@ -1101,6 +1185,8 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
         appendVal(sb, "iterationMethod", iterationMethod);
         appendFlag(sb, "executionPhase", executionPhase);
         appendVal(sb, "errorHandling", prettyPrint(errorHandling));
+        appendFlag(sb, "approximateCount", approximateCount);
+        appendFlag(sb, "projection", projection);
         removeLastComma(sb);
     }
 
@@ -1177,6 +1263,9 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
             if (GetOperationOptionsType.F_DISTINCT.getLocalPart().equals(option)) {
                 rv.setDistinct(true);
             }
+            if (GetOperationOptionsType.F_APPROXIMATE_COUNT.getLocalPart().equals(option)) {
+                rv.setApproximateCount(true);
+            }
 
             // Do NOT set executionPhase here!
         }
@@ -1274,6 +1363,12 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
         if (increment.errorHandling != null) {
             this.errorHandling = increment.errorHandling.clone();
         }
+        if (increment.approximateCount != null) {
+            this.approximateCount = increment.approximateCount;
+        }
+        if (increment.projection != null) {
+            this.projection = increment.projection;
+        }
     }
 
     /**
@@ -72,6 +72,10 @@ public interface GetOperationOptionsBuilder {
     GetOperationOptionsBuilder executionPhase(Boolean value);
     GetOperationOptionsBuilder errorHandling(FetchErrorHandlingType errorHandling);
     GetOperationOptionsBuilder errorReportingMethod(FetchErrorReportingMethodType method);
+    GetOperationOptionsBuilder approximateCount();
+    GetOperationOptionsBuilder approximateCount(Boolean value);
+    GetOperationOptionsBuilder projection();
+    GetOperationOptionsBuilder projection(Boolean value);
 
     GetOperationOptionsBuilder setFrom(Collection<SelectorOptions<GetOperationOptions>> options);
     GetOperationOptionsBuilder mergeFrom(Collection<SelectorOptions<GetOperationOptions>> options);
@@ -262,6 +262,26 @@ public class GetOperationOptionsBuilderImpl
         return forPaths(opts -> opts.setErrorReportingMethod(method, prismContext));
     }
 
+    @Override
+    public GetOperationOptionsBuilder approximateCount() {
+        return approximateCount(true);
+    }
+
+    @Override
+    public GetOperationOptionsBuilder approximateCount(Boolean value) {
+        return forPaths(opts -> opts.setApproximateCount(value));
+    }
+
+    @Override
+    public GetOperationOptionsBuilder projection() {
+        return projection(true);
+    }
+
+    @Override
+    public GetOperationOptionsBuilder projection(Boolean value) {
+        return forPaths(opts -> opts.setProjection(value));
+    }
+
     //endregion
 
     //region Query
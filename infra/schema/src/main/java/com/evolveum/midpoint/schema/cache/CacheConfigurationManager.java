@@ -205,6 +205,12 @@ public class CacheConfigurationManager {
         }
     }
 
+    /** Returns caching profiles set for the current thread, or null if there are none. */
+    public @Nullable Collection<String> getThreadLocalProfiles() {
+        ThreadLocalConfiguration localConfiguration = threadLocalConfiguration.get();
+        return localConfiguration != null ? localConfiguration.profiles : null;
+    }
+
     public void unsetThreadLocalProfiles() {
         threadLocalConfiguration.remove();
         LOGGER.trace("Thread local configuration profiles were removed");
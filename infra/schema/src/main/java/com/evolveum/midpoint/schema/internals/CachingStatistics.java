@@ -6,63 +6,76 @@
  */
 package com.evolveum.midpoint.schema.internals;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import com.evolveum.midpoint.util.DebugDumpable;
 import com.evolveum.midpoint.util.DebugUtil;
 
 /**
- * @author semancik
+ * Counters are {@link LongAdder}-based, so recording is lock-free and does not become
+ * a contention point when caches are hit from many threads.
  *
+ * @author semancik
  */
 public class CachingStatistics implements DebugDumpable {
 
-    private long requests = 0;
-    private long hits = 0;
-    private long misses = 0;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
 
     public long getRequests() {
-        return requests;
+        return requests.sum();
     }
 
-    public synchronized void setRequests(long requests) {
-        this.requests = requests;
+    public void setRequests(long requests) {
+        set(this.requests, requests);
     }
 
-    public synchronized void recordRequest() {
-        this.requests++;
+    public void recordRequest() {
+        requests.increment();
     }
 
     public long getHits() {
-        return hits;
+        return hits.sum();
     }
 
-    public synchronized void setHits(long hits) {
-        this.hits = hits;
+    public void setHits(long hits) {
+        set(this.hits, hits);
     }
 
-    public synchronized void recordHit() {
-        this.hits++;
+    public void recordHit() {
+        hits.increment();
     }
 
     public long getMisses() {
-        return misses;
+        return misses.sum();
     }
 
-    public synchronized void setMisses(long misses) {
-        this.misses = misses;
+    public void setMisses(long misses) {
+        set(this.misses, misses);
     }
 
-    public synchronized void recordMiss() {
-        this.misses++;
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    static void set(LongAdder adder, long value) {
+        adder.reset();
+        adder.add(value);
     }
 
     public CachingStatistics clone() {
         CachingStatistics clone = new CachingStatistics();
-        clone.requests = this.requests;
-        clone.hits = this.hits;
-        clone.misses = this.misses;
+        copyTo(clone);
         return clone;
     }
 
+    void copyTo(CachingStatistics clone) {
+        clone.setRequests(getRequests());
+        clone.setHits(getHits());
+        clone.setMisses(getMisses());
+    }
+
     @Override
     public String toString() {
         return "CachingStatistics(requests=" + requests + ", hits=" + hits + ", misses=" + misses + ")";
@@ -71,9 +84,9 @@ public class CachingStatistics implements DebugDumpable {
     @Override
     public String debugDump(int indent) {
         StringBuilder sb = DebugUtil.createTitleStringBuilderLn(CachingStatistics.class, indent);
-        DebugUtil.debugDumpWithLabelLn(sb, "requests", requests, indent);
-        DebugUtil.debugDumpWithLabelLn(sb, "hits", hits, indent);
-        DebugUtil.debugDumpWithLabel(sb, "misses", misses, indent);
+        DebugUtil.debugDumpWithLabelLn(sb, "requests", getRequests(), indent);
+        DebugUtil.debugDumpWithLabelLn(sb, "hits", getHits(), indent);
+        DebugUtil.debugDumpWithLabel(sb, "misses", getMisses(), indent);
         return sb.toString();
     }
 
@@ -6,8 +6,10 @@
  */
 package com.evolveum.midpoint.schema.internals;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import com.evolveum.midpoint.prism.Objectable;
@@ -46,6 +48,9 @@ public class InternalMonitor implements PrismMonitor, DebugDumpable {
     private static CachingStatistics resourceCacheStats = new CachingStatistics();
     private static CachingStatistics connectorCacheStats = new CachingStatistics();
 
+    /** Compiled script cache statistics, keyed by script cache name (language + expression profile). */
+    private static final Map<ScriptCacheKey, ScriptCachingStatistics> SCRIPT_CACHE_STATS = new ConcurrentHashMap<>();
+
     private static boolean cloneTimingEnabled = false;
     private static long prismObjectCloneDurationNanos = 0;
 
@@ -142,6 +147,16 @@ public class InternalMonitor implements PrismMonitor, DebugDumpable {
         return connectorCacheStats;
     }
 
+    public static @NotNull ScriptCachingStatistics getScriptCacheStats(@NotNull ScriptCacheKey key) {
+        // get() first, as computeIfAbsent may lock the bin even if the value is present
+        ScriptCachingStatistics stats = SCRIPT_CACHE_STATS.get(key);
+        return stats != null ? stats : SCRIPT_CACHE_STATS.computeIfAbsent(key, k -> new ScriptCachingStatistics());
+    }
+
+    public static @NotNull Map<ScriptCacheKey, ScriptCachingStatistics> getAllScriptCacheStats() {
+        return Collections.unmodifiableMap(SCRIPT_CACHE_STATS);
+    }
+
     public static void recordConnectorOperation(String name) {
         long count = recordCountInternal(InternalCounters.CONNECTOR_OPERATION_COUNT);
         if (isTrace(InternalCounters.CONNECTOR_OPERATION_COUNT)) {
@@ -269,6 +284,7 @@ public class InternalMonitor implements PrismMonitor, DebugDumpable {
         TRACE_CLASS_MAP.clear();
         resourceCacheStats = new CachingStatistics();
         connectorCacheStats = new CachingStatistics();
+        SCRIPT_CACHE_STATS.clear();
         inspector = null;
     }
 
@@ -298,6 +314,10 @@ public class InternalMonitor implements PrismMonitor, DebugDumpable {
         }
         DebugUtil.debugDumpWithLabelLn(sb, "resourceCacheStats", resourceCacheStats, indent + 1);
         DebugUtil.debugDumpWithLabel(sb, "connectorCacheStats", connectorCacheStats, indent + 1);
+        SCRIPT_CACHE_STATS.forEach((name, stats) -> {
+            sb.append("\n");
+            DebugUtil.debugDumpWithLabel(sb, "scriptCacheStats[" + name + "]", stats, indent + 1);
+        });
         return sb.toString();
     }
 }
@@ -58,6 +58,97 @@ public class InternalsConfig {
 
     private static boolean detailedAuthorizationLog = false;
 
+    public static final int DEFAULT_SCRIPT_CACHE_MAX_ENTRIES = 10_000;
+
+    public static final long DEFAULT_SCRIPT_CACHE_MAX_WEIGHT = 20_000_000;
+
+    /**
+     * Maximum number of compiled scripts kept for a single script language and expression profile.
+     */
+    private static int scriptCacheMaxEntries = DEFAULT_SCRIPT_CACHE_MAX_ENTRIES;
+
+    /**
+     * Maximum total size (in characters of source code) of compiled scripts kept for a single script language
+     * and expression profile.
+     */
+    private static long scriptCacheMaxWeight = DEFAULT_SCRIPT_CACHE_MAX_WEIGHT;
+
+    /**
+     * If true, scripts found in object templates, resources and roles are compiled at system startup.
+     */
+    private static boolean scriptCachePrewarm = false;
+
+    public static final int DEFAULT_LENS_WORKER_THREADS = 8;
+
+    /**
+     * Maximum number of threads used for parallel processing within a single clockwork run (shared by all clockwork runs).
+     */
+    private static int lensWorkerThreads = DEFAULT_LENS_WORKER_THREADS;
+
+    /**
+     * If true, projector processes projections on different resources that have no dependencies in parallel.
+     */
+    private static boolean parallelProjectionProcessing = false;
+
+    /**
+     * If true, change executor executes changes of projections on different resources (in the current wave) in parallel.
+     */
+    private static boolean parallelProjectionExecution = false;
+
+    /**
+     * If true, authorizations collected from roles during assignment evaluation are cached (by role OID and version),
+     * so they are not created again for each focus having the role.
+     */
+    private static boolean rolePayloadCaching = false;
+
+    public static final long DEFAULT_REPOSITORY_COMMIT_BATCH_MAX_DELAY = 500;
+
+    /**
+     * If positive, repository writes done by worker threads of (search-based) iterative activities are committed
+     * together, after processing of this number of items. Zero means no batching. If a batch commit fails,
+     * the items processed since the last commit are processed again, one by one, each committed on its own.
+     * Tasks, nodes, sequences and orgs are not batched, they are always committed right away (orgs because
+     * of the org closure lock that would be held until the batch commit, blocking org changes in other threads).
+     */
+    private static int repositoryCommitBatchSize = 0;
+
+    /**
+     * Maximum time (in milliseconds) for which a repository commit batch can be kept uncommitted.
+     */
+    private static long repositoryCommitBatchMaxDelay = DEFAULT_REPOSITORY_COMMIT_BATCH_MAX_DELAY;
+
+    public static final long DEFAULT_CLUSTER_CACHE_INVALIDATION_BATCH_DELAY = 200;
+
+    public static final int DEFAULT_CLUSTER_CACHE_INVALIDATION_TYPE_THRESHOLD = 100;
+
+    /**
+     * If true, cluster-wide cache invalidations are queued, coalesced and sent to other nodes asynchronously
+     * in batches, instead of being sent synchronously one by one.
+     */
+    private static boolean asyncClusterCacheInvalidation = false;
+
+    /**
+     * How long (in milliseconds) are queued cluster-wide cache invalidations collected before being sent.
+     */
+    private static long clusterCacheInvalidationBatchDelay = DEFAULT_CLUSTER_CACHE_INVALIDATION_BATCH_DELAY;
+
+    /**
+     * If there are more queued invalidations of individual objects of a single type, they are replaced
+     * by the invalidation of the whole type.
+     */
+    private static int clusterCacheInvalidationTypeThreshold = DEFAULT_CLUSTER_CACHE_INVALIDATION_TYPE_THRESHOLD;
+
+    /**
+     * If positive, versions of objects in global repository caches are checked against the repository
+     * in bulk with this period (in milliseconds). Stale entries are invalidated, current ones need no individual
+     * version check until the next time-to-version-check. This bounds the staleness of cached objects
+     * even if cluster-wide invalidation messages are lost, so long time-to-live values can be used.
+     * Query results are evicted for the whole type when any of its objects is found stale, and are not kept longer
+     * than this period, as objects newly matching a cached query cannot be detected by checking versions.
+     * Zero means no periodic validation.
+     */
+    private static long globalCacheVersionValidationInterval = 0;
+
     public static boolean isPrismMonitoring() {
         return prismMonitoring;
     }
@@ -139,6 +230,110 @@ public class InternalsConfig {
         InternalsConfig.allowClearDataLogging = allowClearDataLogging;
     }
 
+    public static int getScriptCacheMaxEntries() {
+        return scriptCacheMaxEntries;
+    }
+
+    public static void setScriptCacheMaxEntries(int scriptCacheMaxEntries) {
+        InternalsConfig.scriptCacheMaxEntries = scriptCacheMaxEntries;
+    }
+
+    public static long getScriptCacheMaxWeight() {
+        return scriptCacheMaxWeight;
+    }
+
+    public static void setScriptCacheMaxWeight(long scriptCacheMaxWeight) {
+        InternalsConfig.scriptCacheMaxWeight = scriptCacheMaxWeight;
+    }
+
+    public static boolean isScriptCachePrewarm() {
+        return scriptCachePrewarm;
+    }
+
+    public static void setScriptCachePrewarm(boolean scriptCachePrewarm) {
+        InternalsConfig.scriptCachePrewarm = scriptCachePrewarm;
+    }
+
+    public static int getLensWorkerThreads() {
+        return lensWorkerThreads;
+    }
+
+    public static void setLensWorkerThreads(int lensWorkerThreads) {
+        InternalsConfig.lensWorkerThreads = lensWorkerThreads;
+    }
+
+    public static boolean isParallelProjectionProcessing() {
+        return parallelProjectionProcessing;
+    }
+
+    public static void setParallelProjectionProcessing(boolean parallelProjectionProcessing) {
+        InternalsConfig.parallelProjectionProcessing = parallelProjectionProcessing;
+    }
+
+    public static boolean isParallelProjectionExecution() {
+        return parallelProjectionExecution;
+    }
+
+    public static void setParallelProjectionExecution(boolean parallelProjectionExecution) {
+        InternalsConfig.parallelProjectionExecution = parallelProjectionExecution;
+    }
+
+    public static boolean isRolePayloadCaching() {
+        return rolePayloadCaching;
+    }
+
+    public static void setRolePayloadCaching(boolean rolePayloadCaching) {
+        InternalsConfig.rolePayloadCaching = rolePayloadCaching;
+    }
+
+    public static int getRepositoryCommitBatchSize() {
+        return repositoryCommitBatchSize;
+    }
+
+    public static void setRepositoryCommitBatchSize(int repositoryCommitBatchSize) {
+        InternalsConfig.repositoryCommitBatchSize = repositoryCommitBatchSize;
+    }
+
+    public static long getRepositoryCommitBatchMaxDelay() {
+        return repositoryCommitBatchMaxDelay;
+    }
+
+    public static void setRepositoryCommitBatchMaxDelay(long repositoryCommitBatchMaxDelay) {
+        InternalsConfig.repositoryCommitBatchMaxDelay = repositoryCommitBatchMaxDelay;
+    }
+
+    public static boolean isAsyncClusterCacheInvalidation() {
+        return asyncClusterCacheInvalidation;
+    }
+
+    public static void setAsyncClusterCacheInvalidation(boolean asyncClusterCacheInvalidation) {
+        InternalsConfig.asyncClusterCacheInvalidation = asyncClusterCacheInvalidation;
+    }
+
+    public static long getClusterCacheInvalidationBatchDelay() {
+        return clusterCacheInvalidationBatchDelay;
+    }
+
+    public static void setClusterCacheInvalidationBatchDelay(long clusterCacheInvalidationBatchDelay) {
+        InternalsConfig.clusterCacheInvalidationBatchDelay = clusterCacheInvalidationBatchDelay;
+    }
+
+    public static int getClusterCacheInvalidationTypeThreshold() {
+        return clusterCacheInvalidationTypeThreshold;
+    }
+
+    public static void setClusterCacheInvalidationTypeThreshold(int clusterCacheInvalidationTypeThreshold) {
+        InternalsConfig.clusterCacheInvalidationTypeThreshold = clusterCacheInvalidationTypeThreshold;
+    }
+
+    public static long getGlobalCacheVersionValidationInterval() {
+        return globalCacheVersionValidationInterval;
+    }
+
+    public static void setGlobalCacheVersionValidationInterval(long globalCacheVersionValidationInterval) {
+        InternalsConfig.globalCacheVersionValidationInterval = globalCacheVersionValidationInterval;
+    }
+
     public static void resetTestingPaths() {
         testingPaths = null;
     }
@@ -163,6 +358,24 @@ public class InternalsConfig {
         modelProfiling = internalsConfig.getBoolean("modelProfiling", modelProfiling);
         // TODO: testingPaths
         detailedAuthorizationLog = internalsConfig.getBoolean("detailedAuthorizationLog", detailedAuthorizationLog);
+        scriptCacheMaxEntries = internalsConfig.getInt("scriptCacheMaxEntries", scriptCacheMaxEntries);
+        scriptCacheMaxWeight = internalsConfig.getLong("scriptCacheMaxWeight", scriptCacheMaxWeight);
+        scriptCachePrewarm = internalsConfig.getBoolean("scriptCachePrewarm", scriptCachePrewarm);
+        lensWorkerThreads = internalsConfig.getInt("lensWorkerThreads", lensWorkerThreads);
+        parallelProjectionProcessing = internalsConfig.getBoolean("parallelProjectionProcessing", parallelProjectionProcessing);
+        parallelProjectionExecution = internalsConfig.getBoolean("parallelProjectionExecution", parallelProjectionExecution);
+        rolePayloadCaching = internalsConfig.getBoolean("rolePayloadCaching", rolePayloadCaching);
+        repositoryCommitBatchSize = internalsConfig.getInt("repositoryCommitBatchSize", repositoryCommitBatchSize);
+        repositoryCommitBatchMaxDelay =
+                internalsConfig.getLong("repositoryCommitBatchMaxDelay", repositoryCommitBatchMaxDelay);
+        asyncClusterCacheInvalidation =
+                internalsConfig.getBoolean("asyncClusterCacheInvalidation", asyncClusterCacheInvalidation);
+        clusterCacheInvalidationBatchDelay =
+                internalsConfig.getLong("clusterCacheInvalidationBatchDelay", clusterCacheInvalidationBatchDelay);
+        clusterCacheInvalidationTypeThreshold =
+                internalsConfig.getInt("clusterCacheInvalidationTypeThreshold", clusterCacheInvalidationTypeThreshold);
+        globalCacheVersionValidationInterval =
+                internalsConfig.getLong("globalCacheVersionValidationInterval", globalCacheVersionValidationInterval);
     }
 
     public static void reset() {
@@ -176,6 +389,19 @@ public class InternalsConfig {
         modelProfiling = false;
         testingPaths = null;
         detailedAuthorizationLog = false;
+        scriptCacheMaxEntries = DEFAULT_SCRIPT_CACHE_MAX_ENTRIES;
+        scriptCacheMaxWeight = DEFAULT_SCRIPT_CACHE_MAX_WEIGHT;
+        scriptCachePrewarm = false;
+        lensWorkerThreads = DEFAULT_LENS_WORKER_THREADS;
+        parallelProjectionProcessing = false;
+        parallelProjectionExecution = false;
+        rolePayloadCaching = false;
+        repositoryCommitBatchSize = 0;
+        repositoryCommitBatchMaxDelay = DEFAULT_REPOSITORY_COMMIT_BATCH_MAX_DELAY;
+        asyncClusterCacheInvalidation = false;
+        clusterCacheInvalidationBatchDelay = DEFAULT_CLUSTER_CACHE_INVALIDATION_BATCH_DELAY;
+        clusterCacheInvalidationTypeThreshold = DEFAULT_CLUSTER_CACHE_INVALIDATION_TYPE_THRESHOLD;
+        globalCacheVersionValidationInterval = 0;
     }
 
     public static void setDevelopmentMode() {
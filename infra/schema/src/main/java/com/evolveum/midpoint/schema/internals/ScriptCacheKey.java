@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.schema.internals;
+
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Identifies a compiled script cache: script language (or other cache name) and expression profile.
+ * Used as a key for {@link ScriptCachingStatistics}, so no strings are built when the statistics are recorded.
+ */
+public class ScriptCacheKey {
+
+    @NotNull private final String cacheName;
+    @NotNull private final String profile;
+    private final int hashCode;
+
+    public ScriptCacheKey(@NotNull String cacheName, @NotNull String profile) {
+        this.cacheName = cacheName;
+        this.profile = profile;
+        this.hashCode = 31 * cacheName.hashCode() + profile.hashCode();
+    }
+
+    public @NotNull String getCacheName() {
+        return cacheName;
+    }
+
+    public @NotNull String getProfile() {
+        return profile;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ScriptCacheKey)) {
+            return false;
+        }
+        ScriptCacheKey that = (ScriptCacheKey) o;
+        return cacheName.equals(that.cacheName) && profile.equals(that.profile);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return cacheName + "/" + profile;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.schema.internals;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.evolveum.midpoint.util.DebugUtil;
+
+/**
+ * Statistics of a compiled script cache for a single script language and expression profile.
+ * In addition to hits and misses it records script compilations (including their duration) and evictions.
+ */
+public class ScriptCachingStatistics extends CachingStatistics {
+
+    private final LongAdder compilations = new LongAdder();
+    private final LongAdder compilationTimeNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public long getCompilations() {
+        return compilations.sum();
+    }
+
+    public long getCompilationTimeNanos() {
+        return compilationTimeNanos.sum();
+    }
+
+    public void recordCompilation(long durationNanos) {
+        compilations.increment();
+        compilationTimeNanos.add(durationNanos);
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public void recordEvictions(int count) {
+        evictions.add(count);
+    }
+
+    @Override
+    public ScriptCachingStatistics clone() {
+        ScriptCachingStatistics clone = new ScriptCachingStatistics();
+        copyTo(clone);
+        set(clone.compilations, getCompilations());
+        set(clone.compilationTimeNanos, getCompilationTimeNanos());
+        set(clone.evictions, getEvictions());
+        return clone;
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptCachingStatistics(requests=" + getRequests() + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", compilations=" + compilations + ", compilationTime=" + getCompilationTimeNanos() / 1_000_000 + " ms"
+                + ", evictions=" + evictions + ")";
+    }
+
+    @Override
+    public String debugDump(int indent) {
+        StringBuilder sb = DebugUtil.createTitleStringBuilderLn(ScriptCachingStatistics.class, indent);
+        DebugUtil.debugDumpWithLabelLn(sb, "requests", getRequests(), indent);
+        DebugUtil.debugDumpWithLabelLn(sb, "hits", getHits(), indent);
+        DebugUtil.debugDumpWithLabelLn(sb, "misses", getMisses(), indent);
+        DebugUtil.debugDumpWithLabelLn(sb, "compilations", getCompilations(), indent);
+        DebugUtil.debugDumpWithLabelLn(sb, "compilationTimeNanos", getCompilationTimeNanos(), indent);
+        DebugUtil.debugDumpWithLabel(sb, "evictions", getEvictions(), indent);
+        return sb.toString();
+    }
+}
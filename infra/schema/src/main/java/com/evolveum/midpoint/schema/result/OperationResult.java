@@ -2681,6 +2681,12 @@ public class OperationResult
         }
     }
 
+    /** Name of the handling strategy set for the current thread (if any), usable in {@link #setThreadLocalHandlingStrategy(String)}. */
+    public static @Nullable String getThreadLocalHandlingStrategyName() {
+        OperationResultHandlingStrategyType local = LOCAL_HANDLING_STRATEGY.get();
+        return local != null ? local.getName() : null;
+    }
+
     public static void setThreadLocalHandlingStrategy(@Nullable String strategyName) {
         OperationResultHandlingStrategyType selected;
         if (strategyName == null) {
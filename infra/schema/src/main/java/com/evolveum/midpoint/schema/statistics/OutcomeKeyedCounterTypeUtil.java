@@ -62,6 +62,14 @@ public class OutcomeKeyedCounterTypeUtil {
         return counter.getCount();
     }
 
+    /** Decrements counter corresponding to given outcome (not below zero). */
+    public static int decrementCounter(List<OutcomeKeyedCounterType> counters, QualifiedItemProcessingOutcomeType outcome,
+            PrismContext prismContext) {
+        OutcomeKeyedCounterType counter = findOrCreateCounter(counters, outcome, prismContext);
+        counter.setCount(Math.max(0, or0(counter.getCount()) - 1));
+        return counter.getCount();
+    }
+
     public static int getSuccessCount(List<? extends OutcomeKeyedCounterType> counters) {
         return getCount(counters, OutcomeKeyedCounterTypeUtil::isSuccess);
     }
@@ -149,6 +149,11 @@ public class BucketingUtil {
         return bucketing != null ? bucketing.getNumberOfBuckets() : null;
     }
 
+    public static BigInteger getAdaptiveBucketSize(@NotNull ActivityStateType state) {
+        ActivityBucketingStateType bucketing = state.getBucketing();
+        return bucketing != null ? bucketing.getAdaptiveBucketSize() : null;
+    }
+
     /** A little guesswork for now. */
     @SuppressWarnings("unused") // Expected to be used later.
     public static boolean hasNonTrivialBuckets(@NotNull ActivityStateType state) {
@@ -22,8 +22,10 @@ import com.evolveum.midpoint.prism.crypto.Protector;
 import com.evolveum.midpoint.prism.xml.XsdTypeMapper;
 import com.evolveum.midpoint.repo.common.expression.ExpressionSyntaxException;
 import com.evolveum.midpoint.repo.common.expression.ExpressionUtil;
+import com.evolveum.midpoint.schema.expression.ExpressionProfile;
 import com.evolveum.midpoint.schema.internals.InternalCounters;
 import com.evolveum.midpoint.schema.internals.InternalMonitor;
+import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.ExceptionUtil;
 import com.evolveum.midpoint.util.exception.*;
 import com.evolveum.midpoint.util.logging.Trace;
@@ -44,7 +46,7 @@ public abstract class AbstractCachingScriptEvaluator<I, C> extends AbstractScrip
 
     public AbstractCachingScriptEvaluator(PrismContext prismContext, Protector protector, LocalizationService localizationService) {
         super(prismContext, protector, localizationService);
-        this.scriptCache = new ScriptCache<>();
+        this.scriptCache = new ScriptCache<>(this::getLanguageName);
     }
 
     protected ScriptCache<I, C> getScriptCache() {
@@ -181,17 +183,32 @@ public abstract class AbstractCachingScriptEvaluator<I, C> extends AbstractScrip
             return compiledScript;
         }
         InternalMonitor.recordCount(InternalCounters.SCRIPT_COMPILE_COUNT);
+        long start = System.nanoTime();
         try {
             compiledScript = compileScript(codeString, context);
         } catch (ExpressionEvaluationException | SecurityViolationException e) {
             throw e;
         } catch (Exception e) {
             throw new ExpressionEvaluationException(e.getMessage() + " while compiling " + context.getContextDescription(), e);
+        } finally {
+            scriptCache.recordCompilation(context.getExpressionProfile(), System.nanoTime() - start);
         }
         scriptCache.putCode(context.getExpressionProfile(), codeString, compiledScript);
         return compiledScript;
     }
 
+    /**
+     * Compiles the script and puts it into the cache, without evaluating it.
+     * Used to pre-warm the cache, see {@link ScriptExpressionFactory#prewarmScriptCaches(OperationResult)}.
+     */
+    public void precompile(String codeString, ExpressionProfile expressionProfile, String contextDescription)
+            throws ExpressionEvaluationException, SecurityViolationException {
+        ScriptExpressionEvaluationContext context = new ScriptExpressionEvaluationContext();
+        context.setExpressionProfile(expressionProfile);
+        context.setContextDescription(contextDescription);
+        getCompiledScript(codeString, context);
+    }
+
     protected abstract C compileScript(String codeString, ScriptExpressionEvaluationContext context) throws Exception;
 
     protected abstract Object evaluateScript(C compiledScript, ScriptExpressionEvaluationContext context)
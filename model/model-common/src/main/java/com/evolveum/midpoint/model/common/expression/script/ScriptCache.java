@@ -6,59 +6,224 @@
  */
 package com.evolveum.midpoint.model.common.expression.script;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.schema.expression.ExpressionProfile;
+import com.evolveum.midpoint.schema.internals.InternalMonitor;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
+import com.evolveum.midpoint.schema.internals.ScriptCacheKey;
+import com.evolveum.midpoint.schema.internals.ScriptCachingStatistics;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
 
 /**
  * Cache for compiled scripts and interpreters, aware of expression profiles.
  *
+ * Reads never lock: both levels of the cache are concurrent maps and a hit only updates the access stamp
+ * of the entry. The code cache for each profile is bounded by number of entries and by total "weight"
+ * (length of the source code), see {@link InternalsConfig#getScriptCacheMaxEntries()} and
+ * {@link InternalsConfig#getScriptCacheMaxWeight()}. When a limit is exceeded, least recently used
+ * entries are evicted. Eviction is done by a single thread at a time; other threads do not wait for it.
+ *
+ * Hits, misses, compilations and evictions are recorded in {@link InternalMonitor#getScriptCacheStats(ScriptCacheKey)}
+ * under the name of "language/profile". The key is created once per profile, so a cache hit does not allocate.
+ *
  * @param <C> compiled code
  * @author Radovan Semancik
  */
 public class ScriptCache<I,C> {
 
-    private final Map<String, I> interpreterCache = new HashMap<>();
-    private final Map<String, Map<String, C>> codeCache = new HashMap<>();
+    private static final Trace LOGGER = TraceManager.getTrace(ScriptCache.class);
+
+    /** Concurrent maps do not accept null keys, so the "no profile" case needs a key of its own. */
+    private static final String NO_PROFILE_KEY = "";
+    private static final String NO_PROFILE_LABEL = "(none)";
+
+    /** After eviction, the cache is shrunk to this fraction of the limits, so we do not evict on every put. */
+    private static final double EVICTION_TARGET_RATIO = 0.9;
+
+    /** Provides the name of the cache (usually the language name); evaluated lazily, as it may not be known yet. */
+    @NotNull private final Supplier<String> nameSupplier;
+
+    private final Map<String, I> interpreterCache = new ConcurrentHashMap<>();
+    private final Map<String, ProfileCodeCache<C>> codeCache = new ConcurrentHashMap<>();
+
+    public ScriptCache() {
+        this(() -> "script");
+    }
+
+    public ScriptCache(@NotNull Supplier<String> nameSupplier) {
+        this.nameSupplier = nameSupplier;
+    }
 
-    public synchronized I getInterpreter(ExpressionProfile profile) {
+    public I getInterpreter(ExpressionProfile profile) {
         return interpreterCache.get(getProfileKey(profile));
     }
 
-    public synchronized void putInterpreter(ExpressionProfile profile, I interpreter) {
+    public void putInterpreter(ExpressionProfile profile, I interpreter) {
         interpreterCache.put(getProfileKey(profile), interpreter);
     }
 
-    public synchronized C getCode(ExpressionProfile profile, String sourceCodeKey) {
+    public C getCode(ExpressionProfile profile, String sourceCodeKey) {
         String profileKey = getProfileKey(profile);
-        Map<String, C> profileCache = codeCache.get(profileKey);
-        if (profileCache == null) {
-            return null;
+        ProfileCodeCache<C> profileCache = codeCache.get(profileKey);
+        ScriptCachingStatistics stats = profileCache != null ?
+                InternalMonitor.getScriptCacheStats(profileCache.statisticsKey) : getStatistics(profileKey);
+        stats.recordRequest();
+        C code = profileCache != null ? profileCache.get(sourceCodeKey) : null;
+        if (code != null) {
+            stats.recordHit();
+        } else {
+            stats.recordMiss();
         }
-        return profileCache.get(sourceCodeKey);
+        return code;
     }
 
-    public synchronized void putCode(ExpressionProfile profile, String sourceCodeKey, C compiledCode) {
+    public void putCode(ExpressionProfile profile, String sourceCodeKey, C compiledCode) {
         String profileKey = getProfileKey(profile);
-        Map<String, C> profileCache = codeCache.get(profileKey);
-        if (profileCache == null) {
-            profileCache = new HashMap<>();
-            codeCache.put(profileKey, profileCache);
-        }
-        profileCache.put(sourceCodeKey, compiledCode);
+        ProfileCodeCache<C> profileCache =
+                codeCache.computeIfAbsent(profileKey, k -> new ProfileCodeCache<>(createStatisticsKey(k)));
+        profileCache.put(sourceCodeKey, compiledCode, InternalMonitor.getScriptCacheStats(profileCache.statisticsKey));
+    }
+
+    /**
+     * Records the compilation of a script. Compilation itself is done by the evaluator,
+     * so it is the evaluator who measures the time.
+     */
+    public void recordCompilation(ExpressionProfile profile, long durationNanos) {
+        getStatistics(getProfileKey(profile)).recordCompilation(durationNanos);
+    }
+
+    public @NotNull ScriptCachingStatistics getStatistics(ExpressionProfile profile) {
+        return getStatistics(getProfileKey(profile));
+    }
+
+    private ScriptCachingStatistics getStatistics(String profileKey) {
+        return InternalMonitor.getScriptCacheStats(createStatisticsKey(profileKey));
+    }
+
+    private ScriptCacheKey createStatisticsKey(String profileKey) {
+        return new ScriptCacheKey(
+                nameSupplier.get(), NO_PROFILE_KEY.equals(profileKey) ? NO_PROFILE_LABEL : profileKey);
+    }
+
+    @VisibleForTesting
+    public int size(ExpressionProfile profile) {
+        ProfileCodeCache<C> profileCache = codeCache.get(getProfileKey(profile));
+        return profileCache != null ? profileCache.entries.size() : 0;
     }
 
     private String getProfileKey(ExpressionProfile profile) {
         if (profile == null) {
-            return null;
+            return NO_PROFILE_KEY;
         } else {
             return profile.getIdentifier();
         }
     }
 
-    public synchronized void clear() {
+    public void clear() {
         codeCache.clear();
     }
 
+    /** Compiled code for a single expression profile. */
+    private static class ProfileCodeCache<C> {
+
+        /** Statistics are looked up by this key (and not kept here), as they can be reset in the monitor. */
+        @NotNull private final ScriptCacheKey statisticsKey;
+
+        private final Map<String, Entry<C>> entries = new ConcurrentHashMap<>();
+        private final AtomicLong totalWeight = new AtomicLong();
+        private final ReentrantLock evictionLock = new ReentrantLock();
+
+        private ProfileCodeCache(@NotNull ScriptCacheKey statisticsKey) {
+            this.statisticsKey = statisticsKey;
+        }
+
+        C get(String sourceCodeKey) {
+            Entry<C> entry = entries.get(sourceCodeKey);
+            if (entry == null) {
+                return null;
+            }
+            entry.lastAccess = System.nanoTime();
+            return entry.code;
+        }
+
+        void put(String sourceCodeKey, C compiledCode, ScriptCachingStatistics stats) {
+            Entry<C> entry = new Entry<>(compiledCode, sourceCodeKey.length());
+            Entry<C> previous = entries.put(sourceCodeKey, entry);
+            totalWeight.addAndGet(entry.weight - (previous != null ? previous.weight : 0));
+            if (isOverLimit(1.0)) {
+                evict(stats);
+            }
+        }
+
+        private boolean isOverLimit(double ratio) {
+            return entries.size() > InternalsConfig.getScriptCacheMaxEntries() * ratio
+                    || totalWeight.get() > InternalsConfig.getScriptCacheMaxWeight() * ratio;
+        }
+
+        /**
+         * Removes least recently used entries until the cache fits into {@link #EVICTION_TARGET_RATIO} of the limits.
+         * If another thread is already evicting, we simply return.
+         */
+        private void evict(ScriptCachingStatistics stats) {
+            if (!evictionLock.tryLock()) {
+                return;
+            }
+            try {
+                // Access stamps are copied, because they can change while sorting.
+                List<EvictionCandidate<C>> candidates = new ArrayList<>(entries.size());
+                entries.forEach((key, entry) -> candidates.add(new EvictionCandidate<>(key, entry)));
+                candidates.sort(Comparator.comparingLong(c -> c.lastAccess));
+                int evicted = 0;
+                for (EvictionCandidate<C> candidate : candidates) {
+                    if (!isOverLimit(EVICTION_TARGET_RATIO)) {
+                        break;
+                    }
+                    Entry<C> entry = candidate.entry;
+                    if (entries.remove(candidate.key, entry)) {
+                        totalWeight.addAndGet(-entry.weight);
+                        evicted++;
+                    }
+                }
+                stats.recordEvictions(evicted);
+                LOGGER.trace("Evicted {} compiled script(s), {} remaining", evicted, entries.size());
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private static class Entry<C> {
+        private final C code;
+        private final int weight;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry(C code, int weight) {
+            this.code = code;
+            this.weight = weight;
+        }
+    }
+
+    private static class EvictionCandidate<C> {
+        private final String key;
+        private final Entry<C> entry;
+        private final long lastAccess;
+
+        private EvictionCandidate(String key, Entry<C> entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
 }
@@ -10,6 +10,9 @@ import java.util.*;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.xml.bind.JAXBElement;
+
+import org.apache.commons.lang3.mutable.MutableInt;
 
 import com.evolveum.midpoint.util.MiscUtil;
 import com.evolveum.midpoint.util.QNameUtil;
@@ -21,6 +24,8 @@ import com.evolveum.midpoint.model.common.expression.functions.CustomFunctions;
 import com.evolveum.midpoint.model.common.expression.functions.FunctionLibrary;
 import com.evolveum.midpoint.prism.ItemDefinition;
 import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.PrismPropertyValue;
 import com.evolveum.midpoint.repo.api.Cache;
 import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.api.CacheRegistry;
@@ -39,7 +44,12 @@ import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.exception.SecurityViolationException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ExpressionType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.FunctionLibraryType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectTemplateType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ScriptExpressionEvaluatorType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
 
@@ -59,6 +69,12 @@ public class ScriptExpressionFactory implements Cache {
 
     private static final String DEFAULT_LANGUAGE = "http://midpoint.evolveum.com/xml/ns/public/expression/language#Groovy";
 
+    private static final String OP_PREWARM_SCRIPT_CACHES = ScriptExpressionFactory.class.getName() + ".prewarmScriptCaches";
+
+    /** Object types whose scripts are compiled when pre-warming script caches. */
+    private static final List<Class<? extends ObjectType>> PREWARM_TYPES =
+            List.of(ObjectTemplateType.class, ResourceType.class, RoleType.class);
+
     @NotNull private final Map<String, ScriptEvaluator> evaluatorMap = new HashMap<>();
     @NotNull private final ObjectResolver objectResolver;
     @NotNull private final PrismContext prismContext;
@@ -269,6 +285,75 @@ public class ScriptExpressionFactory implements Cache {
                         customLibrariesMap.values()));
     }
 
+    /**
+     * Compiles scripts found in object templates, resources and roles, so they are present in script caches
+     * before the first evaluation. Scripts are compiled for the default (null) expression profile; objects
+     * with a different profile get their scripts compiled on the first use, as usual.
+     *
+     * Errors are only logged; a script that cannot be compiled here will fail again when evaluated.
+     */
+    public void prewarmScriptCaches(OperationResult parentResult) {
+        if (repositoryService == null) {
+            LOGGER.warn("No repository service set for ScriptExpressionFactory; script caches will not be pre-warmed.");
+            return;
+        }
+        OperationResult result = parentResult.createMinorSubresult(OP_PREWARM_SCRIPT_CACHES);
+        try {
+            long start = System.currentTimeMillis();
+            int compiled = 0;
+            for (Class<? extends ObjectType> type : PREWARM_TYPES) {
+                compiled += prewarmScriptCaches(type, result);
+            }
+            LOGGER.info("Pre-warmed script caches with {} script(s) in {} ms", compiled, System.currentTimeMillis() - start);
+        } catch (Throwable t) {
+            LOGGER.warn("Couldn't pre-warm script caches: {}", t.getMessage(), t);
+            result.recordException(t);
+        } finally {
+            result.close();
+        }
+    }
+
+    private <O extends ObjectType> int prewarmScriptCaches(Class<O> type, OperationResult result) throws SchemaException {
+        assert repositoryService != null;
+        MutableInt compiled = new MutableInt();
+        ResultHandler<O> handler = (object, lResult) -> {
+            object.accept(visitable -> {
+                if (visitable instanceof PrismPropertyValue<?>
+                        && ((PrismPropertyValue<?>) visitable).getRealValue() instanceof ExpressionType) {
+                    ExpressionType expression = (ExpressionType) ((PrismPropertyValue<?>) visitable).getRealValue();
+                    for (JAXBElement<?> evaluatorElement : expression.getExpressionEvaluator()) {
+                        if (evaluatorElement.getValue() instanceof ScriptExpressionEvaluatorType
+                                && precompile((ScriptExpressionEvaluatorType) evaluatorElement.getValue(), object)) {
+                            compiled.increment();
+                        }
+                    }
+                }
+            });
+            return true;
+        };
+        repositoryService.searchObjectsIterative(type, null, handler, createReadOnlyCollection(), true, result);
+        return compiled.intValue();
+    }
+
+    private boolean precompile(ScriptExpressionEvaluatorType scriptBean, PrismObject<?> object) {
+        String code = scriptBean.getCode();
+        if (code == null) {
+            return false;
+        }
+        String contextDescription = "script in " + object + " (cache pre-warming)";
+        try {
+            ScriptEvaluator evaluator = getEvaluator(getLanguage(scriptBean), contextDescription);
+            if (!(evaluator instanceof AbstractCachingScriptEvaluator<?, ?>) || !evaluator.isInitialized()) {
+                return false;
+            }
+            ((AbstractCachingScriptEvaluator<?, ?>) evaluator).precompile(code, null, contextDescription);
+            return true;
+        } catch (Exception e) {
+            LOGGER.debug("Couldn't pre-compile {}: {}", contextDescription, e.getMessage(), e);
+            return false;
+        }
+    }
+
     private @NotNull ScriptEvaluator getEvaluator(String languageUri, String shortDesc) throws ExpressionSyntaxException {
         ScriptEvaluator evaluator = evaluatorMap.get(languageUri);
         if (evaluator != null) {
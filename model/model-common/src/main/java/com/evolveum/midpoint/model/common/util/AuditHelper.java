@@ -40,6 +40,7 @@ import com.evolveum.midpoint.schema.ObjectDeltaOperation;
 import com.evolveum.midpoint.schema.SchemaService;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.result.OperationResultStatus;
 import com.evolveum.midpoint.schema.util.ObjectDeltaSchemaLevelUtil;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
@@ -65,7 +66,10 @@ public class AuditHelper {
     private RepositoryService repositoryService;
 
     private static final String OP_AUDIT = AuditHelper.class.getName() + ".audit";
+    private static final String OP_AUDIT_DEFERRED = AuditHelper.class.getName() + ".auditDeferred";
     private static final String OP_RESOLVE_NAME = AuditHelper.class.getName() + ".resolveName";
+    private static final String MESSAGE_COMMIT_FAILED =
+            "The changes were not committed, the repository commit batch failed";
     private static final String OP_EVALUATE_RECORDING_SCRIPT =
             AuditHelper.class.getName() + ".evaluateRecordingScript";
 
@@ -85,7 +89,16 @@ public class AuditHelper {
         try {
             LOGGER.trace("Auditing the record:\n{}", record.debugDumpLazily());
             resolveNamesInDeltas(record, externalNameResolver, result);
-            auditService.audit(record, task, result);
+            if (repositoryService.hasUncommittedModifications()) {
+                // In a repository commit batch, the record must not be written before the audited changes
+                // are committed; and if they are lost, it must say so.
+                LOGGER.trace("Deferring the audit record until the repository commit batch is committed");
+                repositoryService.executeAfterCommit(
+                        () -> auditDeferred(record, task),
+                        () -> auditDeferred(markCommitFailed(record), task));
+            } else {
+                auditService.audit(record, task, result);
+            }
         } catch (Throwable t) {
             result.recordFatalError(t);
             throw t;
@@ -98,6 +111,22 @@ public class AuditHelper {
         }
     }
 
+    /** The audited changes were done, but lost when the repository commit batch failed. */
+    private AuditEventRecord markCommitFailed(AuditEventRecord record) {
+        record.setOutcome(OperationResultStatus.FATAL_ERROR);
+        record.setMessage(MESSAGE_COMMIT_FAILED);
+        return record;
+    }
+
+    private void auditDeferred(AuditEventRecord record, Task task) {
+        OperationResult result = new OperationResult(OP_AUDIT_DEFERRED);
+        try {
+            auditService.audit(record, task, result);
+        } catch (Throwable t) {
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't write deferred audit record", t);
+        }
+    }
+
     private void resolveNamesInDeltas(
             AuditEventRecord record,
             ObjectDeltaSchemaLevelUtil.NameResolver externalNameResolver,
@@ -43,6 +43,8 @@ import com.evolveum.midpoint.schema.MidPointPrismContextFactory;
 import com.evolveum.midpoint.schema.constants.MidPointConstants;
 import com.evolveum.midpoint.schema.internals.InternalCounters;
 import com.evolveum.midpoint.schema.internals.InternalMonitor;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
+import com.evolveum.midpoint.schema.internals.ScriptCachingStatistics;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.test.util.InfraTestMixin;
 import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
@@ -119,6 +121,57 @@ public class TestScriptCaching extends AbstractUnitTest
         assertTrue("Even Horatio was wrong! " + horatio1Time + " -> " + horatio2Time, horatio2Time <= horatio1Time);
     }
 
+    @Test
+    public void testCacheStatistics() throws Exception {
+        given();
+        InternalMonitor.reset();
+        ScriptCache<?, ?> scriptCache = ((AbstractCachingScriptEvaluator<?, ?>) evaluator).getScriptCache();
+        scriptCache.clear();
+
+        try {
+            when();
+            executeScript("expression-string-variables.xml", "FOOBAR", "stats-first");
+            executeScript("expression-string-variables.xml", "FOOBAR", "stats-second");
+            executeScript("expression-string-variables.xml", "FOOBAR", "stats-third");
+
+            then();
+            ScriptCachingStatistics stats = scriptCache.getStatistics(null);
+            displayValue("Script cache statistics", stats);
+            assertEquals("Wrong # of requests", 3, stats.getRequests());
+            assertEquals("Wrong # of hits", 2, stats.getHits());
+            assertEquals("Wrong # of misses", 1, stats.getMisses());
+            assertEquals("Wrong # of compilations", 1, stats.getCompilations());
+            assertEquals("Wrong # of evictions", 0, stats.getEvictions());
+            assertTrue("No compilation time recorded", stats.getCompilationTimeNanos() > 0);
+        } finally {
+            scriptCache.clear();
+        }
+    }
+
+    @Test
+    public void testCacheEviction() {
+        given("script cache limited to 10 entries");
+        InternalMonitor.reset();
+        InternalsConfig.setScriptCacheMaxEntries(10);
+        ScriptCache<Object, String> scriptCache = new ScriptCache<>(() -> "eviction-test");
+
+        try {
+            when("20 scripts are put into the cache, first one being repeatedly used");
+            for (int i = 0; i < 20; i++) {
+                scriptCache.putCode(null, "code" + i, "compiled" + i);
+                scriptCache.getCode(null, "code0");
+            }
+
+            then("cache is bounded and keeps recently used entries");
+            assertTrue("Cache is too big: " + scriptCache.size(null), scriptCache.size(null) <= 10);
+            assertEquals("Recently used script was evicted", "compiled0", scriptCache.getCode(null, "code0"));
+            assertEquals("Most recent script was evicted", "compiled19", scriptCache.getCode(null, "code19"));
+            assertTrue("No evictions recorded", scriptCache.getStatistics(null).getEvictions() >= 10);
+        } finally {
+            InternalsConfig.setScriptCacheMaxEntries(InternalsConfig.DEFAULT_SCRIPT_CACHE_MAX_ENTRIES);
+        }
+    }
+
     private void assertScriptMonitor(int expCompilations, int expExecutions, String desc) {
         assertEquals("Unexpected number of script compilations after " + desc, expCompilations, InternalMonitor.getCount(InternalCounters.SCRIPT_COMPILE_COUNT));
         assertEquals("Unexpected number of script executions after " + desc, expExecutions, InternalMonitor.getCount(InternalCounters.SCRIPT_EXECUTION_COUNT));
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.repo.api.Cache;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
+
+/**
+ * Collects cluster-wide cache invalidations and sends them to other nodes asynchronously, in batches.
+ * Used when {@link InternalsConfig#isAsyncClusterCacheInvalidation()} is set.
+ *
+ * The first invalidation added to the empty queue schedules the sending after
+ * {@link InternalsConfig#getClusterCacheInvalidationBatchDelay()}; invalidations added in the meantime are coalesced
+ * (see {@link PendingCacheInvalidations}) and sent along with it.
+ *
+ * Keeps simple metrics: the number of queued, coalesced and sent invalidations, and the lag, i.e. the time from adding
+ * the oldest invalidation in a batch to the completion of sending the batch. They are reported along with the state
+ * of caches (it is registered in {@link CacheRegistry} for this purpose only; it does not react on invalidations).
+ */
+@Component
+public class ClusterCacheInvalidationQueue implements Cache {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ClusterCacheInvalidationQueue.class);
+
+    private static final String OP_SEND = ClusterCacheInvalidationQueue.class.getName() + ".send";
+
+    private static final String THREAD_NAME = "cluster-cache-invalidation";
+
+    /** Lag (in milliseconds) over which a warning is logged. */
+    private static final long LAG_WARNING_THRESHOLD = 10_000;
+
+    @Autowired private ClusterCacheInvalidationTransport transport;
+    @Autowired private CacheRegistry cacheRegistry;
+
+    private PendingCacheInvalidations pending;
+
+    private final AtomicBoolean sendScheduled = new AtomicBoolean();
+
+    private ScheduledExecutorService executor;
+
+    /** Set on shutdown. Invalidations added after that are sent immediately. */
+    private volatile boolean shutDown;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong eventsSent = new AtomicLong();
+    private volatile long lastLag;
+    private volatile long maxLag;
+
+    public void add(@Nullable Class<? extends ObjectType> type, @Nullable String oid) {
+        queued.incrementAndGet();
+        if (!getPending().add(type, oid)) {
+            coalesced.incrementAndGet();
+        }
+        if (shutDown) {
+            send();
+        } else if (sendScheduled.compareAndSet(false, true) && !scheduleSend()) {
+            send();
+        }
+    }
+
+    /** @return false if the queue was shut down in the meantime, so the sending could not be scheduled */
+    private synchronized boolean scheduleSend() {
+        if (shutDown) {
+            return false;
+        }
+        getExecutor().schedule(
+                this::send, InternalsConfig.getClusterCacheInvalidationBatchDelay(), TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private void send() {
+        // Cleared before draining, so invalidations added after the draining are sent in the next batch.
+        sendScheduled.set(false);
+        PendingCacheInvalidations.Drained drained = getPending().drain();
+        if (drained.events.isEmpty()) {
+            return;
+        }
+        OperationResult result = new OperationResult(OP_SEND);
+        try {
+            transport.send(drained.events, result);
+        } catch (Throwable t) {
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't send {} cache invalidation event(s)", t,
+                    drained.events.size());
+        }
+        long lag = System.currentTimeMillis() - drained.oldestTimestamp;
+        lastLag = lag;
+        maxLag = Math.max(maxLag, lag);
+        batchesSent.incrementAndGet();
+        eventsSent.addAndGet(drained.events.size());
+        if (lag > LAG_WARNING_THRESHOLD) {
+            LOGGER.warn("Cluster-wide cache invalidation lag is {} ms ({} event(s) sent)", lag, drained.events.size());
+        } else {
+            LOGGER.debug("Sent {} cache invalidation event(s) to other nodes, lag {} ms; totals: queued {}, coalesced {},"
+                            + " sent {} in {} batch(es)",
+                    drained.events.size(), lag, queued.get(), coalesced.get(), eventsSent.get(), batchesSent.get());
+        }
+    }
+
+    private synchronized PendingCacheInvalidations getPending() {
+        if (pending == null) {
+            pending = new PendingCacheInvalidations(InternalsConfig.getClusterCacheInvalidationTypeThreshold());
+        }
+        return pending;
+    }
+
+    private synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    @PostConstruct
+    public void register() {
+        cacheRegistry.registerCache(this);
+    }
+
+    /** Stops the executor and sends the invalidations still pending, so they are not lost. */
+    @PreDestroy
+    public void shutdown() {
+        cacheRegistry.unregisterCache(this);
+        synchronized (this) {
+            shutDown = true;
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+        send();
+    }
+
+    @Override
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+        // Nothing is cached here.
+    }
+
+    /** Lags are in milliseconds: size is the lag of the last batch sent, secondary size is the maximal one. */
+    @Override
+    public @NotNull Collection<SingleCacheStateInformationType> getStateInformation() {
+        SingleCacheStateInformationType info = new SingleCacheStateInformationType()
+                .name(ClusterCacheInvalidationQueue.class.getName());
+        info.beginComponent()
+                .name("queued")
+                .size(toInt(queued.get()));
+        info.beginComponent()
+                .name("coalesced")
+                .size(toInt(coalesced.get()));
+        info.beginComponent()
+                .name("sent (events/batches)")
+                .size(toInt(eventsSent.get()))
+                .secondarySize(toInt(batchesSent.get()));
+        info.beginComponent()
+                .name("lag (last/max)")
+                .size(toInt(lastLag))
+                .secondarySize(toInt(maxLag));
+        return Collections.singleton(info);
+    }
+
+    private static int toInt(long value) {
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void dumpContent() {
+        LOGGER.info("Cluster cache invalidations: queued {}, coalesced {}, sent {} in {} batch(es), lag last {} ms, max {} ms",
+                queued.get(), coalesced.get(), eventsSent.get(), batchesSent.get(), lastLag, maxLag);
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl;
+
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventType;
+
+/**
+ * Delivers cluster-wide cache invalidation events to other nodes in the cluster.
+ *
+ * The default implementation is {@link RestClusterCacheInvalidationTransport}. Other ones (e.g. based on the
+ * notification mechanism of the database) can be plugged in by providing a primary bean of this type.
+ */
+public interface ClusterCacheInvalidationTransport {
+
+    /**
+     * Sends the events to all other nodes. Nodes that cannot be reached are skipped, as their cache entries
+     * will expire eventually.
+     */
+    void send(@NotNull List<CacheInvalidationEventType> events, @NotNull OperationResult result);
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl;
+
+import java.util.*;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+
+/**
+ * Cluster-wide cache invalidations waiting to be sent to other nodes.
+ *
+ * Invalidations are coalesced when added:
+ *
+ * - repeated invalidations of the same object are kept only once,
+ * - invalidation of a whole type replaces invalidations of individual objects of that type,
+ * - invalidation of everything replaces all other invalidations,
+ * - if there are more than `typeThreshold` objects of a single type, they are replaced by the invalidation of the type.
+ *
+ * Thread-safe.
+ */
+class PendingCacheInvalidations {
+
+    private final int typeThreshold;
+
+    /** True if everything is to be invalidated. Other invalidations are then ignored. */
+    private boolean global;
+
+    /** OIDs to be invalidated, per type. The value of `null` means the whole type. */
+    @NotNull private final Map<Class<? extends ObjectType>, Set<String>> byType = new LinkedHashMap<>();
+
+    /** When was the oldest pending invalidation added. Zero if there is none. */
+    private long oldestTimestamp;
+
+    PendingCacheInvalidations(int typeThreshold) {
+        this.typeThreshold = typeThreshold;
+    }
+
+    /**
+     * @return false if the invalidation was coalesced with (i.e. covered by) another pending one
+     */
+    synchronized boolean add(@Nullable Class<? extends ObjectType> type, @Nullable String oid) {
+        if (global) {
+            return false;
+        }
+        if (oldestTimestamp == 0) {
+            oldestTimestamp = System.currentTimeMillis();
+        }
+        if (type == null) {
+            global = true;
+            byType.clear();
+            return true;
+        }
+        if (byType.containsKey(type)) {
+            Set<String> oids = byType.get(type);
+            if (oids == null) {
+                return false; // the whole type is already to be invalidated
+            } else if (oid == null || oids.size() >= typeThreshold) {
+                byType.put(type, null);
+                return oid == null;
+            } else {
+                return oids.add(oid);
+            }
+        } else {
+            byType.put(type, oid != null ? new LinkedHashSet<>(Set.of(oid)) : null);
+            return true;
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return !global && byType.isEmpty();
+    }
+
+    /** Returns all pending invalidations (as events to be sent) and clears them. */
+    synchronized @NotNull Drained drain() {
+        List<CacheInvalidationEventType> events = new ArrayList<>();
+        if (global) {
+            events.add(createEvent(null, null));
+        } else {
+            byType.forEach((type, oids) -> {
+                if (oids == null) {
+                    events.add(createEvent(type, null));
+                } else {
+                    oids.forEach(oid -> events.add(createEvent(type, oid)));
+                }
+            });
+        }
+        Drained drained = new Drained(events, oldestTimestamp);
+        global = false;
+        byType.clear();
+        oldestTimestamp = 0;
+        return drained;
+    }
+
+    static @NotNull CacheInvalidationEventType createEvent(
+            @Nullable Class<? extends ObjectType> type, @Nullable String oid) {
+        return new CacheInvalidationEventType()
+                .type(type != null ? ObjectTypes.getObjectType(type).getTypeQName() : null)
+                .oid(type != null ? oid : null);
+    }
+
+    static class Drained {
+
+        @NotNull final List<CacheInvalidationEventType> events;
+
+        /** When was the oldest of the events added. */
+        final long oldestTimestamp;
+
+        Drained(@NotNull List<CacheInvalidationEventType> events, long oldestTimestamp) {
+            this.events = events;
+            this.oldestTimestamp = oldestTimestamp;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl;
+
+import java.util.List;
+import javax.ws.rs.core.Response;
+
+import org.apache.cxf.jaxrs.client.WebClient;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.model.api.util.ClusterServiceConsts;
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.ClusterExecutionHelper;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventListType;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.NodeType;
+
+/**
+ * Sends cache invalidation events to other nodes via the cluster REST service.
+ *
+ * A single event is sent using the per-object invalidation path; more events are sent in one batch request.
+ * Nodes that do not support the batch request yet (i.e. respond with 404) get the events one by one.
+ */
+@Component
+public class RestClusterCacheInvalidationTransport implements ClusterCacheInvalidationTransport {
+
+    private static final Trace LOGGER = TraceManager.getTrace(RestClusterCacheInvalidationTransport.class);
+
+    @Autowired private ClusterExecutionHelper clusterExecutionHelper;
+
+    @Override
+    public void send(@NotNull List<CacheInvalidationEventType> events, @NotNull OperationResult result) {
+        if (events.isEmpty()) {
+            return;
+        }
+        // Regular cache invalidation can be skipped for nodes not checking in. Cache entries will expire on such nodes
+        // eventually. (We can revisit this design decision if needed.)
+        clusterExecutionHelper.execute((client, node, result1) -> {
+            if (events.size() == 1) {
+                sendSingle(client, node, events.get(0));
+            } else {
+                sendBatch(client, node, events);
+            }
+        }, null, "cache invalidation", result);
+    }
+
+    private void sendBatch(WebClient client, NodeType node, List<CacheInvalidationEventType> events) {
+        CacheInvalidationEventListType list = new CacheInvalidationEventListType();
+        list.getEvent().addAll(events);
+        client.path(ClusterServiceConsts.EVENT_INVALIDATION_BATCH);
+        Response response = client.post(list);
+        Response.StatusType statusInfo = response.getStatusInfo();
+        response.close();
+        if (statusInfo.getStatusCode() == Response.Status.NOT_FOUND.getStatusCode()) {
+            LOGGER.debug("Node {} does not support batched cache invalidation, sending {} events one by one",
+                    node.getNodeIdentifier(), events.size());
+            for (CacheInvalidationEventType event : events) {
+                sendSingle(client.back(true), node, event);
+            }
+        } else {
+            logStatus(node, statusInfo, events.size());
+        }
+    }
+
+    private void sendSingle(WebClient client, NodeType node, CacheInvalidationEventType event) {
+        client.path(getInvalidationRestPath(event));
+        Response response = client.post(null);
+        logStatus(node, response.getStatusInfo(), 1);
+        response.close();
+    }
+
+    private void logStatus(NodeType node, Response.StatusType statusInfo, int events) {
+        if (statusInfo.getFamily() != Response.Status.Family.SUCCESSFUL) {
+            LOGGER.warn("Cluster-wide cache clearance ({} event(s)) finished on {} with status {}, {}", events,
+                    node.getNodeIdentifier(), statusInfo.getStatusCode(), statusInfo.getReasonPhrase());
+        } else {
+            LOGGER.debug("Cluster-wide cache clearance ({} event(s)) finished on {} with status {}, {}", events,
+                    node.getNodeIdentifier(), statusInfo.getStatusCode(), statusInfo.getReasonPhrase());
+        }
+    }
+
+    @NotNull
+    private String getInvalidationRestPath(CacheInvalidationEventType event) {
+        StringBuilder sb = new StringBuilder(ClusterServiceConsts.EVENT_INVALIDATION);
+        if (event.getType() != null) {
+            sb.append(ObjectTypes.getRestTypeFromClass(ObjectTypes.getObjectTypeClass(event.getType())));
+            if (event.getOid() != null) {
+                sb.append("/").append(event.getOid());
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -36,6 +36,7 @@ import com.evolveum.midpoint.model.api.*;
 import com.evolveum.midpoint.model.api.authentication.GuiProfiledPrincipalManager;
 import com.evolveum.midpoint.model.api.hooks.HookRegistry;
 import com.evolveum.midpoint.model.api.hooks.ReadHook;
+import com.evolveum.midpoint.model.common.expression.script.ScriptExpressionFactory;
 import com.evolveum.midpoint.model.common.util.AuditHelper;
 import com.evolveum.midpoint.model.impl.ModelObjectResolver;
 import com.evolveum.midpoint.model.impl.importer.ObjectImporter;
@@ -150,6 +151,7 @@ public class ModelController implements ModelService, TaskService, CaseService,
     @Autowired private SystemObjectCache systemObjectCache;
     @Autowired private ClockworkMedic clockworkMedic;
     @Autowired private EventDispatcher dispatcher;
+    @Autowired private ScriptExpressionFactory scriptExpressionFactory;
     @Autowired
     @Qualifier("cacheRepositoryService")
     private RepositoryService cacheRepositoryService;
@@ -1490,6 +1492,10 @@ public class ModelController implements ModelService, TaskService, CaseService,
 
             provisioning.postInit(result);
 
+            if (InternalsConfig.isScriptCachePrewarm()) {
+                scriptExpressionFactory.prewarmScriptCaches(result);
+            }
+
         } catch (SchemaException e) {
             result.recordFatalError(e);
             throw new SystemException(e.getMessage(), e);
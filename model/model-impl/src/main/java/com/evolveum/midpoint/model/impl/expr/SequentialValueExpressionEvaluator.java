@@ -14,6 +14,7 @@ import com.evolveum.midpoint.common.SequenceUtil;
 import com.evolveum.midpoint.model.api.ModelExecuteOptions;
 import com.evolveum.midpoint.model.api.context.ModelContext;
 import com.evolveum.midpoint.model.common.expression.ModelExpressionThreadLocalHolder;
+import com.evolveum.midpoint.model.impl.lens.LensContext;
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.crypto.Protector;
 import com.evolveum.midpoint.prism.delta.ItemDeltaUtil;
@@ -27,6 +28,7 @@ import com.evolveum.midpoint.util.exception.ExpressionEvaluationException;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.exception.SecurityViolationException;
+import com.evolveum.midpoint.util.exception.TunnelException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 
 /**
@@ -76,34 +78,35 @@ public class SequentialValueExpressionEvaluator<V extends PrismValue, D extends
      */
     static long getSequenceCounterValue(String sequenceOid, RepositoryService repositoryService, OperationResult result)
             throws ObjectNotFoundException, SchemaException {
-        ModelContext<? extends FocusType> ctx = ModelExpressionThreadLocalHolder.getLensContextRequired();
-
-        Long alreadyObtainedValue = ctx.getSequenceCounter(sequenceOid);
-        if (alreadyObtainedValue != null) {
-            return alreadyObtainedValue;
-        } else {
-            long freshValue;
-            if (!isAdvanceSequenceSafe()) {
-                freshValue = repositoryService.advanceSequence(sequenceOid, result);
+        LensContext<?> ctx = (LensContext<?>) ModelExpressionThreadLocalHolder.getLensContextRequired();
+
+        // Projections can be processed in parallel; we must not obtain two values for the same clockwork run.
+        try {
+            return ctx.getOrObtainSequenceCounter(sequenceOid, oid -> {
+                try {
+                    if (!isAdvanceSequenceSafe(ctx)) {
+                        return repositoryService.advanceSequence(oid, result);
+                    } else {
+                        SequenceType seq =
+                                repositoryService
+                                        .getObject(SequenceType.class, oid, null, result)
+                                        .asObjectable();
+                        return SequenceUtil.advanceSequence(seq);
+                    }
+                } catch (ObjectNotFoundException | SchemaException e) {
+                    throw new TunnelException(e);
+                }
+            });
+        } catch (TunnelException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ObjectNotFoundException) {
+                throw (ObjectNotFoundException) cause;
             } else {
-                SequenceType seq =
-                        repositoryService
-                                .getObject(SequenceType.class, sequenceOid, null, result)
-                                .asObjectable();
-                freshValue = SequenceUtil.advanceSequence(seq);
+                throw (SchemaException) cause;
             }
-
-            ctx.setSequenceCounter(sequenceOid, freshValue);
-
-            return freshValue;
         }
     }
 
-    private static boolean isAdvanceSequenceSafe() {
-        return isAdvanceSequenceSafe(
-                ModelExpressionThreadLocalHolder.getLensContextRequired());
-    }
-
     public static boolean isAdvanceSequenceSafe(ModelContext<?> context) {
         return ModelExecuteOptions.isAdvanceSequenceSafe(
                 context.getOptions());
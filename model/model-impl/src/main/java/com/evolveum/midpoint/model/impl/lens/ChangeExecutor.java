@@ -7,10 +7,19 @@
 
 package com.evolveum.midpoint.model.impl.lens;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.evolveum.midpoint.model.impl.lens.executor.FocusChangeExecution;
 import com.evolveum.midpoint.model.impl.lens.executor.ProjectionChangeExecution;
+import com.evolveum.midpoint.model.impl.lens.projector.DependencyProcessor;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.util.exception.*;
@@ -26,6 +35,9 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
  * - {@link FocusChangeExecution}
  * - {@link ProjectionChangeExecution}
  *
+ * If {@link InternalsConfig#isParallelProjectionExecution()} is set, changes of projections on different resources
+ * are executed in parallel (within the current execution wave). See {@link #executeProjectionsChangesInParallel}.
+ *
  * TODO Move to `executor` package. But this is incompatible change regarding loggers and operation names.
  *
  * @author semancik
@@ -39,6 +51,10 @@ public class ChangeExecutor {
     public static final String OPERATION_EXECUTE_FOCUS = OPERATION_EXECUTE + ".focus";
     public static final String OPERATION_EXECUTE_PROJECTION = OPERATION_EXECUTE + ".projection";
     public static final String OPERATION_EXECUTE_DELTA = ChangeExecutor.class.getName() + ".executeDelta";
+    public static final String OPERATION_EXECUTE_PROJECTIONS_IN_PARALLEL = OPERATION_EXECUTE + ".projectionsInParallel";
+    private static final String OPERATION_EXECUTE_PROJECTION_GROUP = OPERATION_EXECUTE + ".projectionGroup";
+
+    @Autowired private LensParallelExecutor parallelExecutor;
 
     public <O extends ObjectType> void executeChanges(LensContext<O> context, Task task,
             OperationResult parentResult) throws ObjectAlreadyExistsException, ObjectNotFoundException,
@@ -74,12 +90,115 @@ public class ChangeExecutor {
 
     private <O extends ObjectType> void executeProjectionsChanges(LensContext<O> context, Task task, OperationResult result)
             throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException,
-            SecurityViolationException, PolicyViolationException, ExpressionEvaluationException, ObjectAlreadyExistsException {
+            SecurityViolationException, PolicyViolationException, ExpressionEvaluationException, ObjectAlreadyExistsException,
+            ConflictDetectedException {
 
-        for (LensProjectionContext projCtx : context.getProjectionContexts()) {
+        List<LensProjectionContext> remaining = new ArrayList<>(context.getProjectionContexts());
+        if (InternalsConfig.isParallelProjectionExecution()) {
+            List<List<LensProjectionContext>> groups = groupProjectionsByResource(context);
+            if (parallelExecutor.canRunInParallel(groups.size())) {
+                context.checkAbortRequested();
+                executeProjectionsChangesInParallel(context, groups, task, result);
+                groups.forEach(remaining::removeAll);
+            }
+        }
+
+        for (LensProjectionContext projCtx : remaining) {
             context.checkAbortRequested();
             new ProjectionChangeExecution<O>(projCtx, task)
                     .execute(result);
         }
     }
+
+    /**
+     * Executes the groups of projections in parallel; projections in a group are executed sequentially, in the order
+     * in which they are present in the context.
+     *
+     * Only the delta execution itself is done in parallel, see {@link ProjectionChangeExecution#executeDelta(OperationResult)}.
+     * The rest (focus-shadow link updates, AFTER scripts, result status computation, setting the "completed" flag)
+     * is done after all the groups are done, sequentially and in the context order, see
+     * {@link ProjectionChangeExecution#complete()}. The links are stored in the focus, so we avoid concurrent
+     * modifications of it; and the deltas executed on the focus (and hence the audit records) come in a deterministic
+     * order. The same holds for the operation result: each group has its own one, created beforehand.
+     */
+    private <O extends ObjectType> void executeProjectionsChangesInParallel(
+            LensContext<O> context, List<List<LensProjectionContext>> groups, Task task, OperationResult result)
+            throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException,
+            SecurityViolationException, PolicyViolationException, ExpressionEvaluationException, ObjectAlreadyExistsException,
+            ConflictDetectedException {
+
+        LOGGER.trace("Executing changes of {} group(s) of projections in parallel", groups.size());
+        OperationResult parallelResult = result.createMinorSubresult(OPERATION_EXECUTE_PROJECTIONS_IN_PARALLEL);
+        try {
+            Map<LensProjectionContext, ProjectionChangeExecution<O>> executionMap = new IdentityHashMap<>();
+            List<ProjectorComponentRunnable> items = new ArrayList<>();
+            List<OperationResult> groupResults = new ArrayList<>();
+            for (List<LensProjectionContext> group : groups) {
+                List<ProjectionChangeExecution<O>> executions = new ArrayList<>();
+                for (LensProjectionContext projCtx : group) {
+                    ProjectionChangeExecution<O> execution = new ProjectionChangeExecution<>(projCtx, task);
+                    executions.add(execution);
+                    executionMap.put(projCtx, execution);
+                }
+                items.add(groupResult -> {
+                    for (ProjectionChangeExecution<O> execution : executions) {
+                        execution.executeDelta(groupResult);
+                    }
+                });
+                groupResults.add(
+                        parallelResult.subresult(OPERATION_EXECUTE_PROJECTION_GROUP)
+                                .setMinor()
+                                .addParam("resourceOid", group.get(0).getResourceOid())
+                                .build());
+            }
+
+            List<Throwable> failures;
+            context.enterParallelProcessing();
+            try {
+                failures = parallelExecutor.runAllCollectingFailures(items, groupResults);
+            } finally {
+                context.exitParallelProcessing();
+            }
+
+            // Projections whose delta execution was done are completed even if some other projection failed,
+            // so their links are not lost. The first failure (in the context order) is then thrown.
+            List<Throwable> completionFailures = new ArrayList<>();
+            for (LensProjectionContext projCtx : context.getProjectionContexts()) {
+                ProjectionChangeExecution<O> execution = executionMap.get(projCtx);
+                if (execution != null) {
+                    try {
+                        execution.complete();
+                    } catch (Throwable t) {
+                        completionFailures.add(t);
+                    }
+                }
+            }
+            groupResults.forEach(OperationResult::close);
+            LensParallelExecutor.throwFirstFailure(failures);
+            LensParallelExecutor.throwFirstFailure(completionFailures);
+            context.checkConsistenceIfNeeded();
+        } catch (Throwable t) {
+            parallelResult.recordFatalError(t);
+            throw t;
+        } finally {
+            parallelResult.close();
+        }
+    }
+
+    /**
+     * Groups projections whose changes are to be executed in the current wave by resource. Projections on the same
+     * resource are kept together (and executed sequentially), because they can interact, e.g. higher-order contexts
+     * or entitlements. Projections in the same wave have no dependencies on each other, see {@link DependencyProcessor}.
+     */
+    private List<List<LensProjectionContext>> groupProjectionsByResource(LensContext<?> context) {
+        Map<String, List<LensProjectionContext>> groups = new LinkedHashMap<>();
+        for (LensProjectionContext projCtx : context.getProjectionContexts()) {
+            String resourceOid = projCtx.getResourceOid();
+            if (resourceOid != null && ProjectionChangeExecution.shouldExecute(projCtx)) {
+                groups.computeIfAbsent(resourceOid, k -> new ArrayList<>())
+                        .add(projCtx);
+            }
+        }
+        return new ArrayList<>(groups.values());
+    }
 }
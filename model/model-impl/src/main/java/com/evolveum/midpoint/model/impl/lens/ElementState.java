@@ -392,6 +392,17 @@ class ElementState<O extends ObjectType> implements Serializable, Cloneable {
         return summaryDelta;
     }
 
+    /**
+     * Computes all the lazily computed state (deltas, adjusted current and new object) in advance. This is needed
+     * before the element is read by multiple threads at once, because the lazy computation is not thread-safe.
+     */
+    void computeLazyState() throws SchemaException, ConfigurationException {
+        getCurrentDelta();
+        getSummaryDelta();
+        getAdjustedCurrentObject();
+        getNewObject();
+    }
+
     @NotNull ObjectDeltaWaves<O> getArchivedSecondaryDeltas() {
         return archivedSecondaryDeltas;
     }
@@ -12,6 +12,8 @@ import static com.evolveum.midpoint.util.MiscUtil.stateCheck;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -221,6 +223,8 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
     /**
      * Cache of resource instances. It is used to reduce the number of read
      * (getObject) calls for ResourceType objects.
+     *
+     * Concurrent, because projections can be processed in parallel (see {@link LensParallelExecutor}).
      */
     private transient Map<String, ResourceType> resourceCache;
 
@@ -239,13 +243,21 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
     /**
      * Current values of sequences used during the clockwork.
      */
-    private final Map<String, Long> sequences = new HashMap<>();
+    private final Map<String, Long> sequences = new ConcurrentHashMap<>();
 
     /**
      * Moved from ProjectionValuesProcessor TODO consider if necessary to
      * serialize to XML
      */
-    @NotNull private final List<LensProjectionContext> conflictingProjectionContexts = new ArrayList<>();
+    @NotNull private final List<LensProjectionContext> conflictingProjectionContexts =
+            Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * True while projections are processed or executed by multiple threads (see {@link LensParallelExecutor}).
+     * Checks of the whole context are skipped in the meanwhile, because other projections are being changed
+     * by other threads; they are done after the parallel part is over.
+     */
+    private transient volatile boolean inParallelProcessing;
 
     /** Denotes (legacy) "preview changes" mode. */
     private transient boolean preview;
@@ -956,7 +968,7 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
     }
 
     public void checkConsistenceIfNeeded() {
-        if (InternalsConfig.consistencyChecks) {
+        if (InternalsConfig.consistencyChecks && !inParallelProcessing) {
             try {
                 checkConsistence();
             } catch (IllegalStateException e) {
@@ -967,6 +979,23 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
         }
     }
 
+    /**
+     * Prepares the context for processing of its projections by multiple threads. The focus context is shared
+     * by them (read-only), so its lazily computed state is computed here, in advance.
+     *
+     * Must be paired with {@link #exitParallelProcessing()}.
+     */
+    public void enterParallelProcessing() throws SchemaException, ConfigurationException {
+        if (focusContext != null) {
+            focusContext.computeLazyState();
+        }
+        inParallelProcessing = true;
+    }
+
+    public void exitParallelProcessing() {
+        inParallelProcessing = false;
+    }
+
     public void checkConsistence() {
         checkAbortRequested();
         if (focusContext != null) {
@@ -1008,9 +1037,9 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
         return new LensProjectionContext(this, key);
     }
 
-    private Map<String, ResourceType> getResourceCache() {
+    private synchronized Map<String, ResourceType> getResourceCache() {
         if (resourceCache == null) {
-            resourceCache = new HashMap<>();
+            resourceCache = new ConcurrentHashMap<>();
         }
         return resourceCache;
     }
@@ -1022,7 +1051,7 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
      * @see LensContext#rememberResource(ResourceType)
      */
     public ResourceType getResource(String resourceOid) {
-        return getResourceCache().get(resourceOid);
+        return resourceOid != null ? getResourceCache().get(resourceOid) : null;
     }
 
     /**
@@ -1073,7 +1102,7 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
         clone.isFresh = this.isFresh;
         clone.isRequestAuthorized = this.isRequestAuthorized;
         clone.resourceCache = resourceCache != null ?
-                new HashMap<>(resourceCache) : null;
+                new ConcurrentHashMap<>(resourceCache) : null;
         clone.explicitFocusTemplateOid = this.explicitFocusTemplateOid;
         clone.projectionWave = this.projectionWave;
         if (options != null) {
@@ -1512,8 +1541,9 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
         return progressListeners;
     }
 
+    /** Synchronized, because changes of projections can be executed in parallel (see {@link ChangeExecutor}). */
     @Override
-    public void reportProgress(ProgressInformation progress) {
+    public synchronized void reportProgress(ProgressInformation progress) {
         if (progressListeners == null) {
             return;
         }
@@ -1554,6 +1584,16 @@ public class LensContext<F extends ObjectType> implements ModelContext<F>, Clone
         sequences.put(sequenceOid, counter);
     }
 
+    /**
+     * Returns the value of given sequence, obtaining it by the provided function if there is none yet.
+     * The function is called at most once per sequence, even if projections are processed in parallel.
+     * The context itself is not locked while the value is obtained from the repository, only callers asking
+     * for the same sequence (or, rarely, updating another sequence in the same bin of the map) wait for it.
+     */
+    public long getOrObtainSequenceCounter(@NotNull String sequenceOid, @NotNull Function<String, Long> obtainer) {
+        return sequences.computeIfAbsent(sequenceOid, obtainer);
+    }
+
     @NotNull
     public List<LensProjectionContext> getConflictingProjectionContexts() {
         return conflictingProjectionContexts;
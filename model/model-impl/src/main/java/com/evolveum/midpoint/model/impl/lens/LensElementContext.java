@@ -219,6 +219,11 @@ public abstract class LensElementContext<O extends ObjectType> implements ModelE
         return state.getNewObject();
     }
 
+    /** See {@link ElementState#computeLazyState()}. */
+    void computeLazyState() throws SchemaException, ConfigurationException {
+        state.computeLazyState();
+    }
+
     public @Nullable PrismObject<O> getObjectNewOrCurrentOrOld() {
         return state.getNewOrCurrentOrOld();
     }
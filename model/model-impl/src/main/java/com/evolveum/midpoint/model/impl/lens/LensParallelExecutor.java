@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl.lens;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.api.SqlPerformanceMonitorsCollection;
+import com.evolveum.midpoint.repo.api.perf.PerformanceInformation;
+import com.evolveum.midpoint.repo.api.perf.PerformanceMonitor;
+import com.evolveum.midpoint.repo.cache.RepositoryCache;
+import com.evolveum.midpoint.schema.cache.CacheConfigurationManager;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.security.api.SecurityContextManager;
+import com.evolveum.midpoint.util.exception.*;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Executes independent pieces of lens work (e.g. processing of projections that do not depend on each other)
+ * concurrently, on a bounded pool of worker threads.
+ *
+ * - Each work item gets its own {@link OperationResult}, created by the caller beforehand. So the structure of
+ * the operation result tree (and of traces stored in it) is the same as in the sequential case.
+ * - The method returns only after all items are done. The exception thrown (if any) is the one from the first
+ * failed item in the list order, so the outcome does not depend on thread scheduling.
+ * - Worker threads get the caller's authentication, caching profiles, operation result handling strategy and
+ * SQL performance statistics collection (so the work done in them is accounted to the caller), and their own
+ * local repository caches.
+ * - If no worker is free, the item is executed in the calling thread. Parallel processing requested from within
+ * a worker thread (e.g. a nested clockwork run) is done sequentially. Hence, the pool cannot deadlock.
+ * - If the caller has a repository commit batch, everything is done sequentially in the calling thread. Workers
+ * would use their own transactions, so they would not see the uncommitted rows of the batch, and they could wait
+ * for rows locked by the batch while the caller waits for them (which the database cannot detect).
+ *
+ * The pool size is given by {@link InternalsConfig#getLensWorkerThreads()}.
+ */
+@Component
+public class LensParallelExecutor {
+
+    private static final Trace LOGGER = TraceManager.getTrace(LensParallelExecutor.class);
+
+    private static final String THREAD_NAME_PREFIX = "midpoint-lens-worker-";
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static final ThreadLocal<Boolean> IN_WORKER = ThreadLocal.withInitial(() -> false);
+
+    @Autowired private CacheConfigurationManager cacheConfigurationManager;
+    @Autowired private SecurityContextManager securityContextManager;
+    @Autowired @Qualifier("cacheRepositoryService") private RepositoryService repositoryService;
+    @Autowired(required = false) private SqlPerformanceMonitorsCollection sqlPerformanceMonitors;
+
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Returns true if it makes sense to run given number of items in parallel at this moment.
+     */
+    public boolean canRunInParallel(int items) {
+        return items > 1 && InternalsConfig.getLensWorkerThreads() > 0 && !IN_WORKER.get()
+                && !repositoryService.isInCommitBatch();
+    }
+
+    /**
+     * Runs the items, each with its own (pre-created) operation result.
+     */
+    public void runAll(@NotNull List<ProjectorComponentRunnable> items, @NotNull List<OperationResult> results)
+            throws SchemaException, ObjectNotFoundException, CommunicationException, ConfigurationException,
+            SecurityViolationException, PolicyViolationException, ExpressionEvaluationException,
+            ObjectAlreadyExistsException, ConflictDetectedException {
+        assert items.size() == results.size();
+        throwFirstFailure(runAllCollectingFailures(items, results));
+    }
+
+    /**
+     * Throws the first non-null failure from the list (as returned by {@link #runAllCollectingFailures(List, List)}),
+     * if there is any.
+     */
+    public static void throwFirstFailure(@NotNull List<Throwable> failures)
+            throws SchemaException, ObjectNotFoundException, CommunicationException, ConfigurationException,
+            SecurityViolationException, PolicyViolationException, ExpressionEvaluationException,
+            ObjectAlreadyExistsException, ConflictDetectedException {
+        for (Throwable failure : failures) {
+            if (failure != null) {
+                rethrow(failure);
+            }
+        }
+    }
+
+    /**
+     * Runs the items and returns their failures (null for items that finished normally), in the order of the items.
+     */
+    public @NotNull List<Throwable> runAllCollectingFailures(
+            @NotNull List<ProjectorComponentRunnable> items, @NotNull List<OperationResult> results) {
+        Thread callerThread = Thread.currentThread();
+        CallerState callerState = captureCallerState();
+
+        List<Future<?>> futures = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            ProjectorComponentRunnable item = items.get(i);
+            OperationResult result = results.get(i);
+            Callable<Void> callable = () -> {
+                if (Thread.currentThread() == callerThread) {
+                    // No free worker, the item is run by the caller (see CallerRunsPolicy).
+                    item.run(result);
+                } else {
+                    runInWorker(item, result, callerState);
+                }
+                return null;
+            };
+            futures.add(getExecutor().submit(callable));
+        }
+
+        List<Throwable> failures = new ArrayList<>(items.size());
+        for (Future<?> future : futures) {
+            failures.add(waitFor(future));
+        }
+        return failures;
+    }
+
+    private CallerState captureCallerState() {
+        return new CallerState(
+                securityContextManager.getAuthentication(),
+                cacheConfigurationManager.getThreadLocalProfiles(),
+                OperationResult.getThreadLocalHandlingStrategyName(),
+                sqlPerformanceMonitors != null ? sqlPerformanceMonitors.getThreadLocalPerformanceInformationByMonitor() : Map.of());
+    }
+
+    private void runInWorker(ProjectorComponentRunnable item, OperationResult result, CallerState callerState)
+            throws CommonException, ConflictDetectedException {
+        IN_WORKER.set(true);
+        securityContextManager.setupPreAuthenticatedSecurityContext(callerState.authentication);
+        if (callerState.cachingProfiles != null) {
+            cacheConfigurationManager.setThreadLocalProfiles(callerState.cachingProfiles);
+        }
+        OperationResult.setThreadLocalHandlingStrategy(callerState.handlingStrategyName);
+        if (sqlPerformanceMonitors != null) {
+            sqlPerformanceMonitors.setThreadLocalPerformanceInformation(callerState.sqlPerformanceInformation);
+        }
+        RepositoryCache.enterLocalCaches(cacheConfigurationManager);
+        try {
+            item.run(result);
+        } finally {
+            RepositoryCache.exitLocalCaches();
+            if (sqlPerformanceMonitors != null) {
+                sqlPerformanceMonitors.setThreadLocalPerformanceInformation(Map.of());
+            }
+            OperationResult.setThreadLocalHandlingStrategy(null);
+            cacheConfigurationManager.unsetThreadLocalProfiles();
+            securityContextManager.setupPreAuthenticatedSecurityContext((Authentication) null);
+            IN_WORKER.set(false);
+        }
+    }
+
+    /** Thread-local state of the calling thread that is propagated to the workers. */
+    private static class CallerState {
+        private final Authentication authentication;
+        @Nullable private final Collection<String> cachingProfiles;
+        @Nullable private final String handlingStrategyName;
+        @NotNull private final Map<PerformanceMonitor, PerformanceInformation> sqlPerformanceInformation;
+
+        private CallerState(Authentication authentication, @Nullable Collection<String> cachingProfiles,
+                @Nullable String handlingStrategyName,
+                @NotNull Map<PerformanceMonitor, PerformanceInformation> sqlPerformanceInformation) {
+            this.authentication = authentication;
+            this.cachingProfiles = cachingProfiles;
+            this.handlingStrategyName = handlingStrategyName;
+            this.sqlPerformanceInformation = sqlPerformanceInformation;
+        }
+    }
+
+    private Throwable waitFor(Future<?> future) {
+        try {
+            future.get();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new SystemException("Interrupted while waiting for parallel lens processing", e);
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        int threads = Math.max(1, InternalsConfig.getLensWorkerThreads());
+        if (executor == null) {
+            LOGGER.info("Starting lens worker pool with {} thread(s)", threads);
+            executor = new ThreadPoolExecutor(
+                    0, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        } else if (executor.getMaximumPoolSize() != threads) {
+            LOGGER.info("Resizing lens worker pool to {} thread(s)", threads);
+            executor.setMaximumPoolSize(threads);
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static void rethrow(Throwable t)
+            throws SchemaException, ObjectNotFoundException, CommunicationException, ConfigurationException,
+            SecurityViolationException, PolicyViolationException, ExpressionEvaluationException,
+            ObjectAlreadyExistsException, ConflictDetectedException {
+        if (t instanceof SchemaException) {
+            throw (SchemaException) t;
+        } else if (t instanceof ObjectNotFoundException) {
+            throw (ObjectNotFoundException) t;
+        } else if (t instanceof CommunicationException) {
+            throw (CommunicationException) t;
+        } else if (t instanceof ConfigurationException) {
+            throw (ConfigurationException) t;
+        } else if (t instanceof SecurityViolationException) {
+            throw (SecurityViolationException) t;
+        } else if (t instanceof PolicyViolationException) {
+            throw (PolicyViolationException) t;
+        } else if (t instanceof ExpressionEvaluationException) {
+            throw (ExpressionEvaluationException) t;
+        } else if (t instanceof ObjectAlreadyExistsException) {
+            throw (ObjectAlreadyExistsException) t;
+        } else if (t instanceof ConflictDetectedException) {
+            throw (ConflictDetectedException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else {
+            throw new SystemException(t.getMessage(), t);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.lens.assignments;
+
+import java.util.*;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.repo.api.Cache;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
+import com.evolveum.midpoint.security.api.Authorization;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AbstractRoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AuthorizationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
+
+/**
+ * Caches the authorizations collected from roles by {@link TargetPayloadEvaluation}, so that they are not created
+ * (and deduplicated) over and over again for each focus having the role, e.g. in a recomputation of many users that
+ * have the same business roles.
+ *
+ * The authorizations depend only on the role itself, not on the focus nor on the assignment path. (The path determines
+ * only whether they are collected at all, see the evaluation order check in {@link TargetPayloadEvaluation}.)
+ * So they are keyed by the role OID and version: a modification of the role makes the old entry unusable, and it is
+ * also removed on the respective cache invalidation event. The authorization beans are cloned and frozen, so that
+ * the entries are not affected by any later changes of the role object they were taken from.
+ *
+ * Roles without OID or version, and the role that is being processed as the focus (its in-memory content can
+ * differ from the stored version) are not cached. The cache is used only if {@link InternalsConfig#isRolePayloadCaching()}
+ * is set; the least recently used entries are evicted when {@link #MAX_ENTRIES} is reached.
+ */
+@Component
+public class RolePayloadCache implements Cache {
+
+    private static final Trace LOGGER = TraceManager.getTrace(RolePayloadCache.class);
+    private static final Trace LOGGER_CONTENT = TraceManager.getTrace(RolePayloadCache.class.getName() + ".content");
+
+    @VisibleForTesting
+    static final int MAX_ENTRIES = 10_000;
+
+    @Autowired private CacheRegistry cacheRegistry;
+    @Autowired private PrismContext prismContext;
+
+    /** The entries, in the access order (for LRU eviction). Guarded by itself. */
+    private final Map<Key, List<Authorization>> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, List<Authorization>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    @PostConstruct
+    public void register() {
+        cacheRegistry.registerCache(this);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        cacheRegistry.unregisterCache(this);
+    }
+
+    /**
+     * Returns the authorizations of given role (without duplicates), each with the role as its source description.
+     * The returned list must not be modified.
+     */
+    @NotNull List<Authorization> getAuthorizations(@NotNull AbstractRoleType role, @Nullable String focusOid) {
+        if (!InternalsConfig.isRolePayloadCaching()
+                || role.getOid() == null || role.getVersion() == null || role.getOid().equals(focusOid)) {
+            return createAuthorizations(role, false);
+        }
+        Key key = new Key(role.getOid(), role.getVersion());
+        List<Authorization> authorizations;
+        synchronized (entries) {
+            authorizations = entries.get(key);
+        }
+        if (authorizations != null) {
+            LOGGER.trace("Cache HIT for {}", key);
+            return authorizations;
+        }
+        LOGGER.trace("Cache MISS for {}", key);
+        authorizations = createAuthorizations(role, true);
+        synchronized (entries) {
+            entries.put(key, authorizations);
+        }
+        return authorizations;
+    }
+
+    private static @NotNull List<Authorization> createAuthorizations(@NotNull AbstractRoleType role, boolean forCache) {
+        if (role.getAuthorization().isEmpty()) {
+            return List.of();
+        }
+        String sourceDescription = role.toString();
+        List<Authorization> authorizations = new ArrayList<>();
+        for (AuthorizationType authorizationBean : role.getAuthorization()) {
+            AuthorizationType bean;
+            if (forCache) {
+                bean = authorizationBean.clone();
+                bean.asPrismContainerValue().freeze();
+            } else {
+                bean = authorizationBean;
+            }
+            Authorization authorization = new Authorization(bean);
+            authorization.setSourceDescription(sourceDescription);
+            if (!authorizations.contains(authorization)) {
+                authorizations.add(authorization);
+            }
+        }
+        return Collections.unmodifiableList(authorizations);
+    }
+
+    @Override
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+        if (type == null || type.isAssignableFrom(AbstractRoleType.class) || AbstractRoleType.class.isAssignableFrom(type)) {
+            synchronized (entries) {
+                if (oid != null) {
+                    entries.keySet().removeIf(key -> oid.equals(key.roleOid));
+                } else {
+                    entries.clear();
+                }
+            }
+        }
+    }
+
+    @Override
+    public @NotNull Collection<SingleCacheStateInformationType> getStateInformation() {
+        return Collections.singleton(
+                new SingleCacheStateInformationType(prismContext)
+                        .name(RolePayloadCache.class.getName())
+                        .size(size()));
+    }
+
+    @Override
+    public void dumpContent() {
+        if (LOGGER_CONTENT.isInfoEnabled()) {
+            synchronized (entries) {
+                entries.forEach((k, v) -> LOGGER_CONTENT.info("Cached role authorizations: {}: {}", k, v));
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static class Key {
+        @NotNull private final String roleOid;
+        @NotNull private final String roleVersion;
+
+        private Key(@NotNull String roleOid, @NotNull String roleVersion) {
+            this.roleOid = roleOid;
+            this.roleVersion = roleVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return roleOid.equals(key.roleOid) && roleVersion.equals(key.roleVersion);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(roleOid, roleVersion);
+        }
+
+        @Override
+        public String toString() {
+            return roleOid + "@" + roleVersion;
+        }
+    }
+}
@@ -9,6 +9,7 @@ package com.evolveum.midpoint.model.impl.lens.assignments;
 
 import org.jetbrains.annotations.NotNull;
 
+import com.evolveum.midpoint.model.impl.lens.LensFocusContext;
 import com.evolveum.midpoint.security.api.Authorization;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
@@ -46,8 +47,10 @@ class TargetPayloadEvaluation<AH extends AssignmentHolderType> extends AbstractE
             } else if (targetOverallConditionState.isNewFalse()) {
                 LOGGER.trace("Not collecting payload from target of {} as the target relativity mode is not non-negative: {}", segment, targetOverallConditionState);
             } else {
-                for (AuthorizationType authorizationBean : ((AbstractRoleType) target).getAuthorization()) {
-                    Authorization authorization = createAuthorization(authorizationBean, target.toString());
+                LensFocusContext<AH> focusContext = ctx.ae.lensContext.getFocusContext();
+                String focusOid = focusContext != null ? focusContext.getOid() : null;
+                for (Authorization authorization
+                        : ctx.ae.beans.rolePayloadCache.getAuthorizations((AbstractRoleType) target, focusOid)) {
                     if (!ctx.evalAssignment.getAuthorizations().contains(authorization)) {
                         ctx.evalAssignment.addAuthorization(authorization);
                     }
@@ -61,10 +64,4 @@ class TargetPayloadEvaluation<AH extends AssignmentHolderType> extends AbstractE
             }
         }
     }
-
-    private Authorization createAuthorization(AuthorizationType authorizationBean, String sourceDesc) {
-        Authorization authorization = new Authorization(authorizationBean);
-        authorization.setSourceDescription(sourceDesc);
-        return authorization;
-    }
 }
@@ -64,6 +64,21 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
     /** What is the current state of the shadow. */
     private ShadowLivenessState shadowLivenessState;
 
+    /** Operation result for this projection. Created in {@link #executeDelta(OperationResult)}. */
+    private OperationResult result;
+
+    /** Executes the reconciliation scripts. Created in {@link #executeDelta(OperationResult)}. */
+    private ScriptExecutor<O> scriptExecutor;
+
+    /** What remains to be done in {@link #complete()}. Null if the delta execution was not started. */
+    private CompletionMode completionMode;
+
+    /** The exception that occurred in {@link #executeDelta(OperationResult)}, if any. */
+    private Throwable deltaExecutionException;
+
+    /** Value of the "completed" flag to be set on the projection context. */
+    private boolean completed = true;
+
     public ProjectionChangeExecution(@NotNull LensProjectionContext projCtx, @NotNull Task task) {
         super(projCtx, task);
         this.projCtx = projCtx;
@@ -72,28 +87,42 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
     public void execute(OperationResult parentResult) throws SchemaException, ObjectNotFoundException, CommunicationException,
             ObjectAlreadyExistsException, PolicyViolationException, SecurityViolationException,
             ConfigurationException, ExpressionEvaluationException {
+        if (executeDelta(parentResult)) {
+            complete();
+        }
+    }
 
-        if (!shouldExecute()) {
-            return;
+    /**
+     * The first part of the execution: BEFORE reconciliation scripts and the execution of the projection delta.
+     * It does not modify the focus context, so it can be run for multiple projections in parallel.
+     *
+     * Exceptions are recorded; they are processed (and possibly re-thrown) in {@link #complete()}, which must be called
+     * afterwards, if this method returns true.
+     *
+     * @return false if the projection is not to be executed in the current wave
+     */
+    public boolean executeDelta(OperationResult parentResult) {
+
+        if (!shouldExecute(projCtx)) {
+            return false;
         }
 
         shadowLivenessState = ShadowLivenessState.forShadowWithState(projCtx.getObjectCurrent());
         LOGGER.trace("Determined liveness state for shadow: {} (state: {}) as {}",
                 projCtx.getObjectCurrent(), projCtx.getCurrentShadowState(), shadowLivenessState);
 
-        OperationResult result = parentResult
+        result = parentResult
                 .subresult(OPERATION_EXECUTE_PROJECTION + "." + projCtx.getObjectTypeClass().getSimpleName())
                 .addParam("resource", projCtx.getResource())
                 .addArbitraryObjectAsContext("projectionContextKey", projCtx.getKey())
                 .build();
 
-        boolean completed = true;
         try {
             LOGGER.trace("Executing projection context {}", projCtx.toHumanReadableString());
 
             context.reportProgress(new ProgressInformation(RESOURCE_OBJECT_OPERATION, projCtx.getKey(), ENTERING));
 
-            ScriptExecutor<O> scriptExecutor = new ScriptExecutor<>(context, projCtx, task, b);
+            scriptExecutor = new ScriptExecutor<>(context, projCtx, task, b);
             scriptExecutor.executeReconciliationScripts(BeforeAfterType.BEFORE, result);
 
             projectionDelta = projCtx.getExecutableDelta();
@@ -117,7 +146,8 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
 
             if (deletingHigherOrderContextWithLowerAlreadyDeleted()) {
                 result.recordNotApplicable();
-                return;
+                completionMode = CompletionMode.NOTHING;
+                return true;
             }
 
             boolean skipDeltaExecution;
@@ -148,12 +178,7 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
                 }
             }
 
-            updateLinks(result);
-
-            scriptExecutor.executeReconciliationScripts(BeforeAfterType.AFTER, result);
-
-            result.computeStatus();
-            result.recordNotApplicableIfUnknown();
+            completionMode = CompletionMode.LINKS_AND_SCRIPTS;
 
         } catch (ObjectAlreadyExistsException e) {
 
@@ -170,6 +195,7 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
             // correctly, e.g. if creating "Users" user in AD, whereas
             // "Users" is SAM Account Name which is used by a built-in group
             // - in such case, mark the context as broken
+            completionMode = CompletionMode.NOTHING;
             if (isRepeatedAlreadyExistsException()) {
                 // This is the bad case. Currently we do not do anything more intelligent than to look for
                 // repeated error. If we get ObjectAlreadyExistsException twice then this is bad and we give up.
@@ -177,7 +203,7 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
                 LOGGER.debug("Repeated ObjectAlreadyExistsException detected, marking projection {} as broken",
                         projCtx.toHumanReadableString());
                 recordProjectionExecutionException(e, result);
-                return;
+                return true;
             }
 
             // In his case we do not need to set account context as broken, instead we need to restart projector for this
@@ -196,13 +222,42 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
         } catch (Throwable t) {
 
             recordProjectionExecutionException(t, result);
+            deltaExecutionException = t;
+            completionMode = CompletionMode.FAILURE;
+        }
+        return true;
+    }
 
-            // We still want to update the links here. E.g. this may be live sync case where we discovered new account
-            // try to reconcile, but the reconciliation fails. We still want this shadow linked to user.
-            updateLinks(result);
+    /**
+     * The second part of the execution: updating focus-shadow links (i.e. modifying the focus context), AFTER
+     * reconciliation scripts, computing the result status and marking the projection context as completed.
+     *
+     * When projections are executed in parallel, this is called for them sequentially, in the context order,
+     * after all {@link #executeDelta(OperationResult)} calls are done. Does nothing if the delta execution
+     * was not started (e.g. the projection is not to be executed in this wave).
+     */
+    public void complete() throws SchemaException, ObjectNotFoundException, CommunicationException,
+            ObjectAlreadyExistsException, PolicyViolationException, SecurityViolationException,
+            ConfigurationException, ExpressionEvaluationException {
+        if (completionMode == null) {
+            return;
+        }
+        try {
+            if (completionMode == CompletionMode.LINKS_AND_SCRIPTS) {
+                try {
+                    updateLinks(result);
 
-            ModelImplUtils.handleConnectorErrorCriticality(projCtx.getResource(), t, result);
+                    scriptExecutor.executeReconciliationScripts(BeforeAfterType.AFTER, result);
 
+                    result.computeStatus();
+                    result.recordNotApplicableIfUnknown();
+                } catch (Throwable t) {
+                    recordProjectionExecutionException(t, result);
+                    processFailure(t);
+                }
+            } else if (completionMode == CompletionMode.FAILURE) {
+                processFailure(deltaExecutionException);
+            }
         } finally {
             result.computeStatusIfUnknown(); // just to be sure the result is closed
             context.reportProgress(
@@ -213,6 +268,30 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
         }
     }
 
+    private void processFailure(Throwable t) throws SchemaException, ObjectNotFoundException, CommunicationException,
+            ObjectAlreadyExistsException, PolicyViolationException, SecurityViolationException,
+            ConfigurationException, ExpressionEvaluationException {
+
+        // We still want to update the links here. E.g. this may be live sync case where we discovered new account
+        // try to reconcile, but the reconciliation fails. We still want this shadow linked to user.
+        updateLinks(result);
+
+        ModelImplUtils.handleConnectorErrorCriticality(projCtx.getResource(), t, result);
+    }
+
+    /** What is to be done in {@link #complete()}. */
+    private enum CompletionMode {
+
+        /** Nothing besides closing the result and setting the "completed" flag. */
+        NOTHING,
+
+        /** Updating the links and executing AFTER scripts. */
+        LINKS_AND_SCRIPTS,
+
+        /** Updating the links and processing the failure according to the resource criticality settings. */
+        FAILURE
+    }
+
     private boolean deletingHigherOrderContextWithLowerAlreadyDeleted() {
         if (ObjectDelta.isDelete(projectionDelta) && projCtx.isHigherOrder()) {
             // HACK ... for higher-order context check if this was already deleted
@@ -252,7 +331,11 @@ public class ProjectionChangeExecution<O extends ObjectType> extends ElementChan
         projCtx.setBroken();
     }
 
-    private boolean shouldExecute() {
+    /**
+     * Returns true if the changes of given projection context are to be executed in the current execution wave.
+     */
+    public static boolean shouldExecute(@NotNull LensProjectionContext projCtx) {
+        LensContext<?> context = projCtx.getLensContext();
         if (projCtx.getWave() != context.getExecutionWave()) {
             LOGGER.trace("Skipping projection context {} because its wave ({}) is different from execution wave ({})",
                     projCtx.toHumanReadableString(), projCtx.getWave(), context.getExecutionWave());
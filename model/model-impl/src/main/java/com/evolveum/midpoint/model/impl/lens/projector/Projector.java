@@ -10,6 +10,15 @@ import static com.evolveum.midpoint.model.api.ProgressInformation.ActivityType.P
 import static com.evolveum.midpoint.model.api.ProgressInformation.StateType.ENTERING;
 import static com.evolveum.midpoint.model.impl.lens.LensUtil.getExportType;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import com.evolveum.midpoint.model.impl.lens.ConflictDetectedException;
@@ -29,13 +38,16 @@ import com.evolveum.midpoint.model.api.ProgressInformation;
 import com.evolveum.midpoint.model.api.context.SynchronizationPolicyDecision;
 import com.evolveum.midpoint.model.impl.lens.ClockworkMedic;
 import com.evolveum.midpoint.model.impl.lens.LensContext;
+import com.evolveum.midpoint.model.impl.lens.LensParallelExecutor;
 import com.evolveum.midpoint.model.impl.lens.LensProjectionContext;
+import com.evolveum.midpoint.model.impl.lens.ProjectorComponentRunnable;
 import com.evolveum.midpoint.model.impl.lens.projector.credentials.ProjectionCredentialsProcessor;
 import com.evolveum.midpoint.model.impl.lens.projector.focus.AssignmentHolderProcessor;
 import com.evolveum.midpoint.model.impl.util.ModelImplUtils;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.schema.internals.InternalCounters;
 import com.evolveum.midpoint.schema.internals.InternalMonitor;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.result.OperationResultStatus;
 import com.evolveum.midpoint.task.api.Task;
@@ -61,6 +73,8 @@ import com.evolveum.midpoint.util.logging.TraceManager;
 public class Projector {
 
     private static final String OPERATION_PROJECT_PROJECTION = Projector.class.getName() + ".projectProjection";
+    public static final String OPERATION_PROJECT_PROJECTIONS_IN_PARALLEL = Projector.class.getName() + ".projectProjectionsInParallel";
+    private static final String OPERATION_PROJECT_PROJECTION_GROUP = Projector.class.getName() + ".projectProjectionGroup";
 
     @Autowired private ContextLoader contextLoader;
     @Autowired private AssignmentHolderProcessor assignmentHolderProcessor;
@@ -73,6 +87,7 @@ public class Projector {
     @Autowired private ObjectTemplateProcessor objectTemplateProcessor;
     @Autowired private Clock clock;
     @Autowired private ClockworkMedic medic;
+    @Autowired private LensParallelExecutor parallelExecutor;
 
     private static final Trace LOGGER = TraceManager.getTrace(Projector.class);
 
@@ -201,13 +216,7 @@ public class Projector {
                 dependencyProcessor.sortProjectionsToWaves(context, task, result);
 
                 // In the future we may want the ability to select only some projections to process.
-                for (LensProjectionContext projectionContext : context.getProjectionContexts()) {
-                    medic.partialExecute(Components.PROJECTION,
-                            (result1) -> projectProjection(context, projectionContext,
-                                    partialProcessingOptions, now, activityDescription, task, result1),
-                            partialProcessingOptions::getProjection,
-                            Projector.class, context, projectionContext, result);
-                }
+                projectProjections(context, partialProcessingOptions, now, activityDescription, task, result);
 
                 // If there exists some conflicting projection contexts, add them to the context so they will be recomputed
                 // in the next wave.
@@ -251,6 +260,149 @@ public class Projector {
         }
     }
 
+    /**
+     * Processes all projections, in the order in which they are present in the context. If parallel processing
+     * is enabled, projections that have no dependencies are processed concurrently: each run of consecutive
+     * independent projections (between the other ones) is grouped by resource and the groups are processed
+     * in parallel. So the order of independent projections relative to the other ones is kept, and within a group,
+     * projections are processed sequentially.
+     */
+    private <F extends ObjectType> void projectProjections(
+            LensContext<F> context, PartialProcessingOptionsType partialProcessingOptions,
+            XMLGregorianCalendar now, String activityDescription, Task task, OperationResult result)
+            throws SchemaException, ObjectNotFoundException, CommunicationException, ConfigurationException,
+            SecurityViolationException, PolicyViolationException, ExpressionEvaluationException,
+            ObjectAlreadyExistsException, ConflictDetectedException {
+
+        Set<LensProjectionContext> independent = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (InternalsConfig.isParallelProjectionProcessing()
+                // Component traces dump the whole context, which is not safe while other threads modify it.
+                && !result.isTracingAny(ProjectorComponentTraceType.class)) {
+            Collection<List<LensProjectionContext>> groups = groupIndependentProjections(context);
+            if (parallelExecutor.canRunInParallel(groups.size())) {
+                groups.forEach(independent::addAll);
+            }
+        }
+
+        List<LensProjectionContext> independentRun = new ArrayList<>();
+        for (LensProjectionContext projectionContext : new ArrayList<>(context.getProjectionContexts())) {
+            if (independent.contains(projectionContext)) {
+                independentRun.add(projectionContext);
+            } else {
+                projectIndependentProjections(
+                        context, independentRun, partialProcessingOptions, now, activityDescription, task, result);
+                independentRun.clear();
+                projectProjectionComponent(
+                        context, projectionContext, partialProcessingOptions, now, activityDescription, task, result);
+            }
+        }
+        projectIndependentProjections(
+                context, independentRun, partialProcessingOptions, now, activityDescription, task, result);
+    }
+
+    /**
+     * Processes a run of consecutive independent projections: in parallel, one group per resource, if there are
+     * more groups; otherwise sequentially.
+     */
+    private <F extends ObjectType> void projectIndependentProjections(
+            LensContext<F> context, List<LensProjectionContext> projections,
+            PartialProcessingOptionsType partialProcessingOptions,
+            XMLGregorianCalendar now, String activityDescription, Task task, OperationResult result)
+            throws SchemaException, ObjectNotFoundException, CommunicationException, ConfigurationException,
+            SecurityViolationException, PolicyViolationException, ExpressionEvaluationException,
+            ObjectAlreadyExistsException, ConflictDetectedException {
+
+        Map<String, List<LensProjectionContext>> groups = new LinkedHashMap<>();
+        for (LensProjectionContext projectionContext : projections) {
+            groups.computeIfAbsent(projectionContext.getResourceOid(), k -> new ArrayList<>())
+                    .add(projectionContext);
+        }
+        if (!parallelExecutor.canRunInParallel(groups.size())) {
+            for (LensProjectionContext projectionContext : projections) {
+                projectProjectionComponent(
+                        context, projectionContext, partialProcessingOptions, now, activityDescription, task, result);
+            }
+            return;
+        }
+
+        LOGGER.trace("Processing {} group(s) of independent projections in parallel", groups.size());
+        OperationResult parallelResult = result.createMinorSubresult(OPERATION_PROJECT_PROJECTIONS_IN_PARALLEL);
+        try {
+            List<ProjectorComponentRunnable> items = new ArrayList<>();
+            List<OperationResult> itemResults = new ArrayList<>();
+            for (List<LensProjectionContext> group : groups.values()) {
+                items.add(groupResult -> {
+                    try {
+                        for (LensProjectionContext projectionContext : group) {
+                            projectProjectionComponent(context, projectionContext, partialProcessingOptions,
+                                    now, activityDescription, task, groupResult);
+                        }
+                    } finally {
+                        groupResult.close();
+                    }
+                });
+                itemResults.add(
+                        parallelResult.subresult(OPERATION_PROJECT_PROJECTION_GROUP)
+                                .setMinor()
+                                .addParam("resourceOid", group.get(0).getResourceOid())
+                                .build());
+            }
+            context.enterParallelProcessing();
+            try {
+                parallelExecutor.runAll(items, itemResults);
+            } finally {
+                context.exitParallelProcessing();
+            }
+        } catch (Throwable t) {
+            parallelResult.recordFatalError(t);
+            throw t;
+        } finally {
+            parallelResult.close();
+        }
+        // Postponed while the projections were being processed in parallel.
+        context.checkConsistenceIfNeeded();
+    }
+
+    private <F extends ObjectType> void projectProjectionComponent(
+            LensContext<F> context, LensProjectionContext projectionContext,
+            PartialProcessingOptionsType partialProcessingOptions,
+            XMLGregorianCalendar now, String activityDescription, Task task, OperationResult result)
+            throws SchemaException, ObjectNotFoundException, CommunicationException, ConfigurationException,
+            SecurityViolationException, PolicyViolationException, ExpressionEvaluationException,
+            ObjectAlreadyExistsException, ConflictDetectedException {
+        medic.partialExecute(Components.PROJECTION,
+                (result1) -> projectProjection(context, projectionContext,
+                        partialProcessingOptions, now, activityDescription, task, result1),
+                partialProcessingOptions::getProjection,
+                Projector.class, context, projectionContext, result);
+    }
+
+    /**
+     * Returns groups of projections (one group per resource) that can be processed independently of each other:
+     * they are current in this wave, and neither they nor any other projection on the same resource depend on
+     * other projections or are the targets of a dependency. Projections on the same resource are kept together,
+     * as they can interact, e.g. via entitlements or iteration conflicts.
+     */
+    private <F extends ObjectType> Collection<List<LensProjectionContext>> groupIndependentProjections(
+            LensContext<F> context) throws SchemaException, ConfigurationException {
+        Map<String, List<LensProjectionContext>> groups = new LinkedHashMap<>();
+        Set<String> excludedResources = new HashSet<>();
+        for (LensProjectionContext projectionContext : context.getProjectionContexts()) {
+            String resourceOid = projectionContext.getResourceOid();
+            if (resourceOid == null) {
+                continue;
+            }
+            if (!projectionContext.getDependencies().isEmpty() || projectionContext.hasDependentContext()) {
+                excludedResources.add(resourceOid);
+            } else if (projectionContext.isCurrentForProjection()) {
+                groups.computeIfAbsent(resourceOid, k -> new ArrayList<>())
+                        .add(projectionContext);
+            }
+        }
+        groups.keySet().removeAll(excludedResources);
+        return groups.values();
+    }
+
     private <F extends ObjectType> void projectProjection(
             LensContext<F> context, LensProjectionContext projectionContext,
             PartialProcessingOptionsType partialProcessingOptions,
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests the coalescing of cluster-wide cache invalidations in {@link PendingCacheInvalidations}.
+ */
+public class TestPendingCacheInvalidations extends AbstractUnitTest {
+
+    /** Repeated invalidations of the same object are sent only once. */
+    @Test
+    public void test100SameObject() {
+        PendingCacheInvalidations pending = new PendingCacheInvalidations(100);
+
+        assertThat(pending.add(UserType.class, "1")).isTrue();
+        assertThat(pending.add(UserType.class, "1")).isFalse();
+        assertThat(pending.add(UserType.class, "2")).isTrue();
+        assertThat(pending.add(RoleType.class, "1")).isTrue();
+
+        List<CacheInvalidationEventType> events = pending.drain().events;
+        assertThat(events).hasSize(3);
+        assertThat(events).extracting(CacheInvalidationEventType::getOid).containsExactly("1", "2", "1");
+        assertThat(pending.isEmpty()).isTrue();
+        assertThat(pending.drain().events).isEmpty();
+    }
+
+    /** Invalidation of a type covers invalidations of its objects. */
+    @Test
+    public void test110WholeType() {
+        PendingCacheInvalidations pending = new PendingCacheInvalidations(100);
+
+        pending.add(UserType.class, "1");
+        assertThat(pending.add(UserType.class, null)).isTrue();
+        assertThat(pending.add(UserType.class, "2")).isFalse();
+        pending.add(RoleType.class, "1");
+
+        List<CacheInvalidationEventType> events = pending.drain().events;
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).getType()).isEqualTo(UserType.COMPLEX_TYPE);
+        assertThat(events.get(0).getOid()).isNull();
+        assertThat(events.get(1).getType()).isEqualTo(RoleType.COMPLEX_TYPE);
+        assertThat(events.get(1).getOid()).isEqualTo("1");
+    }
+
+    /** Too many objects of a type are replaced by the invalidation of the type. */
+    @Test
+    public void test120TypeThreshold() {
+        PendingCacheInvalidations pending = new PendingCacheInvalidations(3);
+
+        pending.add(UserType.class, "1");
+        pending.add(UserType.class, "2");
+        pending.add(UserType.class, "3");
+        assertThat(pending.add(UserType.class, "4")).isFalse();
+
+        List<CacheInvalidationEventType> events = pending.drain().events;
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getType()).isEqualTo(UserType.COMPLEX_TYPE);
+        assertThat(events.get(0).getOid()).isNull();
+    }
+
+    /** Global invalidation covers everything. */
+    @Test
+    public void test130Global() {
+        PendingCacheInvalidations pending = new PendingCacheInvalidations(100);
+
+        pending.add(UserType.class, "1");
+        pending.add(RoleType.class, null);
+        assertThat(pending.add(null, null)).isTrue();
+        assertThat(pending.add(UserType.class, "2")).isFalse();
+
+        PendingCacheInvalidations.Drained drained = pending.drain();
+        assertThat(drained.events).hasSize(1);
+        assertThat(drained.events.get(0).getType()).isNull();
+        assertThat(drained.events.get(0).getOid()).isNull();
+        assertThat(drained.oldestTimestamp).isPositive();
+    }
+}
@@ -6,6 +6,7 @@
  */
 package com.evolveum.midpoint.model.impl.lens;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 
@@ -13,6 +14,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.ConnectException;
+import java.util.List;
 
 import com.evolveum.midpoint.model.api.context.ProjectionContextKey;
 
@@ -27,11 +29,17 @@ import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
 
 import com.evolveum.icf.dummy.resource.ConflictException;
+import com.evolveum.icf.dummy.resource.DummyAccount;
+import com.evolveum.icf.dummy.resource.DummyResource;
 import com.evolveum.icf.dummy.resource.SchemaViolationException;
 import com.evolveum.midpoint.model.impl.AbstractInternalModelIntegrationTest;
 import com.evolveum.midpoint.model.impl.lens.projector.DependencyProcessor;
+import com.evolveum.midpoint.model.impl.lens.projector.Projector;
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.test.DummyResourceContoller;
@@ -48,6 +56,9 @@ public class TestDependencies extends AbstractInternalModelIntegrationTest {
     @Autowired
     private DependencyProcessor dependencyProcessor;
 
+    @Autowired
+    private Projector projector;
+
     @Override
     public void initSystem(Task initTask, OperationResult initResult) throws Exception {
         super.initSystem(initTask, initResult);
@@ -387,6 +398,174 @@ public class TestDependencies extends AbstractInternalModelIntegrationTest {
         }
     }
 
+    /**
+     * Projections on independent resources (the default dummy and dummy A) are processed in parallel.
+     * The result must be the same as if they were processed sequentially.
+     */
+    @Test
+    public void test400ProjectIndependentProjectionsInParallel() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        assumeAssignmentPolicy(AssignmentPolicyEnforcementType.RELATIVE);
+
+        LensContext<UserType> sequentialContext = createBarbossaContextWithTwoProjections(result);
+        LensContext<UserType> parallelContext = createBarbossaContextWithTwoProjections(result);
+
+        when("projecting sequentially");
+        projector.project(sequentialContext, "test", task, result);
+
+        when("projecting in parallel");
+        InternalsConfig.setParallelProjectionProcessing(true);
+        try {
+            projector.project(parallelContext, "test", task, result);
+        } finally {
+            InternalsConfig.setParallelProjectionProcessing(false);
+        }
+
+        then();
+        displayDumpable("Context after sequential processing", sequentialContext);
+        displayDumpable("Context after parallel processing", parallelContext);
+        assertThat(result.findSubresultsDeeply(Projector.OPERATION_PROJECT_PROJECTIONS_IN_PARALLEL))
+                .as("parallel projection results")
+                .hasSize(1);
+
+        assertThat(parallelContext.getProjectionContexts()).as("projection contexts").hasSize(2);
+        for (LensProjectionContext sequential : sequentialContext.getProjectionContexts()) {
+            LensProjectionContext parallel = parallelContext.findProjectionContextByKeyExact(sequential.getKey());
+            assertNotNull("No parallel counterpart of " + sequential, parallel);
+            assertEquals("Wrong policy decision in " + parallel,
+                    sequential.getSynchronizationPolicyDecision(), parallel.getSynchronizationPolicyDecision());
+            assertEquivalent("summary delta of " + parallel, sequential.getSummaryDelta(), parallel.getSummaryDelta());
+        }
+        assertEquivalent("focus summary delta",
+                sequentialContext.getFocusContext().getSummaryDelta(), parallelContext.getFocusContext().getSummaryDelta());
+    }
+
+    /**
+     * Changes of projections on independent resources (the default dummy and dummy A) are executed in parallel.
+     * The outcome must be the same as if they were executed sequentially.
+     */
+    @Test
+    public void test410ExecuteIndependentProjectionsInParallel() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        assumeAssignmentPolicy(AssignmentPolicyEnforcementType.RELATIVE);
+
+        when("executing sequentially");
+        String sequentialOid = addObject(createUserWithTwoAccounts("sequential"), task, result);
+
+        when("executing in parallel");
+        InternalsConfig.setParallelProjectionExecution(true);
+        String parallelOid;
+        try {
+            parallelOid = addObject(createUserWithTwoAccounts("parallel"), task, result);
+        } finally {
+            InternalsConfig.setParallelProjectionExecution(false);
+        }
+
+        then();
+        assertSuccess(result);
+        assertThat(result.findSubresultsDeeply(ChangeExecutor.OPERATION_EXECUTE_PROJECTIONS_IN_PARALLEL))
+                .as("parallel execution results")
+                .isNotEmpty();
+
+        assertUserAfter(sequentialOid)
+                .assertLiveLinks(2);
+        assertUserAfter(parallelOid)
+                .assertLiveLinks(2);
+        for (DummyResource dummyResource : List.of(getDummyResource(), DummyResource.getInstance("A"))) {
+            DummyAccount sequentialAccount = dummyResource.getAccountByUsername("sequential");
+            DummyAccount parallelAccount = dummyResource.getAccountByUsername("parallel");
+            assertNotNull("No sequential account on " + dummyResource, sequentialAccount);
+            assertNotNull("No parallel account on " + dummyResource, parallelAccount);
+            assertEquals("Wrong full name on " + dummyResource,
+                    sequentialAccount.getAttributeValue(DummyResourceContoller.DUMMY_ACCOUNT_ATTRIBUTE_FULLNAME_NAME)
+                            .replace("sequential", "parallel"),
+                    parallelAccount.getAttributeValue(DummyResourceContoller.DUMMY_ACCOUNT_ATTRIBUTE_FULLNAME_NAME));
+        }
+    }
+
+    /**
+     * With a repository commit batch open, worker threads would not see its uncommitted modifications
+     * (and could wait for rows it locked), so independent projections are processed in the calling thread.
+     */
+    @Test
+    public void test420NoParallelProjectionsInCommitBatch() throws Exception {
+        skipIfNotNativeRepository();
+
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        assumeAssignmentPolicy(AssignmentPolicyEnforcementType.RELATIVE);
+
+        LensContext<UserType> context = createBarbossaContextWithTwoProjections(result);
+        int originalWorkerThreads = InternalsConfig.getLensWorkerThreads();
+        int originalCommitBatchSize = InternalsConfig.getRepositoryCommitBatchSize();
+        InternalsConfig.setLensWorkerThreads(4);
+        InternalsConfig.setRepositoryCommitBatchSize(10);
+        InternalsConfig.setParallelProjectionProcessing(true);
+
+        when("projecting in a commit batch");
+        boolean batchStarted = repositoryService.beginCommitBatch(10, Long.MAX_VALUE);
+        try {
+            projector.project(context, "test", task, result);
+        } finally {
+            if (batchStarted) {
+                repositoryService.endCommitBatch();
+            }
+            InternalsConfig.setParallelProjectionProcessing(false);
+            InternalsConfig.setRepositoryCommitBatchSize(originalCommitBatchSize);
+            InternalsConfig.setLensWorkerThreads(originalWorkerThreads);
+        }
+
+        then();
+        displayDumpable("Context after processing", context);
+        assertThat(batchStarted).as("commit batch started").isTrue();
+        assertThat(result.findSubresultsDeeply(Projector.OPERATION_PROJECT_PROJECTIONS_IN_PARALLEL))
+                .as("parallel projection results")
+                .isEmpty();
+        assertThat(context.getProjectionContexts()).as("projection contexts").hasSize(2);
+    }
+
+    private PrismObject<UserType> createUserWithTwoAccounts(String name) {
+        return new UserType()
+                .name(name)
+                .fullName("User " + name)
+                .assignment(new AssignmentType()
+                        .construction(new ConstructionType()
+                                .resourceRef(RESOURCE_DUMMY_OID, ResourceType.COMPLEX_TYPE)))
+                .assignment(new AssignmentType()
+                        .construction(new ConstructionType()
+                                .resourceRef(getDummyOid("a"), ResourceType.COMPLEX_TYPE)))
+                .asPrismObject();
+    }
+
+    /** Barbossa has an account on the default dummy resource; we change his name and assign him an account on dummy A. */
+    private LensContext<UserType> createBarbossaContextWithTwoProjections(OperationResult result) throws Exception {
+        LensContext<UserType> context = createUserLensContext();
+        fillContextWithUser(context, USER_BARBOSSA_OID, result);
+        addFocusDeltaToContext(context,
+                prismContext.deltaFor(UserType.class)
+                        .item(UserType.F_FULL_NAME).replace(PolyString.fromOrig("Captain Hector Barbossa"))
+                        .item(UserType.F_ASSIGNMENT).add(
+                                new AssignmentType()
+                                        .construction(new ConstructionType()
+                                                .resourceRef(getDummyOid("a"), ResourceType.COMPLEX_TYPE)))
+                        .asObjectDelta(USER_BARBOSSA_OID));
+        return context;
+    }
+
+    private <O extends ObjectType> void assertEquivalent(String message, ObjectDelta<O> expected, ObjectDelta<O> real) {
+        if (expected == null || real == null) {
+            assertEquals("Wrong " + message, expected, real);
+        } else {
+            AssertJUnit.assertTrue("Wrong " + message + ": expected " + expected + ", got " + real,
+                    expected.equivalent(real));
+        }
+    }
+
     private LensProjectionContext fillContextWithDummyElaineAccount(
             LensContext<UserType> context, String dummyName, Task task, OperationResult result)
             throws SchemaException, ObjectNotFoundException, CommunicationException,
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl.lens.assignments;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
+import com.evolveum.midpoint.security.api.Authorization;
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AuthorizationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests {@link RolePayloadCache}.
+ */
+public class TestRolePayloadCache extends AbstractUnitTest {
+
+    private static final String ROLE_OID = "4d4b2f3e-1c7a-4b8e-8f0e-5a6d7c8b9a01";
+    private static final String OTHER_ROLE_OID = "4d4b2f3e-1c7a-4b8e-8f0e-5a6d7c8b9a02";
+    private static final String FOCUS_OID = "7e1f2d3c-4b5a-4968-8776-6a5b4c3d2e01";
+
+    private static final String ACTION_READ = "http://midpoint.evolveum.com/xml/ns/public/security/authorization-model-3#read";
+    private static final String ACTION_MODIFY = "http://midpoint.evolveum.com/xml/ns/public/security/authorization-model-3#modify";
+
+    @BeforeMethod
+    public void enableCaching() {
+        InternalsConfig.setRolePayloadCaching(true);
+    }
+
+    @AfterMethod
+    public void disableCaching() {
+        InternalsConfig.setRolePayloadCaching(false);
+    }
+
+    /** Authorizations of the same role version are created once and shared by all the foci. */
+    @Test
+    public void test100SameRoleVersionIsCached() {
+        RolePayloadCache cache = new RolePayloadCache();
+
+        List<Authorization> first = cache.getAuthorizations(role(ROLE_OID, "1"), FOCUS_OID);
+        List<Authorization> second = cache.getAuthorizations(role(ROLE_OID, "1"), null);
+
+        assertThat(first).hasSize(2);
+        assertThat(second).isSameAs(first);
+        assertThat(first.get(0).getSourceDescription()).isNotNull();
+        assertThat(first.get(0).getAction()).containsExactly(ACTION_READ);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    /** Duplicate authorizations in a role are returned only once. */
+    @Test
+    public void test110DuplicatesAreRemoved() {
+        RolePayloadCache cache = new RolePayloadCache();
+        RoleType role = role(ROLE_OID, "1");
+        role.getAuthorization().add(new AuthorizationType().action(ACTION_READ));
+
+        assertThat(cache.getAuthorizations(role, null)).hasSize(2);
+    }
+
+    /** Other role versions and roles are separate entries; the role being the focus is not cached at all. */
+    @Test
+    public void test120OtherVersionsRolesAndFocusRole() {
+        RolePayloadCache cache = new RolePayloadCache();
+
+        List<Authorization> version1 = cache.getAuthorizations(role(ROLE_OID, "1"), null);
+        RoleType version2Role = role(ROLE_OID, "2");
+        version2Role.getAuthorization().add(new AuthorizationType().action("urn:other"));
+        List<Authorization> version2 = cache.getAuthorizations(version2Role, null);
+        cache.getAuthorizations(role(OTHER_ROLE_OID, "1"), null);
+
+        assertThat(version2).isNotSameAs(version1).hasSize(3);
+        assertThat(cache.size()).isEqualTo(3);
+
+        cache.getAuthorizations(role(FOCUS_OID, "1"), FOCUS_OID);
+        cache.getAuthorizations(role(null, null), null);
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    /** Cached authorizations are not affected by later changes of the role object they were taken from. */
+    @Test
+    public void test130CachedBeansAreDetached() {
+        RolePayloadCache cache = new RolePayloadCache();
+        RoleType role = role(ROLE_OID, "1");
+
+        List<Authorization> authorizations = cache.getAuthorizations(role, null);
+        role.getAuthorization().get(0).getAction().add(ACTION_MODIFY);
+
+        assertThat(authorizations.get(0).getAction()).containsExactly(ACTION_READ);
+    }
+
+    /** Invalidation of a role removes its entries; invalidation of other types does not. */
+    @Test
+    public void test200Invalidation() {
+        RolePayloadCache cache = new RolePayloadCache();
+        cache.getAuthorizations(role(ROLE_OID, "1"), null);
+        cache.getAuthorizations(role(ROLE_OID, "2"), null);
+        cache.getAuthorizations(role(OTHER_ROLE_OID, "1"), null);
+
+        cache.invalidate(UserType.class, ROLE_OID, null);
+        assertThat(cache.size()).isEqualTo(3);
+
+        cache.invalidate(RoleType.class, ROLE_OID, null);
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.invalidate(null, null, null);
+        assertThat(cache.size()).isZero();
+    }
+
+    /** Nothing is cached if the caching is not enabled. */
+    @Test
+    public void test300Disabled() {
+        InternalsConfig.setRolePayloadCaching(false);
+        RolePayloadCache cache = new RolePayloadCache();
+
+        List<Authorization> first = cache.getAuthorizations(role(ROLE_OID, "1"), null);
+        List<Authorization> second = cache.getAuthorizations(role(ROLE_OID, "1"), null);
+
+        assertThat(second).isNotSameAs(first).isEqualTo(first);
+        assertThat(cache.size()).isZero();
+    }
+
+    private RoleType role(String oid, String version) {
+        RoleType role = new RoleType()
+                .oid(oid)
+                .version(version)
+                .name("role");
+        role.getAuthorization().add(new AuthorizationType().action(ACTION_READ));
+        role.getAuthorization().add(new AuthorizationType().action(ACTION_MODIFY));
+        return role;
+    }
+}
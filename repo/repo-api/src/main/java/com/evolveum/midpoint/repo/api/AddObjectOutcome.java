@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Outcome of adding a single object by {@link RepositoryService#addObjects}: either the OID of the added object,
+ * or the exception that prevented the object from being added.
+ */
+public class AddObjectOutcome {
+
+    @Nullable private final String oid;
+    @Nullable private final Exception exception;
+
+    private AddObjectOutcome(@Nullable String oid, @Nullable Exception exception) {
+        this.oid = oid;
+        this.exception = exception;
+    }
+
+    public static AddObjectOutcome success(@NotNull String oid) {
+        return new AddObjectOutcome(oid, null);
+    }
+
+    public static AddObjectOutcome failure(@NotNull Exception exception) {
+        return new AddObjectOutcome(null, exception);
+    }
+
+    public boolean isSuccess() {
+        return exception == null;
+    }
+
+    /** OID of the added object; null if the object was not added. */
+    public @Nullable String getOid() {
+        return oid;
+    }
+
+    /** The reason why the object was not added; typically {@link ObjectAlreadyExistsException} or {@link SchemaException}. */
+    public @Nullable Exception getException() {
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? "AddObjectOutcome{oid=" + oid + "}" : "AddObjectOutcome{exception=" + exception + "}";
+    }
+}
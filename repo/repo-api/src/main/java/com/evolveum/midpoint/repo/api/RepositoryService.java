@@ -6,7 +6,12 @@
  */
 package com.evolveum.midpoint.repo.api;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -115,17 +120,20 @@ public interface RepositoryService {
 
     String OP_ADD_OBJECT = "addObject";
     String OP_ADD_OBJECT_OVERWRITE = "addObjectOverwrite"; // addObject with overwrite option
+    String OP_ADD_OBJECTS = "addObjects";
     String OP_DELETE_OBJECT = "deleteObject";
     String OP_COUNT_OBJECTS = "countObjects";
     String OP_MODIFY_OBJECT = "modifyObject";
     String OP_MODIFY_OBJECT_DYNAMICALLY = "modifyObjectDynamically";
     String OP_GET_VERSION = "getVersion";
+    String OP_GET_VERSIONS = "getVersions";
     String OP_IS_DESCENDANT = "isDescendant";
     String OP_IS_ANCESTOR = "isAncestor";
     String OP_ADVANCE_SEQUENCE = "advanceSequence";
     String OP_RETURN_UNUSED_VALUES_TO_SEQUENCE = "returnUnusedValuesToSequence";
     String OP_EXECUTE_QUERY_DIAGNOSTICS = "executeQueryDiagnostics";
     String OP_GET_OBJECT = "getObject";
+    String OP_GET_OBJECTS = "getObjects";
     String OP_SEARCH_OBJECTS = "searchObjects";
     String OP_SEARCH_OBJECTS_ITERATIVE = "searchObjectsIterative";
     String OP_SEARCH_OBJECTS_ITERATIVE_PAGE = "searchObjectsIterativePage";
@@ -161,6 +169,7 @@ public interface RepositoryService {
 
     String KEY_DIAG_DATA = "repositoryDiagData"; // see GetOperationOptions.attachDiagData
     String KEY_ORIGINAL_OBJECT = "repositoryOriginalObject";
+    String KEY_PARTIAL_OBJECT = "repositoryPartialObject"; // see GetOperationOptions.projection
 
     Trace LOGGER = TraceManager.getTrace(RepositoryService.class);
 
@@ -180,6 +189,47 @@ public interface RepositoryService {
             Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult)
             throws ObjectNotFoundException, SchemaException;
 
+    /**
+     * Returns objects for provided OIDs, like repeated {@link #getObject} does, but possibly
+     * in a more efficient way, e.g. using a single database query.
+     *
+     * Unlike {@link #getObject}, this does not fail if some object does not exist, the object is simply
+     * missing in the returned list; caller can compare the OIDs if the missing objects are important.
+     *
+     * @param oids OIDs of the objects to get, duplicates are ignored
+     * @return found objects in the order of the provided OIDs
+     * @throws SchemaException error dealing with storage schema
+     * @throws IllegalArgumentException wrong OID format, etc.
+     */
+    default @NotNull <O extends ObjectType> SearchResultList<PrismObject<O>> getObjects(
+            @NotNull Class<O> type,
+            @NotNull Collection<String> oids,
+            @Nullable Collection<SelectorOptions<GetOperationOptions>> options,
+            @NotNull OperationResult parentResult)
+            throws SchemaException {
+        if (oids.isEmpty()) {
+            return new SearchResultList<>();
+        }
+
+        ObjectQuery query = PrismContext.get()
+                .queryFor(type)
+                .id(oids.toArray(String[]::new))
+                .build();
+        Map<String, PrismObject<O>> objectsByOid = new HashMap<>();
+        for (PrismObject<O> object : searchObjects(type, query, options, parentResult)) {
+            objectsByOid.put(object.getOid(), object);
+        }
+
+        SearchResultList<PrismObject<O>> objects = new SearchResultList<>(new ArrayList<>(objectsByOid.size()));
+        for (String oid : new LinkedHashSet<>(oids)) {
+            PrismObject<O> object = objectsByOid.get(oid);
+            if (object != null) {
+                objects.add(object);
+            }
+        }
+        return objects;
+    }
+
     /**
      * Returns object version for provided OID.
      * <p>
@@ -198,6 +248,34 @@ public interface RepositoryService {
     <T extends ObjectType> String getVersion(Class<T> type, String oid, OperationResult parentResult)
             throws ObjectNotFoundException, SchemaException;
 
+    /**
+     * Returns versions of objects for provided OIDs, like repeated {@link #getVersion} does, but possibly
+     * in a more efficient way, e.g. using a single database query.
+     *
+     * Used to check whether cached objects are still current; objects that do not exist are missing
+     * in the returned map.
+     *
+     * @param oids OIDs of the objects, duplicates are ignored
+     * @return object versions keyed by OID
+     * @throws SchemaException error dealing with storage schema
+     * @throws IllegalArgumentException wrong OID format, etc.
+     */
+    default @NotNull <T extends ObjectType> Map<String, String> getVersions(
+            @NotNull Class<T> type,
+            @NotNull Collection<String> oids,
+            @NotNull OperationResult parentResult)
+            throws SchemaException {
+        Map<String, String> versions = new HashMap<>();
+        for (String oid : new LinkedHashSet<>(oids)) {
+            try {
+                versions.put(oid, getVersion(type, oid, parentResult));
+            } catch (ObjectNotFoundException e) {
+                parentResult.muteLastSubresultError();
+            }
+        }
+        return versions;
+    }
+
     // Add/modify/delete
 
     /**
@@ -238,6 +316,30 @@ public interface RepositoryService {
             @NotNull OperationResult parentResult)
             throws ObjectAlreadyExistsException, SchemaException;
 
+    /**
+     * Adds given objects, like {@link #addObject(PrismObject, RepoAddOptions, OperationResult)} does, but possibly
+     * in a more efficient way, e.g. using batched database inserts.
+     *
+     * Each object is added (or fails) individually: a failure of one object does not prevent adding the others.
+     * Objects without OID get one assigned.
+     *
+     * @return outcomes of adding the objects, in the order of the objects
+     */
+    default @NotNull List<AddObjectOutcome> addObjects(
+            @NotNull List<? extends PrismObject<? extends ObjectType>> objects,
+            @Nullable RepoAddOptions options,
+            @NotNull OperationResult parentResult) {
+        List<AddObjectOutcome> outcomes = new ArrayList<>(objects.size());
+        for (PrismObject<? extends ObjectType> object : objects) {
+            try {
+                outcomes.add(AddObjectOutcome.success(addObject(object, options, parentResult)));
+            } catch (ObjectAlreadyExistsException | SchemaException | RuntimeException e) {
+                outcomes.add(AddObjectOutcome.failure(e));
+            }
+        }
+        return outcomes;
+    }
+
     /**
      * <p>Modifies object using relative change description.</p>
      * Must fail if user with provided OID does not exist.
@@ -449,8 +551,14 @@ public interface RepositoryService {
      * [NOTE]
      * ====
      * New repository uses single reliable iteration method similar to strictly sequential paging
-     * and supports custom ordering (currently only one).
-     * New repository ignores strictlySequential parameter and related get options completely.
+     * and supports custom ordering.
+     * New repository ignores strictlySequential parameter.
+     * The only iteration method it recognizes is SINGLE_TRANSACTION: the objects are then streamed
+     * from a single query using a database cursor, see {@code iterativeSearchFetchSize} repository configuration.
+     * In that case, a database connection and an open transaction are held during the whole iteration,
+     * including the time the handler processes the objects; and the handler's own repository operations need
+     * another connection. So this method is suitable only for handlers that process objects quickly,
+     * or for a small number of concurrent iterations.
      *
      * In old repository there are three iteration methods (see IterationMethodType):
      *
@@ -620,6 +728,97 @@ public interface RepositoryService {
      */
     void returnUnusedValuesToSequence(String oid, Collection<Long> unusedValues, OperationResult parentResult) throws ObjectNotFoundException, SchemaException;
 
+    /**
+     * Starts a commit batch for the current thread, if supported by the implementation.
+     *
+     * While the batch is active, the modifications done by this thread are not committed right after each
+     * operation, but at {@link #commitBatchCheckpoint()} calls, after given number of checkpoints (units of work,
+     * e.g. processed items) or when given time elapsed. The thread sees its own uncommitted modifications;
+     * other threads and nodes see them only after the commit. A failed operation is undone separately,
+     * so it does not affect other (successful) operations in the batch.
+     *
+     * Tasks, nodes and sequences are always written immediately, as they are shared by the workers and the cluster.
+     *
+     * The rows modified in the batch stay locked until it is committed, so other threads modifying the same objects
+     * wait longer (up to the whole batch) and the contention grows with the batch size. Side effects visible to other
+     * threads or nodes (e.g. cache invalidations, audit records) should be done via {@link #executeAfterCommit}.
+     *
+     * The batch must be ended by {@link #endCommitBatch()}, typically in a `finally` block.
+     *
+     * @return true if the batch was started; false if batching is not supported or there already is a batch
+     * for the current thread.
+     */
+    default boolean beginCommitBatch(int maxCheckpoints, long maxDelayMillis) {
+        return false;
+    }
+
+    /**
+     * Marks the end of a unit of work in the current commit batch (if there is any). Commits the batch
+     * if the limits given when the batch was started are reached.
+     *
+     * @throws SystemException if the commit fails; in that case, the work since the last commit is lost
+     */
+    default void commitBatchCheckpoint() {
+    }
+
+    /**
+     * Commits the current commit batch (if there is any and it contains some modifications); the batch stays open.
+     */
+    default void flushCommitBatch() {
+    }
+
+    /**
+     * Commits and closes the current commit batch, if there is any.
+     */
+    default void endCommitBatch() {
+    }
+
+    /**
+     * Executes the action after the modifications done by the current thread so far are committed.
+     * Without a commit batch (see {@link #beginCommitBatch(int, long)}), or if the batch contains no uncommitted
+     * modifications, the action is executed right away.
+     *
+     * @param evenIfFailed If true, the action is executed also if the batch commit fails. Useful for actions that
+     * are harmless in that case but must not be lost, like cache invalidations.
+     */
+    default void executeAfterCommit(@NotNull Runnable action, boolean evenIfFailed) {
+        action.run();
+    }
+
+    /**
+     * Like {@link #executeAfterCommit(Runnable, boolean)}, but if the batch commit fails (i.e. the modifications
+     * are lost), `onFailure` is executed instead of the action. Useful for actions that must report the failure,
+     * like writing audit records of the modifications.
+     */
+    default void executeAfterCommit(@NotNull Runnable action, @NotNull Runnable onFailure) {
+        action.run();
+    }
+
+    /**
+     * Returns true if the current thread has modifications in its commit batch that are not committed yet.
+     */
+    default boolean hasUncommittedModifications() {
+        return false;
+    }
+
+    /**
+     * Returns true if there is a commit batch for the current thread. Work of this thread must not be handed over
+     * to other threads while the batch is active: they would use their own transactions, so they would not see
+     * the uncommitted modifications of the batch and could wait for the rows locked by it.
+     */
+    default boolean isInCommitBatch() {
+        return false;
+    }
+
+    /**
+     * Returns store for work buckets of distributed activities that can be used instead of storing buckets
+     * in the coordinator task, or null if the repository does not provide it (or it is not enabled).
+     * This is used only for multi-node (coordinator-workers) bucketing.
+     */
+    default @Nullable WorkBucketStore getWorkBucketStore() {
+        return null;
+    }
+
     /**
      * Provide repository run-time configuration and diagnostic information.
      * May execute diagnostic query on the database.
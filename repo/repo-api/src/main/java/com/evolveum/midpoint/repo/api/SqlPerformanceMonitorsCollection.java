@@ -6,6 +6,10 @@
  */
 package com.evolveum.midpoint.repo.api;
 
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+
 import com.evolveum.midpoint.repo.api.perf.PerformanceInformation;
 import com.evolveum.midpoint.repo.api.perf.PerformanceMonitor;
 import com.evolveum.midpoint.util.annotation.Experimental;
@@ -32,4 +36,21 @@ public interface SqlPerformanceMonitorsCollection {
      * Starts collection of thread local performance information in all monitors.
      */
     void startThreadLocalPerformanceInformationCollection();
+
+    /**
+     * Returns the objects collecting thread-local performance information of individual monitors (for the current
+     * thread), so they can be shared with a helper thread by {@link #setThreadLocalPerformanceInformation(Map)}.
+     */
+    @NotNull Map<PerformanceMonitor, PerformanceInformation> getThreadLocalPerformanceInformationByMonitor();
+
+    /**
+     * Sets the objects collecting thread-local performance information for the current thread, as obtained
+     * from {@link #getThreadLocalPerformanceInformationByMonitor()}. Monitors not present in the map stop the collection.
+     */
+    void setThreadLocalPerformanceInformation(@NotNull Map<PerformanceMonitor, PerformanceInformation> informationMap);
+
+    /**
+     * Returns current values of gauges from all monitors, indexed by gauge name.
+     */
+    @NotNull Map<String, Long> getGaugeValues();
 }
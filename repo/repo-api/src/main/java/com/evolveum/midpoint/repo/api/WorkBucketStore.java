@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.api;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.task.ActivityPath;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketStateType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketType;
+
+/**
+ * Storage of work buckets of distributed activities outside the coordinator task, see
+ * {@link RepositoryService#getWorkBucketStore()}.
+ *
+ * Buckets are identified by coordinator task OID, activity path and sequential number.
+ * Each operation is executed in its own transaction, regardless of any commit batch of the current thread.
+ * Workers allocating buckets do not block each other, a bucket locked by another worker is simply skipped.
+ *
+ * Returned buckets are detached, with state and worker reference (for delegated buckets) filled in.
+ * Buckets are not checked against the coordinator task, which is not touched by any of these operations.
+ */
+public interface WorkBucketStore {
+
+    /**
+     * Returns the bucket with the lowest sequential number delegated to the specified worker, if there is any.
+     */
+    @Nullable WorkBucketType findDelegatedBucket(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull String workerOid, @NotNull OperationResult parentResult);
+
+    /**
+     * Delegates the READY bucket with the lowest sequential number (not locked by other allocation)
+     * to the specified worker and returns it.
+     * Returns null if there is no such bucket.
+     *
+     * @param afterSequentialNumber if not null, only buckets with higher sequential number are considered;
+     * used when prefetching, so the bucket being processed stays the lowest-numbered one delegated to the worker
+     */
+    @Nullable WorkBucketType allocateReadyBucket(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull String workerOid, @Nullable Integer afterSequentialNumber, @NotNull OperationResult parentResult);
+
+    /**
+     * Takes over a bucket delegated to another worker that has more than one delegated bucket,
+     * i.e. a bucket allocated in advance, and delegates it to the specified worker.
+     * The bucket with the lowest sequential number of each worker is never taken, as it is considered
+     * to be the one being processed. This holds because buckets are processed in the order of sequential numbers
+     * and buckets allocated in advance always have higher numbers than the one being processed.
+     *
+     * The bucket with the highest sequential number is taken from the worker with the most delegated buckets.
+     * Returns null if there is no such bucket.
+     */
+    @Nullable WorkBucketType stealBucket(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull String workerOid, @NotNull OperationResult parentResult);
+
+    /** Returns the bucket with the highest sequential number in any state, or null if there are no buckets. */
+    @Nullable WorkBucketType getLastBucket(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull OperationResult parentResult);
+
+    /**
+     * Adds new buckets with their states and worker references; either all of them or none.
+     *
+     * @return false if any of the buckets already exists, e.g. when another worker created buckets with the same
+     * sequential numbers concurrently; nothing is added in that case
+     */
+    boolean addBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull Collection<WorkBucketType> buckets, @NotNull OperationResult parentResult);
+
+    /**
+     * Marks the bucket as COMPLETE.
+     *
+     * @param workerOid OID of the worker completing the bucket, this is only for consistency checking
+     * @return false if there is no such bucket in the store
+     * @throws IllegalStateException if the bucket is not delegated
+     */
+    boolean completeBucket(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            int sequentialNumber, @Nullable String workerOid, @NotNull OperationResult parentResult);
+
+    /**
+     * Makes the bucket with specified sequential number (or all buckets, if the number is null)
+     * delegated to the worker READY again.
+     *
+     * @return number of released buckets
+     */
+    int releaseBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull String workerOid, @Nullable Integer sequentialNumber, @NotNull OperationResult parentResult);
+
+    /**
+     * Makes all buckets delegated to other than specified workers READY again.
+     *
+     * @return number of reclaimed buckets
+     */
+    int reclaimBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull Collection<String> liveWorkerOids, @NotNull OperationResult parentResult);
+
+    /** Returns the number of buckets in the specified state, or all buckets if the state is null. */
+    int countBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @Nullable WorkBucketStateType state, @NotNull OperationResult parentResult);
+
+    /** Returns the number of buckets delegated to the specified worker. */
+    int countDelegatedBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull String workerOid, @NotNull OperationResult parentResult);
+
+    /** Returns all buckets of the activity ordered by sequential number. */
+    @NotNull List<WorkBucketType> getBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull OperationResult parentResult);
+
+    /** Returns the bucket size determined by adaptive sizing, or null if it was not stored yet. */
+    @Nullable BigInteger getAdaptiveBucketSize(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull OperationResult parentResult);
+
+    /**
+     * Stores the bucket size determined by adaptive sizing, to be used for buckets created from now on.
+     * Nothing is written if the stored size is the same.
+     *
+     * @return true if the stored size was changed
+     */
+    boolean storeAdaptiveBucketSize(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull BigInteger adaptiveBucketSize, @NotNull OperationResult parentResult);
+
+    /**
+     * Deletes buckets (and the adaptive bucket size) of the activity and all its sub-activities.
+     * Empty activity path means all buckets of the coordinator.
+     *
+     * @return number of deleted buckets
+     */
+    int deleteBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull OperationResult parentResult);
+}
@@ -7,6 +7,10 @@
 
 package com.evolveum.midpoint.repo.api.perf;
 
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+
 import com.evolveum.midpoint.xml.ns._public.common.common_3.RepositoryStatisticsReportingConfigurationType;
 
 /**
@@ -30,5 +34,17 @@ public interface PerformanceMonitor {
 
     PerformanceInformation getThreadLocalPerformanceInformation();
 
+    /**
+     * Sets the object collecting thread-local performance information, e.g. to let a helper thread doing a part
+     * of the work of another thread contribute to its statistics. Null value stops the collection.
+     * The object must be one obtained from {@link #getThreadLocalPerformanceInformation()}.
+     */
+    void setThreadLocalPerformanceInformation(PerformanceInformation information);
+
     void setConfiguration(RepositoryStatisticsReportingConfigurationType statistics);
+
+    /**
+     * Returns current values of gauges (e.g. queue depths) of the monitored component, indexed by gauge name.
+     */
+    @NotNull Map<String, Long> getGaugeValues();
 }
@@ -12,6 +12,7 @@ import static com.evolveum.midpoint.repo.cache.other.MonitoringUtil.repoOpStart;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.PreDestroy;
 
 import org.jetbrains.annotations.NotNull;
@@ -27,6 +28,8 @@ import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.repo.api.*;
 import com.evolveum.midpoint.repo.api.perf.PerformanceMonitor;
 import com.evolveum.midpoint.repo.api.query.ObjectFilterExpressionEvaluator;
+import com.evolveum.midpoint.repo.cache.global.GlobalCacheVersionValidator;
+import com.evolveum.midpoint.repo.cache.global.GlobalCountCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalObjectCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalQueryCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalVersionCache;
@@ -60,8 +63,10 @@ public class RepositoryCache implements RepositoryService, Cache {
 
     // individual caches
     @Autowired private GlobalQueryCache globalQueryCache;
+    @Autowired private GlobalCountCache globalCountCache;
     @Autowired private GlobalObjectCache globalObjectCache;
     @Autowired private GlobalVersionCache globalVersionCache;
+    @Autowired private GlobalCacheVersionValidator globalCacheVersionValidator;
     @Autowired private LocalRepoCacheCollection localRepoCacheCollection;
 
     // handlers
@@ -100,12 +105,28 @@ public class RepositoryCache implements RepositoryService, Cache {
         return getObjectOpHandler.getObject(type, oid, options, parentResult);
     }
 
+    @NotNull
+    @Override
+    public <T extends ObjectType> SearchResultList<PrismObject<T>> getObjects(@NotNull Class<T> type,
+            @NotNull Collection<String> oids, Collection<SelectorOptions<GetOperationOptions>> options,
+            @NotNull OperationResult parentResult) throws SchemaException {
+        return getObjectOpHandler.getObjects(type, oids, options, parentResult);
+    }
+
     @Override
     public <T extends ObjectType> String getVersion(Class<T> type, String oid, OperationResult parentResult)
             throws ObjectNotFoundException, SchemaException {
         return getVersionOpHandler.getVersion(type, oid, parentResult);
     }
 
+    /** Not cached: it is used to check whether cached objects are still current. */
+    @NotNull
+    @Override
+    public <T extends ObjectType> Map<String, String> getVersions(@NotNull Class<T> type,
+            @NotNull Collection<String> oids, @NotNull OperationResult parentResult) throws SchemaException {
+        return repositoryService.getVersions(type, oids, parentResult);
+    }
+
     @NotNull
     @Override
     public <T extends ObjectType> SearchResultList<PrismObject<T>> searchObjects(@NotNull Class<T> type, ObjectQuery query,
@@ -172,6 +193,17 @@ public class RepositoryCache implements RepositoryService, Cache {
         return modificationOpHandler.addObject(object, options, parentResult);
     }
 
+    @Override
+    public @NotNull List<AddObjectOutcome> addObjects(
+            @NotNull List<? extends PrismObject<? extends ObjectType>> objects, RepoAddOptions options,
+            @NotNull OperationResult parentResult) {
+        if (RepoAddOptions.isOverwrite(options)) {
+            return RepositoryService.super.addObjects(objects, options, parentResult);
+        } else {
+            return modificationOpHandler.addObjects(objects, options, parentResult);
+        }
+    }
+
     @Override
     @NotNull
     public <T extends ObjectType> ModifyObjectResult<T> modifyObject(
@@ -260,6 +292,51 @@ public class RepositoryCache implements RepositoryService, Cache {
         return repositoryService.supports(type);
     }
 
+    @Override
+    public boolean beginCommitBatch(int maxCheckpoints, long maxDelayMillis) {
+        return repositoryService.beginCommitBatch(maxCheckpoints, maxDelayMillis);
+    }
+
+    @Override
+    public void commitBatchCheckpoint() {
+        repositoryService.commitBatchCheckpoint();
+    }
+
+    @Override
+    public void flushCommitBatch() {
+        repositoryService.flushCommitBatch();
+    }
+
+    @Override
+    public void endCommitBatch() {
+        repositoryService.endCommitBatch();
+    }
+
+    @Override
+    public void executeAfterCommit(@NotNull Runnable action, boolean evenIfFailed) {
+        repositoryService.executeAfterCommit(action, evenIfFailed);
+    }
+
+    @Override
+    public void executeAfterCommit(@NotNull Runnable action, @NotNull Runnable onFailure) {
+        repositoryService.executeAfterCommit(action, onFailure);
+    }
+
+    @Override
+    public boolean hasUncommittedModifications() {
+        return repositoryService.hasUncommittedModifications();
+    }
+
+    @Override
+    public boolean isInCommitBatch() {
+        return repositoryService.isInCommitBatch();
+    }
+
+    @Override
+    public @Nullable WorkBucketStore getWorkBucketStore() {
+        return repositoryService.getWorkBucketStore();
+    }
+
     @Override
     public RepositoryDiag getRepositoryDiag() {
         Long startTime = repoOpStart();
@@ -396,6 +473,8 @@ public class RepositoryCache implements RepositoryService, Cache {
         globalObjectCache.initialize();
         globalVersionCache.initialize();
         globalQueryCache.initialize();
+        globalCountCache.initialize();
+        globalCacheVersionValidator.initialize();
         cacheRegistry.registerCache(this);
     }
 
@@ -420,6 +499,7 @@ public class RepositoryCache implements RepositoryService, Cache {
         rv.addAll(globalObjectCache.getStateInformation());
         rv.addAll(globalVersionCache.getStateInformation());
         rv.addAll(globalQueryCache.getStateInformation());
+        rv.addAll(globalCountCache.getStateInformation());
         return rv;
     }
 
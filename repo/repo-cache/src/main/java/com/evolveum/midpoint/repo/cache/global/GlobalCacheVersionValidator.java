@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.cache.global;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.repo.api.CacheDispatcher;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+
+/**
+ * Periodically checks versions of objects in {@link GlobalObjectCache}, {@link GlobalVersionCache}
+ * and {@link GlobalQueryCache} against the repository, see {@link InternalsConfig#getGlobalCacheVersionValidationInterval()}.
+ *
+ * The versions are read by {@link RepositoryService#getVersions} calls, i.e. by a single query per type and chunk.
+ * Entries whose objects were changed or deleted are invalidated in the same way as if a cluster-wide invalidation
+ * message came from the node that changed them. Objects that are current get their version check time renewed,
+ * so they are not checked one by one when accessed.
+ *
+ * Query results cannot be fully validated this way: an object that was created or changed so that it newly matches
+ * a cached query is not among the cached OIDs. Therefore, all query results for a type are evicted when any object
+ * of that type is found stale, and query results older than the validation interval are evicted regardless.
+ */
+@Component
+public class GlobalCacheVersionValidator {
+
+    private static final Trace LOGGER = TraceManager.getTrace(GlobalCacheVersionValidator.class);
+
+    private static final String OP_VALIDATE = GlobalCacheVersionValidator.class.getName() + ".validate";
+
+    private static final String THREAD_NAME = "global-cache-version-validator";
+
+    /** Maximal number of OIDs in a single {@link RepositoryService#getVersions} call. */
+    private static final int CHUNK_SIZE = 1000;
+
+    /** How often do we check whether the validation was enabled, if it's disabled. */
+    private static final long DISABLED_RECHECK_DELAY = 10_000;
+
+    @Autowired private RepositoryService repositoryService;
+    @Autowired private GlobalObjectCache globalObjectCache;
+    @Autowired private GlobalVersionCache globalVersionCache;
+    @Autowired private GlobalQueryCache globalQueryCache;
+    @Autowired private CacheDispatcher cacheDispatcher;
+
+    private ScheduledExecutorService executor;
+
+    /** Starts the periodic validation; it is executed only if enabled by the configuration at that time. */
+    public synchronized void initialize() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduleNext();
+    }
+
+    private synchronized void scheduleNext() {
+        if (executor != null) {
+            long interval = InternalsConfig.getGlobalCacheVersionValidationInterval();
+            executor.schedule(
+                    this::validateAndScheduleNext,
+                    interval > 0 ? interval : DISABLED_RECHECK_DELAY,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void validateAndScheduleNext() {
+        try {
+            if (InternalsConfig.getGlobalCacheVersionValidationInterval() > 0) {
+                validate(new OperationResult(OP_VALIDATE));
+            }
+        } catch (Throwable t) {
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't validate global repository caches", t);
+        } finally {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Checks the versions of all globally cached objects.
+     *
+     * @return Number of stale entries invalidated.
+     */
+    public int validate(OperationResult result) {
+        long start = System.currentTimeMillis();
+
+        // Query results cached before this point may miss objects created or changed since then (on other nodes).
+        long interval = InternalsConfig.getGlobalCacheVersionValidationInterval();
+        if (interval > 0) {
+            globalQueryCache.removeOlderThan(interval);
+        }
+
+        Map<Class<? extends ObjectType>, Map<String, String>> objectVersions = globalObjectCache.getCachedVersions();
+        Map<Class<? extends ObjectType>, Map<String, String>> versionVersions = globalVersionCache.getCachedVersions();
+        Map<Class<? extends ObjectType>, Map<String, String>> queryVersions = globalQueryCache.getCachedVersions();
+        Set<Class<? extends ObjectType>> types = new HashSet<>(objectVersions.keySet());
+        types.addAll(versionVersions.keySet());
+        types.addAll(queryVersions.keySet());
+
+        int checked = 0;
+        int stale = 0;
+        for (Class<? extends ObjectType> type : types) {
+            List<Map<String, String>> cachedVersions = List.of(
+                    objectVersions.getOrDefault(type, Map.of()),
+                    versionVersions.getOrDefault(type, Map.of()),
+                    queryVersions.getOrDefault(type, Map.of()));
+            Set<String> oidSet = new HashSet<>();
+            cachedVersions.forEach(versions -> oidSet.addAll(versions.keySet()));
+            List<String> oids = new ArrayList<>(oidSet);
+            int staleForType = 0;
+            for (int from = 0; from < oids.size(); from += CHUNK_SIZE) {
+                List<String> chunk = oids.subList(from, Math.min(from + CHUNK_SIZE, oids.size()));
+                staleForType += validateChunk(type, chunk, cachedVersions, result);
+                checked += chunk.size();
+            }
+            if (staleForType > 0) {
+                // Objects of this type were changed, so other ones might have been changed to match cached queries.
+                globalQueryCache.removeForType(type);
+            }
+            stale += staleForType;
+        }
+        LOGGER.debug("Validated {} globally cached object(s) of {} type(s) in {} ms, {} stale",
+                checked, types.size(), System.currentTimeMillis() - start, stale);
+        return stale;
+    }
+
+    private int validateChunk(Class<? extends ObjectType> type, List<String> oids,
+            List<Map<String, String>> cachedVersions, OperationResult result) {
+        Map<String, String> currentVersions;
+        try {
+            currentVersions = repositoryService.getVersions(type, oids, result);
+        } catch (Exception e) {
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't get versions of {} objects of {}", e, oids.size(), type);
+            return 0;
+        }
+        int stale = 0;
+        for (String oid : oids) {
+            String currentVersion = currentVersions.get(oid);
+            if (cachedVersions.stream().allMatch(versions -> isCurrent(currentVersion, versions.get(oid)))) {
+                globalObjectCache.renewVersionCheckTime(oid, currentVersion);
+            } else {
+                LOGGER.trace("Cached {}:{} is stale (cached versions {}, current {}), invalidating", type.getSimpleName(),
+                        oid, cachedVersions.stream().map(versions -> versions.get(oid)).collect(Collectors.toList()), currentVersion);
+                invalidate(type, oid);
+                stale++;
+            }
+        }
+        return stale;
+    }
+
+    /** Null cached version means the object is not in the respective cache. */
+    private boolean isCurrent(String currentVersion, String cachedVersion) {
+        return currentVersion != null && (cachedVersion == null || cachedVersion.equals(currentVersion));
+    }
+
+    /** Like an invalidation coming from the remote node: all the caches on this node are notified. */
+    private void invalidate(@NotNull Class<? extends ObjectType> type, @NotNull String oid) {
+        cacheDispatcher.dispatchInvalidation(type, oid, false, new CacheInvalidationContext(true, null));
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
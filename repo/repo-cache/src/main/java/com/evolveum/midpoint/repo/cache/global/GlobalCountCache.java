@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.cache.global;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+
+import org.cache2k.Cache2kBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.repo.cache.local.QueryKey;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
+
+/**
+ * Short-lived cache of object counts requested with the approximate count option.
+ * Such counts are typically used for paging of huge collections in GUI, where the same count
+ * is requested with every page or refresh of the table.
+ *
+ * Entries are removed when an object of the counted type (or its subtype) is changed, but there is no
+ * guarantee that the count is exact - it is approximate, after all - so there is no sophisticated checking
+ * of the concurrent changes, and there is no configuration in caching profiles.
+ */
+@Component
+public class GlobalCountCache {
+
+    private static final Trace LOGGER = TraceManager.getTrace(GlobalCountCache.class);
+
+    private static final String CACHE_NAME = "countCache";
+
+    private static final long CAPACITY = 1_000;
+    private static final long TIME_TO_LIVE_SECONDS = 10;
+
+    @Autowired private PrismContext prismContext;
+
+    private org.cache2k.Cache<QueryKey<?>, Integer> cache;
+
+    public void initialize() {
+        if (cache != null) {
+            LOGGER.warn("Global count cache was already initialized -- ignoring this request.");
+            return;
+        }
+        cache = new Cache2kBuilder<QueryKey<?>, Integer>() {}
+                .name(CACHE_NAME)
+                .entryCapacity(CAPACITY)
+                .expireAfterWrite(TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS)
+                .build();
+        LOGGER.info("Created global repository count cache with a capacity of {} counts", CAPACITY);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (cache != null) {
+            cache.close();
+            cache = null;
+        }
+    }
+
+    public boolean isAvailable() {
+        return cache != null;
+    }
+
+    public Integer get(QueryKey<?> key) {
+        return cache != null ? cache.peek(key) : null;
+    }
+
+    public void put(QueryKey<?> key, int count) {
+        if (cache != null) {
+            cache.put(key, count);
+        }
+    }
+
+    /** Removes counts that may be affected by a change of the object of provided type. */
+    public void removeForType(Class<?> type) {
+        if (cache != null) {
+            cache.asMap().keySet().removeIf(key -> key.getType().isAssignableFrom(type));
+        }
+    }
+
+    public void clear() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        return cache != null ? cache.asMap().size() : 0;
+    }
+
+    public Collection<SingleCacheStateInformationType> getStateInformation() {
+        if (cache != null) {
+            return Collections.singleton(new SingleCacheStateInformationType(prismContext)
+                    .name(GlobalCountCache.class.getName())
+                    .size(size()));
+        } else {
+            return Collections.emptySet();
+        }
+    }
+}
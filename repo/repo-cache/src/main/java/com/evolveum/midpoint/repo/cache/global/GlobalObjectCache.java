@@ -103,6 +103,36 @@ public class GlobalObjectCache extends AbstractGlobalCache {
         }
     }
 
+    /** Returns versions of all cached objects (OID to version), grouped by object type. */
+    public @NotNull Map<Class<? extends ObjectType>, Map<String, String>> getCachedVersions() {
+        Map<Class<? extends ObjectType>, Map<String, String>> versions = new HashMap<>();
+        if (cache != null) {
+            cache.invokeAll(cache.keys(), e -> {
+                GlobalCacheObjectValue<?> value = e.getValue();
+                if (value != null) {
+                    versions.computeIfAbsent(value.getObjectType(), k -> new HashMap<>())
+                            .put(e.getKey(), value.getObjectVersion());
+                }
+                return null;
+            });
+        }
+        return versions;
+    }
+
+    /**
+     * Postpones the version check of the cached object, as its version was found to be current
+     * (if the cached object is still of that version).
+     */
+    public void renewVersionCheckTime(@NotNull String oid, @NotNull String currentVersion) {
+        GlobalCacheObjectValue<?> value = get(oid);
+        if (value != null && currentVersion.equals(value.getObjectVersion())) {
+            Long nextVersionCheckTime = getNextVersionCheckTime(value.getObjectType());
+            if (nextVersionCheckTime != null) {
+                value.setCheckVersionTime(nextVersionCheckTime);
+            }
+        }
+    }
+
     public <T extends ObjectType> void put(GlobalCacheObjectValue<T> cacheObject) {
         if (cache != null) {
             PrismObject<T> prismObject = cacheObject.getObject();
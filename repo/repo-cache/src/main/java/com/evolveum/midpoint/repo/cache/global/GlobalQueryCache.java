@@ -113,6 +113,43 @@ public class GlobalQueryCache extends AbstractGlobalCache {
         }
     }
 
+    public void removeForType(Class<?> type) {
+        if (cache != null) {
+            cache.asMap().keySet().removeIf(key -> key.getType().isAssignableFrom(type));
+        }
+    }
+
+    /** Removes query results that were cached more than `maxAge` milliseconds ago. */
+    public void removeOlderThan(long maxAge) {
+        if (cache != null) {
+            cache.asMap().values().removeIf(value -> value.getAge() > maxAge);
+        }
+    }
+
+    /**
+     * Returns versions (OID to version) of all objects in cached query results, grouped by object type.
+     * If the same object is cached in different versions, an empty string is returned for it, so it is treated as stale.
+     */
+    public @NotNull Map<Class<? extends ObjectType>, Map<String, String>> getCachedVersions() {
+        Map<Class<? extends ObjectType>, Map<String, String>> versions = new HashMap<>();
+        if (cache != null) {
+            cache.invokeAll(cache.keys(), e -> {
+                GlobalCacheQueryValue<?> value = e.getValue();
+                if (value != null) {
+                    for (Object item : value.getResult()) {
+                        PrismObject<?> object = (PrismObject<?>) item;
+                        //noinspection unchecked
+                        versions.computeIfAbsent((Class<? extends ObjectType>) object.asObjectable().getClass(), k -> new HashMap<>())
+                                .merge(object.getOid(), String.valueOf(object.getVersion()),
+                                        (v1, v2) -> v1.equals(v2) ? v1 : "");
+                    }
+                }
+                return null;
+            });
+        }
+        return versions;
+    }
+
     @Override
     protected CacheType getCacheType() {
         return CacheType.GLOBAL_REPO_QUERY_CACHE;
@@ -139,6 +139,23 @@ public class GlobalVersionCache extends AbstractGlobalCache {
         }
     }
 
+    /** Returns all cached versions (OID to version), grouped by object type. */
+    public @NotNull Map<Class<? extends ObjectType>, Map<String, String>> getCachedVersions() {
+        Map<Class<? extends ObjectType>, Map<String, String>> versions = new HashMap<>();
+        if (cache != null) {
+            cache.invokeAll(cache.keys(), e -> {
+                GlobalCacheObjectVersionValue<?> value = e.getValue();
+                if (value != null) {
+                    //noinspection unchecked
+                    versions.computeIfAbsent((Class<? extends ObjectType>) value.getObjectType(), k -> new HashMap<>())
+                            .put(e.getKey(), value.getVersion());
+                }
+                return null;
+            });
+        }
+        return versions;
+    }
+
     public <T extends ObjectType> void put(PrismObject<T> object) {
         if (cache != null) {
             cache.put(object.getOid(), new GlobalCacheObjectVersionValue<>(object.asObjectable().getClass(), object.getVersion()));
@@ -14,6 +14,7 @@ import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.repo.api.CacheDispatcher;
 import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.cache.global.GlobalCountCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalObjectCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalQueryCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalVersionCache;
@@ -33,6 +34,7 @@ abstract public class BaseOpHandler {
     @Autowired CacheRegistry cacheRegistry;
     @Autowired MatchingRuleRegistry matchingRuleRegistry;
     @Autowired GlobalQueryCache globalQueryCache;
+    @Autowired GlobalCountCache globalCountCache;
     @Autowired GlobalObjectCache globalObjectCache;
     @Autowired GlobalVersionCache globalVersionCache;
     @Autowired CacheConfigurationManager cacheConfigurationManager;
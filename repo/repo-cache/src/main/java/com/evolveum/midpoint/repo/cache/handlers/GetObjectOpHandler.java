@@ -10,17 +10,20 @@ package com.evolveum.midpoint.repo.cache.handlers;
 import static com.evolveum.midpoint.repo.cache.RepositoryCache.CLASS_NAME_WITH_DOT;
 import static com.evolveum.midpoint.repo.cache.other.MonitoringUtil.repoOpEnd;
 import static com.evolveum.midpoint.repo.cache.other.MonitoringUtil.repoOpStart;
+import static com.evolveum.midpoint.schema.GetOperationOptions.isReadOnly;
+import static com.evolveum.midpoint.schema.SelectorOptions.findRootOptions;
 import static com.evolveum.midpoint.schema.util.TraceUtil.isAtLeastMinimal;
 
-import java.util.Collection;
-import java.util.Objects;
+import java.util.*;
 
 import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Component;
 
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.cache.global.GlobalCacheObjectValue;
 import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SearchResultList;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
@@ -36,6 +39,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.TracingLevelType;
 public class GetObjectOpHandler extends CachedOpHandler {
 
     private static final String GET_OBJECT = CLASS_NAME_WITH_DOT + "getObject";
+    private static final String GET_OBJECTS = CLASS_NAME_WITH_DOT + "getObjects";
 
     @NotNull
     public <T extends ObjectType> PrismObject<T> getObject(Class<T> type, String oid,
@@ -115,6 +119,135 @@ public class GetObjectOpHandler extends CachedOpHandler {
         }
     }
 
+    /**
+     * Objects found in the local or global cache are returned from there, the others are loaded
+     * by a single {@link RepositoryService#getObjects} call and stored to the caches.
+     * Globally cached objects that need version check are loaded with the others, it's cheaper
+     * than checking the version of each one.
+     */
+    @NotNull
+    public <T extends ObjectType> SearchResultList<PrismObject<T>> getObjects(Class<T> type, Collection<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult)
+            throws SchemaException {
+        OperationResult result = parentResult.subresult(GET_OBJECTS)
+                .addQualifier(type.getSimpleName())
+                .addParam("type", type)
+                .addParam("count", oids.size())
+                .addArbitraryObjectCollectionAsParam("options", options)
+                .build();
+
+        try {
+            PassReason passReason = PassReason.determine(options, type);
+            CacheSetAccessInfo<T> caches = cacheSetAccessInfoFactory.determine(type);
+            boolean readOnly = isReadOnly(findRootOptions(options));
+            Set<String> distinctOids = new LinkedHashSet<>(oids);
+
+            // Keyed by lowercase OIDs: the repository returns them in the canonical form (the native one as UUIDs),
+            // which does not have to be the form they were requested in.
+            Map<String, PrismObject<T>> objectsByOid = new HashMap<>();
+            List<String> oidsToLoad = new ArrayList<>();
+            for (String oid : distinctOids) {
+                GetObjectOpExecution<T> exec = new GetObjectOpExecution<>(
+                        type, oid, options, result, null, null, prismContext, caches);
+                PrismObject<T> cachedObject = getFromCaches(exec, passReason);
+                if (cachedObject != null) {
+                    objectsByOid.put(lowercaseOid(oid), readOnly ? cachedObject : cachedObject.clone());
+                } else {
+                    oidsToLoad.add(oid);
+                }
+            }
+
+            if (!oidsToLoad.isEmpty()) {
+                SearchResultList<PrismObject<T>> loadedObjects;
+                Long startTime = repoOpStart();
+                try {
+                    loadedObjects = repositoryService.getObjects(type, oidsToLoad, options, result);
+                } finally {
+                    repoOpEnd(startTime);
+                }
+
+                for (PrismObject<T> object : loadedObjects) {
+                    if (passReason != null) {
+                        objectsByOid.put(lowercaseOid(object.getOid()), object);
+                        continue;
+                    }
+                    PrismObject<T> immutable = toImmutable(object);
+                    cacheUpdater.storeImmutableObjectToObjectLocal(immutable, caches);
+                    cacheUpdater.storeImmutableObjectToObjectGlobal(immutable);
+                    cacheUpdater.storeObjectToVersionGlobal(immutable, caches.globalVersion);
+                    cacheUpdater.storeObjectToVersionLocal(immutable, caches.localVersion);
+                    objectsByOid.put(lowercaseOid(object.getOid()), readOnly ? immutable : object.cloneIfImmutable());
+                }
+                for (String oid : oidsToLoad) {
+                    if (!objectsByOid.containsKey(lowercaseOid(oid))) {
+                        // the same as for getObject with ObjectNotFoundException
+                        globalObjectCache.remove(oid);
+                        globalVersionCache.remove(oid);
+                    }
+                }
+            }
+
+            SearchResultList<PrismObject<T>> objects = new SearchResultList<>(new ArrayList<>(objectsByOid.size()));
+            for (String oid : distinctOids) {
+                // Removed, so the same object requested by differently written OIDs is returned only once.
+                PrismObject<T> object = objectsByOid.remove(lowercaseOid(oid));
+                if (object != null) {
+                    objects.add(object);
+                }
+            }
+            return objects;
+        } catch (Throwable t) {
+            result.recordFatalError(t);
+            throw t;
+        } finally {
+            result.close();
+        }
+    }
+
+    private static String lowercaseOid(String oid) {
+        return oid.toLowerCase(Locale.ROOT);
+    }
+
+    /** Returns immutable object from local or global cache, or null if it needs to be loaded. */
+    private <T extends ObjectType> PrismObject<T> getFromCaches(GetObjectOpExecution<T> exec, PassReason passReason) {
+        if (passReason != null) {
+            exec.reportLocalAndGlobalPass(passReason);
+            return null;
+        }
+
+        if (!exec.local.available) {
+            exec.reportLocalNotAvailable();
+        } else if (!exec.local.supports) {
+            exec.reportLocalPass();
+        } else {
+            PrismObject<T> cachedObject = exec.local.cache.get(exec.oid);
+            if (cachedObject != null) {
+                exec.reportLocalHit();
+                return cachedObject;
+            } else {
+                exec.reportLocalMiss();
+            }
+        }
+
+        if (!exec.global.available) {
+            exec.reportGlobalNotAvailable();
+            return null;
+        } else if (!exec.global.supports) {
+            exec.reportGlobalPass();
+            return null;
+        }
+
+        GlobalCacheObjectValue<T> cachedValue = globalObjectCache.get(exec.oid);
+        if (cachedValue == null || cachedValue.shouldCheckVersion()) {
+            exec.reportGlobalMiss();
+            return null;
+        }
+        exec.reportGlobalHit();
+        PrismObject<T> cachedObject = cachedValue.getObject();
+        cacheUpdater.storeImmutableObjectToAllLocal(cachedObject, exec.caches);
+        return cachedObject;
+    }
+
     private <T extends ObjectType> GetObjectOpExecution<T> initializeExecution(Class<T> type, String oid,
             Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult) {
         OperationResult result = parentResult.subresult(GET_OBJECT)
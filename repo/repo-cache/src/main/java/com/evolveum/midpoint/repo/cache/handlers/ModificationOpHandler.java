@@ -24,6 +24,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 
 import static com.evolveum.midpoint.repo.cache.RepositoryCache.CLASS_NAME_WITH_DOT;
@@ -38,6 +39,7 @@ import static com.evolveum.midpoint.schema.util.TraceUtil.isAtLeastNormal;
 public class ModificationOpHandler extends BaseOpHandler {
 
     private static final String ADD_OBJECT = CLASS_NAME_WITH_DOT + "addObject";
+    private static final String ADD_OBJECTS = CLASS_NAME_WITH_DOT + "addObjects";
     private static final String MODIFY_OBJECT = CLASS_NAME_WITH_DOT + "modifyObject";
     private static final String DELETE_OBJECT = CLASS_NAME_WITH_DOT + "deleteObject";
     private static final String ADVANCE_SEQUENCE = CLASS_NAME_WITH_DOT + "advanceSequence";
@@ -101,6 +103,41 @@ public class ModificationOpHandler extends BaseOpHandler {
         }
     }
 
+    /** Overwriting is not supported here, it must be treated object by object. */
+    public @NotNull List<AddObjectOutcome> addObjects(
+            @NotNull List<? extends PrismObject<? extends ObjectType>> objects, RepoAddOptions options,
+            @NotNull OperationResult parentResult) {
+        assert !RepoAddOptions.isOverwrite(options);
+        OperationResult result = parentResult.subresult(ADD_OBJECTS)
+                .addParam("objects", objects.size())
+                .addArbitraryObjectAsParam("options", options)
+                .build();
+        try {
+            List<AddObjectOutcome> outcomes;
+            Long startTime = MonitoringUtil.repoOpStart();
+            try {
+                outcomes = repositoryService.addObjects(objects, options, result);
+            } finally {
+                MonitoringUtil.repoOpEnd(startTime);
+            }
+            // As in addObject, we don't cache the objects, we only invalidate the entries "just for sure".
+            for (int i = 0; i < objects.size(); i++) {
+                AddObjectOutcome outcome = outcomes.get(i);
+                if (outcome.isSuccess()) {
+                    PrismObject<? extends ObjectType> object = objects.get(i);
+                    invalidator.invalidateCacheEntries(
+                            object.getCompileTimeClass(), outcome.getOid(), new AddObjectResult<>(object), result);
+                }
+            }
+            return outcomes;
+        } catch (Throwable t) {
+            result.recordFatalError(t);
+            throw t;
+        } finally {
+            result.computeStatusIfUnknown();
+        }
+    }
+
     @NotNull
     public <T extends ObjectType> ModifyObjectResult<T> modifyObject(@NotNull Class<T> type, @NotNull String oid,
             @NotNull Collection<? extends ItemDelta<?, ?>> modifications,
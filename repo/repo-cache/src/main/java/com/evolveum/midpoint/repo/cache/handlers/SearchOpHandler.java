@@ -10,6 +10,7 @@ package com.evolveum.midpoint.repo.cache.handlers;
 import static com.evolveum.midpoint.repo.cache.RepositoryCache.CLASS_NAME_WITH_DOT;
 import static com.evolveum.midpoint.repo.cache.other.MonitoringUtil.repoOpEnd;
 import static com.evolveum.midpoint.repo.cache.other.MonitoringUtil.repoOpStart;
+import static com.evolveum.midpoint.schema.GetOperationOptions.isApproximateCount;
 import static com.evolveum.midpoint.schema.GetOperationOptions.isReadOnly;
 import static com.evolveum.midpoint.schema.SelectorOptions.findRootOptions;
 import static com.evolveum.midpoint.schema.util.TraceUtil.isAtLeastMinimal;
@@ -441,23 +442,43 @@ public class SearchOpHandler extends CachedOpHandler {
     public <T extends ObjectType> int countObjects(Class<T> type, ObjectQuery query,
             Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult)
             throws SchemaException {
-        // TODO use cached query result if applicable
         OperationResult result = parentResult.subresult(OP_COUNT_OBJECTS)
                 .addQualifier(type.getSimpleName())
                 .addParam("type", type)
                 .addParam("query", query)
                 .addArbitraryObjectCollectionAsParam("options", options)
                 .build();
-        MonitoringUtil.log("Cache: PASS countObjects ({})", false, type.getSimpleName());
-        Long startTime = repoOpStart();
         try {
-            return repositoryService.countObjects(type, query, options, result);
+            // Only approximate counts are cached, short-lived cache entry does not make them much worse.
+            if (isApproximateCount(findRootOptions(options)) && globalCountCache.isAvailable()) {
+                QueryKey<T> key = new QueryKey<>(type, query);
+                Integer cachedCount = globalCountCache.get(key);
+                if (cachedCount != null) {
+                    MonitoringUtil.log("Cache: Global HIT countObjects ({})", false, type.getSimpleName());
+                    return cachedCount;
+                }
+                int count = countObjectsInternal(type, query, options, result);
+                globalCountCache.put(key, count);
+                return count;
+            }
+            return countObjectsInternal(type, query, options, result);
         } catch (Throwable t) {
             result.recordFatalError(t);
             throw t;
         } finally {
-            repoOpEnd(startTime);
             result.computeStatusIfUnknown();
         }
     }
+
+    private <T extends ObjectType> int countObjectsInternal(Class<T> type, ObjectQuery query,
+            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult result)
+            throws SchemaException {
+        MonitoringUtil.log("Cache: PASS countObjects ({})", false, type.getSimpleName());
+        Long startTime = repoOpStart();
+        try {
+            return repositoryService.countObjects(type, query, options, result);
+        } finally {
+            repoOpEnd(startTime);
+        }
+    }
 }
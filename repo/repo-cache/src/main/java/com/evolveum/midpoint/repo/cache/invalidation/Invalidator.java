@@ -26,6 +26,7 @@ import com.evolveum.midpoint.repo.api.CacheDispatcher;
 import com.evolveum.midpoint.repo.api.CacheRegistry;
 import com.evolveum.midpoint.repo.api.RepositoryOperationResult;
 import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.cache.global.GlobalCountCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalObjectCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalQueryCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalVersionCache;
@@ -55,6 +56,7 @@ public class Invalidator {
             FunctionLibraryType.class);
 
     @Autowired private GlobalQueryCache globalQueryCache;
+    @Autowired private GlobalCountCache globalCountCache;
     @Autowired private GlobalObjectCache globalObjectCache;
     @Autowired private GlobalVersionCache globalVersionCache;
     @Autowired PrismContext prismContext;
@@ -75,9 +77,11 @@ public class Invalidator {
             globalObjectCache.clear();
             globalVersionCache.clear();
             globalQueryCache.clear();
+            globalCountCache.clear();
         } else {
             globalObjectCache.remove(type, oid);
             globalVersionCache.remove(type, oid);
+            globalCountCache.removeForType(type);
             if (ObjectType.class.isAssignableFrom(type)) {
                 //noinspection unchecked
                 clearQueryResultsGlobally((Class<? extends ObjectType>) type, oid, context);
@@ -113,8 +117,14 @@ public class Invalidator {
                     globalObjectCache.hasClusterwideInvalidationFor(type) ||
                     globalVersionCache.hasClusterwideInvalidationFor(type) ||
                     globalQueryCache.hasClusterwideInvalidationFor(type);
-            cacheDispatcher.dispatchInvalidation(type, oid, clusterwide,
-                    new CacheInvalidationContext(false, new RepositoryCacheInvalidationDetails(additionalInfo)));
+            // Local caches are thread-specific, so they are invalidated right away. But global caches (and other nodes)
+            // must not be invalidated before the modification is committed: they would re-cache the old state otherwise.
+            // If the commit fails, the invalidation is done anyway, because this thread could have put its uncommitted
+            // state into global caches.
+            repositoryService.executeAfterCommit(
+                    () -> cacheDispatcher.dispatchInvalidation(type, oid, clusterwide,
+                            new CacheInvalidationContext(false, new RepositoryCacheInvalidationDetails(additionalInfo))),
+                    true);
         } catch (Throwable t) {
             result.recordFatalError(t);
             throw t; // Really? We want the operation to proceed anyway. But OTOH we want to be sure devel team gets notified about this.
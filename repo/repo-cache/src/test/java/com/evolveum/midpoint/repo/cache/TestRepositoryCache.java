@@ -36,6 +36,8 @@ import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.api.perf.OperationPerformanceInformation;
 import com.evolveum.midpoint.repo.api.perf.PerformanceInformation;
 import com.evolveum.midpoint.repo.cache.global.GlobalCacheObjectValue;
+import com.evolveum.midpoint.repo.cache.global.GlobalCacheVersionValidator;
+import com.evolveum.midpoint.repo.cache.global.GlobalCountCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalObjectCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalQueryCache;
 import com.evolveum.midpoint.repo.cache.global.GlobalVersionCache;
@@ -66,9 +68,12 @@ public class TestRepositoryCache extends AbstractSpringTest implements InfraTest
     private static final String CLASS_DOT = TestRepositoryCache.class.getName() + ".";
 
     @Autowired RepositoryCache repositoryCache;
+    @Autowired RepositoryService repositoryService; // the plain one, used to simulate changes made on other nodes
+    @Autowired GlobalCacheVersionValidator globalCacheVersionValidator;
     @Autowired GlobalObjectCache globalObjectCache;
     @Autowired GlobalVersionCache globalVersionCache;
     @Autowired GlobalQueryCache globalQueryCache;
+    @Autowired GlobalCountCache globalCountCache;
     @Autowired PrismContext prismContext;
 
     @SuppressWarnings("unused") // used when heap dumps are uncommented
@@ -109,6 +114,124 @@ public class TestRepositoryCache extends AbstractSpringTest implements InfraTest
         testGetCachedObject(SystemConfigurationType.class);
     }
 
+    @Test
+    public void test120GetUsersByOids() throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+        testGetObjectsByOids(UserType.class, false);
+    }
+
+    @Test
+    public void test130GetArchetypesByOids() throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+        testGetObjectsByOids(ArchetypeType.class, true);
+    }
+
+    @Test
+    public void test140ApproximateCountIsCached() throws SchemaException, ObjectAlreadyExistsException, ObjectNotFoundException {
+        OperationResult result = createOperationResult();
+
+        deleteExistingObjects(UserType.class, result);
+        generateObjects(UserType.class, 3, result);
+
+        clearStatistics();
+        clearCaches();
+
+        Collection<SelectorOptions<GetOperationOptions>> options =
+                SelectorOptions.createCollection(GetOperationOptions.createApproximateCount());
+        assertEquals("Wrong count1", 3, repositoryCache.countObjects(UserType.class, null, options, result));
+        assertEquals("Wrong count2", 3, repositoryCache.countObjects(UserType.class, null, options, result));
+        assertOperations(RepositoryService.OP_COUNT_OBJECTS, 1);
+
+        // exact count is never cached
+        assertEquals("Wrong exact count", 3, repositoryCache.countObjects(UserType.class, null, null, result));
+        assertOperations(RepositoryService.OP_COUNT_OBJECTS, 2);
+
+        // change of the object of the counted type evicts the count
+        PrismObject<UserType> newUser = getPrismContext().createObject(UserType.class);
+        newUser.asObjectable().setName(PolyStringType.fromOrig(String.valueOf(Math.random())));
+        repositoryCache.addObject(newUser, null, result);
+        assertEquals("Wrong count3", 4, repositoryCache.countObjects(UserType.class, null, options, result));
+        assertOperations(RepositoryService.OP_COUNT_OBJECTS, 3);
+    }
+
+    /**
+     * Objects changed or deleted bypassing the cache (like on another node) are found stale by the bulk version check
+     * and invalidated; the others stay cached.
+     */
+    @Test
+    public void test150ValidateGlobalCacheVersions() throws SchemaException, ObjectAlreadyExistsException, ObjectNotFoundException {
+        OperationResult result = createOperationResult();
+
+        deleteExistingObjects(ArchetypeType.class, result);
+
+        clearStatistics();
+        clearCaches();
+
+        List<String> oids = new ArrayList<>();
+        generateObjects(ArchetypeType.class, 3, result).forEach(o -> oids.add(o.getOid()));
+        for (String oid : oids) {
+            repositoryCache.getObject(ArchetypeType.class, oid, null, result);
+            assertObjectAndVersionCached(oid, true);
+        }
+
+        String changedOid = oids.get(0);
+        String deletedOid = oids.get(1);
+        String unchangedOid = oids.get(2);
+        repositoryService.modifyObject(ArchetypeType.class, changedOid,
+                prismContext.deltaFor(ArchetypeType.class)
+                        .item(ObjectType.F_DESCRIPTION).replace("changed elsewhere")
+                        .asItemDeltas(),
+                result);
+        repositoryService.deleteObject(ArchetypeType.class, deletedOid, result);
+
+        Map<String, String> versions = repositoryCache.getVersions(ArchetypeType.class, oids, result);
+        assertThat(versions).containsOnlyKeys(changedOid, unchangedOid);
+
+        int stale = globalCacheVersionValidator.validate(result);
+
+        assertEquals("Wrong # of stale entries", 2, stale);
+        assertObjectAndVersionCached(changedOid, false);
+        assertObjectAndVersionCached(deletedOid, false);
+        assertObjectAndVersionCached(unchangedOid, true);
+
+        PrismObject<ArchetypeType> changed = repositoryCache.getObject(ArchetypeType.class, changedOid, null, result);
+        assertEquals("Wrong description", "changed elsewhere", changed.asObjectable().getDescription());
+    }
+
+    /**
+     * Query results containing an object changed bypassing the cache are found stale by the bulk version check.
+     * All query results of that type are evicted, as other objects might have been changed to match them.
+     */
+    @Test
+    public void test160ValidateGlobalQueryCache() throws SchemaException, ObjectAlreadyExistsException, ObjectNotFoundException {
+        OperationResult result = createOperationResult();
+
+        deleteExistingObjects(ArchetypeType.class, result);
+
+        clearStatistics();
+        clearCaches();
+
+        List<String> oids = new ArrayList<>();
+        generateObjects(ArchetypeType.class, 2, result).forEach(o -> oids.add(o.getOid()));
+        ObjectQuery queryForFirst = prismContext.queryFor(ArchetypeType.class).id(oids.get(0)).build();
+        ObjectQuery queryForSecond = prismContext.queryFor(ArchetypeType.class).id(oids.get(1)).build();
+        repositoryCache.searchObjects(ArchetypeType.class, queryForFirst, null, result);
+        repositoryCache.searchObjects(ArchetypeType.class, queryForSecond, null, result);
+        assertQueryCached(ArchetypeType.class, queryForFirst, true);
+        assertQueryCached(ArchetypeType.class, queryForSecond, true);
+
+        assertEquals("Wrong # of stale entries before change", 0, globalCacheVersionValidator.validate(result));
+        assertQueryCached(ArchetypeType.class, queryForFirst, true);
+
+        repositoryService.modifyObject(ArchetypeType.class, oids.get(0),
+                prismContext.deltaFor(ArchetypeType.class)
+                        .item(ObjectType.F_DESCRIPTION).replace("changed elsewhere")
+                        .asItemDeltas(),
+                result);
+
+        assertEquals("Wrong # of stale entries", 1, globalCacheVersionValidator.validate(result));
+        assertQueryCached(ArchetypeType.class, queryForFirst, false);
+        assertQueryCached(ArchetypeType.class, queryForSecond, false);
+    }
+
     @Test
     public void test200SearchUsers() throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
         testSearchUncachedObjects(UserType.class);
@@ -437,6 +560,67 @@ public class TestRepositoryCache extends AbstractSpringTest implements InfraTest
         assertObjectAndVersionCached(object.getOid(), isCached);
     }
 
+    /**
+     * Gets a set of objects by OIDs repeatedly, the last time with one new object.
+     * Only the objects not found in the cache should be loaded from the repository, all in one operation.
+     */
+    private <T extends ObjectType> void testGetObjectsByOids(Class<T> objectClass, boolean isCached)
+            throws ObjectAlreadyExistsException, SchemaException, ObjectNotFoundException {
+        OperationResult result = createOperationResult();
+
+        deleteExistingObjects(objectClass, result);
+
+        clearStatistics();
+        clearCaches();
+
+        Set<PrismObject<T>> objects = generateObjects(objectClass, 5, result);
+        List<String> oids = new ArrayList<>();
+        objects.forEach(o -> oids.add(o.getOid()));
+        List<String> requestedOids = new ArrayList<>(oids);
+        requestedOids.add(2, UUID.randomUUID().toString()); // nonexistent object is skipped
+        requestedOids.add(oids.get(0)); // duplicate is ignored
+
+        SearchResultList<PrismObject<T>> objects1 = repositoryCache.getObjects(objectClass, requestedOids, null, result);
+        displayCollection("1st round of objects retrieved", objects1);
+        assertThat(objects1).extracting(PrismObject::getOid).containsExactlyElementsOf(oids);
+        assertEquals("Wrong objects1", objects, new HashSet<>(objects1));
+        objects1.get(0).asObjectable().setDescription("garbage");
+
+        SearchResultList<PrismObject<T>> objects2 = repositoryCache.getObjects(objectClass, requestedOids, null, result);
+        displayCollection("2nd round of objects retrieved", objects2);
+        assertEquals("Wrong objects2", objects, new HashSet<>(objects2));
+
+        PrismObject<T> newObject = getPrismContext().createObject(objectClass);
+        newObject.asObjectable().setName(PolyStringType.fromOrig(String.valueOf(Math.random())));
+        repositoryCache.addObject(newObject, null, result);
+        objects.add(newObject);
+        requestedOids.add(newObject.getOid());
+
+        SearchResultList<PrismObject<T>> objects3 = repositoryCache.getObjects(objectClass, requestedOids, null, result);
+        displayCollection("3rd round of objects retrieved", objects3);
+        assertEquals("Wrong objects3", objects, new HashSet<>(objects3));
+
+        dumpStatistics();
+        // old repo implements getObjects by search
+        assertOperations(isNewRepoUsed ? RepositoryService.OP_GET_OBJECTS : RepositoryService.OP_SEARCH_OBJECTS,
+                isCached ? 2 : 3);
+        assertGetOperations(0);
+
+        for (PrismObject<T> object : objects) {
+            assertObjectAndVersionCached(object.getOid(), isCached);
+        }
+
+        if (isNewRepoUsed) {
+            // OIDs are UUIDs in the native repository, they are found regardless of the letter case
+            List<String> mixedCaseOids = new ArrayList<>(oids);
+            mixedCaseOids.replaceAll(oid -> oid.toUpperCase(Locale.ROOT));
+            mixedCaseOids.add(oids.get(0)); // the same object as the uppercase one is returned only once
+            SearchResultList<PrismObject<T>> objects4 = repositoryCache.getObjects(objectClass, mixedCaseOids, null, result);
+            displayCollection("objects retrieved by uppercase OIDs", objects4);
+            assertThat(objects4).extracting(PrismObject::getOid).containsExactlyElementsOf(oids);
+        }
+    }
+
     private void assertObjectAndVersionCached(String oid, boolean isCached) {
         if (isCached) {
             assertObjectIsCached(oid);
@@ -491,6 +675,7 @@ public class TestRepositoryCache extends AbstractSpringTest implements InfraTest
         globalObjectCache.clear();
         globalVersionCache.clear();
         globalQueryCache.clear();
+        globalCountCache.clear();
     }
 
     /**
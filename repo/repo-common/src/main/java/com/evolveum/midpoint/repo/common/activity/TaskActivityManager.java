@@ -41,6 +41,7 @@ import org.springframework.stereotype.Component;
 
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.api.WorkBucketStore;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.annotation.Experimental;
 
@@ -305,6 +306,7 @@ public class TaskActivityManager {
                         .asItemDeltas();
             }
             plainRepositoryService.modifyObject(TaskType.class, task.getOid(), itemDeltas, result);
+            deleteStoredBuckets(task, activityPath, result);
             LOGGER.info("Deleted activity state for '{}' in {}", activityPath, task);
         } catch (CommonException e) {
             LoggingUtils.logUnexpectedException(LOGGER, "Couldn't delete state for activity path '{}' in {}", e, activityPath, task);
@@ -330,9 +332,18 @@ public class TaskActivityManager {
                                 .asItemDeltas());
             }
             plainRepositoryService.modifyObject(TaskType.class, task.getOid(), itemDeltas, result);
+            deleteStoredBuckets(task, activityPath, result);
             LOGGER.info("Purged activity state for '{}' in {}", activityPath, task);
         } catch (CommonException e) {
             LoggingUtils.logUnexpectedException(LOGGER, "Couldn't delete state for activity path '{}' in {}", e, activityPath, task);
         }
     }
+
+    /** Buckets kept outside the task (if any) are part of the bucketing state, so they go away with it. */
+    private void deleteStoredBuckets(TaskType task, ActivityPath activityPath, OperationResult result) {
+        WorkBucketStore workBucketStore = plainRepositoryService.getWorkBucketStore();
+        if (workBucketStore != null) {
+            workBucketStore.deleteBuckets(task.getOid(), activityPath, result);
+        }
+    }
 }
@@ -463,6 +463,12 @@ public abstract class AbstractActivityRun<
         activityState.getLiveProgress().increment(outcome, counters);
     }
 
+    /** Reverts {@link #incrementProgress(QualifiedItemProcessingOutcomeType)}. */
+    public void decrementProgress(@NotNull QualifiedItemProcessingOutcomeType outcome) {
+        ActivityProgress.Counters counters = areProgressCommitPointsSupported() ? UNCOMMITTED : COMMITTED;
+        activityState.getLiveProgress().decrement(outcome, counters);
+    }
+
     public @NotNull ActivityStateDefinition<WS> getActivityStateDefinition() {
         return activityStateDefinition;
     }
@@ -12,7 +12,10 @@ import static com.evolveum.midpoint.schema.result.OperationResultStatus.PARTIAL_
 import static com.evolveum.midpoint.schema.util.task.ActivityItemProcessingStatisticsUtil.*;
 import static com.evolveum.midpoint.task.api.TaskRunResult.TaskRunResultStatus.PERMANENT_ERROR;
 
+import java.math.BigInteger;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 
@@ -24,17 +27,20 @@ import com.evolveum.midpoint.repo.common.activity.run.reports.ItemsReport;
 
 import com.evolveum.midpoint.schema.constants.ExpressionConstants;
 import com.evolveum.midpoint.schema.expression.VariablesMap;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
 import com.evolveum.midpoint.schema.reporting.ConnIdOperation;
 import com.evolveum.midpoint.task.api.ConnIdOperationsListener;
 import com.evolveum.midpoint.util.Holder;
 import com.evolveum.midpoint.util.exception.*;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import com.evolveum.midpoint.repo.common.activity.definition.ActivityDistributionDefinition;
 import com.evolveum.midpoint.repo.common.activity.definition.WorkDefinition;
 import com.evolveum.midpoint.repo.common.activity.handlers.ActivityHandler;
 import com.evolveum.midpoint.repo.common.activity.run.state.ActivityBucketManagementStatistics;
@@ -117,6 +123,12 @@ public abstract class IterativeActivityRun<
      */
     private BucketingSituation bucketingSituation;
 
+    /**
+     * Allocation of buckets in advance running in background (for workers), started when a bucket is obtained.
+     * It must be finished before any other bucket operation of this worker is executed.
+     */
+    private Future<OperationResult> bucketPrefetch;
+
     /**
      * Schedules individual items for processing by worker threads (if running in multiple threads).
      * Re-created for each individual bucket.
@@ -236,6 +248,7 @@ public abstract class IterativeActivityRun<
                 LOGGER.trace("No (next) work bucket within {}, exiting", task);
                 break;
             }
+            startBucketPrefetchIfConfigured();
 
             boolean complete = false;
             try {
@@ -362,20 +375,69 @@ public abstract class IterativeActivityRun<
         return BucketingUtil.isScavenger(task.getActivitiesStateOrClone(), getActivityPath());
     }
 
+    /** Prefetching is not used with sampling, as prefetched buckets would not be skipped. */
+    private void startBucketPrefetchIfConfigured() {
+        if (bucketingSituation.workerTaskOid == null) {
+            return;
+        }
+        ActivityDistributionDefinition distributionDefinition = activity.getDefinition().getDistributionDefinition();
+        BucketsDefinitionType buckets = distributionDefinition.getBuckets();
+        if (buckets == null || buckets.getSampling() != null || buckets.getAllocation() == null) {
+            return;
+        }
+        Integer bucketsToPrefetch = buckets.getAllocation().getBucketPrefetch();
+        if (bucketsToPrefetch != null && bucketsToPrefetch > 0) {
+            bucketPrefetch = beans.bucketingManager.prefetchWorkBucketsInBackground(
+                    bucketingSituation.coordinatorTaskOid, bucketingSituation.workerTaskOid, getActivityPath(),
+                    bucketsToPrefetch, distributionDefinition, this, getLiveBucketManagementStatistics());
+        }
+    }
+
+    /**
+     * Waits even if interrupted, because we are going to complete or release buckets, and the prefetching
+     * must not delegate any buckets to this worker after that.
+     */
+    private void waitForBucketPrefetch(OperationResult result) {
+        if (bucketPrefetch == null) {
+            return;
+        }
+        try {
+            result.addSubresult(
+                    Uninterruptibles.getUninterruptibly(bucketPrefetch));
+        } catch (ExecutionException e) {
+            // Should not occur, as the prefetching records its exceptions into the operation result.
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't prefetch work buckets in {}", e, this);
+        } finally {
+            bucketPrefetch = null;
+        }
+    }
+
     private void releaseAllBucketsWhenWorker(OperationResult result) throws SchemaException, ObjectNotFoundException {
+        waitForBucketPrefetch(result);
         if (bucketingSituation.workerTaskOid != null) {
             beans.bucketingManager.releaseAllWorkBucketsFromWorker(bucketingSituation.coordinatorTaskOid,
                     bucketingSituation.workerTaskOid, getActivityPath(), getLiveBucketManagementStatistics(), result);
         }
     }
 
-    private void completeWorkBucketAndUpdateStatistics(OperationResult result) throws ActivityRunException {
+    /**
+     * @param processingRecord Information about the processing of the bucket; null if the bucket was not processed
+     * (skipped or analyzed), so it cannot be used to adapt the size of buckets.
+     */
+    private void completeWorkBucketAndUpdateStatistics(@Nullable BucketProcessingRecord processingRecord,
+            OperationResult result) throws ActivityRunException {
+        waitForBucketPrefetch(result);
         try {
 
+            BigInteger adaptedBucketSize = processingRecord != null ?
+                    beans.bucketingManager.computeAdaptedBucketSize(bucket, processingRecord.getDuration(),
+                            activity.getDefinition().getDistributionDefinition(), this) :
+                    null;
+
             Holder<BucketProgressOverviewType> bucketProgressHolder = new Holder<>();
             beans.bucketingManager.completeWorkBucket(bucketingSituation.coordinatorTaskOid, bucketingSituation.workerTaskOid,
-                    getActivityPath(), bucket.getSequentialNumber(), getLiveBucketManagementStatistics(),
-                    bucketProgressHolder, result);
+                    getActivityPath(), bucket.getSequentialNumber(), adaptedBucketSize,
+                    getLiveBucketManagementStatistics(), bucketProgressHolder, result);
 
             activityState.getLiveProgress().onCommitPoint();
             activityState.updateProgressAndStatisticsNoCommit();
@@ -419,7 +481,7 @@ public abstract class IterativeActivityRun<
     private boolean skipSingleBucket(OperationResult result) throws ActivityRunException {
         LOGGER.debug("Skipping bucket {} because bucket processing condition evaluated to false", bucket);
         // Actually we could go without committing progress, but it does no harm, so we keep it here.
-        completeWorkBucketAndUpdateStatistics(result);
+        completeWorkBucketAndUpdateStatistics(null, result);
         return true;
     }
 
@@ -434,7 +496,7 @@ public abstract class IterativeActivityRun<
         reportBucketAnalyzed(bucketSize, result);
 
         // Actually we could go without committing progress, but it does no harm, so we keep it here.
-        completeWorkBucketAndUpdateStatistics(result);
+        completeWorkBucketAndUpdateStatistics(null, result);
 
         return true;
     }
@@ -475,7 +537,7 @@ public abstract class IterativeActivityRun<
         if (complete) {
             record.end(getLiveItemProcessing());
 
-            completeWorkBucketAndUpdateStatistics(result);
+            completeWorkBucketAndUpdateStatistics(record, result);
 
             // We want to report bucket as completed only after it's really marked as completed.
             reportBucketCompleted(record, result);
@@ -747,6 +809,15 @@ public abstract class IterativeActivityRun<
         return true;
     }
 
+    /**
+     * Returns true if repository writes done by worker threads can be committed in batches, see
+     * {@link InternalsConfig#getRepositoryCommitBatchSize()}. This is not possible if the items are acknowledged
+     * to their source (e.g. asynchronous updates), because the acknowledgement would precede the commit.
+     */
+    public boolean isRepositoryCommitBatchingSupported() {
+        return false;
+    }
+
     private Runnable getActivityStatUpdater() {
         return () -> {
             try {
@@ -417,6 +417,12 @@ public abstract class SearchBasedActivityRun<
         return ErrorHandlingStrategyExecutor.FollowUpAction.CONTINUE;
     }
 
+    /** Items found by searching need no acknowledgements. */
+    @Override
+    public boolean isRepositoryCommitBatchingSupported() {
+        return true;
+    }
+
     private boolean filteredOutByAdditionalFilter(ItemProcessingRequest<C> request)
             throws SchemaException {
         return additionalFilter != null &&
@@ -16,6 +16,7 @@ import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityState
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketStateType.DELEGATED;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketStateType.READY;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -31,8 +32,11 @@ import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.api.WorkBucketStore;
 import com.evolveum.midpoint.repo.common.activity.run.state.ActivityBucketManagementStatistics;
 import com.evolveum.midpoint.repo.common.activity.run.CommonTaskBeans;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketFactory;
+import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.task.ActivityPath;
 import com.evolveum.midpoint.task.api.TaskManager;
 import com.evolveum.midpoint.util.DebugDumpable;
@@ -86,6 +90,12 @@ class BucketOperation implements DebugDumpable {
     final RepositoryService plainRepositoryService;
     final PrismContext prismContext;
 
+    /**
+     * Store for buckets outside the coordinator task, see {@link RepositoryService#getWorkBucketStore()}.
+     * Used only for multi-node scenario; null if buckets are stored only in the coordinator task.
+     */
+    @Nullable final WorkBucketStore workBucketStore;
+
     BucketOperation(@NotNull String coordinatorTaskOid, @Nullable String workerTaskOid, @NotNull ActivityPath activityPath,
             ActivityBucketManagementStatistics statistics, @Nullable Consumer<BucketProgressOverviewType> bucketProgressConsumer,
             @NotNull CommonTaskBeans beans) {
@@ -98,6 +108,7 @@ class BucketOperation implements DebugDumpable {
         this.taskManager = beans.taskManager;
         this.plainRepositoryService = beans.plainRepositoryService;
         this.prismContext = beans.prismContext;
+        this.workBucketStore = workerTaskOid != null ? plainRepositoryService.getWorkBucketStore() : null;
     }
 
     public boolean isStandalone() {
@@ -168,6 +179,17 @@ class BucketOperation implements DebugDumpable {
         }
     }
 
+    /**
+     * Reads the bucket size determined by adaptive sizing (if used) from the {@link WorkBucketStore}, where it is kept
+     * along with the buckets. For buckets in the coordinator task, the size is obtained along with them.
+     */
+    @Nullable BigInteger readAdaptiveBucketSize(@NotNull WorkBucketStore store, @NotNull BucketFactory bucketFactory,
+            OperationResult result) {
+        return bucketFactory.isAdaptive()
+                ? store.getAdaptiveBucketSize(coordinatorTaskOid, activityPath, result)
+                : null;
+    }
+
     void checkBucketReadyOrDelegated(@NotNull WorkBucketType bucket) {
         if (workerTaskOid != null) {
             stateCheck(bucket.getState() == DELEGATED, "Bucket %s is not delegated", bucket);
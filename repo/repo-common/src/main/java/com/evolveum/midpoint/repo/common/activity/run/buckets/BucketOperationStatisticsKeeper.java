@@ -43,6 +43,11 @@ public class BucketOperationStatisticsKeeper {
         conflictWastedTime += modifyObjectResult.getWastedTime();
     }
 
+    void addConflict(long wastedTime) {
+        conflictCount++;
+        conflictWastedTime += wastedTime;
+    }
+
     void setConflictCounts(ModifyObjectResult<TaskType> modifyObjectResult) {
         conflictCount = modifyObjectResult.getRetries();
         conflictWastedTime = modifyObjectResult.getWastedTime();
@@ -7,9 +7,16 @@
 
 package com.evolveum.midpoint.repo.common.activity.run.buckets;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
 
 import com.evolveum.midpoint.prism.Containerable;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.BucketProgressOverviewType;
@@ -24,6 +31,8 @@ import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.repo.common.activity.definition.ActivityDistributionDefinition;
 import com.evolveum.midpoint.repo.common.activity.run.state.ActivityBucketManagementStatistics;
 import com.evolveum.midpoint.repo.common.activity.run.CommonTaskBeans;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketFactory;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.ImplicitSegmentationResolver;
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.content.WorkBucketContentHandler;
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.content.WorkBucketContentHandlerRegistry;
 import com.evolveum.midpoint.schema.result.OperationResult;
@@ -34,6 +43,9 @@ import com.evolveum.midpoint.util.annotation.Experimental;
 import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.AbstractWorkSegmentationType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketType;
 
@@ -43,16 +55,28 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketType;
  * 1. Obtains new buckets to be processed: {@link #getWorkBucket(String, String, ActivityPath, GetBucketOperationOptions, ActivityBucketManagementStatistics, OperationResult)}.
  * 2. Marks buckets as complete: {@link #completeWorkBucket(String, String, ActivityPath, int, ActivityBucketManagementStatistics, Consumer, OperationResult)}.
  * 3. Releases work buckets in case they are not going to be processed: {@link #releaseWorkBucket(String, String, ActivityPath, int, ActivityBucketManagementStatistics, OperationResult)}.
- * 4. Computes query narrowing for given work bucket: {@link #narrowQueryForWorkBucket(Class, ObjectQuery, ActivityDistributionDefinition, ItemDefinitionProvider, WorkBucketType)}.
+ * 4. Allocates buckets to workers in advance: {@link #prefetchWorkBucketsInBackground(String, String, ActivityPath, int, ActivityDistributionDefinition, ImplicitSegmentationResolver, ActivityBucketManagementStatistics)}.
+ * 5. Computes query narrowing for given work bucket: {@link #narrowQueryForWorkBucket(Class, ObjectQuery, ActivityDistributionDefinition, ItemDefinitionProvider, WorkBucketType)}.
  *
  * (The last method should be probably moved to a separate class.)
  */
 @Component
 public class BucketingManager {
 
+    private static final Trace LOGGER = TraceManager.getTrace(BucketingManager.class);
+
+    private static final String OP_PREFETCH_WORK_BUCKETS = BucketingManager.class.getName() + ".prefetchWorkBuckets";
+
+    private static final String PREFETCH_THREAD_NAME_PREFIX = "bucket-prefetch-";
+    private static final long PREFETCH_THREAD_KEEP_ALIVE_SECONDS = 60;
+
     @Autowired private CommonTaskBeans beans;
     @Autowired private WorkBucketContentHandlerRegistry handlerRegistry;
 
+    /** Threads for prefetching buckets; created on first use, as most deployments use no distributed activities. */
+    private ThreadPoolExecutor prefetchExecutor;
+    private final AtomicInteger prefetchThreadCounter = new AtomicInteger();
+
     /**
      * Obtains work bucket. If no free work buckets are currently present it tries to create one.
      * If there is already delegated work bucket for given worker task, it is returned.
@@ -74,11 +98,39 @@ public class BucketingManager {
             @Nullable Consumer<BucketProgressOverviewType> bucketProgressConsumer,
             @NotNull OperationResult result)
             throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
+        completeWorkBucket(coordinatorTaskOid, workerTaskOid, activityPath, sequentialNumber, null,
+                statistics, bucketProgressConsumer, result);
+    }
+
+    /**
+     * Marks a work bucket as complete, storing the size of buckets to be created from now on
+     * (see {@link #computeAdaptedBucketSize(WorkBucketType, long, ActivityDistributionDefinition,
+     * ImplicitSegmentationResolver)}).
+     */
+    public void completeWorkBucket(@NotNull String coordinatorTaskOid, @Nullable String workerTaskOid,
+            @NotNull ActivityPath activityPath, int sequentialNumber, @Nullable BigInteger adaptedBucketSize,
+            @Nullable ActivityBucketManagementStatistics statistics,
+            @Nullable Consumer<BucketProgressOverviewType> bucketProgressConsumer,
+            @NotNull OperationResult result)
+            throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
         new CompleteBucketOperation(coordinatorTaskOid, workerTaskOid, activityPath, statistics,
-                bucketProgressConsumer, beans, sequentialNumber)
+                bucketProgressConsumer, beans, sequentialNumber, adaptedBucketSize)
                 .execute(result);
     }
 
+    /**
+     * Computes the size of buckets to be created from now on, if adaptive sizing is configured.
+     *
+     * @param processingTime How long the processing of the bucket took (in milliseconds).
+     * @return null if adaptive sizing is not used or the size cannot be determined from the bucket
+     */
+    public @Nullable BigInteger computeAdaptedBucketSize(@NotNull WorkBucketType processedBucket, long processingTime,
+            @Nullable ActivityDistributionDefinition distributionDefinition,
+            @Nullable ImplicitSegmentationResolver implicitSegmentationResolver) {
+        return BucketFactory.create(distributionDefinition, implicitSegmentationResolver, beans)
+                .computeAdaptedBucketSize(processedBucket, processingTime);
+    }
+
     /**
      * Releases work bucket.
      */
@@ -103,6 +155,59 @@ public class BucketingManager {
                 .execute(result);
     }
 
+    /**
+     * Delegates buckets to a worker in advance, in a background thread, so that the worker has specified number
+     * of buckets besides the current one. See {@link PrefetchBucketsOperation}.
+     *
+     * The returned future provides the (closed) operation result. Failures are only recorded there, as prefetching
+     * is only an optimization: the buckets are obtained in the regular way if they are not prefetched.
+     * The caller should wait for the prefetching to finish before executing another bucket operation for the worker.
+     */
+    public @NotNull Future<OperationResult> prefetchWorkBucketsInBackground(@NotNull String coordinatorTaskOid,
+            @NotNull String workerTaskOid, @NotNull ActivityPath activityPath, int bucketsToPrefetch,
+            @Nullable ActivityDistributionDefinition distributionDefinition,
+            @Nullable ImplicitSegmentationResolver implicitSegmentationResolver,
+            @Nullable ActivityBucketManagementStatistics statistics) {
+        return getPrefetchExecutor().submit(() -> {
+            OperationResult result = new OperationResult(OP_PREFETCH_WORK_BUCKETS);
+            try {
+                new PrefetchBucketsOperation(coordinatorTaskOid, workerTaskOid, activityPath, statistics,
+                        distributionDefinition, implicitSegmentationResolver, beans, bucketsToPrefetch)
+                        .execute(result);
+            } catch (Throwable t) {
+                LoggingUtils.logUnexpectedException(LOGGER, "Couldn't prefetch work buckets for {}", t, workerTaskOid);
+                result.recordWarning("Couldn't prefetch work buckets: " + t.getMessage(), t);
+            } finally {
+                result.close();
+            }
+            return result;
+        });
+    }
+
+    private synchronized ThreadPoolExecutor getPrefetchExecutor() {
+        if (prefetchExecutor == null) {
+            // There is at most one prefetch in progress for each worker task running on this node.
+            prefetchExecutor = new ThreadPoolExecutor(
+                    0, Integer.MAX_VALUE, PREFETCH_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable,
+                                PREFETCH_THREAD_NAME_PREFIX + prefetchThreadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        return prefetchExecutor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+            prefetchExecutor = null;
+        }
+    }
+
     /**
      * Narrows a query by taking specified bucket into account.
      */
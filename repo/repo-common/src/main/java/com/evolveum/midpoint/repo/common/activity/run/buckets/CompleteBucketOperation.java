@@ -7,6 +7,7 @@
 
 package com.evolveum.midpoint.repo.common.activity.run.buckets;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -23,8 +24,10 @@ import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.util.CloneUtil;
 import com.evolveum.midpoint.repo.api.ModifyObjectResult;
+import com.evolveum.midpoint.repo.api.WorkBucketStore;
 import com.evolveum.midpoint.repo.common.activity.run.state.ActivityBucketManagementStatistics;
 import com.evolveum.midpoint.repo.common.activity.run.CommonTaskBeans;
+import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.task.ActivityPath;
 import com.evolveum.midpoint.schema.util.task.ActivityStateUtil;
@@ -44,18 +47,30 @@ public class CompleteBucketOperation extends BucketOperation {
 
     private final int sequentialNumber;
 
+    /** Size of buckets to be created from now on, if adaptive sizing is used. */
+    @Nullable private final BigInteger adaptedBucketSize;
+
     CompleteBucketOperation(@NotNull String coordinatorTaskOid, @Nullable String workerTaskOid,
             @NotNull ActivityPath activityPath, ActivityBucketManagementStatistics collector,
             @Nullable Consumer<BucketProgressOverviewType> bucketProgressConsumer, CommonTaskBeans beans,
-            int sequentialNumber) {
+            int sequentialNumber, @Nullable BigInteger adaptedBucketSize) {
         super(coordinatorTaskOid, workerTaskOid, activityPath, collector, bucketProgressConsumer, beans);
         this.sequentialNumber = sequentialNumber;
+        this.adaptedBucketSize = adaptedBucketSize;
     }
 
     public void execute(OperationResult result)
             throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
 
         LOGGER.trace("Completing work bucket #{} in {} (worker {})", sequentialNumber, coordinatorTaskOid, workerTaskOid);
+        if (workBucketStore != null && workBucketStore.completeBucket(
+                coordinatorTaskOid, activityPath, sequentialNumber, workerTaskOid, result)) {
+            reportProgressFromStore(workBucketStore, result);
+            statisticsKeeper.register(BucketingConstants.COMPLETE_WORK_BUCKET);
+            return;
+        }
+
+        // The bucket is not in the store (or there is no store), so it must be in the coordinator task.
         ModifyObjectResult<TaskType> modifyObjectResult =
                 plainRepositoryService.modifyObjectDynamically(TaskType.class, coordinatorTaskOid, null,
                         this::computeCompletionModifications, null, result);
@@ -64,6 +79,52 @@ public class CompleteBucketOperation extends BucketOperation {
         statisticsKeeper.register(BucketingConstants.COMPLETE_WORK_BUCKET);
     }
 
+    /**
+     * The total number of buckets is taken from the coordinator task, which is only read here.
+     * Buckets in the store are not compressed, so complete buckets are simply counted.
+     */
+    private void reportProgressFromStore(@NotNull WorkBucketStore store, OperationResult result)
+            throws ObjectNotFoundException, SchemaException {
+        storeAdaptedBucketSize(store, result);
+        TaskType coordinatorTask = plainRepositoryService.getObject(TaskType.class, coordinatorTaskOid,
+                GetOperationOptions.createReadOnlyCollection(), result).asObjectable();
+        ActivityStateType activityState =
+                ActivityStateUtil.getActivityStateRequired(coordinatorTask.getActivityState(), activityPath);
+        bucketProgressHolder.accept(
+                new BucketProgressOverviewType()
+                        .totalBuckets(BucketingUtil.getNumberOfBuckets(activityState))
+                        .completeBuckets(store.countBuckets(
+                                coordinatorTaskOid, activityPath, WorkBucketStateType.COMPLETE, result)));
+        bucketProgressHolder.passValue();
+    }
+
+    /**
+     * With buckets in the store, the adapted bucket size is kept there as well, so the coordinator task is not modified.
+     * The store writes it only if it differs from the one already stored.
+     */
+    private void storeAdaptedBucketSize(@NotNull WorkBucketStore store, OperationResult result) {
+        if (adaptedBucketSize != null
+                && store.storeAdaptiveBucketSize(coordinatorTaskOid, activityPath, adaptedBucketSize, result)) {
+            LOGGER.trace("Adapted bucket size changed to {} in {}", adaptedBucketSize, coordinatorTaskOid);
+        }
+    }
+
+    /** Replacing the value is safe even if other workers do the same: each of them computes the size on its own. */
+    private @NotNull List<ItemDelta<?, ?>> adaptedBucketSizeDeltas(@NotNull ItemPath statePath) {
+        if (adaptedBucketSize == null) {
+            return List.of();
+        }
+        LOGGER.trace("Setting adapted bucket size to {} in {}", adaptedBucketSize, coordinatorTaskOid);
+        try {
+            return prismContext.deltaFor(TaskType.class)
+                    .item(statePath.append(ActivityStateType.F_BUCKETING, ActivityBucketingStateType.F_ADAPTIVE_BUCKET_SIZE))
+                    .replace(adaptedBucketSize)
+                    .asItemDeltas();
+        } catch (SchemaException e) {
+            throw new IllegalStateException("Unexpected schema exception: " + e.getMessage(), e);
+        }
+    }
+
     private @NotNull Collection<ItemDelta<?, ?>> computeCompletionModifications(@NotNull TaskType task) {
 
         ActivityStateType activityState = ActivityStateUtil.getActivityStateRequired(task.getActivityState(), activityPath);
@@ -88,12 +149,16 @@ public class CompleteBucketOperation extends BucketOperation {
         List<ItemDelta<?, ?>> compressingMods =
                 compressCompletedBuckets(statePath, buckets, bucketBeforeCompletion, recentlyClosedBucketDeleted);
 
+        List<ItemDelta<?, ?>> sizingMods = adaptedBucketSizeDeltas(statePath);
+
         if (Boolean.TRUE.equals(recentlyClosedBucketDeleted.getValue())) {
-            return compressingMods;
+            return ListUtils.union(
+                    compressingMods,
+                    sizingMods);
         } else {
             return ListUtils.union(
-                    closingMods,
-                    compressingMods);
+                    ListUtils.union(closingMods, compressingMods),
+                    sizingMods);
         }
     }
     private List<ItemDelta<?, ?>> compressCompletedBuckets(ItemPath statePath, List<WorkBucketType> currentBuckets,
@@ -131,6 +196,7 @@ public class CompleteBucketOperation extends BucketOperation {
     @Override
     protected void extendDebugDump(StringBuilder sb, int indent) {
         sb.append("\n");
-        DebugUtil.debugDumpWithLabel(sb, "sequentialNumber", sequentialNumber, indent + 1);
+        DebugUtil.debugDumpWithLabelLn(sb, "sequentialNumber", sequentialNumber, indent + 1);
+        DebugUtil.debugDumpWithLabel(sb, "adaptedBucketSize", String.valueOf(adaptedBucketSize), indent + 1);
     }
 }
@@ -14,6 +14,7 @@ import static java.util.Objects.requireNonNullElseGet;
 import static com.evolveum.midpoint.schema.util.task.BucketingUtil.getBuckets;
 import static com.evolveum.midpoint.schema.util.task.BucketingUtil.getWorkerOid;
 import static com.evolveum.midpoint.schema.util.task.work.BucketingConstants.*;
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_NUMBER_OF_BUCKETS;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_SCAVENGING;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_WORK_COMPLETE;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityStateType.F_BUCKETING;
@@ -32,6 +33,7 @@ import org.jetbrains.annotations.Nullable;
 import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.repo.api.ModifyObjectResult;
+import com.evolveum.midpoint.repo.api.WorkBucketStore;
 import com.evolveum.midpoint.repo.common.activity.run.state.ActivityBucketManagementStatistics;
 import com.evolveum.midpoint.repo.common.activity.run.CommonTaskBeans;
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketFactory;
@@ -96,7 +98,11 @@ public class GetBucketOperation extends BucketOperation {
                 return getBucketStandalone(result);
             } else {
                 executeInitialDelayForMultiNode();
-                return getBucketMultiNode(result);
+                if (workBucketStore != null && bucketsToGet == 1) {
+                    return getBucketFromStore(workBucketStore, result);
+                } else {
+                    return getBucketMultiNode(result);
+                }
             }
         } catch (Throwable t) {
             statisticsKeeper.register("getWorkBucket." + t.getClass().getSimpleName());
@@ -112,7 +118,7 @@ public class GetBucketOperation extends BucketOperation {
 
         GetBucketOperationAttempt attempt =
                 new GetBucketOperationAttempt(coordinatorTask, workerTaskOid, activityPath, bucketFactory,
-                        bucketsToGet, bucketProgressHolder);
+                        bucketsToGet, false, bucketProgressHolder);
 
         attempt.execute();
         bucketProgressHolder.passValue();
@@ -129,7 +135,7 @@ public class GetBucketOperation extends BucketOperation {
         // Nothing found!
 
         stateCheck(attempt.isDefinite(), "Nothing was found with indefinite answer in standalone mode");
-        markWorkComplete(result);
+        markWorkComplete(null, result);
         recordNothingFoundDefinite();
         return null;
     }
@@ -145,7 +151,7 @@ public class GetBucketOperation extends BucketOperation {
                     coordinatorTask -> {
                         GetBucketOperationAttempt attempt =
                                 new GetBucketOperationAttempt(coordinatorTask, workerTaskOid, activityPath,
-                                        bucketFactory, bucketsToGet, bucketProgressHolder);
+                                        bucketFactory, bucketsToGet, isWorkStealing(), bucketProgressHolder);
                         lastAttemptHolder.setValue(attempt);
                         attempt.execute();
                         return attempt.getModifications();
@@ -167,30 +173,151 @@ public class GetBucketOperation extends BucketOperation {
 
             // Nothing found!
 
-            if (!options.isScavenger()) {
-                markScavengingIfNotYet(result);
-                recordNothingFoundForNonScavenger();
+            if (!waitForFreeBucket(lastAttempt.isDefinite(), null, result)) {
                 return null;
             }
+        }
+    }
 
-            if (lastAttempt.isDefinite() || options.getFreeBucketWaitTime() == 0L) {
-                markWorkComplete(result);
-                recordNothingFoundDefinite();
-                return null;
+    /**
+     * Multi-node variant with buckets in {@link WorkBucketStore}. Allocation of existing buckets does not touch
+     * the coordinator task at all; new buckets are created based on the last bucket in the store
+     * and if another worker creates the same buckets concurrently, we simply try again.
+     *
+     * The coordinator task is modified only when the first bucket is created (to set the number of buckets)
+     * and when scavenging or work completion is marked.
+     */
+    private WorkBucketType getBucketFromStore(@NotNull WorkBucketStore store, OperationResult result)
+            throws SchemaException, ObjectAlreadyExistsException, ObjectNotFoundException, InterruptedException {
+        assert workerTaskOid != null;
+
+        for (;;) {
+            WorkBucketType delegatedBucket =
+                    store.findDelegatedBucket(coordinatorTaskOid, activityPath, workerTaskOid, result);
+            if (delegatedBucket != null) {
+                reportProgressFromStore(store, result);
+                recordFoundDelegated(delegatedBucket);
+                return delegatedBucket;
             }
 
-            long toWait = getRemainingTimeToWait();
-            if (toWait <= 0) {
-                markWorkComplete(result); // TODO really marking work as complete?
-                recordNothingFoundWithWaitTimeElapsed();
+            WorkBucketType readyBucket =
+                    store.allocateReadyBucket(coordinatorTaskOid, activityPath, workerTaskOid, null, result);
+            if (readyBucket != null) {
+                reportProgressFromStore(store, result);
+                recordFoundReady(readyBucket);
+                return readyBucket;
+            }
+
+            long creationStart = System.currentTimeMillis();
+            WorkBucketType lastBucket = store.getLastBucket(coordinatorTaskOid, activityPath, result);
+            List<WorkBucketType> newBuckets = bucketFactory.createNewBuckets(
+                    lastBucket != null ? List.of(lastBucket) : List.of(), 1,
+                    readAdaptiveBucketSize(store, bucketFactory, result));
+            if (!newBuckets.isEmpty()) {
+                WorkBucketType bucketToUse = newBuckets.get(0)
+                        .state(WorkBucketStateType.DELEGATED)
+                        .workerRef(workerTaskOid, TaskType.COMPLEX_TYPE);
+                newBuckets.subList(1, newBuckets.size())
+                        .forEach(b -> b.state(WorkBucketStateType.READY));
+                if (store.addBuckets(coordinatorTaskOid, activityPath, newBuckets, result)) {
+                    if (lastBucket == null) {
+                        setNumberOfBuckets(result);
+                    }
+                    reportProgressFromStore(store, result);
+                    recordCreatedNew(bucketToUse);
+                    return bucketToUse.clone();
+                } else {
+                    // Other worker created buckets with the same numbers in the meantime, let's try again.
+                    statisticsKeeper.addConflict(System.currentTimeMillis() - creationStart);
+                    continue;
+                }
+            }
+
+            if (isWorkStealing()) {
+                WorkBucketType stolenBucket =
+                        store.stealBucket(coordinatorTaskOid, activityPath, workerTaskOid, result);
+                if (stolenBucket != null) {
+                    reportProgressFromStore(store, result);
+                    recordStolen(stolenBucket);
+                    return stolenBucket;
+                }
+            }
+
+            // Nothing found!
+
+            // No new buckets can be created now, so if all buckets are counted first, all complete buckets
+            // counted afterwards means that no bucket is being processed.
+            int allBuckets = store.countBuckets(coordinatorTaskOid, activityPath, null, result);
+            boolean definite = store.countBuckets(
+                    coordinatorTaskOid, activityPath, WorkBucketStateType.COMPLETE, result) == allBuckets;
+            reportProgressFromStore(store, result);
+            if (!waitForFreeBucket(definite, definite ? lastBucket : null, result)) {
                 return null;
             }
+        }
+    }
+
+    /**
+     * Handles the situation when no bucket was obtained in multi-node scenario.
+     *
+     * @param definite True if there are no more buckets to be processed (none are delegated).
+     * @param lastCompleteBucket Last bucket from the {@link WorkBucketStore}, if applicable; see
+     * {@link #markWorkComplete(WorkBucketType, OperationResult)}.
+     * @return true if the caller should try to obtain a bucket again (after waiting and reclaiming the buckets)
+     */
+    private boolean waitForFreeBucket(boolean definite, @Nullable WorkBucketType lastCompleteBucket,
+            OperationResult result)
+            throws SchemaException, ObjectAlreadyExistsException, ObjectNotFoundException, InterruptedException {
+        if (!options.isScavenger()) {
+            markScavengingIfNotYet(result);
+            recordNothingFoundForNonScavenger();
+            return false;
+        }
+
+        if (definite || options.getFreeBucketWaitTime() == 0L) {
+            markWorkComplete(lastCompleteBucket, result);
+            recordNothingFoundDefinite();
+            return false;
+        }
 
-            sleep(toWait);
-            reclaimWronglyAllocatedBuckets(result);
-            // We continue even if we could not find any wrongly allocated
-            // bucket -- maybe someone else found them before us, so we could use them.
+        long toWait = getRemainingTimeToWait();
+        if (toWait <= 0) {
+            markWorkComplete(null, result); // TODO really marking work as complete?
+            recordNothingFoundWithWaitTimeElapsed();
+            return false;
         }
+
+        sleep(toWait);
+        reclaimWronglyAllocatedBuckets(result);
+        // We continue even if we could not find any wrongly allocated
+        // bucket -- maybe someone else found them before us, so we could use them.
+        return true;
+    }
+
+    /** Reports the bucket progress, as the operation attempt does when buckets are in the coordinator task. */
+    private void reportProgressFromStore(@NotNull WorkBucketStore store, OperationResult result) {
+        bucketProgressHolder.accept(
+                new BucketProgressOverviewType()
+                        .totalBuckets(bucketFactory.estimateNumberOfBuckets())
+                        .completeBuckets(store.countBuckets(
+                                coordinatorTaskOid, activityPath, WorkBucketStateType.COMPLETE, result)));
+        bucketProgressHolder.passValue();
+    }
+
+    /** Sets the estimated number of buckets in the coordinator task, so the progress can be computed from its state. */
+    private void setNumberOfBuckets(OperationResult result)
+            throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
+        Integer numberOfBuckets = bucketFactory.estimateNumberOfBuckets();
+        if (numberOfBuckets == null) {
+            return;
+        }
+        plainRepositoryService.modifyObjectDynamically(TaskType.class, coordinatorTaskOid, null,
+                task -> {
+                    ItemPath stateItemPath = ActivityStateUtil.getStateItemPath(task.getActivityState(), activityPath);
+                    return prismContext.deltaFor(TaskType.class)
+                            .item(stateItemPath.append(F_BUCKETING, F_NUMBER_OF_BUCKETS)).replace(numberOfBuckets)
+                            .asItemDeltas();
+                }, null, result);
     }
 
     /**
@@ -201,13 +328,16 @@ public class GetBucketOperation extends BucketOperation {
         @NotNull Situation situation = attempt.getSituationRequired();
         switch (situation) {
             case FOUND_DELEGATED_TO_ME:
-                recordFoundDelegated(attempt);
+                recordFoundDelegated(attempt.getBucketToUse());
                 break;
             case FOUND_READY:
-                recordFoundReady(attempt);
+                recordFoundReady(attempt.getBucketToUse());
                 break;
             case CREATED_NEW:
-                recordCreatedNew(attempt);
+                recordCreatedNew(attempt.getBucketToUse());
+                break;
+            case STOLEN:
+                recordStolen(attempt.getBucketToUse());
                 break;
             default:
                 throw new AssertionError(situation);
@@ -225,13 +355,25 @@ public class GetBucketOperation extends BucketOperation {
     }
 
     private long getInitialDelay() {
-        ActivityDistributionDefinition distribution = options.getDistributionDefinition();
-        WorkAllocationDefinitionType allocation = distribution != null ?
-                distribution.getBuckets().getAllocation() : null;
+        WorkAllocationDefinitionType allocation = getAllocationDefinition();
         return allocation != null && allocation.getWorkAllocationInitialDelay() != null ?
                 allocation.getWorkAllocationInitialDelay() : 0; // TODO workStateManager.getConfiguration().getWorkAllocationInitialDelay();
     }
 
+    /** Work stealing is not used in sampling mode, as the buckets taken over would not be skipped. */
+    private boolean isWorkStealing() {
+        WorkAllocationDefinitionType allocation = getAllocationDefinition();
+        return bucketsToGet == 1
+                && allocation != null
+                && Boolean.TRUE.equals(allocation.isWorkStealing());
+    }
+
+    private @Nullable WorkAllocationDefinitionType getAllocationDefinition() {
+        ActivityDistributionDefinition distribution = options.getDistributionDefinition();
+        return distribution != null && distribution.getBuckets() != null ?
+                distribution.getBuckets().getAllocation() : null;
+    }
+
     private void sleep(long toWait) throws InterruptedException {
         BucketsDefinitionType bucketing =
                 options.getDistributionDefinition() != null ?
@@ -275,25 +417,32 @@ public class GetBucketOperation extends BucketOperation {
         return waitUntil - System.currentTimeMillis();
     }
 
-    private void recordFoundDelegated(@NotNull GetBucketOperationAttempt attempt) {
-        LOGGER.trace("Returning already delegated bucket for {}: {}", workerTaskOid, attempt.getBucketToUse());
+    private void recordFoundDelegated(@NotNull WorkBucketType bucket) {
+        LOGGER.trace("Returning already delegated bucket for {}: {}", workerTaskOid, bucket);
         statisticsKeeper.register(GET_WORK_BUCKET_FOUND_DELEGATED);
     }
 
-    private void recordFoundReady(@NotNull GetBucketOperationAttempt attempt) {
+    private void recordFoundReady(@NotNull WorkBucketType bucket) {
         CONTENTION_LOGGER.trace("Existing bucket acquired after {} ms (conflicts: {}) in {}: {}",
                 System.currentTimeMillis() - statisticsKeeper.start, statisticsKeeper.conflictCount, workerTaskOid,
-                attempt.getBucketToUse());
+                bucket);
         statisticsKeeper.register(GET_WORK_BUCKET_FOUND_READY);
     }
 
-    private void recordCreatedNew(@NotNull GetBucketOperationAttempt attempt) {
+    private void recordCreatedNew(@NotNull WorkBucketType bucket) {
         CONTENTION_LOGGER.trace("New bucket(s) acquired after {} ms (retries: {}) in {}: {}",
                 System.currentTimeMillis() - statisticsKeeper.start, statisticsKeeper.conflictCount, workerTaskOid,
-                attempt.getBucketToUse());
+                bucket);
         statisticsKeeper.register(GET_WORK_BUCKET_CREATED_NEW);
     }
 
+    private void recordStolen(@NotNull WorkBucketType bucket) {
+        CONTENTION_LOGGER.trace("Bucket taken over from other worker after {} ms (conflicts: {}) in {}: {}",
+                System.currentTimeMillis() - statisticsKeeper.start, statisticsKeeper.conflictCount, workerTaskOid,
+                bucket);
+        statisticsKeeper.register(GET_WORK_BUCKET_STOLEN);
+    }
+
     private void recordNothingFoundWithWaitTimeElapsed() {
         CONTENTION_LOGGER.trace("'No bucket' found (wait time elapsed) after {} ms (conflicts: {}) in {}",
                 System.currentTimeMillis() - statisticsKeeper.start, statisticsKeeper.conflictCount, workerTaskOid);
@@ -322,6 +471,15 @@ public class GetBucketOperation extends BucketOperation {
             throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
 
         Set<String> liveWorkers = getLiveWorkers(result);
+        if (workBucketStore != null) {
+            int reclaimed = workBucketStore.reclaimBuckets(coordinatorTaskOid, activityPath, liveWorkers, result);
+            statisticsKeeper.addReclaims(reclaimed);
+            if (reclaimed > 0) {
+                LOGGER.info("Reclaimed {} buckets from the work bucket store in {}", reclaimed, coordinatorTaskOid);
+            }
+            // Buckets may be in the coordinator task too, e.g. if sampling is used.
+        }
+
         Holder<Integer> reclaimingHolder = new Holder<>(0);
 
         plainRepositoryService.modifyObjectDynamically(TaskType.class, coordinatorTaskOid, null,
@@ -384,15 +542,31 @@ public class GetBucketOperation extends BucketOperation {
                 }, null, result);
     }
 
-    private void markWorkComplete(OperationResult result)
+    /**
+     * Marks the work as complete.
+     *
+     * @param lastCompleteBucket The last bucket from {@link WorkBucketStore}, if all its buckets are complete.
+     * It is stored into the coordinator task as COMPLETE (if there are no buckets there), so the number of complete
+     * buckets can be determined from the task the same way as if the buckets were compressed in the task.
+     */
+    private void markWorkComplete(@Nullable WorkBucketType lastCompleteBucket, OperationResult result)
             throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
         // We use dynamic modify only because we do not know the state item path without loading coordinator task first
         plainRepositoryService.modifyObjectDynamically(TaskType.class, coordinatorTaskOid, null,
                 task -> {
                     ItemPath stateItemPath = ActivityStateUtil.getStateItemPath(task.getActivityState(), activityPath);
-                    return prismContext.deltaFor(TaskType.class)
-                            .item(stateItemPath.append(F_BUCKETING, F_WORK_COMPLETE)).replace(true)
-                            .asItemDeltas();
+                    List<ItemDelta<?, ?>> modifications = new ArrayList<>(
+                            prismContext.deltaFor(TaskType.class)
+                                    .item(stateItemPath.append(F_BUCKETING, F_WORK_COMPLETE)).replace(true)
+                                    .asItemDeltas());
+                    if (lastCompleteBucket != null && getBuckets(task.getActivityState(), activityPath).isEmpty()) {
+                        modifications.addAll(
+                                bucketsAddDeltas(stateItemPath, List.of(
+                                        lastCompleteBucket.cloneWithoutId()
+                                                .state(WorkBucketStateType.COMPLETE)
+                                                .workerRef(null))));
+                    }
+                    return modifications;
                 }, null, result);
     }
 
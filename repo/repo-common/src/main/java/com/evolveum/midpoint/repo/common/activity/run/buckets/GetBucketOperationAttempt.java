@@ -10,6 +10,7 @@ package com.evolveum.midpoint.repo.common.activity.run.buckets;
 import static com.evolveum.midpoint.repo.common.activity.run.buckets.BucketOperation.bucketStateChangeDeltas;
 import static com.evolveum.midpoint.schema.util.task.ActivityStateUtil.getActivityStateRequired;
 import static com.evolveum.midpoint.schema.util.task.ActivityStateUtil.getStateItemPath;
+import static com.evolveum.midpoint.schema.util.task.BucketingUtil.getAdaptiveBucketSize;
 import static com.evolveum.midpoint.schema.util.task.BucketingUtil.getNumberOfBuckets;
 import static com.evolveum.midpoint.schema.util.task.BucketingUtil.getWorkerOid;
 import static com.evolveum.midpoint.util.MiscUtil.argCheck;
@@ -119,8 +120,14 @@ class GetBucketOperationAttempt {
      */
     @NotNull private final BucketFactory bucketFactory;
 
+    /**
+     * Should we take over a bucket delegated to other worker, if there is nothing else to do?
+     * See {@link #findBucketToSteal()}.
+     */
+    private final boolean workStealing;
+
     GetBucketOperationAttempt(@NotNull TaskType task, @Nullable String workerOid, @NotNull ActivityPath activityPath,
-            @NotNull BucketFactory bucketFactory, int numberOfBucketsToGet,
+            @NotNull BucketFactory bucketFactory, int numberOfBucketsToGet, boolean workStealing,
             @NotNull PassingHolder<BucketProgressOverviewType> bucketProgressHolder) {
         this.workerOid = workerOid;
         this.bucketProgressHolder = bucketProgressHolder;
@@ -129,6 +136,7 @@ class GetBucketOperationAttempt {
         this.currentBuckets = BucketingUtil.getBuckets(activityState);
         this.bucketFactory = bucketFactory;
         this.numberOfBucketsToGet = numberOfBucketsToGet;
+        this.workStealing = workStealing;
     }
 
     /**
@@ -164,7 +172,7 @@ class GetBucketOperationAttempt {
         }
 
         offerNewBuckets(
-                bucketFactory.createNewBuckets(currentBuckets, numberOfBucketsToGet));
+                bucketFactory.createNewBuckets(currentBuckets, numberOfBucketsToGet, getAdaptiveBucketSize(activityState)));
 
         if (numberOfBucketsToGet == 0) {
             situation = Situation.CREATED_NEW;
@@ -174,6 +182,17 @@ class GetBucketOperationAttempt {
         // If there remained some self-delegated buckets, the number of buckets to get is 0 and we are not here.
         assert getSelfDelegatedBucketsStream().findAny().isEmpty();
 
+        if (workStealing && numberOfBucketsToGet == 1) {
+            WorkBucketType bucketToSteal = findBucketToSteal();
+            if (bucketToSteal != null) {
+                LOGGER.debug("Taking over bucket delegated to {}: {}", getWorkerOid(bucketToSteal), bucketToSteal);
+                markExistingBucketToUse(bucketToSteal);
+                numberOfBucketsToGet--;
+                situation = Situation.STOLEN;
+                return;
+            }
+        }
+
         situation = anyBucketsDelegated() ?
                 Situation.NOTHING_MORE_SOME_DELEGATED :
                 Situation.NOTHING_MORE_DEFINITE;
@@ -190,13 +209,43 @@ class GetBucketOperationAttempt {
                 .filter(b -> b.getState() == READY);
     }
 
+    /**
+     * Buckets are ordered by sequential number, so the worker processes them in that order.
+     * Hence the first one is the one being processed, and the others can be taken over by other workers.
+     */
     private Stream<WorkBucketType> getSelfDelegatedBucketsStream() {
         return workerOid != null ?
                 currentBuckets.stream()
-                        .filter(b -> BucketingUtil.isDelegatedTo(b, workerOid)) :
+                        .filter(b -> BucketingUtil.isDelegatedTo(b, workerOid))
+                        .sorted(Comparator.comparing(WorkBucketType::getSequentialNumber)) :
                 Stream.empty();
     }
 
+    /**
+     * Finds a bucket to be taken over from another worker: the one with the highest sequential number
+     * of the worker having the most delegated buckets. The bucket with the lowest sequential number
+     * of any worker is never taken, because it is (or can be) being processed.
+     *
+     * This is safe, because the worker can start processing another bucket only after completing the current one,
+     * which is a modification of the coordinator task, and that would make this attempt fail on conflict.
+     */
+    private @Nullable WorkBucketType findBucketToSteal() {
+        Map<String, List<WorkBucketType>> bucketsByWorker = new HashMap<>();
+        for (WorkBucketType bucket : currentBuckets) {
+            String bucketWorkerOid = getWorkerOid(bucket);
+            if (bucket.getState() == DELEGATED && bucketWorkerOid != null && !bucketWorkerOid.equals(workerOid)) {
+                bucketsByWorker.computeIfAbsent(bucketWorkerOid, k -> new ArrayList<>())
+                        .add(bucket);
+            }
+        }
+        return bucketsByWorker.values().stream()
+                .filter(buckets -> buckets.size() > 1)
+                .max(Comparator.comparingInt(List::size))
+                .flatMap(buckets -> buckets.stream()
+                        .max(Comparator.comparing(WorkBucketType::getSequentialNumber)))
+                .orElse(null);
+    }
+
     /**
      * Offers existing buckets for processing:
      *
@@ -345,6 +394,6 @@ class GetBucketOperationAttempt {
     }
 
     enum Situation {
-        FOUND_DELEGATED_TO_ME, FOUND_READY, CREATED_NEW, NOTHING_MORE_SOME_DELEGATED, NOTHING_MORE_DEFINITE
+        FOUND_DELEGATED_TO_ME, FOUND_READY, CREATED_NEW, STOLEN, NOTHING_MORE_SOME_DELEGATED, NOTHING_MORE_DEFINITE
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.activity.run.buckets;
+
+import static com.evolveum.midpoint.schema.util.task.work.BucketingConstants.PREFETCH_WORK_BUCKETS;
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketStateType.DELEGATED;
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketStateType.READY;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.repo.api.ModifyObjectResult;
+import com.evolveum.midpoint.repo.api.WorkBucketStore;
+import com.evolveum.midpoint.repo.common.activity.definition.ActivityDistributionDefinition;
+import com.evolveum.midpoint.repo.common.activity.run.CommonTaskBeans;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketFactory;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.ImplicitSegmentationResolver;
+import com.evolveum.midpoint.repo.common.activity.run.state.ActivityBucketManagementStatistics;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.task.ActivityPath;
+import com.evolveum.midpoint.schema.util.task.ActivityStateUtil;
+import com.evolveum.midpoint.schema.util.task.BucketingUtil;
+import com.evolveum.midpoint.util.DebugUtil;
+import com.evolveum.midpoint.util.Holder;
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityStateType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.TaskType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketType;
+
+/**
+ * Implements "prefetch buckets" operation: delegates buckets to a worker in advance, so that it has
+ * the specified number of buckets besides the one it is processing (the one with the lowest sequential number).
+ * When the current bucket is complete, the next one is then found as already delegated.
+ *
+ * Buckets are taken from the READY ones first, then new ones are created. If there are no more buckets,
+ * nothing is done; waiting, scavenging and marking the work as complete is left to {@link GetBucketOperation}.
+ *
+ * Only READY buckets with sequential number higher than the current one are taken (new buckets always have
+ * higher numbers). Work stealing relies on this: the bucket being processed must stay the one with the lowest
+ * sequential number delegated to the worker, otherwise it could be taken over and processed twice.
+ */
+public class PrefetchBucketsOperation extends BucketOperation {
+
+    private static final Trace LOGGER = TraceManager.getTrace(PrefetchBucketsOperation.class);
+
+    /** How many buckets should the worker have delegated besides the current one. */
+    private final int bucketsToPrefetch;
+
+    @Nullable private final ActivityDistributionDefinition distributionDefinition;
+    @Nullable private final ImplicitSegmentationResolver implicitSegmentationResolver;
+
+    /** Generates new buckets under the distribution definition. */
+    private BucketFactory bucketFactory;
+
+    PrefetchBucketsOperation(@NotNull String coordinatorTaskOid, @NotNull String workerTaskOid,
+            @NotNull ActivityPath activityPath, ActivityBucketManagementStatistics statistics,
+            @Nullable ActivityDistributionDefinition distributionDefinition,
+            @Nullable ImplicitSegmentationResolver implicitSegmentationResolver,
+            CommonTaskBeans beans, int bucketsToPrefetch) {
+        super(coordinatorTaskOid, workerTaskOid, activityPath, statistics, null, beans);
+        this.distributionDefinition = distributionDefinition;
+        this.implicitSegmentationResolver = implicitSegmentationResolver;
+        this.bucketsToPrefetch = bucketsToPrefetch;
+    }
+
+    /**
+     * @return Number of buckets delegated to the worker by this operation.
+     */
+    public int execute(OperationResult result)
+            throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+
+        bucketFactory = BucketFactory.create(distributionDefinition, implicitSegmentationResolver, beans);
+
+        int prefetched = workBucketStore != null ?
+                prefetchIntoStore(workBucketStore, result) :
+                prefetchInCoordinatorTask(result);
+
+        LOGGER.trace("Prefetched {} bucket(s) in {} for {}", prefetched, coordinatorTaskOid, workerTaskOid);
+        statisticsKeeper.register(PREFETCH_WORK_BUCKETS);
+        return prefetched;
+    }
+
+    private int prefetchInCoordinatorTask(OperationResult result)
+            throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+        Holder<Integer> prefetchedHolder = new Holder<>(0);
+        ModifyObjectResult<TaskType> modifyObjectResult =
+                plainRepositoryService.modifyObjectDynamically(TaskType.class, coordinatorTaskOid, null,
+                        task -> computePrefetchModifications(task, prefetchedHolder), null, result);
+        statisticsKeeper.addToConflictCounts(modifyObjectResult);
+        return prefetchedHolder.getValue();
+    }
+
+    private @NotNull Collection<ItemDelta<?, ?>> computePrefetchModifications(
+            @NotNull TaskType task, @NotNull Holder<Integer> prefetchedHolder) throws SchemaException {
+        assert workerTaskOid != null;
+
+        ItemPath statePath = ActivityStateUtil.getStateItemPath(task.getActivityState(), activityPath);
+        ActivityStateType activityState = ActivityStateUtil.getActivityStateRequired(task.getActivityState(), statePath);
+        List<WorkBucketType> buckets = BucketingUtil.getBuckets(activityState);
+        List<WorkBucketType> delegated = buckets.stream()
+                .filter(b -> BucketingUtil.isDelegatedTo(b, workerTaskOid))
+                .collect(Collectors.toList());
+        int needed = bucketsToPrefetch + 1 - delegated.size();
+        int current = delegated.stream()
+                .mapToInt(WorkBucketType::getSequentialNumber)
+                .min()
+                .orElse(0);
+
+        List<ItemDelta<?, ?>> modifications = new ArrayList<>();
+        int prefetched = 0;
+        for (WorkBucketType bucket : buckets) {
+            if (prefetched >= needed) {
+                break;
+            }
+            if (bucket.getState() == READY && bucket.getSequentialNumber() > current) {
+                modifications.addAll(
+                        bucketStateChangeDeltas(statePath, bucket, DELEGATED, workerTaskOid));
+                prefetched++;
+            }
+        }
+
+        if (prefetched < needed) {
+            // Like when getting a bucket, all new buckets (even if there are more of them) are delegated to the worker.
+            List<WorkBucketType> newBuckets = new ArrayList<>();
+            for (WorkBucketType newBucket : bucketFactory.createNewBuckets(
+                    buckets, needed - prefetched, BucketingUtil.getAdaptiveBucketSize(activityState))) {
+                newBuckets.add(
+                        newBucket.state(DELEGATED)
+                                .workerRef(workerTaskOid, TaskType.COMPLEX_TYPE));
+            }
+            if (!newBuckets.isEmpty()) {
+                modifications.addAll(bucketsAddDeltas(statePath, newBuckets));
+                prefetched += newBuckets.size();
+            }
+        }
+
+        // The supplier can be called more times (on conflicts), so we set the value each time.
+        prefetchedHolder.setValue(prefetched);
+        return modifications;
+    }
+
+    private int prefetchIntoStore(@NotNull WorkBucketStore store, OperationResult result)
+            throws SchemaException, ObjectNotFoundException {
+        assert workerTaskOid != null;
+
+        int needed = bucketsToPrefetch + 1
+                - store.countDelegatedBuckets(coordinatorTaskOid, activityPath, workerTaskOid, result);
+        if (needed <= 0) {
+            return 0;
+        }
+        WorkBucketType current = store.findDelegatedBucket(coordinatorTaskOid, activityPath, workerTaskOid, result);
+        Integer currentNumber = current != null ? current.getSequentialNumber() : null;
+        int prefetched = 0;
+        while (prefetched < needed) {
+            if (store.allocateReadyBucket(
+                    coordinatorTaskOid, activityPath, workerTaskOid, currentNumber, result) != null) {
+                prefetched++;
+                continue;
+            }
+
+            long creationStart = System.currentTimeMillis();
+            WorkBucketType lastBucket = store.getLastBucket(coordinatorTaskOid, activityPath, result);
+            List<WorkBucketType> newBuckets = bucketFactory.createNewBuckets(
+                    lastBucket != null ? List.of(lastBucket) : List.of(), needed - prefetched,
+                    readAdaptiveBucketSize(store, bucketFactory, result));
+            if (newBuckets.isEmpty()) {
+                break;
+            }
+            int toDelegate = Math.min(newBuckets.size(), needed - prefetched);
+            for (int i = 0; i < newBuckets.size(); i++) {
+                if (i < toDelegate) {
+                    newBuckets.get(i)
+                            .state(DELEGATED)
+                            .workerRef(workerTaskOid, TaskType.COMPLEX_TYPE);
+                } else {
+                    newBuckets.get(i).state(READY);
+                }
+            }
+            if (store.addBuckets(coordinatorTaskOid, activityPath, newBuckets, result)) {
+                prefetched += toDelegate;
+            } else {
+                // Other worker created buckets with the same numbers in the meantime, let's try again.
+                statisticsKeeper.addConflict(System.currentTimeMillis() - creationStart);
+            }
+        }
+        return prefetched;
+    }
+
+    @Override
+    protected void extendDebugDump(StringBuilder sb, int indent) {
+        sb.append("\n");
+        DebugUtil.debugDumpWithLabel(sb, "bucketsToPrefetch", bucketsToPrefetch, indent + 1);
+    }
+}
@@ -51,6 +51,19 @@ public class ReleaseBucketsOperation extends BucketOperation {
     public void execute(OperationResult result)
             throws ObjectNotFoundException, SchemaException {
 
+        if (workBucketStore != null) {
+            assert workerTaskOid != null;
+            int released = workBucketStore.releaseBuckets(
+                    coordinatorTaskOid, activityPath, workerTaskOid, sequentialNumber, result);
+            LOGGER.trace("Released {} bucket(s) in the store for {} (delegated to {})",
+                    released, coordinatorTaskOid, workerTaskOid);
+            if (sequentialNumber != null && released > 0) {
+                statisticsKeeper.register(BucketingConstants.RELEASE_WORK_BUCKET);
+                return;
+            }
+            // When releasing all buckets, there can be some in the coordinator task as well (e.g. if sampling is used).
+        }
+
         ModifyObjectResult<TaskType> modifyObjectResult;
         try {
             modifyObjectResult = plainRepositoryService.modifyObjectDynamically(TaskType.class, coordinatorTaskOid, null,
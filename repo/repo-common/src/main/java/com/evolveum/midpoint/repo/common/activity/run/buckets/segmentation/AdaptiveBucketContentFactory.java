@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation;
+
+import java.math.BigInteger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AbstractWorkBucketContentType;
+
+/**
+ * Creates content for new buckets, with the size adapted to the measured processing time of buckets.
+ *
+ * The adapted size is kept in the bucketing state of the buckets-holding task; it is computed when a bucket
+ * is complete and then used when new buckets are created.
+ */
+public interface AdaptiveBucketContentFactory extends BucketContentFactory {
+
+    /**
+     * Creates a content for the next bucket in a sequence.
+     *
+     * @param bucketSize Size of the bucket as computed by {@link #computeAdaptedBucketSize(AbstractWorkBucketContentType, long)}.
+     * If null (nothing was measured yet), the configured size is used.
+     * @return null if there is no next bucket
+     */
+    @Nullable AbstractWorkBucketContentType createNextBucketContent(AbstractWorkBucketContentType lastBucketContent,
+            Integer lastBucketSequentialNumber, @Nullable BigInteger bucketSize) throws SchemaException;
+
+    /**
+     * Computes the size of buckets to be created, based on a bucket that was just processed.
+     *
+     * @param processingTime How long the processing of the bucket took (in milliseconds).
+     * @return null if the size cannot be determined from the bucket
+     */
+    @Nullable BigInteger computeAdaptedBucketSize(@NotNull AbstractWorkBucketContentType processedBucketContent,
+            long processingTime);
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation;
+
+import static com.evolveum.midpoint.util.MiscUtil.argCheck;
+
+import java.math.BigInteger;
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AbstractWorkBucketContentType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AdaptiveBucketSizingType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.NumericIntervalWorkBucketContentType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.NumericWorkSegmentationType;
+
+/**
+ * Numeric intervals whose size is adapted to the measured processing time, see {@link AdaptiveBucketSizingType}.
+ *
+ * The new size is the size of the processed bucket multiplied by the ratio of the target and the real processing time.
+ * It is changed at most {@link #MAX_CHANGE_FACTOR} times at once, so one unusually fast or slow bucket (e.g. empty one)
+ * does not make the buckets too large or too small.
+ */
+public class AdaptiveNumericBucketContentFactory extends NumericBucketContentFactory
+        implements AdaptiveBucketContentFactory {
+
+    private static final Trace LOGGER = TraceManager.getTrace(AdaptiveNumericBucketContentFactory.class);
+
+    private static final BigInteger MAX_CHANGE_FACTOR = BigInteger.TWO;
+
+    @NotNull private final AdaptiveBucketSizingType sizing;
+
+    AdaptiveNumericBucketContentFactory(@NotNull NumericWorkSegmentationType segmentationConfig) {
+        super(segmentationConfig);
+        this.sizing = Objects.requireNonNull(segmentationConfig.getAdaptiveSizing());
+        argCheck(sizing.getTargetBucketDuration() != null && sizing.getTargetBucketDuration() > 0,
+                "Target bucket duration must be a positive number: %s", sizing.getTargetBucketDuration());
+    }
+
+    @Override
+    public NumericIntervalWorkBucketContentType createNextBucketContent(AbstractWorkBucketContentType lastBucketContent,
+            Integer lastBucketSequentialNumber, @Nullable BigInteger bucketSize) {
+        return createNextBucketContentOfSize(lastBucketContent, lastBucketSequentialNumber,
+                bucketSize != null ? bucketSize : getOrComputeBucketSize());
+    }
+
+    @Override
+    public @Nullable BigInteger computeAdaptedBucketSize(@NotNull AbstractWorkBucketContentType processedBucketContent,
+            long processingTime) {
+        if (!(processedBucketContent instanceof NumericIntervalWorkBucketContentType)) {
+            return null;
+        }
+        NumericIntervalWorkBucketContentType content = (NumericIntervalWorkBucketContentType) processedBucketContent;
+        if (content.getFrom() == null || content.getTo() == null) {
+            return null;
+        }
+        BigInteger size = content.getTo().subtract(content.getFrom());
+        if (size.signum() <= 0) {
+            return null;
+        }
+
+        BigInteger adapted = size
+                .multiply(BigInteger.valueOf(sizing.getTargetBucketDuration()))
+                .divide(BigInteger.valueOf(Math.max(processingTime, 1)));
+        adapted = adapted
+                .max(size.divide(MAX_CHANGE_FACTOR))
+                .min(size.multiply(MAX_CHANGE_FACTOR));
+        adapted = adapted.max(getMinBucketSize());
+        if (sizing.getMaxBucketSize() != null) {
+            adapted = adapted.min(sizing.getMaxBucketSize());
+        }
+        LOGGER.trace("Adapted bucket size: {} -> {} (processing time: {} ms, target: {} ms)",
+                size, adapted, processingTime, sizing.getTargetBucketDuration());
+        return adapted;
+    }
+
+    private @NotNull BigInteger getMinBucketSize() {
+        return sizing.getMinBucketSize() != null ? sizing.getMinBucketSize().max(BigInteger.ONE) : BigInteger.ONE;
+    }
+
+    /** The number of buckets depends on the processing times, so it is not known in advance. */
+    @Override
+    public Integer estimateNumberOfBuckets() {
+        return null;
+    }
+}
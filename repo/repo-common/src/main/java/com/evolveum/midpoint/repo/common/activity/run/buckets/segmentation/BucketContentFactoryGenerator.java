@@ -32,7 +32,8 @@ public class BucketContentFactoryGenerator {
             = new HashMap<>();
 
     {
-        registerSupplier(NumericWorkSegmentationType.class, (cfg, ctx) -> new NumericBucketContentFactory(cfg));
+        registerSupplier(NumericWorkSegmentationType.class, (cfg, ctx) -> cfg.getAdaptiveSizing() != null ?
+                new AdaptiveNumericBucketContentFactory(cfg) : new NumericBucketContentFactory(cfg));
         registerSupplier(StringWorkSegmentationType.class, (cfg, ctx) -> new StringBucketContentFactory(cfg));
         registerSupplier(OidWorkSegmentationType.class, (cfg, ctx) -> new StringBucketContentFactory(cfg));
         registerSupplier(ExplicitWorkSegmentationType.class, (cfg, ctx) -> new ExplicitBucketContentFactory(cfg));
@@ -17,6 +17,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -57,7 +58,19 @@ public class BucketFactory {
      */
     public @NotNull List<WorkBucketType> createNewBuckets(@NotNull List<WorkBucketType> currentBuckets,
             int bucketsNeeded) throws SchemaException {
-        List<? extends AbstractWorkBucketContentType> newBucketsContent = createNewBucketsContent(currentBuckets, bucketsNeeded);
+        return createNewBuckets(currentBuckets, bucketsNeeded, null);
+    }
+
+    /**
+     * Creates new buckets, see {@link #createNewBuckets(List, int)}.
+     *
+     * @param adaptiveBucketSize Bucket size determined by adaptive sizing (if used and known).
+     * See {@link AdaptiveBucketContentFactory}.
+     */
+    public @NotNull List<WorkBucketType> createNewBuckets(@NotNull List<WorkBucketType> currentBuckets,
+            int bucketsNeeded, @Nullable BigInteger adaptiveBucketSize) throws SchemaException {
+        List<? extends AbstractWorkBucketContentType> newBucketsContent =
+                createNewBucketsContent(currentBuckets, bucketsNeeded, adaptiveBucketSize);
         List<WorkBucketType> newBuckets = new ArrayList<>(newBucketsContent.size());
         WorkBucketType lastBucket = BucketingUtil.getLastBucket(currentBuckets);
         int sequentialNumber = lastBucket != null ? lastBucket.getSequentialNumber() + 1 : 1;
@@ -72,15 +85,17 @@ public class BucketFactory {
 
     @NotNull
     private List<? extends AbstractWorkBucketContentType> createNewBucketsContent(@NotNull List<WorkBucketType> currentBuckets,
-            int bucketsNeeded) throws SchemaException {
+            int bucketsNeeded, @Nullable BigInteger adaptiveBucketSize) throws SchemaException {
         WorkBucketType lastBucket = BucketingUtil.getLastBucket(currentBuckets);
         AbstractWorkBucketContentType lastContent = lastBucket != null ? lastBucket.getContent() : null;
         Integer lastSequentialNumber = lastBucket != null ? lastBucket.getSequentialNumber() : null;
         int count = Math.max(getBucketCreationBatch(), bucketsNeeded);
         List<AbstractWorkBucketContentType> newContentList = new ArrayList<>(count);
         for (int i = 0; i < count; i++) {
-            AbstractWorkBucketContentType newContent = contentFactory
-                    .createNextBucketContent(lastContent, lastSequentialNumber);
+            AbstractWorkBucketContentType newContent = isAdaptive() ?
+                    ((AdaptiveBucketContentFactory) contentFactory)
+                            .createNextBucketContent(lastContent, lastSequentialNumber, adaptiveBucketSize) :
+                    contentFactory.createNextBucketContent(lastContent, lastSequentialNumber);
             if (newContent == null) {
                 break;
             }
@@ -106,4 +121,23 @@ public class BucketFactory {
     public Integer estimateNumberOfBuckets() {
         return contentFactory.estimateNumberOfBuckets();
     }
+
+    /** Is the size of buckets adapted to the measured processing time? */
+    public boolean isAdaptive() {
+        return contentFactory instanceof AdaptiveBucketContentFactory;
+    }
+
+    /**
+     * Computes the size of buckets to be created from now on, based on given bucket and its processing time.
+     *
+     * @return null if adaptive sizing is not used or the size cannot be determined
+     */
+    public @Nullable BigInteger computeAdaptedBucketSize(@NotNull WorkBucketType processedBucket, long processingTime) {
+        if (isAdaptive() && processedBucket.getContent() != null) {
+            return ((AdaptiveBucketContentFactory) contentFactory)
+                    .computeAdaptedBucketSize(processedBucket.getContent(), processingTime);
+        } else {
+            return null;
+        }
+    }
 }
@@ -28,7 +28,11 @@ public class NumericBucketContentFactory extends BaseBucketContentFactory<Numeri
     @Override
     public NumericIntervalWorkBucketContentType createNextBucketContent(AbstractWorkBucketContentType lastBucketContent,
             Integer lastBucketSequentialNumber) {
-        BigInteger bucketSize = getOrComputeBucketSize();
+        return createNextBucketContentOfSize(lastBucketContent, lastBucketSequentialNumber, getOrComputeBucketSize());
+    }
+
+    NumericIntervalWorkBucketContentType createNextBucketContentOfSize(AbstractWorkBucketContentType lastBucketContent,
+            Integer lastBucketSequentialNumber, @NotNull BigInteger bucketSize) {
         BigInteger from = getFrom();
         BigInteger to = getOrComputeTo();
 
@@ -55,7 +59,7 @@ public class NumericBucketContentFactory extends BaseBucketContentFactory<Numeri
     }
 
     @NotNull
-    private BigInteger getOrComputeBucketSize() {
+    BigInteger getOrComputeBucketSize() {
         if (segmentationConfig.getBucketSize() != null) {
             return segmentationConfig.getBucketSize();
         } else if (segmentationConfig.getTo() != null && segmentationConfig.getNumberOfBuckets() != null) {
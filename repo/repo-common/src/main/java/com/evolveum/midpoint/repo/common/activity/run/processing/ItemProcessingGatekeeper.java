@@ -113,6 +113,9 @@ class ItemProcessingGatekeeper<I> {
     /** What was the final processing result? */
     private ProcessingResult processingResult;
 
+    /** True if the processing was recorded in the progress and statistics, see {@link #revertStatistics()}. */
+    private boolean statisticsUpdated;
+
     /**
      * True if the flow of new events can continue. It can be switched to false either if the item processor
      * or error-handling routine tells so. Generally, it must be very harsh situation that results in immediate
@@ -538,6 +541,22 @@ class ItemProcessingGatekeeper<I> {
 
         activityRun.updateStatistics(updateThreadLocalStatisticsInCoordinator, result);
         activityRun.updateItemProgressInTreeOverviewIfTimePassed(result);
+        statisticsUpdated = true;
+    }
+
+    /**
+     * Reverts the progress and item processing statistics recorded for this processing. Used when the repository
+     * changes done by the processing were lost (because the commit batch they belonged to could not be committed),
+     * and the item is going to be processed again.
+     */
+    void revertStatistics() {
+        if (!statisticsUpdated) {
+            return;
+        }
+        activityRun.decrementProgress(processingResult.outcome);
+        activityRun.getActivityState().getLiveItemProcessingStatistics()
+                .revertOperationEnd(processingResult.outcome, operation.getDurationRounded());
+        statisticsUpdated = false;
     }
 
     @NotNull
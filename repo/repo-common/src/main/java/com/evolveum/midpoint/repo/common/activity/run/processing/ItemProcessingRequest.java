@@ -92,8 +92,12 @@ public abstract class ItemProcessingRequest<I> implements AcknowledgementSink {
     public abstract @NotNull IterationItemInformation getIterationItemInformation();
 
     public boolean process(RunningTask workerTask, OperationResult result) {
-        ItemProcessingGatekeeper<I> gatekeeper = new ItemProcessingGatekeeper<>(this, activityRun, workerTask);
-        return gatekeeper.process(result);
+        return createGatekeeper(workerTask).process(result);
+    }
+
+    /** The gatekeeper is needed when the processing may have to be reverted, see {@link ProcessingCoordinator}. */
+    @NotNull ItemProcessingGatekeeper<I> createGatekeeper(RunningTask workerTask) {
+        return new ItemProcessingGatekeeper<>(this, activityRun, workerTask);
     }
 
     protected @NotNull String getRootTaskOid() {
@@ -11,7 +11,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.common.activity.run.IterativeActivityRun;
+import com.evolveum.midpoint.schema.internals.InternalsConfig;
 import com.evolveum.midpoint.task.api.RunningLightweightTask;
 
 import com.evolveum.midpoint.util.exception.ConfigurationException;
@@ -40,6 +42,7 @@ public class ProcessingCoordinator<I> {
 
     private static final String OP_HANDLE_ASYNCHRONOUSLY = ProcessingCoordinator.class.getName() + ".handleAsynchronously";
     private static final String OP_EXECUTE_WORKER = ProcessingCoordinator.class.getName() + ".executeWorker";
+    private static final String OP_PROCESS_LOST_ITEMS_AGAIN = ProcessingCoordinator.class.getName() + ".processLostItemsAgain";
 
     @NotNull private final RunningTask coordinatorTask;
 
@@ -144,6 +147,10 @@ public class ProcessingCoordinator<I> {
         return workerTask.canRun() && canRun();
     }
 
+    private RepositoryService getRepositoryService() {
+        return activityRun.getBeans().repositoryService;
+    }
+
     private void recordInterrupted(ItemProcessingRequest<I> request, OperationResult result) {
         result.recordStatus(OperationResultStatus.WARNING, "Could not submit request as the processing was interrupted");
         LOGGER.warn("Processing was interrupted while processing {} in {}", request, coordinatorTask);
@@ -212,6 +219,15 @@ public class ProcessingCoordinator<I> {
     private class WorkerHandler implements LightweightTaskHandler {
         private final OperationResult workerSpecificResult;
 
+        /** True if the repository writes of this worker are committed in batches. */
+        private boolean commitBatch;
+
+        /**
+         * Items processed since the last commit of the batch. If the commit fails, their repository changes
+         * are lost, so they are processed again.
+         */
+        private final List<ItemProcessingGatekeeper<I>> uncommittedItems = new ArrayList<>();
+
         private WorkerHandler(OperationResult workerSpecificResult) {
             this.workerSpecificResult = workerSpecificResult;
         }
@@ -228,36 +244,54 @@ public class ProcessingCoordinator<I> {
 
             String taskIdentifier = workerTask.getTaskIdentifier();
 
-            while (canRun(workerTask)) {
+            commitBatch = beginCommitBatchIfConfigured();
+            try {
+                while (canRun(workerTask)) {
 
-                workerTask.refreshThreadLocalStatistics();
-                ItemProcessingRequest<I> request = requestsBuffer.poll(taskIdentifier);
+                    workerTask.refreshThreadLocalStatistics();
+                    ItemProcessingRequest<I> request = requestsBuffer.poll(taskIdentifier);
 
-                if (request != null) {
-                    try {
-                        if (!request.process(workerTask, workerSpecificResult)) {
-                            stopRequestedByAnyWorker.set(true);
+                    if (request != null) {
+                        ItemProcessingGatekeeper<I> gatekeeper = request.createGatekeeper(workerTask);
+                        try {
+                            if (!gatekeeper.process(workerSpecificResult)) {
+                                stopRequestedByAnyWorker.set(true);
+                            }
+                        } finally {
+                            requestsBuffer.markProcessed(request, taskIdentifier);
+                            treatOperationResultAfterOperation();
+                        }
+                        if (commitBatch) {
+                            uncommittedItems.add(gatekeeper);
+                            if (!executeCommitBatchAction(getRepositoryService()::commitBatchCheckpoint, workerTask)) {
+                                break;
+                            }
                         }
-                    } finally {
-                        requestsBuffer.markProcessed(request, taskIdentifier);
-                        treatOperationResultAfterOperation();
-                    }
-                } else {
-                    if (allItemsSubmitted.get()) {
-                        LOGGER.trace("Queue is empty and nothing more is expected - exiting");
-                        break;
                     } else {
-                        LOGGER.trace("No requests to be processed but expecting some to come. Waiting for {} msecs",
-                                WORKER_THREAD_WAIT_FOR_REQUEST);
-                        try {
-                            //noinspection BusyWait
-                            Thread.sleep(WORKER_THREAD_WAIT_FOR_REQUEST);
-                        } catch (InterruptedException e) {
-                            LOGGER.trace("Waiting interrupted, exiting");
+                        if (commitBatch && !executeCommitBatchAction(getRepositoryService()::flushCommitBatch, workerTask)) {
+                            break;
+                        }
+                        if (allItemsSubmitted.get()) {
+                            LOGGER.trace("Queue is empty and nothing more is expected - exiting");
                             break;
+                        } else {
+                            LOGGER.trace("No requests to be processed but expecting some to come. Waiting for {} msecs",
+                                    WORKER_THREAD_WAIT_FOR_REQUEST);
+                            try {
+                                //noinspection BusyWait
+                                Thread.sleep(WORKER_THREAD_WAIT_FOR_REQUEST);
+                            } catch (InterruptedException e) {
+                                LOGGER.trace("Waiting interrupted, exiting");
+                                break;
+                            }
                         }
                     }
                 }
+            } finally {
+                if (commitBatch) {
+                    commitBatch = false; // the batch is ended even if the commit fails
+                    executeCommitBatchAction(getRepositoryService()::endCommitBatch, workerTask);
+                }
             }
 
             int reservedRequests = requestsBuffer.getReservedRequestsCount(taskIdentifier);
@@ -267,6 +301,68 @@ public class ProcessingCoordinator<I> {
             workerTask.refreshThreadLocalStatistics();
         }
 
+        /**
+         * Starts committing repository writes of this worker in batches, if configured and supported.
+         * The batch is committed after given number of items, or when the worker has nothing to do;
+         * so the activity (bucket) is not marked as complete before the changes are committed.
+         */
+        private boolean beginCommitBatchIfConfigured() {
+            int batchSize = InternalsConfig.getRepositoryCommitBatchSize();
+            return batchSize > 0
+                    && activityRun.isRepositoryCommitBatchingSupported()
+                    && getRepositoryService().beginCommitBatch(batchSize, InternalsConfig.getRepositoryCommitBatchMaxDelay());
+        }
+
+        /**
+         * Failed commit means that changes done while processing the items since the last commit (already reported
+         * as processed) were lost. So their progress and statistics are reverted, and they are processed again,
+         * one by one, each committed on its own. Then the batching continues (unless the batch is being ended).
+         *
+         * @return false if the processing should stop
+         */
+        private boolean executeCommitBatchAction(Runnable action, RunningTask workerTask) {
+            try {
+                action.run();
+                if (!getRepositoryService().hasUncommittedModifications()) {
+                    uncommittedItems.clear();
+                }
+                return true;
+            } catch (RuntimeException e) {
+                LoggingUtils.logUnexpectedException(LOGGER, "Couldn't commit repository changes in {}:{}. "
+                        + "Processing {} item(s) since the last commit again, without the commit batch.",
+                        e, coordinatorTask, workerTask, uncommittedItems.size());
+                getRepositoryService().endCommitBatch(); // nothing to commit after the failure, just ending the batch
+                boolean canContinue = processLostItemsAgain(e, workerTask);
+                if (commitBatch) {
+                    commitBatch = beginCommitBatchIfConfigured();
+                }
+                return canContinue;
+            }
+        }
+
+        private boolean processLostItemsAgain(RuntimeException commitException, RunningTask workerTask) {
+            List<ItemProcessingGatekeeper<I>> lostItems = new ArrayList<>(uncommittedItems);
+            uncommittedItems.clear();
+            OperationResult result = workerSpecificResult.subresult(OP_PROCESS_LOST_ITEMS_AGAIN)
+                    .addParam("items", lostItems.size())
+                    .build();
+            try {
+                result.recordWarning("Repository changes of " + lostItems.size() + " item(s) were lost because "
+                        + "the commit failed, processing them again: " + commitException.getMessage(), commitException);
+                lostItems.forEach(ItemProcessingGatekeeper::revertStatistics);
+                for (ItemProcessingGatekeeper<I> lostItem : lostItems) {
+                    if (!lostItem.getRequest().process(workerTask, result)) {
+                        stopRequestedByAnyWorker.set(true);
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                result.close();
+                treatOperationResultAfterOperation();
+            }
+        }
+
         private void treatOperationResultAfterOperation() {
             workerSpecificResult.computeStatus(true);
             // We do NOT try to summarize/cleanup the whole results hierarchy.
@@ -179,6 +179,17 @@ public class ActivityItemProcessingStatistics extends Initializable {
         }
     }
 
+    /**
+     * Removes a finished operation from the `processed` statistics, because its effects were lost and the item
+     * is going to be processed again. The last item record is kept; the repeated processing overwrites it.
+     */
+    public synchronized void revertOperationEnd(@NotNull QualifiedItemProcessingOutcomeType outcome, double duration) {
+        assertInitialized();
+        ProcessedItemSetType itemSet = findOrCreateProcessedItemSet(value, outcome);
+        itemSet.setCount(Math.max(0, or0(itemSet.getCount()) - 1));
+        itemSet.setDuration(Math.max(0, or0(itemSet.getDuration()) - duration));
+    }
+
     private long getActivityRunStartTimestamp() {
         return getActivityRun().getStartTimestampRequired();
     }
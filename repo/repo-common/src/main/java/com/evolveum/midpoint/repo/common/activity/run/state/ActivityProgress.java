@@ -68,6 +68,17 @@ public class ActivityProgress extends Initializable {
                 counters, newCount, outcome, getActivityRun());
     }
 
+    /**
+     * Decrements the progress. Used when the processing of an item is to be repeated, because its effects were lost.
+     */
+    public synchronized void decrement(QualifiedItemProcessingOutcomeType outcome, @NotNull Counters counters) {
+        assertInitialized();
+        List<OutcomeKeyedCounterType> counter = counters == Counters.COMMITTED ? value.getCommitted() : value.getUncommitted();
+        int newCount = OutcomeKeyedCounterTypeUtil.decrementCounter(counter, outcome, getBeans().prismContext);
+        LOGGER.trace("Decremented progress (counters: {}) to {} for {} in activity run {}",
+                counters, newCount, outcome, getActivityRun());
+    }
+
     /**
      * Moves "uncommitted" counters to "committed" state.
      */
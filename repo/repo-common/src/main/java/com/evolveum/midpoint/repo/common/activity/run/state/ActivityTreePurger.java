@@ -9,6 +9,7 @@ package com.evolveum.midpoint.repo.common.activity.run.state;
 
 import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.repo.api.WorkBucketStore;
 import com.evolveum.midpoint.repo.common.activity.run.ActivityRunException;
 import com.evolveum.midpoint.repo.common.activity.run.CommonTaskBeans;
 import com.evolveum.midpoint.repo.common.activity.run.task.ActivityBasedTaskRun;
@@ -170,6 +171,11 @@ public class ActivityTreePurger {
                     task.refresh(result);
                 }
             }
+            // Bucketing state is cleared for all the activities, so are the buckets stored outside the task.
+            WorkBucketStore workBucketStore = beans.plainRepositoryService.getWorkBucketStore();
+            if (workBucketStore != null) {
+                workBucketStore.deleteBuckets(task.getOid(), localRootPath, result);
+            }
             return canDelete;
         }
 
@@ -92,7 +92,7 @@ public class ActionsExecutedCollectorImpl implements ActionsExecutedCollector {
         recordInternal(name, displayName, typeQName, oid, changeType, channel, exception);
     }
 
-    private void recordInternal(String objectName, String objectDisplayName, QName objectType,
+    private synchronized void recordInternal(String objectName, String objectDisplayName, QName objectType,
             String objectOid, ChangeType changeType, String channel, Throwable exception) {
         XMLGregorianCalendar now = XmlTypeConverter.createXMLGregorianCalendar(new Date());
         ActionExecuted action = new ActionExecuted(objectName, objectDisplayName, objectType, objectOid,
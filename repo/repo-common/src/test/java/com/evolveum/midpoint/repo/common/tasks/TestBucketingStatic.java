@@ -16,6 +16,7 @@ import static com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketSta
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketStateType.READY;
 
 import java.io.File;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -87,6 +88,7 @@ public class TestBucketingStatic extends AbstractRepoCommonTest {
     private static final TestResource<TaskType> TASK_130 = new TestResource<>(TEST_DIR, "task-130.xml", "1339d0e9-eb92-4e1a-a48e-86406d1f37c1");
     private static final TestResource<TaskType> TASK_140 = new TestResource<>(TEST_DIR, "task-140.xml", "c65a656e-75e9-4d03-a5bc-7e082a19bfb1");
     private static final TestResource<TaskType> TASK_150 = new TestResource<>(TEST_DIR, "task-150.xml", "0a278190-ba8e-4684-b95a-57f5198ac8b3");
+    private static final TestResource<TaskType> TASK_160 = new TestResource<>(TEST_DIR, "task-160.xml", "6d3f2b8e-41c7-4a0e-9b15-c2e87a4f0d63");
 
     private static final TestResource<TaskType> TASK_200_COORDINATOR = new TestResource<>(TEST_DIR, "task-200-c.xml", "a021d1b0-eea3-4378-87b6-7ab8bf9ab537");
     private static final TestResource<TaskType> TASK_200_WORKER = new TestResource<>(TEST_DIR, "task-200-w.xml", "432c09ba-27d5-4012-a30e-6bd16a3ca07f");
@@ -98,6 +100,10 @@ public class TestBucketingStatic extends AbstractRepoCommonTest {
     private static final TestResource<TaskType> TASK_210_WORKER_4 = new TestResource<>(TEST_DIR, "task-210-4.xml", "f1bb0e85-abac-4e61-8a3a-f72d40f3e8d6");
     private static final TestResource<TaskType> TASK_210_WORKER_5 = new TestResource<>(TEST_DIR, "task-210-5.xml", "81e31c90-6546-4055-8371-a34ef79f5117");
 
+    private static final TestResource<TaskType> TASK_220_COORDINATOR = new TestResource<>(TEST_DIR, "task-220-c.xml", "4b0b5e2e-7c3d-4d5f-9a55-0f4f0b1e9c22");
+    private static final TestResource<TaskType> TASK_220_WORKER_1 = new TestResource<>(TEST_DIR, "task-220-1.xml", "c2e4f0a8-3b61-4f0e-8d2a-6a7e1f5d3b90");
+    private static final TestResource<TaskType> TASK_220_WORKER_2 = new TestResource<>(TEST_DIR, "task-220-2.xml", "e8a1c6d4-95f2-4b7a-b3c0-2d9f7e6a4c15");
+
     @PostConstruct
     public void initialize() throws Exception {
         displayTestTitle("Initializing TEST CLASS: " + getClass().getName());
@@ -627,6 +633,67 @@ public class TestBucketingStatic extends AbstractRepoCommonTest {
         }
     }
 
+    /**
+     * Numeric buckets with the size adapted to the (simulated) processing time.
+     */
+    @Test
+    public void test160AdaptiveBucketSize() throws Exception {
+        given();
+        OperationResult result = createOperationResult();
+        taskAdd(TASK_160, result); // suspended
+
+        Task task = taskManager.getTaskPlain(TASK_160.oid, result);
+        ActivityDistributionDefinition distributionDefinition = getDistributionDefinition(task);
+
+        when("1st get");
+        WorkBucketType bucket = getWorkBucket(task, result);
+
+        then("1st get: configured size is used");
+        assertNumericBucket(bucket, null, 1, 0, 10);
+        refreshTaskAndAssertOptimizedBuckets(task, result);
+        assertThat(getNumberOfBuckets(task)).as("number of buckets").isNull();
+
+        when("bucket is processed too quickly, completed, and 2nd get");
+        BigInteger adaptedSize = bucketingManager.computeAdaptedBucketSize(bucket, 100, distributionDefinition, null);
+        bucketingManager.completeWorkBucket(task.getOid(), null, ActivityPath.empty(), 1, adaptedSize, null, null, result);
+        bucket = getWorkBucket(task, result);
+
+        then("2nd get: size is doubled (not more)");
+        assertThat(adaptedSize).isEqualTo(BigInteger.valueOf(20));
+        assertNumericBucket(bucket, null, 2, 10, 30);
+        refreshTaskAndAssertOptimizedBuckets(task, result);
+        assertThat(BucketingUtil.getAdaptiveBucketSize(task.getWorkState().getActivity())).isEqualTo(adaptedSize);
+
+        when("bucket is processed quickly again, completed, and 3rd get");
+        adaptedSize = bucketingManager.computeAdaptedBucketSize(bucket, 100, distributionDefinition, null);
+        bucketingManager.completeWorkBucket(task.getOid(), null, ActivityPath.empty(), 2, adaptedSize, null, null, result);
+        bucket = getWorkBucket(task, result);
+
+        then("3rd get: maximal size is used");
+        assertThat(adaptedSize).isEqualTo(BigInteger.valueOf(30));
+        assertNumericBucket(bucket, null, 3, 30, 60);
+
+        when("bucket is processed too slowly, completed, and 4th get");
+        adaptedSize = bucketingManager.computeAdaptedBucketSize(bucket, 2000, distributionDefinition, null);
+        bucketingManager.completeWorkBucket(task.getOid(), null, ActivityPath.empty(), 3, adaptedSize, null, null, result);
+        bucket = getWorkBucket(task, result);
+
+        then("4th get: size is halved");
+        assertThat(adaptedSize).isEqualTo(BigInteger.valueOf(15));
+        assertNumericBucket(bucket, null, 4, 60, 75);
+
+        when("bucket is processed very slowly, completed, and 5th get");
+        adaptedSize = bucketingManager.computeAdaptedBucketSize(bucket, 10000, distributionDefinition, null);
+        bucketingManager.completeWorkBucket(task.getOid(), null, ActivityPath.empty(), 4, adaptedSize, null, null, result);
+        bucket = getWorkBucket(task, result);
+
+        then("5th get: size is decreased at most by half");
+        assertThat(adaptedSize).isEqualTo(BigInteger.valueOf(7));
+        assertNumericBucket(bucket, null, 5, 75, 82);
+
+        refreshTaskAndAssertOptimizedBuckets(task, result);
+    }
+
     /**
      * Checks "get bucket" operation on task pair (coordinator + worker).
      */
@@ -844,6 +911,84 @@ public class TestBucketingStatic extends AbstractRepoCommonTest {
         assertNumericBucket(buckets.get(0), WorkBucketStateType.COMPLETE, 5, 4, 5);
     }
 
+    /**
+     * Checks prefetching of buckets and taking over (stealing) prefetched buckets by other worker.
+     */
+    @Test
+    public void test220PrefetchAndStealBuckets() throws Exception {
+        OperationResult result = createOperationResult();
+        taskAdd(TASK_220_COORDINATOR, result); // suspended
+        taskAdd(TASK_220_WORKER_1, result); // suspended
+        taskAdd(TASK_220_WORKER_2, result); // suspended
+
+        Task coordinator = taskManager.getTaskPlain(TASK_220_COORDINATOR.oid, result);
+
+        String oidC = TASK_220_COORDINATOR.oid;
+        String oidW1 = TASK_220_WORKER_1.oid;
+        String oidW2 = TASK_220_WORKER_2.oid;
+
+        when("worker 1 gets a bucket and prefetches two more");
+
+        WorkBucketType bucket = getWorkBucket(coordinator, oidW1, result);
+        OperationResult prefetchResult = bucketingManager.prefetchWorkBucketsInBackground(
+                        oidC, oidW1, ActivityPath.empty(), 2, getDistributionDefinition(coordinator), null, null)
+                .get();
+
+        then("worker 1 gets a bucket and prefetches two more");
+
+        assertThat(prefetchResult.isSuccess()).as("prefetch result is success").isTrue();
+        assertNumericBucket(bucket, null, 1, 0, 1);
+        coordinator = taskManager.getTaskPlain(oidC, result);
+        displayDumpable("coordinator after prefetching", coordinator);
+        List<WorkBucketType> buckets = new ArrayList<>(getBuckets(coordinator));
+        sortBucketsBySequentialNumber(buckets);
+        assertEquals(3, buckets.size());
+        assertNumericBucket(buckets.get(0), WorkBucketStateType.DELEGATED, 1, 0, 1);
+        assertNumericBucket(buckets.get(1), WorkBucketStateType.DELEGATED, 2, 1, 2);
+        assertNumericBucket(buckets.get(2), WorkBucketStateType.DELEGATED, 3, 2, 3);
+        assertThat(buckets).allMatch(b -> BucketingUtil.isDelegatedTo(b, oidW1));
+
+        when("worker 1 completes bucket #1 and gets the next one");
+
+        bucketingManager.completeWorkBucket(oidC, oidW1, ActivityPath.empty(), 1, null, null, result);
+        bucket = getWorkBucket(coordinator, oidW1, result);
+
+        then("worker 1 completes bucket #1 and gets the next one");
+
+        assertNumericBucket(bucket, null, 2, 1, 2);
+
+        when("worker 2 processes remaining buckets and then looks for another one");
+
+        assertNumericBucket(getWorkBucket(coordinator, oidW2, result), null, 4, 3, 4);
+        bucketingManager.completeWorkBucket(oidC, oidW2, ActivityPath.empty(), 4, null, null, result);
+        assertNumericBucket(getWorkBucket(coordinator, oidW2, result), null, 5, 4, 5);
+        bucketingManager.completeWorkBucket(oidC, oidW2, ActivityPath.empty(), 5, null, null, result);
+        bucket = getWorkBucket(coordinator, oidW2, result);
+
+        then("worker 2 takes over bucket #3 prefetched by worker 1");
+
+        assertNumericBucket(bucket, null, 3, 2, 3);
+        coordinator = taskManager.getTaskPlain(oidC, result);
+        displayDumpable("coordinator after stealing", coordinator);
+        buckets = getBuckets(coordinator);
+        assertThat(BucketingUtil.isDelegatedTo(BucketingUtil.findBucketByNumberRequired(buckets, 2), oidW1))
+                .as("bucket #2 is kept by worker 1").isTrue();
+        assertThat(BucketingUtil.isDelegatedTo(BucketingUtil.findBucketByNumberRequired(buckets, 3), oidW2))
+                .as("bucket #3 is taken by worker 2").isTrue();
+
+        when("worker 2 completes bucket #3 and looks for another one");
+
+        bucketingManager.completeWorkBucket(oidC, oidW2, ActivityPath.empty(), 3, null, null, result);
+        WorkBucketType nothing = getWorkBucket(coordinator, oidW2, result);
+
+        then("bucket #2 being processed by worker 1 is not taken");
+
+        assertNull("Found bucket even if none should be found", nothing);
+        coordinator = taskManager.getTaskPlain(oidC, result);
+        assertThat(BucketingUtil.isDelegatedTo(BucketingUtil.findBucketByNumberRequired(getBuckets(coordinator), 2), oidW1))
+                .as("bucket #2 is kept by worker 1").isTrue();
+    }
+
     // TODO some test for batch allocation
 
     private WorkBucketType assumeNextValue(BucketFactory bucketFactory, ActivityStateType workState,
@@ -22,6 +22,10 @@ import com.evolveum.midpoint.util.logging.TraceManager;
 
 /**
  * Cache for {@link MExtItem} catalog.
+ *
+ * Reads of cached items never lock, the maps are concurrent and are only added to.
+ * Only cache misses are synchronized, so the same item is not inserted by multiple threads
+ * of this node at the same time; conflict with other node is resolved by reading the item from DB.
  */
 public class ExtItemCache {
 
@@ -31,7 +35,7 @@ public class ExtItemCache {
     private final Map<MExtItem.Key, MExtItem> keyToExtItem = new ConcurrentHashMap<>();
 
     // WARNING: Each .get() creates new connection, always use in try-with-resource block!
-    private Supplier<JdbcSession> jdbcSessionSupplier;
+    private volatile Supplier<JdbcSession> jdbcSessionSupplier;
 
     /**
      * Initializes the ext-item cache.
@@ -65,11 +69,20 @@ public class ExtItemCache {
         keyToExtItem.put(row.key(), row);
     }
 
-    public synchronized @NotNull MExtItem resolveExtensionItem(@NotNull MExtItem.Key extItemKey) {
+    public @NotNull MExtItem resolveExtensionItem(@NotNull MExtItem.Key extItemKey) {
         if (jdbcSessionSupplier == null) {
             throw new IllegalStateException("Ext item cache was not initialized yet!");
         }
 
+        MExtItem extItem = keyToExtItem.get(extItemKey);
+        if (extItem != null) {
+            return extItem;
+        }
+        return insertExtensionItem(extItemKey);
+    }
+
+    private synchronized @NotNull MExtItem insertExtensionItem(@NotNull MExtItem.Key extItemKey) {
+        // other thread may have inserted it while we were waiting
         MExtItem extItem = keyToExtItem.get(extItemKey);
         if (extItem != null) {
             return extItem;
@@ -118,7 +131,7 @@ public class ExtItemCache {
         return row;
     }
 
-    public synchronized @Nullable MExtItem getExtensionItem(Integer id) {
+    public @Nullable MExtItem getExtensionItem(Integer id) {
         if (jdbcSessionSupplier == null) {
             throw new IllegalStateException("Ext item cache was not initialized yet!");
         }
@@ -128,6 +141,7 @@ public class ExtItemCache {
             return extItem;
         }
 
+        // no lock needed, the item is only read from DB (added by other node) and put into the maps
         try (JdbcSession jdbcSession = jdbcSessionSupplier.get().startReadOnlyTransaction()) {
             extItem = jdbcSession.newQuery()
                     .from(QExtItem.DEFAULT)
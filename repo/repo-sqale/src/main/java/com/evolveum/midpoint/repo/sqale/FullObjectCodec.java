@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Codec for the compact form of serialized objects stored in `fullObject` (and `fullResult`) columns.
+ *
+ * Compact form (version 1) is:
+ *
+ * * {@link #MAGIC} bytes - these can't start any plain serialized form (JSON/XML/YAML text),
+ * which is how {@link #decode(byte[])} recognizes the compact form and reads old plain rows transparently;
+ * * version byte, which determines the dictionary;
+ * * length of the original UTF-8 form as unsigned varint;
+ * * the UTF-8 form compressed by raw deflate with the preset dictionary of the version.
+ *
+ * The dictionary contains namespaces, QNames and item names that are repeated in almost every
+ * serialized object, so these are encoded as short back-references even in small objects.
+ * *Dictionary of an existing version must never be changed*, it is needed to read existing rows.
+ * To use another dictionary, add a new version.
+ */
+public class FullObjectCodec {
+
+    private static final byte[] MAGIC = { 0, 'M', 'C' };
+
+    public static final byte CURRENT_VERSION = 1;
+
+    /**
+     * Dictionary for version 1.
+     * Deflate prefers short distances, so the most frequent strings are at the end.
+     */
+    private static final byte[] DICTIONARY_V1 = String.join("",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+            "xmlns=\"http://midpoint.evolveum.com/xml/ns/public/common/common-3\"",
+            "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"",
+            "http://midpoint.evolveum.com/xml/ns/public/common/extension-3",
+            "http://midpoint.evolveum.com/xml/ns/public/resource/instance-3",
+            "http://midpoint.evolveum.com/xml/ns/public/model/channels-3#",
+            "http://prism.evolveum.com/xml/ns/public/types-3",
+            "\"@ns\":\"http://midpoint.evolveum.com/xml/ns/public/common/common-3\"",
+            "\"valueMetadata\":{\"storage\":{\"createTimestamp\":\"",
+            "\"provenance\":{\"acquisition\":{\"timestamp\":\"",
+            "\"operationExecution\":[{\"@id\":",
+            "\"realTarget\":{\"oid\":\"",
+            "\"initiatorRef\":{\"oid\":\"",
+            "\"taskRef\":{\"oid\":\"",
+            "\"status\":\"success\",\"recordType\":\"simple\",\"timestamp\":\"",
+            "\"credentials\":{\"password\":{\"value\":{\"encryptedData\":{\"encryptionMethod\":{\"algorithm\":",
+            "\"http://www.w3.org/2001/04/xmlenc#aes256-cbc\"},\"keyInfo\":{\"keyName\":\"",
+            "\"cipherData\":{\"cipherValue\":\"",
+            "\"roleMembershipRef\":[{\"oid\":\"",
+            "\"linkRef\":[{\"oid\":\"",
+            "\"parentOrgRef\":{\"oid\":\"",
+            "\"archetypeRef\":{\"oid\":\"",
+            "\"resourceRef\":{\"oid\":\"",
+            "\"objectClass\":\"ri:AccountObjectClass\",\"kind\":\"account\",\"intent\":\"default\"",
+            "\"synchronizationSituation\":\"linked\"",
+            "\"attributes\":{\"@ns\":\"http://midpoint.evolveum.com/xml/ns/public/resource/instance-3\"",
+            "\"activation\":{\"administrativeStatus\":\"enabled\",\"effectiveStatus\":\"enabled\",",
+            "\"enableTimestamp\":\"",
+            "\"iteration\":0,\"iterationToken\":\"\"",
+            "\"extension\":{\"@ns\":\"http://midpoint.evolveum.com/xml/ns/public/common/extension-3\"",
+            "\"lifecycleState\":\"active\"",
+            "\"givenName\":{\"orig\":\"",
+            "\"familyName\":{\"orig\":\"",
+            "\"fullName\":{\"orig\":\"",
+            "\"emailAddress\":\"",
+            "\"assignment\":[{\"@id\":",
+            "\"targetRef\":{\"oid\":\"",
+            "\"construction\":{\"resourceRef\":{\"oid\":\"",
+            "\"relation\":\"org:default\",\"type\":\"c:RoleType\"",
+            "\"type\":\"c:OrgType\"",
+            "\"type\":\"c:ShadowType\"",
+            "\"type\":\"c:ResourceType\"",
+            "\"type\":\"c:UserType\"",
+            "\"type\":\"c:TaskType\"",
+            "\"type\":\"c:ArchetypeType\"",
+            "\"metadata\":{\"requestTimestamp\":\"",
+            "\"createTimestamp\":\"",
+            "\"modifyTimestamp\":\"",
+            "\"createChannel\":\"http://midpoint.evolveum.com/xml/ns/public/common/channels-3#",
+            "\"modifyChannel\":\"http://midpoint.evolveum.com/xml/ns/public/common/channels-3#",
+            "\"creatorRef\":{\"oid\":\"00000000-0000-0000-0000-000000000002\",\"relation\":\"org:default\",\"type\":\"c:UserType\"}",
+            "\"modifierRef\":{\"oid\":\"00000000-0000-0000-0000-000000000002\",\"relation\":\"org:default\",\"type\":\"c:UserType\"}",
+            "\"relation\":\"org:default\"",
+            "\"name\":{\"orig\":\"",
+            "\",\"norm\":\"",
+            "\"version\":\"",
+            "{\"user\":{\"oid\":\"",
+            "{\"shadow\":{\"oid\":\"",
+            "{\"@ns\":\"http://midpoint.evolveum.com/xml/ns/public/common/common-3\",\"oid\":\"")
+            .getBytes(StandardCharsets.UTF_8);
+
+    /** Compression is fast enough for writes with this level, and the dictionary does most of the work for small objects. */
+    private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /** Encodes the serialized form into the current version of the compact form. */
+    public static byte[] encode(@NotNull String serializedForm) {
+        byte[] input = serializedForm.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 3 + MAGIC.length + 6);
+        output.write(MAGIC, 0, MAGIC.length);
+        output.write(CURRENT_VERSION);
+        writeVarint(output, input.length);
+
+        Deflater deflater = new Deflater(COMPRESSION_LEVEL, true);
+        try {
+            deflater.setDictionary(dictionary(CURRENT_VERSION));
+            deflater.setInput(input);
+            deflater.finish();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                output.write(buffer, 0, count);
+            }
+        } finally {
+            deflater.end();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Returns serialized form from the stored bytes, which can be either the compact form
+     * or plain UTF-8 serialized form (as stored by older versions or with other configured format).
+     */
+    public static String decode(byte[] bytes) throws SchemaException {
+        if (bytes == null) {
+            return null;
+        }
+        if (!isCompact(bytes)) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int position = MAGIC.length;
+        byte version = bytes[position++];
+        byte[] dictionary = dictionary(version);
+        if (dictionary == null) {
+            throw new SchemaException("Unsupported version " + version + " of compact serialized form");
+        }
+
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (position >= bytes.length || shift > 28) {
+                throw new SchemaException("Corrupted length in compact serialized form");
+            }
+            b = bytes[position++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(dictionary);
+            inflater.setInput(bytes, position, bytes.length - position);
+            byte[] output = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                int count = inflater.inflate(output, offset, length - offset);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new SchemaException("Compact serialized form is truncated, expected "
+                            + length + " bytes, got " + offset);
+                }
+                offset += count;
+            }
+            return new String(output, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new SchemaException("Corrupted compact serialized form: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public static boolean isCompact(byte[] bytes) {
+        if (bytes == null || bytes.length <= MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] dictionary(byte version) {
+        return version == 1 ? DICTIONARY_V1 : null;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream output, int value) {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Bounded pool of threads parsing serialized objects (`fullObject` column) of search results ahead of their use.
+ *
+ * Parsing is submitted as {@link ParsingTask}s, one for each row, in the order of the rows.
+ * The thread transforming the rows calls {@link ParsingTask#get()} for each row in the same order:
+ * if the task was not started by the pool yet, it is executed by the calling thread itself.
+ * So the results are always used in the original order, the caller never waits for a task that is queued
+ * behind other work, and when the queue is full, the tasks are simply left to the caller.
+ */
+public class FullObjectParsingPool {
+
+    private static final Trace LOGGER = TraceManager.getTrace(FullObjectParsingPool.class);
+
+    /** Queue capacity per thread; it is pointless to parse too much ahead. */
+    private static final int QUEUE_CAPACITY_PER_THREAD = 100;
+
+    private final ThreadPoolExecutor executor;
+
+    FullObjectParsingPool(int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_CAPACITY_PER_THREAD),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "sqale-parser-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // the task will be run by the thread that needs the result
+                new ThreadPoolExecutor.DiscardPolicy());
+        LOGGER.info("Parallel parsing of full objects enabled with {} threads", threads);
+    }
+
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public <T> ParsingTask<T> submit(@NotNull ParsingCallable<T> parsing) {
+        ParsingTask<T> task = new ParsingTask<>(parsing);
+        executor.execute(task.futureTask);
+        return task;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    public interface ParsingCallable<T> {
+        T parse() throws SchemaException;
+    }
+
+    public static class ParsingTask<T> {
+
+        private final FutureTask<T> futureTask;
+
+        private ParsingTask(ParsingCallable<T> parsing) {
+            futureTask = new FutureTask<>(parsing::parse);
+        }
+
+        /**
+         * Returns the parsed object, parsing it in the current thread if the pool has not started yet.
+         */
+        public T get() throws SchemaException {
+            futureTask.run(); // does nothing if the task was already started by the pool
+            try {
+                return futureTask.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SystemException("Interrupted while waiting for the object to be parsed", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SchemaException) {
+                    throw (SchemaException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else {
+                    throw new SystemException(cause);
+                }
+            }
+        }
+
+        /** Called for results that will not be used; the task is not executed if not started yet. */
+        public void cancel() {
+            futureTask.cancel(false);
+        }
+    }
+}
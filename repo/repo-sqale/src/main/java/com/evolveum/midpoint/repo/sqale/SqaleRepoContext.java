@@ -11,6 +11,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Set;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
 import javax.xml.namespace.QName;
 
@@ -32,7 +33,9 @@ import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItemCardinality;
 import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItemHolderType;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.MObjectType;
 import com.evolveum.midpoint.repo.sqale.qmodel.ref.MReferenceType;
+import com.evolveum.midpoint.repo.sqlbase.CommitBatch;
 import com.evolveum.midpoint.repo.sqlbase.JdbcRepositoryConfiguration;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
 import com.evolveum.midpoint.repo.sqlbase.SqlRepoContext;
 import com.evolveum.midpoint.repo.sqlbase.mapping.QueryModelMappingRegistry;
 import com.evolveum.midpoint.schema.SchemaConstantsGenerated;
@@ -56,6 +59,9 @@ public class SqaleRepoContext extends SqlRepoContext {
 
     private FullTextSearchConfigurationType fullTextSearchConfig;
 
+    /** Created lazily, when parallel parsing is configured, see {@link #getFullObjectParsingPool()}. */
+    private FullObjectParsingPool fullObjectParsingPool;
+
     public SqaleRepoContext(
             JdbcRepositoryConfiguration jdbcRepositoryConfiguration,
             DataSource dataSource,
@@ -94,6 +100,7 @@ public class SqaleRepoContext extends SqlRepoContext {
         querydslConfig.register(new EnumAsObjectType<>(TaskWaitingReasonType.class));
         querydslConfig.register(new EnumAsObjectType<>(ThreadStopActionType.class));
         querydslConfig.register(new EnumAsObjectType<>(TimeIntervalStatusType.class));
+        querydslConfig.register(new EnumAsObjectType<>(WorkBucketStateType.class));
 
         // JSONB type support
         querydslConfig.register(new QuerydslJsonbType());
@@ -105,10 +112,57 @@ public class SqaleRepoContext extends SqlRepoContext {
     }
 
     // This has nothing to do with "repo cache" which is higher than this.
+    // New cache rows are visible to other threads immediately, so they must not be a part of any commit batch.
     @PostConstruct
     public void clearCaches() {
-        uriCache.initialize(this::newJdbcSession);
-        extItemCache.initialize(this::newJdbcSession);
+        uriCache.initialize(this::newStandaloneJdbcSession);
+        extItemCache.initialize(this::newStandaloneJdbcSession);
+    }
+
+    /**
+     * Returns pool for parallel parsing of full objects in search results, or null if it is not configured.
+     * The pool is (re)created if the number of configured threads changes, which is possible in tests.
+     */
+    public synchronized @Nullable FullObjectParsingPool getFullObjectParsingPool() {
+        int threads = getJdbcRepositoryConfiguration() instanceof SqaleRepositoryConfiguration
+                ? ((SqaleRepositoryConfiguration) getJdbcRepositoryConfiguration()).getFullObjectParsingThreads()
+                : 0;
+        if (fullObjectParsingPool != null && fullObjectParsingPool.getThreads() != threads) {
+            fullObjectParsingPool.shutdown();
+            fullObjectParsingPool = null;
+        }
+        if (fullObjectParsingPool == null && threads > 0) {
+            fullObjectParsingPool = new FullObjectParsingPool(threads);
+        }
+        return fullObjectParsingPool;
+    }
+
+    @PreDestroy
+    public synchronized void shutdownFullObjectParsingPool() {
+        if (fullObjectParsingPool != null) {
+            fullObjectParsingPool.shutdown();
+            fullObjectParsingPool = null;
+        }
+    }
+
+    /**
+     * Creates JDBC session for adding, modifying or deleting an object of given type.
+     * Tasks, nodes and sequences are written outside of the current {@link CommitBatch} (if there is any),
+     * because they are updated by many threads and nodes, and their rows must not stay locked.
+     * Orgs are written outside of it too, because their changes take the advisory lock of the org closure
+     * (see `m_org_closure_lock_for_change` in `postgres-new.sql`), which is held until the end of the transaction
+     * and would serialize all the org changes in the cluster for the whole duration of the batch.
+     */
+    public JdbcSession newJdbcSessionForWriting(@Nullable Class<?> type) {
+        return isWrittenOutsideCommitBatch(type) ? newStandaloneJdbcSession() : newJdbcSession();
+    }
+
+    /** Returns true if objects of given type are written outside of the commit batch, see {@link #newJdbcSessionForWriting}. */
+    public boolean isWrittenOutsideCommitBatch(@Nullable Class<?> type) {
+        return type != null && (TaskType.class.isAssignableFrom(type)
+                || NodeType.class.isAssignableFrom(type)
+                || SequenceType.class.isAssignableFrom(type)
+                || OrgType.class.isAssignableFrom(type));
     }
 
     /**
@@ -197,16 +251,33 @@ public class SqaleRepoContext extends SqlRepoContext {
                 fullTextSearchConfig, prismObject.getCompileTimeClass(), modifications);
     }
 
+    /**
+     * Returns bytes to store for the serialized form, using compact form if configured.
+     */
+    public byte[] encodeFullObject(String serializedForm) {
+        if (getJdbcRepositoryConfiguration() instanceof SqaleRepositoryConfiguration
+                && ((SqaleRepositoryConfiguration) getJdbcRepositoryConfiguration()).isFullObjectCompact()) {
+            return FullObjectCodec.encode(serializedForm);
+        }
+        return serializedForm.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns serialized form from stored bytes, regardless of the configured format.
+     */
+    public String decodeFullObject(byte[] fullObject) throws SchemaException {
+        return FullObjectCodec.decode(fullObject);
+    }
+
     public byte[] createFullResult(OperationResultType operationResult) {
         try {
             // Note that escaping invalid characters and using toString for unsupported types
             // is safe in the context of operation result serialization.
-            return createStringSerializer()
+            return encodeFullObject(createStringSerializer()
                     .options(SerializationOptions.createEscapeInvalidCharacters()
                             .serializeUnsupportedTypesAsString(true)
                             .skipWhitespaces(true))
-                    .serializeRealValue(operationResult, SchemaConstantsGenerated.C_OPERATION_RESULT)
-                    .getBytes(StandardCharsets.UTF_8);
+                    .serializeRealValue(operationResult, SchemaConstantsGenerated.C_OPERATION_RESULT));
         } catch (SchemaException e) {
             throw new SystemException("Unexpected schema exception", e);
         }
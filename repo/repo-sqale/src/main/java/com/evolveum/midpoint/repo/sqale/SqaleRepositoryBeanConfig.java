@@ -6,6 +6,9 @@
  */
 package com.evolveum.midpoint.repo.sqale;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import javax.sql.DataSource;
 
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
@@ -61,6 +64,7 @@ import com.evolveum.midpoint.repo.sqale.qmodel.system.QValuePolicyMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.tag.QMarkMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.task.QTaskMapping;
 import com.evolveum.midpoint.repo.sqlbase.DataSourceFactory;
+import com.evolveum.midpoint.repo.sqlbase.ReadReplicas;
 import com.evolveum.midpoint.repo.sqlbase.SystemConfigurationChangeDispatcherImpl;
 import com.evolveum.midpoint.repo.sqlbase.mapping.QueryModelMappingRegistry;
 import com.evolveum.midpoint.repo.sqlbase.perfmon.SqlPerformanceMonitorsCollectionImpl;
@@ -111,10 +115,13 @@ public class SqaleRepositoryBeanConfig {
     public SqaleRepoContext sqlRepoContext(
             SqaleRepositoryConfiguration repositoryConfiguration,
             SchemaService schemaService,
-            DataSource dataSource) {
+            DataSource dataSource,
+            DataSourceFactory dataSourceFactory)
+            throws RepositoryServiceFactoryException {
         QueryModelMappingRegistry mappingRegistry = new QueryModelMappingRegistry();
         SqaleRepoContext repositoryContext = new SqaleRepoContext(
                 repositoryConfiguration, dataSource, schemaService, mappingRegistry);
+        repositoryContext.setReadReplicas(createReadReplicas(repositoryConfiguration, dataSourceFactory));
 
         // logger on com.evolveum.midpoint.repo.sqlbase.querydsl.SqlLogger
         // DEBUG = show query, TRACE = add parameter values too (bindings)
@@ -197,6 +204,25 @@ public class SqaleRepositoryBeanConfig {
         return repositoryContext;
     }
 
+    private ReadReplicas createReadReplicas(
+            SqaleRepositoryConfiguration repositoryConfiguration, DataSourceFactory dataSourceFactory)
+            throws RepositoryServiceFactoryException {
+        List<String> jdbcUrls = repositoryConfiguration.getReadReplicaJdbcUrls();
+        if (jdbcUrls.isEmpty()) {
+            return null;
+        }
+
+        Map<String, DataSource> replicaDataSources = new LinkedHashMap<>();
+        for (String jdbcUrl : jdbcUrls) {
+            String name = "mp-repo-replica-" + (replicaDataSources.size() + 1);
+            replicaDataSources.put(name, dataSourceFactory.createReplicaDataSource(
+                    name, jdbcUrl, repositoryConfiguration.getReadReplicaConnectionTimeout()));
+        }
+        return new ReadReplicas(replicaDataSources,
+                repositoryConfiguration.isReadReplicaForAllSearches(),
+                repositoryConfiguration.getReadReplicaRetryInterval());
+    }
+
     @Bean
     public SqlPerformanceMonitorsCollection sqlPerformanceMonitorsCollection() {
         return new SqlPerformanceMonitorsCollectionImpl();
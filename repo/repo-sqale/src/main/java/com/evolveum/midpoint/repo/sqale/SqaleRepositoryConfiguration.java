@@ -9,6 +9,7 @@ package com.evolveum.midpoint.repo.sqale;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import javax.annotation.PostConstruct;
 
 import org.apache.commons.configuration2.Configuration;
@@ -17,6 +18,7 @@ import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.repo.api.RepositoryServiceFactoryException;
+import com.evolveum.midpoint.repo.sqale.audit.AuditWriteMode;
 import com.evolveum.midpoint.repo.sqlbase.JdbcRepositoryConfiguration;
 import com.evolveum.midpoint.repo.sqlbase.SupportedDatabase;
 import com.evolveum.midpoint.repo.sqlbase.TransactionIsolation;
@@ -30,12 +32,34 @@ import com.evolveum.midpoint.util.exception.SystemException;
 public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration {
 
     private static final String PROPERTY_SQL_DURATION_WARNING_MS = "sqlDurationWarningMs";
+    private static final String PROPERTY_ITERATIVE_SEARCH_FETCH_SIZE = "iterativeSearchFetchSize";
+    private static final String PROPERTY_FULL_OBJECT_PARSING_THREADS = "fullObjectParsingThreads";
+    private static final String PROPERTY_CLEANUP_DELETE_BATCH_SIZE = "cleanupDeleteBatchSize";
+    private static final String PROPERTY_CLEANUP_FUTURE_PARTITIONS = "cleanupFuturePartitions";
+    private static final String PROPERTY_WRITE_MODE = "writeMode";
+    private static final String PROPERTY_WRITE_QUEUE_CAPACITY = "writeQueueCapacity";
+    private static final String PROPERTY_WRITE_BATCH_SIZE = "writeBatchSize";
+    private static final String PROPERTY_WRITER_THREADS = "writerThreads";
+    private static final String PROPERTY_READ_REPLICA_JDBC_URL = "readReplicaJdbcUrl";
+    private static final String PROPERTY_READ_REPLICA_FOR_ALL_SEARCHES = "readReplicaForAllSearches";
+    private static final String PROPERTY_READ_REPLICA_CONNECTION_TIMEOUT = "readReplicaConnectionTimeout";
+    private static final String PROPERTY_READ_REPLICA_RETRY_INTERVAL = "readReplicaRetryInterval";
+    private static final String PROPERTY_APPROXIMATE_COUNT_THRESHOLD = "approximateCountThreshold";
+    private static final String PROPERTY_SLOW_QUERY_THRESHOLD_MS = "slowQueryThresholdMs";
+    private static final String PROPERTY_SLOW_QUERY_EXPLAIN = "slowQueryExplain";
+    private static final String PROPERTY_WORK_BUCKET_TABLE = "workBucketTable";
 
     private static final String DEFAULT_DRIVER = "org.postgresql.Driver";
     private static final SupportedDatabase DEFAULT_DATABASE = SupportedDatabase.POSTGRESQL;
     private static final String DEFAULT_JDBC_URL = "jdbc:postgresql://localhost:5432/midpoint";
     private static final String DEFAULT_FULL_OBJECT_FORMAT = PrismContext.LANG_JSON;
 
+    /**
+     * Value of {@link #PROPERTY_FULL_OBJECT_FORMAT} for {@link FullObjectCodec compact form} of JSON.
+     * Rows stored in other formats are still readable.
+     */
+    public static final String FULL_OBJECT_FORMAT_COMPACT = "compact";
+
     /**
      * We need at least two connections, because ext item/URI cache can start nested transaction
      * using separate connection to add missing entry into the database.
@@ -59,7 +83,41 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
 
     private static final int DEFAULT_ITERATIVE_SEARCH_PAGE_SIZE = 100;
 
+    /** Number of rows fetched at once by iterative search using a cursor (single transaction iteration method). */
+    private static final int DEFAULT_ITERATIVE_SEARCH_FETCH_SIZE = 500;
+
+    /** Parsing of full objects in search results is done by the calling thread only by default. */
+    private static final int DEFAULT_FULL_OBJECT_PARSING_THREADS = 0;
+
+    /** Audit cleanup deletes rows outside of dropped partitions in transactions of this size. */
+    private static final int DEFAULT_CLEANUP_DELETE_BATCH_SIZE = 10_000;
+
+    /** Audit cleanup makes sure there are monthly partitions for this many months, if partitioning is used. */
+    private static final int DEFAULT_CLEANUP_FUTURE_PARTITIONS = 3;
+
+    /** Audit events are written by the auditing thread in its own transaction by default. */
+    private static final AuditWriteMode DEFAULT_WRITE_MODE = AuditWriteMode.SYNC;
+
+    /** Number of audit events waiting for the writer threads, before the auditing threads must wait too. */
+    private static final int DEFAULT_WRITE_QUEUE_CAPACITY = 10_000;
+
+    /** Max number of audit events written by the writer thread in a single transaction. */
+    private static final int DEFAULT_WRITE_BATCH_SIZE = 100;
+
+    /** Each writer thread needs its own connection when writing, so one is a good start. */
+    private static final int DEFAULT_WRITER_THREADS = 1;
+
+    /** Replica that doesn't provide a connection in this time is skipped, 250 ms is the HikariCP minimum. */
+    private static final long DEFAULT_READ_REPLICA_CONNECTION_TIMEOUT = 5_000;
+
+    /** Replica that failed to provide a connection is not used for this time. */
+    private static final long DEFAULT_READ_REPLICA_RETRY_INTERVAL = 30_000;
+
+    /** Exact count of fewer rows is fast enough, planner estimates are used only for larger counts. */
+    private static final int DEFAULT_APPROXIMATE_COUNT_THRESHOLD = 100_000;
+
     private static final int DEFAULT_SQL_DURATION_WARNING_MS = 0; // 0 or less means no warning
+    private static final long DEFAULT_SLOW_QUERY_THRESHOLD_MS = 0; // 0 or less means no capture
 
     @NotNull private final Configuration configuration;
 
@@ -80,14 +138,36 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
     private Long leakDetectionThreshold;
 
     private String fullObjectFormat;
+    private boolean fullObjectCompact;
 
     private String performanceStatisticsFile;
     private int performanceStatisticsLevel;
 
     private int iterativeSearchByPagingBatchSize;
+    private int iterativeSearchFetchSize;
+    private int fullObjectParsingThreads;
     private boolean createMissingCustomColumns;
 
+    private int cleanupDeleteBatchSize;
+    private int cleanupFuturePartitions;
+
+    private AuditWriteMode writeMode;
+    private int writeQueueCapacity;
+    private int writeBatchSize;
+    private int writerThreads;
+
+    private List<String> readReplicaJdbcUrls;
+    private boolean readReplicaForAllSearches;
+    private long readReplicaConnectionTimeout;
+    private long readReplicaRetryInterval;
+
+    private int approximateCountThreshold;
+
     private long sqlDurationWarningMs; // 0 or less means no warning
+    private long slowQueryThresholdMs; // 0 or less means no capture
+    private boolean slowQueryExplain;
+
+    private boolean workBucketTable;
 
     // Provided with configuration node "midpoint.repository".
     public SqaleRepositoryConfiguration(@NotNull Configuration configuration) {
@@ -128,8 +208,10 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
         // 1ms is also HikariCP default, we use "long" for it so it must be set
         initializationFailTimeout = configuration.getLong(PROPERTY_INITIALIZATION_FAIL_TIMEOUT, 1L);
 
-        fullObjectFormat = configuration.getString(PROPERTY_FULL_OBJECT_FORMAT, DEFAULT_FULL_OBJECT_FORMAT)
+        String format = configuration.getString(PROPERTY_FULL_OBJECT_FORMAT, DEFAULT_FULL_OBJECT_FORMAT)
                 .toLowerCase(); // all language string constants are lower-cases
+        fullObjectCompact = format.equals(FULL_OBJECT_FORMAT_COMPACT);
+        fullObjectFormat = fullObjectCompact ? PrismContext.LANG_JSON : format;
 
         performanceStatisticsFile = configuration.getString(PROPERTY_PERFORMANCE_STATISTICS_FILE);
         performanceStatisticsLevel = configuration.getInt(PROPERTY_PERFORMANCE_STATISTICS_LEVEL,
@@ -137,11 +219,37 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
 
         iterativeSearchByPagingBatchSize = configuration.getInt(
                 PROPERTY_ITERATIVE_SEARCH_BY_PAGING_BATCH_SIZE, DEFAULT_ITERATIVE_SEARCH_PAGE_SIZE);
+        iterativeSearchFetchSize = configuration.getInt(
+                PROPERTY_ITERATIVE_SEARCH_FETCH_SIZE, DEFAULT_ITERATIVE_SEARCH_FETCH_SIZE);
+        fullObjectParsingThreads = configuration.getInt(
+                PROPERTY_FULL_OBJECT_PARSING_THREADS, DEFAULT_FULL_OBJECT_PARSING_THREADS);
         createMissingCustomColumns =
                 configuration.getBoolean(PROPERTY_CREATE_MISSING_CUSTOM_COLUMNS, false);
+        cleanupDeleteBatchSize = configuration.getInt(
+                PROPERTY_CLEANUP_DELETE_BATCH_SIZE, DEFAULT_CLEANUP_DELETE_BATCH_SIZE);
+        cleanupFuturePartitions = configuration.getInt(
+                PROPERTY_CLEANUP_FUTURE_PARTITIONS, DEFAULT_CLEANUP_FUTURE_PARTITIONS);
+        writeMode = AuditWriteMode.fromValue(
+                configuration.getString(PROPERTY_WRITE_MODE, DEFAULT_WRITE_MODE.value()));
+        writeQueueCapacity = configuration.getInt(PROPERTY_WRITE_QUEUE_CAPACITY, DEFAULT_WRITE_QUEUE_CAPACITY);
+        writeBatchSize = configuration.getInt(PROPERTY_WRITE_BATCH_SIZE, DEFAULT_WRITE_BATCH_SIZE);
+        writerThreads = configuration.getInt(PROPERTY_WRITER_THREADS, DEFAULT_WRITER_THREADS);
+        readReplicaJdbcUrls = configuration.getList(String.class, PROPERTY_READ_REPLICA_JDBC_URL, List.of());
+        readReplicaForAllSearches = configuration.getBoolean(PROPERTY_READ_REPLICA_FOR_ALL_SEARCHES, false);
+        readReplicaConnectionTimeout = configuration.getLong(
+                PROPERTY_READ_REPLICA_CONNECTION_TIMEOUT, DEFAULT_READ_REPLICA_CONNECTION_TIMEOUT);
+        readReplicaRetryInterval = configuration.getLong(
+                PROPERTY_READ_REPLICA_RETRY_INTERVAL, DEFAULT_READ_REPLICA_RETRY_INTERVAL);
+        approximateCountThreshold = configuration.getInt(
+                PROPERTY_APPROXIMATE_COUNT_THRESHOLD, DEFAULT_APPROXIMATE_COUNT_THRESHOLD);
 
         sqlDurationWarningMs = configuration.getLong(
                 PROPERTY_SQL_DURATION_WARNING_MS, DEFAULT_SQL_DURATION_WARNING_MS);
+        slowQueryThresholdMs = configuration.getLong(
+                PROPERTY_SLOW_QUERY_THRESHOLD_MS, DEFAULT_SLOW_QUERY_THRESHOLD_MS);
+        slowQueryExplain = configuration.getBoolean(PROPERTY_SLOW_QUERY_EXPLAIN, false);
+
+        workBucketTable = configuration.getBoolean(PROPERTY_WORK_BUCKET_TABLE, false);
 
         validateConfiguration();
     }
@@ -214,6 +322,22 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
         return fullObjectFormat;
     }
 
+    /**
+     * Returns true if fullObject (and similar columns) should be written in the compact form,
+     * see {@link FullObjectCodec}; serialization language is JSON in that case.
+     */
+    public boolean isFullObjectCompact() {
+        return fullObjectCompact;
+    }
+
+    // exists because of testing
+    public void setFullObjectCompact(boolean fullObjectCompact) {
+        this.fullObjectCompact = fullObjectCompact;
+        if (fullObjectCompact) {
+            fullObjectFormat = PrismContext.LANG_JSON;
+        }
+    }
+
     @Override
     public boolean isEmbedded() {
         return false;
@@ -296,11 +420,139 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
         this.iterativeSearchByPagingBatchSize = iterativeSearchByPagingBatchSize;
     }
 
+    /**
+     * Returns the number of rows fetched at once from the cursor when iterative search streams the results,
+     * which is the case for {@link com.evolveum.midpoint.xml.ns._public.common.common_3.IterationMethodType#SINGLE_TRANSACTION}.
+     */
+    public int getIterativeSearchFetchSize() {
+        return iterativeSearchFetchSize;
+    }
+
+    // exists because of testing
+    public void setIterativeSearchFetchSize(int iterativeSearchFetchSize) {
+        this.iterativeSearchFetchSize = iterativeSearchFetchSize;
+    }
+
+    /**
+     * Returns the number of threads parsing full objects of search results in parallel with the calling thread.
+     * Value of 0 or less means that the objects are parsed only by the calling thread.
+     */
+    public int getFullObjectParsingThreads() {
+        return fullObjectParsingThreads;
+    }
+
+    // exists because of testing
+    public void setFullObjectParsingThreads(int fullObjectParsingThreads) {
+        this.fullObjectParsingThreads = fullObjectParsingThreads;
+    }
+
     @Override
     public boolean isCreateMissingCustomColumns() {
         return createMissingCustomColumns;
     }
 
+    /**
+     * Returns the number of audit records deleted in a single transaction by the audit cleanup.
+     * Whole partitions older than the cleanup max age are dropped instead, regardless of this value.
+     */
+    public int getCleanupDeleteBatchSize() {
+        return cleanupDeleteBatchSize;
+    }
+
+    // exists because of testing
+    public void setCleanupDeleteBatchSize(int cleanupDeleteBatchSize) {
+        this.cleanupDeleteBatchSize = cleanupDeleteBatchSize;
+    }
+
+    /**
+     * Returns the number of monthly audit partitions (including the current month) created by the audit cleanup.
+     * Partitions are created only if there are some already, that is, if the audit partitioning is used.
+     * Value of 0 or less means that no partitions are created by the cleanup.
+     */
+    public int getCleanupFuturePartitions() {
+        return cleanupFuturePartitions;
+    }
+
+    // exists because of testing
+    public void setCleanupFuturePartitions(int cleanupFuturePartitions) {
+        this.cleanupFuturePartitions = cleanupFuturePartitions;
+    }
+
+    /**
+     * Returns the mode of writing audit events, see {@link AuditWriteMode}.
+     * This and other `write*` settings are used only for audit.
+     */
+    public AuditWriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    // exists because of testing
+    public void setWriteMode(AuditWriteMode writeMode) {
+        this.writeMode = writeMode;
+    }
+
+    /** Returns the capacity of the queue of audit events waiting for the writer threads. */
+    public int getWriteQueueCapacity() {
+        return writeQueueCapacity;
+    }
+
+    /** Returns the max number of audit events written by the writer thread in a single transaction. */
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    // exists because of testing
+    public void setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    /** Returns the number of threads writing audit events, if the write mode is not {@link AuditWriteMode#SYNC}. */
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    /**
+     * Returns JDBC URLs of read-only replicas of the repository database, empty if no replica is used.
+     * Replicas use the same credentials and pool settings as the main database.
+     * Only reads that can tolerate stale data are served by the replicas, see {@link #isReadReplicaForAllSearches()}.
+     */
+    public @NotNull List<String> getReadReplicaJdbcUrls() {
+        return readReplicaJdbcUrls;
+    }
+
+    /**
+     * Returns true if all searches and counts (outside of commit batch) can be served by read replicas.
+     * By default, only reads with non-zero `staleness` option are served by replicas.
+     */
+    public boolean isReadReplicaForAllSearches() {
+        return readReplicaForAllSearches;
+    }
+
+    /** Returns max time in milliseconds to wait for a replica connection before falling back to another data source. */
+    public long getReadReplicaConnectionTimeout() {
+        return readReplicaConnectionTimeout;
+    }
+
+    /** Returns time in milliseconds after which the replica that failed to provide a connection is tried again. */
+    public long getReadReplicaRetryInterval() {
+        return readReplicaRetryInterval;
+    }
+
+    /**
+     * Returns the lowest planner estimate returned for counts with
+     * {@link com.evolveum.midpoint.schema.GetOperationOptions#isApproximateCount approximate count option}.
+     * If the estimate is lower, exact count is executed instead.
+     */
+    @Override
+    public int getApproximateCountThreshold() {
+        return approximateCountThreshold;
+    }
+
+    // exists because of testing
+    public void setApproximateCountThreshold(int approximateCountThreshold) {
+        this.approximateCountThreshold = approximateCountThreshold;
+    }
+
     /**
      * Returns threshold duration for SQL, after which it should be logged on warning level.
      * Value of 0 or less means that this warning is disabled.
@@ -309,6 +561,46 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
         return sqlDurationWarningMs;
     }
 
+    /**
+     * Returns threshold duration for SQL, after which it is captured in slow query statistics
+     * of the performance monitor.
+     * Value of 0 or less means that slow queries are not captured.
+     */
+    @Override
+    public long getSlowQueryThresholdMs() {
+        return slowQueryThresholdMs;
+    }
+
+    // exists because of testing
+    public void setSlowQueryThresholdMs(long slowQueryThresholdMs) {
+        this.slowQueryThresholdMs = slowQueryThresholdMs;
+    }
+
+    /** Returns true if the first captured slow select of each kind is explained with actual execution plan. */
+    @Override
+    public boolean isSlowQueryExplain() {
+        return slowQueryExplain;
+    }
+
+    // exists because of testing
+    public void setSlowQueryExplain(boolean slowQueryExplain) {
+        this.slowQueryExplain = slowQueryExplain;
+    }
+
+    /**
+     * Returns true if buckets of distributed (multi-node) activities are stored in `m_work_bucket` table
+     * instead of the coordinator task, see {@link com.evolveum.midpoint.repo.api.WorkBucketStore}.
+     * This should not be changed while some distributed activities are running.
+     */
+    public boolean isWorkBucketTable() {
+        return workBucketTable;
+    }
+
+    // exists because of testing
+    public void setWorkBucketTable(boolean workBucketTable) {
+        this.workBucketTable = workBucketTable;
+    }
+
     /**
      * Creates a copy of provided configuration for audit and applies override from config.xml.
      * This is used when the same data source is used by audit and repository.
@@ -316,17 +608,34 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
     public static SqaleRepositoryConfiguration initForAudit(
             @NotNull SqaleRepositoryConfiguration mainRepoConfig, Configuration auditConfig) {
         SqaleRepositoryConfiguration config = new SqaleRepositoryConfiguration(auditConfig);
-        config.fullObjectFormat =
-                auditConfig.getString(PROPERTY_FULL_OBJECT_FORMAT, mainRepoConfig.fullObjectFormat)
-                        .toLowerCase();
+        String format = auditConfig.getString(PROPERTY_FULL_OBJECT_FORMAT, mainRepoConfig.fullObjectFormat)
+                .toLowerCase();
+        // audit deltas are always stored as plain text, only the language is used
+        config.fullObjectFormat = format.equals(FULL_OBJECT_FORMAT_COMPACT) ? PrismContext.LANG_JSON : format;
         config.iterativeSearchByPagingBatchSize = auditConfig.getInt(
                 PROPERTY_ITERATIVE_SEARCH_BY_PAGING_BATCH_SIZE, mainRepoConfig.iterativeSearchByPagingBatchSize);
         config.createMissingCustomColumns = auditConfig.getBoolean(
                 PROPERTY_CREATE_MISSING_CUSTOM_COLUMNS, mainRepoConfig.createMissingCustomColumns);
+        config.cleanupDeleteBatchSize = auditConfig.getInt(
+                PROPERTY_CLEANUP_DELETE_BATCH_SIZE, mainRepoConfig.cleanupDeleteBatchSize);
+        config.cleanupFuturePartitions = auditConfig.getInt(
+                PROPERTY_CLEANUP_FUTURE_PARTITIONS, mainRepoConfig.cleanupFuturePartitions);
+        config.writeMode = AuditWriteMode.fromValue(
+                auditConfig.getString(PROPERTY_WRITE_MODE, mainRepoConfig.writeMode.value()));
+        config.writeQueueCapacity = auditConfig.getInt(
+                PROPERTY_WRITE_QUEUE_CAPACITY, mainRepoConfig.writeQueueCapacity);
+        config.writeBatchSize = auditConfig.getInt(PROPERTY_WRITE_BATCH_SIZE, mainRepoConfig.writeBatchSize);
+        config.writerThreads = auditConfig.getInt(PROPERTY_WRITER_THREADS, mainRepoConfig.writerThreads);
+        config.approximateCountThreshold = auditConfig.getInt(
+                PROPERTY_APPROXIMATE_COUNT_THRESHOLD, mainRepoConfig.approximateCountThreshold);
 
         // perf stats settings must be copied to allow proper perf monitoring of audit
         config.performanceStatisticsFile = mainRepoConfig.performanceStatisticsFile;
         config.performanceStatisticsLevel = mainRepoConfig.performanceStatisticsLevel;
+        config.slowQueryThresholdMs = auditConfig.getLong(
+                PROPERTY_SLOW_QUERY_THRESHOLD_MS, mainRepoConfig.slowQueryThresholdMs);
+        config.slowQueryExplain = auditConfig.getBoolean(
+                PROPERTY_SLOW_QUERY_EXPLAIN, mainRepoConfig.slowQueryExplain);
         return config;
     }
 }
@@ -10,7 +10,6 @@ import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
 
 import static com.evolveum.midpoint.schema.GetOperationOptions.isAllowNotFound;
 
-import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
@@ -43,6 +42,7 @@ import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.*;
 import com.evolveum.midpoint.prism.query.builder.S_ConditionEntry;
+import com.evolveum.midpoint.prism.query.builder.S_MatchingRuleEntry;
 import com.evolveum.midpoint.prism.util.PrismUtil;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.repo.api.*;
@@ -51,6 +51,7 @@ import com.evolveum.midpoint.repo.sqale.mapping.SqaleTableMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.MObject;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.MObjectType;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.QObject;
+import com.evolveum.midpoint.repo.sqale.qmodel.object.QObjectMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrg;
 import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrgClosure;
 import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrgMapping;
@@ -63,6 +64,7 @@ import com.evolveum.midpoint.repo.sqale.update.AddObjectContext;
 import com.evolveum.midpoint.repo.sqale.update.RootUpdateContext;
 import com.evolveum.midpoint.repo.sqlbase.*;
 import com.evolveum.midpoint.repo.sqlbase.mapping.QueryTableMapping;
+import com.evolveum.midpoint.repo.sqlbase.perfmon.SlowQueryStatistics;
 import com.evolveum.midpoint.repo.sqlbase.querydsl.FlexibleRelationalPathBase;
 import com.evolveum.midpoint.schema.*;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
@@ -110,8 +112,14 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
     public static final int INITIAL_VERSION_NUMBER = 0;
     public static final String INITIAL_VERSION_STRING = String.valueOf(INITIAL_VERSION_NUMBER);
 
+    /** Maximum number of objects whose rows are sent to the database in one set of insert batches. */
+    private static final int MAX_OBJECTS_IN_INSERT_BATCH = 100;
+
     private static final int MAX_CONFLICT_WATCHERS = 10;
 
+    /** Slow queries with the highest total time reported in {@link #getRepositoryDiag()}. */
+    private static final int MAX_SLOW_QUERIES_IN_DIAG = 20;
+
     private static final Collection<SelectorOptions<GetOperationOptions>> GET_FOR_UPDATE_OPTIONS =
             SchemaService.get().getOperationOptionsBuilder().build();
 
@@ -122,6 +130,7 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
                     .build();
 
     private final SqlQueryExecutor sqlQueryExecutor;
+    private final SqaleWorkBucketStore workBucketStore;
 
     @Autowired private SystemConfigurationChangeDispatcher systemConfigurationChangeDispatcher;
 
@@ -135,6 +144,7 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
             SqlPerformanceMonitorsCollection sqlPerformanceMonitorsCollection) {
         super(repositoryContext, sqlPerformanceMonitorsCollection);
         this.sqlQueryExecutor = new SqlQueryExecutor(repositoryContext);
+        this.workBucketStore = new SqaleWorkBucketStore(repositoryContext, this);
     }
 
     // region getObject/getVersion
@@ -194,13 +204,16 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         return object;
     }
 
-    /** Read object with internally created JDBC session/transaction. */
+    /**
+     * Read object with internally created JDBC session/transaction.
+     * Read replica is used if the options allow stale data.
+     */
     <T extends ObjectType> T readByOid(
             Class<T> type, UUID oidUuid, Collection<SelectorOptions<GetOperationOptions>> options)
             throws SchemaException, ObjectNotFoundException {
         T object;
         try (JdbcSession jdbcSession =
-                sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
+                sqlRepoContext.newReadOnlyJdbcSession(options, false).startReadOnlyTransaction()) {
             object = readByOid(jdbcSession, type, oidUuid, options);
             jdbcSession.commit();
         }
@@ -219,19 +232,122 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
                 sqlRepoContext.getMappingBySchemaType(schemaType);
         QObject<MObject> root = rootMapping.defaultAlias();
 
+        Path<?>[] selectExpressions = rootMapping.selectExpressions(root, options);
         Tuple result = jdbcSession.newQuery()
                 .from(root)
-                .select(rootMapping.selectExpressions(root, options))
+                .select(selectExpressions)
                 .where(root.oid.eq(oid))
                 .fetchOne();
 
-        if (result == null || result.get(root.fullObject) == null) {
+        if (result == null || isFullObjectMissing(result, root, selectExpressions)) {
             throw new ObjectNotFoundException(schemaType, oid.toString(), isAllowNotFound(options));
         }
 
         return rootMapping.toSchemaObjectComplete(result, root, options, jdbcSession, false);
     }
 
+    /**
+     * Returns true if the full object was selected, but it is null.
+     * It is not selected at all when a partial object is loaded for {@link GetOperationOptions#isProjection}.
+     */
+    private boolean isFullObjectMissing(Tuple row, QObject<?> root, Path<?>[] selectExpressions) {
+        return row.get(root.fullObject) == null && Arrays.asList(selectExpressions).contains(root.fullObject);
+    }
+
+    @Override
+    public @NotNull <T extends ObjectType> SearchResultList<PrismObject<T>> getObjects(
+            @NotNull Class<T> type,
+            @NotNull Collection<String> oids,
+            @Nullable Collection<SelectorOptions<GetOperationOptions>> options,
+            @NotNull OperationResult parentResult)
+            throws SchemaException {
+
+        Objects.requireNonNull(type, "Object type must not be null.");
+        Objects.requireNonNull(oids, "OIDs must not be null.");
+        Objects.requireNonNull(parentResult, "Operation result must not be null.");
+
+        Set<String> distinctOids = new LinkedHashSet<>(oids);
+        for (String oid : distinctOids) {
+            SqaleUtils.oidToUuidMandatory(oid); // validation only
+        }
+
+        logger.debug("Getting {} objects '{}': {}",
+                distinctOids.size(), type.getSimpleName(), parentResult.getOperation());
+
+        OperationResult operationResult = parentResult.subresult(opNamePrefix + OP_GET_OBJECTS)
+                .addQualifier(type.getSimpleName())
+                .setMinor()
+                .addParam(OperationResult.PARAM_TYPE, type.getName())
+                .addParam("count", distinctOids.size())
+                .build();
+
+        try {
+            if (distinctOids.isEmpty()) {
+                return new SearchResultList<>();
+            }
+            for (String oid : distinctOids) {
+                InternalMonitor.recordRepositoryRead(type, oid);
+            }
+            return executeGetObjects(type, distinctOids, options);
+        } catch (RuntimeException e) {
+            throw handledGeneralException(e, operationResult);
+        } catch (Throwable t) {
+            recordFatalError(operationResult, t);
+            throw t;
+        } finally {
+            operationResult.close();
+        }
+    }
+
+    /**
+     * Reads all the objects with a single `oid = ANY(?)` query, so the statement is the same
+     * regardless of the OID count; the OIDs are bound as text array, PG driver can't bind UUID array.
+     */
+    private <T extends ObjectType> SearchResultList<PrismObject<T>> executeGetObjects(
+            Class<T> type,
+            Set<String> oids,
+            Collection<SelectorOptions<GetOperationOptions>> options)
+            throws SchemaException {
+        // Keyed by UUID, as the requested OIDs don't have to be in the canonical (lowercase) form.
+        Map<UUID, PrismObject<T>> objectsByOid = new HashMap<>();
+        long opHandle = registerOperationStart(OP_GET_OBJECTS, type);
+        try (JdbcSession jdbcSession =
+                sqlRepoContext.newReadOnlyJdbcSession(options, false).startReadOnlyTransaction()) {
+            SqaleTableMapping<T, QObject<MObject>, MObject> rootMapping =
+                    sqlRepoContext.getMappingBySchemaType(type);
+            QObject<MObject> root = rootMapping.defaultAlias();
+
+            Path<?>[] selectExpressions = rootMapping.selectExpressions(root, options);
+            List<Tuple> rows = jdbcSession.newQuery()
+                    .from(root)
+                    .select(selectExpressions)
+                    .where(Expressions.booleanTemplate("{0} = ANY({1}::uuid[])",
+                            root.oid, Expressions.constant(oids.toArray(String[]::new))))
+                    .fetch();
+            for (Tuple row : rows) {
+                if (!isFullObjectMissing(row, root, selectExpressions)) {
+                    PrismObject<T> object = rootMapping.toSchemaObjectComplete(
+                            row, root, options, jdbcSession, false).asPrismObject();
+                    objectsByOid.put(row.get(root.oid), object);
+                }
+            }
+            jdbcSession.commit();
+        } finally {
+            registerOperationFinish(opHandle);
+        }
+
+        SearchResultList<PrismObject<T>> objects = new SearchResultList<>(new ArrayList<>(objectsByOid.size()));
+        for (String oid : oids) {
+            // Removed, so the same object requested by differently written OIDs is returned only once.
+            PrismObject<T> object = objectsByOid.remove(UUID.fromString(oid));
+            if (object != null) {
+                invokeConflictWatchers((w) -> w.afterGetObject(object));
+                objects.add(object);
+            }
+        }
+        return objects;
+    }
+
     @Override
     public <T extends ObjectType> String getVersion(
             Class<T> type, String oid, OperationResult parentResult)
@@ -285,6 +401,84 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
             registerOperationFinish(opHandle);
         }
     }
+
+    @Override
+    public @NotNull <T extends ObjectType> Map<String, String> getVersions(
+            @NotNull Class<T> type,
+            @NotNull Collection<String> oids,
+            @NotNull OperationResult parentResult)
+            throws SchemaException {
+
+        Objects.requireNonNull(type, "Object type must not be null.");
+        Objects.requireNonNull(oids, "OIDs must not be null.");
+        Objects.requireNonNull(parentResult, "Operation result must not be null.");
+
+        Set<String> distinctOids = new LinkedHashSet<>(oids);
+        for (String oid : distinctOids) {
+            SqaleUtils.oidToUuidMandatory(oid); // validation only
+        }
+
+        logger.debug("Getting versions for {} objects '{}'.", distinctOids.size(), type.getSimpleName());
+
+        OperationResult operationResult = parentResult.subresult(opNamePrefix + OP_GET_VERSIONS)
+                .addQualifier(type.getSimpleName())
+                .setMinor()
+                .addParam(OperationResult.PARAM_TYPE, type.getName())
+                .addParam("count", distinctOids.size())
+                .build();
+
+        try {
+            if (distinctOids.isEmpty()) {
+                return new HashMap<>();
+            }
+            return executeGetVersions(type, distinctOids);
+        } catch (RuntimeException e) {
+            throw handledGeneralException(e, operationResult);
+        } catch (Throwable t) {
+            recordFatalError(operationResult, t);
+            throw t;
+        } finally {
+            operationResult.close();
+        }
+    }
+
+    /** Reads the versions with a single `oid = ANY(?)` query, like {@link #executeGetObjects} does. */
+    private <T extends ObjectType> Map<String, String> executeGetVersions(Class<T> type, Set<String> oids) {
+        Map<UUID, String> versionsByUuid = new HashMap<>();
+        long opHandle = registerOperationStart(OP_GET_VERSIONS, type);
+        try (JdbcSession jdbcSession =
+                sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
+            SqaleTableMapping<T, QObject<MObject>, MObject> rootMapping =
+                    sqlRepoContext.getMappingBySchemaType(type);
+            QObject<MObject> root = rootMapping.defaultAlias();
+
+            List<Tuple> rows = jdbcSession.newQuery()
+                    .from(root)
+                    .select(root.oid, root.version)
+                    .where(Expressions.booleanTemplate("{0} = ANY({1}::uuid[])",
+                            root.oid, Expressions.constant(oids.toArray(String[]::new))))
+                    .fetch();
+            for (Tuple row : rows) {
+                UUID uuid = Objects.requireNonNull(row.get(root.oid));
+                String version = Objects.requireNonNull(row.get(root.version)).toString();
+                invokeConflictWatchers((w) -> w.afterGetVersion(uuid.toString(), version));
+                versionsByUuid.put(uuid, version);
+            }
+            jdbcSession.commit();
+        } finally {
+            registerOperationFinish(opHandle);
+        }
+
+        // Keyed by the requested OIDs, which don't have to be in the canonical (lowercase) form.
+        Map<String, String> versions = new HashMap<>();
+        for (String oid : oids) {
+            String version = versionsByUuid.get(UUID.fromString(oid));
+            if (version != null) {
+                versions.put(oid, version);
+            }
+        }
+        return versions;
+    }
     // endregion
 
     // region Add/modify/delete
@@ -303,45 +497,189 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
             options = new RepoAddOptions();
         }
 
-        OperationResult operationResult = parentResult.subresult(opNamePrefix + OP_ADD_OBJECT)
+        OperationResult operationResult = createAddObjectResult(object, options, parentResult);
+
+        try {
+            checkObjectToAdd(object, options);
+
+            return object.getOid() == null || !options.isOverwrite()
+                    ? executeAddObject(object)
+                    : executeOverwriteObject(object);
+        } catch (RepositoryException | RuntimeException e) {
+            throw handledGeneralException(e, operationResult);
+        } catch (Throwable t) {
+            recordFatalError(operationResult, t);
+            throw t;
+        } finally {
+            operationResult.close();
+            OperationLogger.logAdd(object, options, operationResult);
+        }
+    }
+
+    private OperationResult createAddObjectResult(@NotNull PrismObject<? extends ObjectType> object,
+            @NotNull RepoAddOptions options, @NotNull OperationResult parentResult) {
+        return parentResult.subresult(opNamePrefix + OP_ADD_OBJECT)
                 .addQualifier(object.asObjectable().getClass().getSimpleName())
                 .addParam(OperationResult.PARAM_OBJECT, object)
                 .addParam(OperationResult.PARAM_OPTIONS, options.toString())
                 .build();
+    }
 
-        try {
-            PolyString name = object.getName();
-            if (name == null || Strings.isNullOrEmpty(name.getOrig())) {
-                throw new SchemaException("Attempt to add object without name.");
-            }
+    private void checkObjectToAdd(@NotNull PrismObject<? extends ObjectType> object, @NotNull RepoAddOptions options)
+            throws SchemaException {
+        PolyString name = object.getName();
+        if (name == null || Strings.isNullOrEmpty(name.getOrig())) {
+            throw new SchemaException("Attempt to add object without name.");
+        }
 
-            //noinspection ConstantConditions
-            logger.debug(
-                    "Adding object type '{}', overwrite={}, allowUnencryptedValues={}, name={} - {}",
-                    object.getCompileTimeClass().getSimpleName(), options.isOverwrite(),
-                    options.isAllowUnencryptedValues(), name.getOrig(), name.getNorm());
+        //noinspection ConstantConditions
+        logger.debug(
+                "Adding object type '{}', overwrite={}, allowUnencryptedValues={}, name={} - {}",
+                object.getCompileTimeClass().getSimpleName(), options.isOverwrite(),
+                options.isAllowUnencryptedValues(), name.getOrig(), name.getNorm());
 
-            if (InternalsConfig.encryptionChecks && !RepoAddOptions.isAllowUnencryptedValues(options)) {
-                CryptoUtil.checkEncrypted(object);
+        if (InternalsConfig.encryptionChecks && !RepoAddOptions.isAllowUnencryptedValues(options)) {
+            CryptoUtil.checkEncrypted(object);
+        }
+
+        if (InternalsConfig.consistencyChecks) {
+            object.checkConsistence(ConsistencyCheckScope.THOROUGH);
+        } else {
+            object.checkConsistence(ConsistencyCheckScope.MANDATORY_CHECKS_ONLY);
+        }
+    }
+
+    /**
+     * The objects are inserted in a single transaction, with rows for each table sent in JDBC batches,
+     * see {@link JdbcSession#startInsertBatching()}.
+     * If that fails, the transaction is rolled back and the objects are added one by one,
+     * so that the failures are attributed to the right objects.
+     *
+     * Objects to be overwritten and lookup tables (whose rows are upserted) are always added one by one.
+     */
+    @Override
+    public @NotNull List<AddObjectOutcome> addObjects(
+            @NotNull List<? extends PrismObject<? extends ObjectType>> objects,
+            @Nullable RepoAddOptions options,
+            @NotNull OperationResult parentResult) {
+
+        Objects.requireNonNull(objects, "Objects must not be null.");
+        Objects.requireNonNull(parentResult, "Operation result must not be null.");
+
+        if (RepoAddOptions.isOverwrite(options)) {
+            return RepositoryService.super.addObjects(objects, options, parentResult);
+        }
+        RepoAddOptions addOptions = options != null ? options : new RepoAddOptions();
+
+        OperationResult operationResult = parentResult.subresult(opNamePrefix + OP_ADD_OBJECTS)
+                .addParam("objects", objects.size())
+                .addParam(OperationResult.PARAM_OPTIONS, addOptions.toString())
+                .build();
+        try {
+            AddObjectOutcome[] outcomes = new AddObjectOutcome[objects.size()];
+            List<Integer> toInsertInBatch = new ArrayList<>();
+            for (int i = 0; i < objects.size(); i++) {
+                PrismObject<? extends ObjectType> object = objects.get(i);
+                if (LookupTableType.class.equals(object.getCompileTimeClass())) {
+                    continue;
+                }
+                try {
+                    checkObjectToAdd(object, addOptions);
+                    toInsertInBatch.add(i);
+                } catch (SchemaException | RuntimeException e) {
+                    // Reported in the same way as if the object was added by addObject.
+                    OperationResult objectResult = createAddObjectResult(object, addOptions, operationResult);
+                    recordFatalError(objectResult, e);
+                    objectResult.close();
+                    OperationLogger.logAdd(object, addOptions, objectResult);
+                    outcomes[i] = AddObjectOutcome.failure(e);
+                }
             }
 
-            if (InternalsConfig.consistencyChecks) {
-                object.checkConsistence(ConsistencyCheckScope.THOROUGH);
-            } else {
-                object.checkConsistence(ConsistencyCheckScope.MANDATORY_CHECKS_ONLY);
+            // Objects written outside the commit batch (e.g. tasks) can't share the JDBC session with the others.
+            Map<Boolean, List<Integer>> toInsertBySession = toInsertInBatch.stream()
+                    .collect(Collectors.partitioningBy(
+                            i -> sqlRepoContext.isWrittenOutsideCommitBatch(objects.get(i).getCompileTimeClass())));
+            for (List<Integer> indices : toInsertBySession.values()) {
+                if (!indices.isEmpty()) {
+                    executeAddObjectsInBatch(objects, indices, outcomes, addOptions, operationResult);
+                }
             }
 
-            return object.getOid() == null || !options.isOverwrite()
-                    ? executeAddObject(object)
-                    : executeOverwriteObject(object);
-        } catch (RepositoryException | RuntimeException e) {
-            throw handledGeneralException(e, operationResult);
+            for (int i = 0; i < objects.size(); i++) {
+                if (outcomes[i] == null) {
+                    PrismObject<? extends ObjectType> object = objects.get(i);
+                    try {
+                        outcomes[i] = AddObjectOutcome.success(addObject(object, addOptions, operationResult));
+                    } catch (ObjectAlreadyExistsException | SchemaException | RuntimeException e) {
+                        outcomes[i] = AddObjectOutcome.failure(e);
+                    }
+                }
+            }
+            return Arrays.asList(outcomes);
         } catch (Throwable t) {
             recordFatalError(operationResult, t);
             throw t;
         } finally {
             operationResult.close();
-            OperationLogger.logAdd(object, options, operationResult);
+        }
+    }
+
+    /**
+     * Fills in the outcomes for given objects if the batch succeeds; leaves them untouched otherwise.
+     */
+    private void executeAddObjectsInBatch(
+            @NotNull List<? extends PrismObject<? extends ObjectType>> objects,
+            @NotNull List<Integer> indices,
+            @NotNull AddObjectOutcome[] outcomes,
+            @NotNull RepoAddOptions options,
+            @NotNull OperationResult operationResult) {
+
+        long opHandle = registerOperationStart(OP_ADD_OBJECTS, ObjectType.class);
+        List<Integer> withGeneratedOid = new ArrayList<>();
+        // All the objects are written either within the commit batch or outside of it, see addObjects.
+        Class<?> type = objects.get(indices.get(0)).getCompileTimeClass();
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSessionForWriting(type).startTransaction()) {
+            jdbcSession.startInsertBatching();
+            Class<?> currentType = null;
+            int objectsInBatch = 0;
+            for (int index : indices) {
+                PrismObject<? extends ObjectType> object = objects.get(index);
+                if (object.getCompileTimeClass() != currentType || objectsInBatch >= MAX_OBJECTS_IN_INSERT_BATCH) {
+                    // Rows of the tables used so far (e.g. m_assignment) may refer to the main rows of this type,
+                    // so they can't be executed before them.
+                    jdbcSession.flushInsertBatches();
+                    currentType = object.getCompileTimeClass();
+                    objectsInBatch = 0;
+                }
+                if (object.getOid() == null) {
+                    withGeneratedOid.add(index);
+                }
+                new AddObjectContext<>(sqlRepoContext, object)
+                        .executeBatched(jdbcSession);
+                objectsInBatch++;
+            }
+            jdbcSession.flushInsertBatches();
+            jdbcSession.commit();
+        } catch (SchemaException | RuntimeException e) {
+            logger.debug("Batch insert of {} objects failed, they will be added one by one: {}",
+                    indices.size(), e.getMessage(), e);
+            for (int index : withGeneratedOid) {
+                objects.get(index).setOid(null);
+            }
+            return;
+        } finally {
+            registerOperationFinish(opHandle);
+        }
+
+        for (int index : indices) {
+            PrismObject<? extends ObjectType> object = objects.get(index);
+            String oid = object.getOid();
+            outcomes[index] = AddObjectOutcome.success(oid);
+            invokeConflictWatchers((w) -> w.afterAddObject(oid, object));
+            OperationResult objectResult = createAddObjectResult(object, options, operationResult);
+            objectResult.recordSuccess();
+            OperationLogger.logAdd(object, options, objectResult);
         }
     }
 
@@ -369,7 +707,8 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         UUID oidUuid = SqaleUtils.oidToUuidMandatory(oid);
 
         long opHandle = registerOperationStart(OP_ADD_OBJECT_OVERWRITE, newObject);
-        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+        try (JdbcSession jdbcSession =
+                sqlRepoContext.newJdbcSessionForWriting(newObject.getCompileTimeClass()).startTransaction()) {
             try {
                 //noinspection ConstantConditions
                 RootUpdateContext<T, QObject<MObject>, MObject> updateContext =
@@ -482,7 +821,7 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
 
         long opHandle = registerOperationStart(OP_MODIFY_OBJECT, type);
 
-        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSessionForWriting(type).startTransaction()) {
             RootUpdateContext<T, QObject<MObject>, MObject> updateContext =
                     prepareUpdateContext(jdbcSession, type, modifications, oidUuid, options);
 
@@ -556,7 +895,7 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
 
         long opHandle = registerOperationStart(OP_MODIFY_OBJECT_DYNAMICALLY, type);
 
-        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSessionForWriting(type).startTransaction()) {
             RootUpdateContext<T, QObject<MObject>, MObject> updateContext =
                     prepareUpdateContext(jdbcSession, type, oidUuid, getOptions, modifyOptions);
 
@@ -829,7 +1168,7 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
             Class<T> type, String oid, UUID oidUuid) throws ObjectNotFoundException {
 
         long opHandle = registerOperationStart(OP_DELETE_OBJECT, type);
-        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSessionForWriting(type).startTransaction()) {
             DeleteObjectResult result = deleteObjectAttempt(type, oidUuid, jdbcSession);
             invokeConflictWatchers((w) -> w.afterDeleteObject(oid));
 
@@ -844,24 +1183,34 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
     DeleteObjectResult deleteObjectAttempt(Class<T> type, UUID oid, JdbcSession jdbcSession)
             throws ObjectNotFoundException {
 
-        QueryTableMapping<T, Q, R> mapping = sqlRepoContext.getMappingBySchemaType(type);
+        QObjectMapping<T, Q, R> mapping = sqlRepoContext.getMappingBySchemaType(type);
         Q entityPath = mapping.defaultAlias();
-        byte[] fullObject = jdbcSession.newQuery()
-                .select(entityPath.fullObject)
+        Tuple row = jdbcSession.newQuery()
+                .select(mapping.selectExpressions(entityPath, null))
                 .forUpdate()
                 .from(entityPath)
                 .where(entityPath.oid.eq(oid))
                 .fetchOne();
-        if (fullObject == null) {
+        if (row == null || row.get(entityPath.fullObject) == null) {
             throw new ObjectNotFoundException(type, oid.toString(), false);
         }
 
+        // Must be done before the delete, column-only items may need to be selected for objects of subtypes.
+        String serializedForm;
+        try {
+            serializedForm = mapping.serializeForDeleteResult(row, entityPath, jdbcSession);
+        } catch (SchemaException e) {
+            // The result is informative only, the corrupted object is deleted anyway.
+            logger.warn("Couldn't decode full object of deleted {} {}: {}", type.getSimpleName(), oid, e.getMessage());
+            serializedForm = null;
+        }
+
         // object delete cascades to all owned related rows
         jdbcSession.newDelete(entityPath)
                 .where(entityPath.oid.eq(oid))
                 .execute();
 
-        return new DeleteObjectResult(new String(fullObject, StandardCharsets.UTF_8));
+        return new DeleteObjectResult(serializedForm);
     }
     // endregion
 
@@ -993,6 +1342,10 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
                 return new SearchResultMetadata().approxNumberOfAllResults(0);
             }
 
+            if (GetOperationOptions.getIterationMethod(SelectorOptions.findRootOptions(options))
+                    == IterationMethodType.SINGLE_TRANSACTION) {
+                return executeSearchObjectsStreaming(type, query, handler, options, operationResult);
+            }
             return executeSearchObjectsIterative(type, query, handler, options, operationResult);
         } catch (RepositoryException | RuntimeException e) {
             throw handledGeneralException(e, operationResult);
@@ -1022,10 +1375,6 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
             List<? extends ObjectOrdering> providedOrdering = originalPaging != null
                     ? originalPaging.getOrderingInstructions()
                     : null;
-            if (providedOrdering != null && providedOrdering.size() > 1) {
-                throw new RepositoryException("searchObjectsIterative() does not support ordering"
-                        + " by multiple paths (yet): " + providedOrdering);
-            }
 
             ObjectQuery pagedQuery = prismContext().queryFactory().createQuery();
             ObjectPaging paging = prismContext().queryFactory().createPaging();
@@ -1033,11 +1382,12 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
                 originalPaging.getOrderingInstructions().forEach(o ->
                         paging.addOrderingInstruction(o.getOrderBy(), o.getDirection()));
             }
-            // We want to order OID in the same direction as the provided ordering.
+            // We want to order OID in the same direction as the (last) provided ordering.
             // This is also reflected by GT/LT conditions in lastOidCondition() method.
             paging.addOrderingInstruction(OID_PATH,
-                    providedOrdering != null && providedOrdering.size() == 1
-                            && providedOrdering.get(0).getDirection() == OrderDirection.DESCENDING
+                    providedOrdering != null && !providedOrdering.isEmpty()
+                            && providedOrdering.get(providedOrdering.size() - 1).getDirection()
+                            == OrderDirection.DESCENDING
                             ? OrderDirection.DESCENDING : OrderDirection.ASCENDING);
             pagedQuery.setPaging(paging);
 
@@ -1100,6 +1450,52 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         }
     }
 
+    /**
+     * Iterative search using a single query with a server-side cursor, used for
+     * {@link IterationMethodType#SINGLE_TRANSACTION} iteration method.
+     * Rows are fetched by {@link SqaleRepositoryConfiguration#getIterativeSearchFetchSize()}, each fetched chunk
+     * is preprocessed at once (and full objects are parsed in parallel, if enabled), and each object is finished
+     * just before it is passed to the handler, so the memory used does not depend on the number of objects.
+     * The handler runs while the cursor's connection and transaction are held, see {@link SqlQueryExecutor#iterate}.
+     *
+     * The provided paging (ordering, offset and max size) is used as is.
+     * Unlike the default method, the whole iteration is a single (read-only) transaction, which may be
+     * long-running, and the objects are not re-read after the modifications made by the handler.
+     */
+    private <T extends ObjectType> SearchResultMetadata executeSearchObjectsStreaming(
+            Class<T> type,
+            ObjectQuery query,
+            ResultHandler<T> handler,
+            Collection<SelectorOptions<GetOperationOptions>> options,
+            OperationResult operationResult) throws SchemaException, RepositoryException {
+
+        try {
+            PrismObject<?>[] lastProcessedObject = { null };
+            boolean[] stopped = { false };
+            int handledObjects = sqlQueryExecutor.iterate(
+                    SqaleQueryContext.from(type, sqlRepoContext),
+                    query,
+                    options,
+                    repositoryConfiguration().getIterativeSearchFetchSize(),
+                    o -> {
+                        //noinspection unchecked
+                        PrismObject<T> object = (PrismObject<T>) o.asPrismObject();
+                        lastProcessedObject[0] = object;
+                        stopped[0] = !handler.handle(object, operationResult);
+                        return !stopped[0];
+                    });
+
+            return new SearchResultMetadata()
+                    .approxNumberOfAllResults(handledObjects)
+                    .pagingCookie(lastProcessedObject[0] != null ? lastProcessedObject[0].getOid() : null)
+                    .partialResults(stopped[0]);
+        } finally {
+            // As for the paged search, only the operation count is recorded, with zero/minimal time.
+            long opHandle = registerOperationStart(OP_SEARCH_OBJECTS_ITERATIVE, type);
+            registerOperationFinish(opHandle);
+        }
+    }
+
     /**
      * Without requested ordering, this is easy: `WHERE oid > lastOid`
      *
@@ -1114,119 +1510,130 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
      * OR (X = last.X AND Y = last.Y ...if all equal AND OID > last.OID)
      * ----
      *
-     * This is suddenly much more fun, isn't it?
-     * Of course the condition `>` or `<` depends on `ASC` vs `DESC`.
+     * Of course the condition `>` or `<` depends on `ASC` vs `DESC`; the OID follows the direction
+     * of the last provided ordering, see {@link #executeSearchObjectsIterative}.
+     *
+     * Null values are taken into account too, PostgreSQL sorts them as if larger than any non-null value:
      *
-     * TODO: Currently, single path ordering is supported. Finish multi-path too.
-     * TODO: What about nullable columns?
+     * * for `ASC`, `X > last.X` is in fact `X > last.X OR X IS NULL`, and nothing is greater than null;
+     * * for `DESC`, `X < last.X` is just that, and anything non-null is "less" than null;
+     * * `X = last.X` is `X IS NULL` if the last value is null.
+     *
+     * As there is no OFFSET, each page is found using the index for the ordering (if there is one),
+     * and the cost of the page query does not depend on how many pages were already processed.
+     * Also, the SQL of all the pages after the first one is the same (only parameters differ),
+     * so the JDBC driver switches to a server-side prepared statement for it soon.
      */
     @Nullable
     private <T extends ObjectType> ObjectFilter lastOidCondition(
-            PrismObject<T> lastProcessedObject, List<? extends ObjectOrdering> providedOrdering) {
+            PrismObject<T> lastProcessedObject, List<? extends ObjectOrdering> providedOrdering)
+            throws SchemaException {
         if (lastProcessedObject == null) {
             return null;
         }
 
+        Class<T> type = lastProcessedObject.getCompileTimeClass();
         String lastProcessedOid = lastProcessedObject.getOid();
         if (providedOrdering == null || providedOrdering.isEmpty()) {
             return prismContext()
-                    .queryFor(lastProcessedObject.getCompileTimeClass())
+                    .queryFor(type)
                     .item(OID_PATH).gt(lastProcessedOid).buildFilter();
         }
 
-        if (providedOrdering.size() == 1) {
-            ObjectOrdering objectOrdering = providedOrdering.get(0);
+        QueryFactory queryFactory = prismContext().queryFactory();
+        List<ObjectFilter> orConditions = new ArrayList<>();
+        List<ObjectFilter> equalToLast = new ArrayList<>();
+        for (ObjectOrdering objectOrdering : providedOrdering) {
             ItemPath orderByPath = objectOrdering.getOrderBy();
             boolean asc = objectOrdering.getDirection() != OrderDirection.DESCENDING; // null => asc
-            S_ConditionEntry filter = prismContext()
-                    .queryFor(lastProcessedObject.getCompileTimeClass())
-                    .item(orderByPath);
-            //noinspection rawtypes
-            Item<PrismValue, ItemDefinition<Item>> item = lastProcessedObject.findItem(orderByPath);
-            if (item.size() > 1) {
+            Item<?, ?> item = findOrderingItem(lastProcessedObject, orderByPath);
+            if (item != null && item.size() > 1) {
                 throw new IllegalArgumentException(
                         "Multi-value property for ordering is forbidden - item: " + item);
-            } else if (item.isEmpty()) {
-                // TODO what if it's nullable? is it null-first or last?
-                // See: https://www.postgresql.org/docs/13/queries-order.html
-                // "By default, null values sort as if larger than any non-null value; that is,
-                // NULLS FIRST is the default for DESC order, and NULLS LAST otherwise."
-            } else {
-                /*
-                IMPL NOTE: Compare this code with SqaleAuditService.iterativeSearchCondition, there is a couple of differences.
-                This one seems bloated, but each branch is simple; on the other hand it's not obvious what is different in each.
-                Also, audit version does not require polystring treatment.
-                Finally, this works for a single provided ordering, but not for multiple (unsupported commented code lower).
-                 */
-                boolean isPolyString = QNameUtil.match(
-                        PolyStringType.COMPLEX_TYPE, item.getDefinition().getTypeName());
-                Object realValue = item.getRealValue();
-                if (isPolyString) {
-                    // We need to use matchingOrig for polystring, see MID-7860
-                    if (asc) {
-                        return filter.gt(realValue).matchingOrig().or()
-                                .block()
-                                .item(orderByPath).eq(realValue).matchingOrig()
-                                .and()
-                                .item(OID_PATH).gt(lastProcessedOid)
-                                .endBlock()
-                                .buildFilter();
-                    } else {
-                        return filter.lt(realValue).matchingOrig().or()
-                                .block()
-                                .item(orderByPath).eq(realValue).matchingOrig()
-                                .and()
-                                .item(OID_PATH).lt(lastProcessedOid)
-                                .endBlock()
-                                .buildFilter();
-                    }
-                } else {
-                    if (asc) {
-                        return filter.gt(realValue).or()
-                                .block()
-                                .item(orderByPath).eq(realValue)
-                                .and()
-                                .item(OID_PATH).gt(lastProcessedOid)
-                                .endBlock()
-                                .buildFilter();
-                    } else {
-                        return filter.lt(realValue).or()
-                                .block()
-                                .item(orderByPath).eq(realValue)
-                                .and()
-                                .item(OID_PATH).lt(lastProcessedOid)
-                                .endBlock()
-                                .buildFilter();
-                    }
-                }
             }
+
+            if (item == null || item.isEmpty()) {
+                if (!asc) {
+                    orConditions.add(conjunction(queryFactory, equalToLast,
+                            prismContext().queryFor(type).not().item(orderByPath).isNull().buildFilter()));
+                } // else nothing is after null in ASC order
+                equalToLast.add(prismContext().queryFor(type).item(orderByPath).isNull().buildFilter());
+                continue;
+            }
+
+            // We need to use matchingOrig for polystring, see MID-7860
+            boolean isPolyString = QNameUtil.match(
+                    PolyStringType.COMPLEX_TYPE, item.getDefinition().getTypeName());
+            Object realValue = item.getRealValue();
+            S_ConditionEntry entry = prismContext().queryFor(type).item(orderByPath);
+            S_MatchingRuleEntry afterLast = asc ? entry.gt(realValue) : entry.lt(realValue);
+            ObjectFilter afterLastFilter = (isPolyString ? afterLast.matchingOrig() : afterLast)
+                    .buildFilter();
+            if (asc) {
+                afterLastFilter = queryFactory.createOr(afterLastFilter,
+                        prismContext().queryFor(type).item(orderByPath).isNull().buildFilter());
+            }
+            orConditions.add(conjunction(queryFactory, equalToLast, afterLastFilter));
+
+            S_MatchingRuleEntry equal = prismContext().queryFor(type).item(orderByPath).eq(realValue);
+            equalToLast.add((isPolyString ? equal.matchingOrig() : equal).buildFilter());
         }
 
-        throw new IllegalArgumentException(
-                "Shouldn't get here with check in executeSearchObjectsIterative()");
-        /*
-        TODO: Unfinished - this is painful with fluent API. Should I call
-         prismContext().queryFor(lastProcessedObject.getCompileTimeClass()) for each component
-         and then use ObjectQueryUtil.filterAnd/Or?
-        // we need to handle the complicated case with externally provided ordering
-        S_FilterEntryOrEmpty orBlock = prismContext()
-                .queryFor(lastProcessedObject.getCompileTimeClass()).block();
-        orLoop:
-        for (ObjectOrdering orMasterOrdering : providedOrdering) {
-            Iterator<? extends ObjectOrdering> iterator = providedOrdering.iterator();
-            while (iterator.hasNext()) {
-                S_FilterEntryOrEmpty andBlock = orBlock.block();
-                ObjectOrdering ordering = iterator.next();
-                if (ordering.equals(orMasterOrdering)) {
-                    // ...
-                    continue orLoop;
+        S_ConditionEntry oidEntry = prismContext().queryFor(type).item(OID_PATH);
+        orConditions.add(conjunction(queryFactory, equalToLast,
+                providedOrdering.get(providedOrdering.size() - 1).getDirection() == OrderDirection.DESCENDING
+                        ? oidEntry.lt(lastProcessedOid).buildFilter()
+                        : oidEntry.gt(lastProcessedOid).buildFilter()));
+        return orConditions.size() == 1 ? orConditions.get(0) : queryFactory.createOr(orConditions);
+    }
+
+    /**
+     * Finds the ordering item in the last processed object. If the path goes through a reference target
+     * (e.g. `tenantRef/@/name`), the target object is read and the rest of the path is resolved in it.
+     * Missing reference or its target means null value, as it is for the outer join used for the ordering.
+     */
+    private Item<?, ?> findOrderingItem(PrismObject<?> object, ItemPath orderByPath) throws SchemaException {
+        for (int i = 0; i < orderByPath.size(); i++) {
+            if (!ItemPath.isObjectReference(orderByPath.getSegment(i))) {
+                continue;
+            }
+            PrismReference reference = object.findReference(orderByPath.firstN(i));
+            if (reference == null || reference.isEmpty()) {
+                return null;
+            }
+            if (reference.size() > 1) {
+                throw new IllegalArgumentException(
+                        "Multi-value reference for ordering is forbidden - item: " + reference);
+            }
+            PrismReferenceValue refValue = reference.getValue();
+            PrismObject<?> target = refValue.getObject();
+            if (target == null) {
+                QName targetTypeName = refValue.getTargetType() != null
+                        ? refValue.getTargetType()
+                        : reference.getDefinition().getTargetTypeName();
+                Class<? extends ObjectType> targetType = targetTypeName != null
+                        ? sqlRepoContext.qNameToSchemaClass(targetTypeName)
+                        : ObjectType.class;
+                try {
+                    target = readByOid(targetType, SqaleUtils.oidToUuidMandatory(refValue.getOid()), null)
+                            .asPrismObject();
+                } catch (ObjectNotFoundException e) {
+                    return null;
                 }
-                orBlock = andBlock.endBlock();
             }
+            return findOrderingItem(target, orderByPath.rest(i + 1));
+        }
+        return object.findItem(orderByPath);
+    }
 
+    private ObjectFilter conjunction(
+            QueryFactory queryFactory, List<ObjectFilter> conditions, ObjectFilter lastCondition) {
+        if (conditions.isEmpty()) {
+            return lastCondition;
         }
-        return orBlock.endBlock().buildFilter();
-        */
+        List<ObjectFilter> allConditions = new ArrayList<>(conditions);
+        allConditions.add(lastCondition);
+        return queryFactory.createAnd(allConditions);
     }
 
     @Override
@@ -1587,7 +1994,8 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
             throws ObjectNotFoundException, SchemaException, RepositoryException {
         long opHandle = registerOperationStart(OP_ADVANCE_SEQUENCE, SequenceType.class);
 
-        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+        try (JdbcSession jdbcSession =
+                sqlRepoContext.newJdbcSessionForWriting(SequenceType.class).startTransaction()) {
             RootUpdateContext<SequenceType, QObject<MObject>, MObject> updateContext =
                     prepareUpdateContext(jdbcSession, SequenceType.class, oid);
             SequenceType sequence = updateContext.getPrismObject().asObjectable();
@@ -1643,7 +2051,8 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         long opHandle = registerOperationStart(
                 OP_RETURN_UNUSED_VALUES_TO_SEQUENCE, SequenceType.class);
 
-        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+        try (JdbcSession jdbcSession =
+                sqlRepoContext.newJdbcSessionForWriting(SequenceType.class).startTransaction()) {
             RootUpdateContext<SequenceType, QObject<MObject>, MObject> updateContext =
                     prepareUpdateContext(jdbcSession, SequenceType.class, oid);
             SequenceType sequence = updateContext.getPrismObject().asObjectable();
@@ -1676,6 +2085,59 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         }
     }
 
+    // region Commit batches
+    @Override
+    public boolean beginCommitBatch(int maxCheckpoints, long maxDelayMillis) {
+        return sqlRepoContext.beginCommitBatch(maxCheckpoints, maxDelayMillis);
+    }
+
+    @Override
+    public void commitBatchCheckpoint() {
+        CommitBatch commitBatch = sqlRepoContext.getCommitBatch();
+        if (commitBatch != null) {
+            commitBatch.checkpoint();
+        }
+    }
+
+    @Override
+    public void flushCommitBatch() {
+        CommitBatch commitBatch = sqlRepoContext.getCommitBatch();
+        if (commitBatch != null) {
+            commitBatch.commit();
+        }
+    }
+
+    @Override
+    public void endCommitBatch() {
+        sqlRepoContext.endCommitBatch();
+    }
+
+    @Override
+    public void executeAfterCommit(@NotNull Runnable action, boolean evenIfFailed) {
+        sqlRepoContext.executeAfterCommit(action, evenIfFailed);
+    }
+
+    @Override
+    public void executeAfterCommit(@NotNull Runnable action, @NotNull Runnable onFailure) {
+        sqlRepoContext.executeAfterCommit(action, onFailure);
+    }
+
+    @Override
+    public boolean hasUncommittedModifications() {
+        return sqlRepoContext.hasUncommittedModifications();
+    }
+
+    @Override
+    public boolean isInCommitBatch() {
+        return sqlRepoContext.getCommitBatch() != null;
+    }
+    // endregion
+
+    @Override
+    public @Nullable WorkBucketStore getWorkBucketStore() {
+        return repositoryConfiguration().isWorkBucketTable() ? workBucketStore : null;
+    }
+
     @Override
     public RepositoryDiag getRepositoryDiag() {
         logger.debug("Getting repository diagnostics.");
@@ -1725,6 +2187,19 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
                     String.valueOf(System.currentTimeMillis() - startMs)));
         }
 
+        if (performanceMonitor != null) {
+            List<SlowQueryStatistics> slowQueries = performanceMonitor.getSlowQueryStatistics();
+            for (int i = 0; i < Math.min(slowQueries.size(), MAX_SLOW_QUERIES_IN_DIAG); i++) {
+                details.add(new LabeledString(String.format("slowQuery.%02d", i + 1),
+                        slowQueries.get(i).toString()));
+            }
+        }
+        // Gauges of all monitors, e.g. the audit writer queue depth; audit has its own monitor.
+        if (sqlPerformanceMonitorsCollection != null) {
+            sqlPerformanceMonitorsCollection.getGaugeValues().forEach((name, value) ->
+                    details.add(new LabeledString("gauge." + name, String.valueOf(value))));
+        }
+
         details.sort((o1, o2) -> String.CASE_INSENSITIVE_ORDER.compare(o1.getLabel(), o2.getLabel()));
 
         return diag;
@@ -1796,7 +2271,7 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
                     sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
                 QOrgClosure oc = new QOrgClosure();
                 closureCount = jdbcSession.newQuery().from(oc).fetchCount();
-                // this is CTE used also for m_org_closure materialized view (here with count)
+                // this is CTE similar to the full rebuild of m_org_closure (here with count)
                 QOrg o = QOrgMapping.getOrgMapping().defaultAlias();
                 QObjectReference<?> ref = QObjectReferenceMapping.getForParentOrg().newAlias("ref");
                 QObjectReference<?> par = QObjectReferenceMapping.getForParentOrg().newAlias("par");
@@ -2045,6 +2520,11 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         systemConfigurationChangeDispatcher.dispatch(true, true, parentResult);
     }
 
+    /**
+     * Conflict watchers are invoked right after the operation, even in a commit batch: they are thread-specific
+     * and track the versions seen by the current thread, which sees its own uncommitted modifications.
+     * If the batch commit fails, the activity is stopped, so their state is not used any more.
+     */
     private void invokeConflictWatchers(Consumer<ConflictWatcherImpl> consumer) {
         conflictWatchersThreadLocal.get().forEach(consumer);
     }
@@ -55,6 +55,8 @@ public class SqaleServiceBase {
                 repoConfig.getPerformanceStatisticsLevel(),
                 repoConfig.getPerformanceStatisticsFile());
         sqlPerformanceMonitorsCollection.register(performanceMonitor);
+        // for data source and slow query statistics
+        sqlRepoContext.setPerformanceMonitor(performanceMonitor);
     }
 
     public SqaleRepoContext sqlRepoContext() {
@@ -144,6 +146,7 @@ public class SqaleServiceBase {
         if (performanceMonitor != null) {
             performanceMonitor.shutdown();
             sqlPerformanceMonitorsCollection.deregister(performanceMonitor);
+            sqlRepoContext.setPerformanceMonitor(null);
             performanceMonitor = null;
         }
     }
@@ -0,0 +1,510 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale;
+
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketStateType.*;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.querydsl.core.QueryFlag;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.sql.SQLInsertClause;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.SerializationOptions;
+import com.evolveum.midpoint.repo.api.WorkBucketStore;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.MWorkBucket;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.QWorkBucket;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.QWorkBucketActivity;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.repo.sqlbase.perfmon.SqlPerformanceMonitorImpl;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.result.OperationResultBuilder;
+import com.evolveum.midpoint.schema.util.task.ActivityPath;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.TaskType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketStateType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketType;
+
+/**
+ * Implementation of {@link WorkBucketStore} using {@value QWorkBucket#TABLE_NAME} table.
+ *
+ * Allocation of READY bucket uses `SELECT ... FOR UPDATE SKIP LOCKED`, so concurrent workers never wait
+ * for each other and each gets a different bucket.
+ * Other modifications lock only the affected bucket rows, except for taking over a bucket from another worker,
+ * which locks all delegated buckets of the activity.
+ * All operations use standalone JDBC sessions, so they are not part of any commit batch of the current thread.
+ *
+ * Bucket content is stored in serialized form in `fullObject` column, without state and worker reference,
+ * which are stored only in the columns.
+ * Bucket size determined by adaptive sizing is stored per activity in {@value QWorkBucketActivity#TABLE_NAME} table.
+ */
+public class SqaleWorkBucketStore implements WorkBucketStore {
+
+    private static final Trace LOGGER = TraceManager.getTrace(SqaleWorkBucketStore.class);
+
+    private static final String OP_NAME_PREFIX = SqaleWorkBucketStore.class.getSimpleName() + '.';
+
+    private static final String OP_FIND_DELEGATED_BUCKET = "findDelegatedBucket";
+    private static final String OP_ALLOCATE_READY_BUCKET = "allocateReadyBucket";
+    private static final String OP_STEAL_BUCKET = "stealBucket";
+    private static final String OP_GET_LAST_BUCKET = "getLastBucket";
+    private static final String OP_ADD_BUCKETS = "addBuckets";
+    private static final String OP_COMPLETE_BUCKET = "completeBucket";
+    private static final String OP_RELEASE_BUCKETS = "releaseBuckets";
+    private static final String OP_RECLAIM_BUCKETS = "reclaimBuckets";
+    private static final String OP_COUNT_BUCKETS = "countBuckets";
+    private static final String OP_COUNT_DELEGATED_BUCKETS = "countDelegatedBuckets";
+    private static final String OP_GET_BUCKETS = "getBuckets";
+    private static final String OP_GET_ADAPTIVE_BUCKET_SIZE = "getAdaptiveBucketSize";
+    private static final String OP_STORE_ADAPTIVE_BUCKET_SIZE = "storeAdaptiveBucketSize";
+    private static final String OP_DELETE_BUCKETS = "deleteBuckets";
+
+    private static final String PARAM_ACTIVITY_PATH = "activityPath";
+    private static final String PARAM_WORKER_OID = "workerOid";
+    private static final String PARAM_SEQUENTIAL_NUMBER = "sequentialNumber";
+    private static final String PARAM_AFTER_SEQUENTIAL_NUMBER = "afterSequentialNumber";
+    private static final String PARAM_ADAPTIVE_BUCKET_SIZE = "adaptiveBucketSize";
+
+    private final SqaleRepoContext sqlRepoContext;
+    private final SqaleRepositoryService repositoryService;
+
+    public SqaleWorkBucketStore(
+            @NotNull SqaleRepoContext sqlRepoContext, @NotNull SqaleRepositoryService repositoryService) {
+        this.sqlRepoContext = sqlRepoContext;
+        this.repositoryService = repositoryService;
+    }
+
+    @Override
+    public @Nullable WorkBucketType findDelegatedBucket(@NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath, @NotNull String workerOid, @NotNull OperationResult parentResult) {
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        return execute(OP_FIND_DELEGATED_BUCKET, coordinatorOid, activityPath, parentResult,
+                r -> r.addParam(PARAM_WORKER_OID, workerOid),
+                jdbcSession -> toSchemaObject(jdbcSession.newQuery()
+                        .select(wb)
+                        .from(wb)
+                        .where(activityBuckets(coordinatorOid, activityPath)
+                                .and(wb.state.eq(DELEGATED))
+                                .and(wb.workerOid.eq(SqaleUtils.oidToUuidMandatory(workerOid))))
+                        .orderBy(wb.sequentialNumber.asc())
+                        .limit(1)
+                        .fetchOne()));
+    }
+
+    @Override
+    public @Nullable WorkBucketType allocateReadyBucket(@NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath, @NotNull String workerOid, @Nullable Integer afterSequentialNumber,
+            @NotNull OperationResult parentResult) {
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        UUID workerUuid = SqaleUtils.oidToUuidMandatory(workerOid);
+        return execute(OP_ALLOCATE_READY_BUCKET, coordinatorOid, activityPath, parentResult,
+                r -> r.addParam(PARAM_WORKER_OID, workerOid)
+                        .addParam(PARAM_AFTER_SEQUENTIAL_NUMBER, String.valueOf(afterSequentialNumber)),
+                jdbcSession -> {
+                    BooleanExpression condition = activityBuckets(coordinatorOid, activityPath)
+                            .and(wb.state.eq(READY));
+                    if (afterSequentialNumber != null) {
+                        condition = condition.and(wb.sequentialNumber.gt(afterSequentialNumber));
+                    }
+                    // Querydsl does not support SKIP LOCKED, so the whole locking clause is added as a flag.
+                    MWorkBucket row = jdbcSession.newQuery()
+                            .select(wb)
+                            .from(wb)
+                            .where(condition)
+                            .orderBy(wb.sequentialNumber.asc())
+                            .limit(1)
+                            .addFlag(QueryFlag.Position.END, " FOR UPDATE SKIP LOCKED")
+                            .fetchOne();
+                    if (row == null) {
+                        return null;
+                    }
+
+                    jdbcSession.newUpdate(wb)
+                            .set(wb.state, DELEGATED)
+                            .set(wb.workerOid, workerUuid)
+                            .where(bucket(coordinatorOid, activityPath, row.sequentialNumber))
+                            .execute();
+                    row.state = DELEGATED;
+                    row.workerOid = workerUuid;
+                    LOGGER.trace("Allocated bucket {} to worker {}", row, workerOid);
+                    return toSchemaObject(row);
+                });
+    }
+
+    @Override
+    public @Nullable WorkBucketType stealBucket(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull String workerOid, @NotNull OperationResult parentResult) {
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        UUID workerUuid = SqaleUtils.oidToUuidMandatory(workerOid);
+        return execute(OP_STEAL_BUCKET, coordinatorOid, activityPath, parentResult,
+                r -> r.addParam(PARAM_WORKER_OID, workerOid),
+                jdbcSession -> {
+                    // All delegated buckets are locked, so no worker can complete its current bucket
+                    // (and start the next one, possibly the one we take) in the meantime.
+                    List<Tuple> delegatedBuckets = jdbcSession.newQuery()
+                            .select(wb.sequentialNumber, wb.workerOid)
+                            .from(wb)
+                            .where(activityBuckets(coordinatorOid, activityPath)
+                                    .and(wb.state.eq(DELEGATED)))
+                            .orderBy(wb.sequentialNumber.asc())
+                            .forUpdate()
+                            .fetch();
+                    Map<UUID, List<Integer>> bucketsByWorker = delegatedBuckets.stream()
+                            .filter(t -> t.get(wb.workerOid) != null && !workerUuid.equals(t.get(wb.workerOid)))
+                            .collect(Collectors.groupingBy(t -> t.get(wb.workerOid),
+                                    Collectors.mapping(t -> t.get(wb.sequentialNumber), Collectors.toList())));
+                    List<Integer> victimBuckets = bucketsByWorker.values().stream()
+                            .max(Comparator.comparingInt(List::size))
+                            .filter(buckets -> buckets.size() > 1)
+                            .orElse(null);
+                    if (victimBuckets == null) {
+                        return null;
+                    }
+
+                    int sequentialNumber = victimBuckets.get(victimBuckets.size() - 1);
+                    jdbcSession.newUpdate(wb)
+                            .set(wb.workerOid, workerUuid)
+                            .where(bucket(coordinatorOid, activityPath, sequentialNumber))
+                            .execute();
+                    MWorkBucket row = jdbcSession.newQuery()
+                            .select(wb)
+                            .from(wb)
+                            .where(bucket(coordinatorOid, activityPath, sequentialNumber))
+                            .fetchOne();
+                    LOGGER.debug("Bucket {} taken over by worker {}", row, workerOid);
+                    return toSchemaObject(row);
+                });
+    }
+
+    @Override
+    public @Nullable WorkBucketType getLastBucket(@NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath, @NotNull OperationResult parentResult) {
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        return execute(OP_GET_LAST_BUCKET, coordinatorOid, activityPath, parentResult, null,
+                jdbcSession -> toSchemaObject(jdbcSession.newQuery()
+                        .select(wb)
+                        .from(wb)
+                        .where(activityBuckets(coordinatorOid, activityPath))
+                        .orderBy(wb.sequentialNumber.desc())
+                        .limit(1)
+                        .fetchOne()));
+    }
+
+    @Override
+    public boolean addBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull Collection<WorkBucketType> buckets, @NotNull OperationResult parentResult) {
+        if (buckets.isEmpty()) {
+            return true;
+        }
+
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        return execute(OP_ADD_BUCKETS, coordinatorOid, activityPath, parentResult,
+                r -> r.addParam("buckets", buckets.size()),
+                jdbcSession -> {
+                    SQLInsertClause insert = jdbcSession.newInsert(wb);
+                    for (WorkBucketType bucket : buckets) {
+                        insert.populate(toRow(coordinatorOid, activityPath, bucket)).addBatch();
+                    }
+                    try {
+                        insert.execute();
+                    } catch (RuntimeException e) {
+                        if (SqaleUtils.isUniqueConstraintViolation(e)) {
+                            LOGGER.debug("Buckets for {}/'{}' were not added, some of them already exist",
+                                    coordinatorOid, activityPath);
+                            jdbcSession.rollback();
+                            return false;
+                        }
+                        throw e;
+                    }
+                    return true;
+                });
+    }
+
+    @Override
+    public boolean completeBucket(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            int sequentialNumber, @Nullable String workerOid, @NotNull OperationResult parentResult) {
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        return execute(OP_COMPLETE_BUCKET, coordinatorOid, activityPath, parentResult,
+                r -> r.addParam(PARAM_SEQUENTIAL_NUMBER, sequentialNumber)
+                        .addParam(PARAM_WORKER_OID, workerOid),
+                jdbcSession -> {
+                    MWorkBucket row = jdbcSession.newQuery()
+                            .select(wb)
+                            .from(wb)
+                            .where(bucket(coordinatorOid, activityPath, sequentialNumber))
+                            .forUpdate()
+                            .fetchOne();
+                    if (row == null) {
+                        return false;
+                    }
+
+                    if (row.state != DELEGATED) {
+                        throw new IllegalStateException("Bucket " + row + " is not delegated");
+                    }
+                    if (workerOid != null && !Objects.equals(row.workerOid, SqaleUtils.oidToUuid(workerOid))) {
+                        LOGGER.warn("DELEGATED bucket with worker ({}) different from the current worker task ({}): {}",
+                                row.workerOid, workerOid, row);
+                    }
+
+                    jdbcSession.newUpdate(wb)
+                            .set(wb.state, COMPLETE)
+                            .where(bucket(coordinatorOid, activityPath, sequentialNumber))
+                            .execute();
+                    return true;
+                });
+    }
+
+    @Override
+    public int releaseBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull String workerOid, @Nullable Integer sequentialNumber, @NotNull OperationResult parentResult) {
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        return execute(OP_RELEASE_BUCKETS, coordinatorOid, activityPath, parentResult,
+                r -> r.addParam(PARAM_WORKER_OID, workerOid)
+                        .addParam(PARAM_SEQUENTIAL_NUMBER, String.valueOf(sequentialNumber)),
+                jdbcSession -> {
+                    Predicate condition = activityBuckets(coordinatorOid, activityPath)
+                            .and(wb.state.eq(DELEGATED))
+                            .and(wb.workerOid.eq(SqaleUtils.oidToUuidMandatory(workerOid)));
+                    if (sequentialNumber != null) {
+                        condition = wb.sequentialNumber.eq(sequentialNumber).and(condition);
+                    }
+                    return (int) jdbcSession.newUpdate(wb)
+                            .set(wb.state, READY)
+                            .setNull(wb.workerOid)
+                            .where(condition)
+                            .execute();
+                });
+    }
+
+    @Override
+    public int reclaimBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull Collection<String> liveWorkerOids, @NotNull OperationResult parentResult) {
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        List<UUID> liveWorkerUuids = liveWorkerOids.stream()
+                .map(SqaleUtils::oidToUuidMandatory)
+                .collect(Collectors.toList());
+        return execute(OP_RECLAIM_BUCKETS, coordinatorOid, activityPath, parentResult,
+                r -> r.addParam("liveWorkers", liveWorkerOids.size()),
+                jdbcSession -> {
+                    Predicate condition = activityBuckets(coordinatorOid, activityPath)
+                            .and(wb.state.eq(DELEGATED));
+                    if (!liveWorkerUuids.isEmpty()) {
+                        condition = wb.workerOid.notIn(liveWorkerUuids).and(condition);
+                    }
+                    return (int) jdbcSession.newUpdate(wb)
+                            .set(wb.state, READY)
+                            .setNull(wb.workerOid)
+                            .where(condition)
+                            .execute();
+                });
+    }
+
+    @Override
+    public int countBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @Nullable WorkBucketStateType state, @NotNull OperationResult parentResult) {
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        return execute(OP_COUNT_BUCKETS, coordinatorOid, activityPath, parentResult,
+                r -> r.addParam("state", String.valueOf(state)),
+                jdbcSession -> (int) jdbcSession.newQuery()
+                        .from(wb)
+                        .where(state != null
+                                ? activityBuckets(coordinatorOid, activityPath).and(wb.state.eq(state))
+                                : activityBuckets(coordinatorOid, activityPath))
+                        .fetchCount());
+    }
+
+    @Override
+    public int countDelegatedBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull String workerOid, @NotNull OperationResult parentResult) {
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        return execute(OP_COUNT_DELEGATED_BUCKETS, coordinatorOid, activityPath, parentResult,
+                r -> r.addParam(PARAM_WORKER_OID, workerOid),
+                jdbcSession -> (int) jdbcSession.newQuery()
+                        .from(wb)
+                        .where(activityBuckets(coordinatorOid, activityPath)
+                                .and(wb.state.eq(DELEGATED))
+                                .and(wb.workerOid.eq(SqaleUtils.oidToUuidMandatory(workerOid))))
+                        .fetchCount());
+    }
+
+    @Override
+    public @NotNull List<WorkBucketType> getBuckets(@NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath, @NotNull OperationResult parentResult) {
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        return execute(OP_GET_BUCKETS, coordinatorOid, activityPath, parentResult, null,
+                jdbcSession -> jdbcSession.newQuery()
+                        .select(wb)
+                        .from(wb)
+                        .where(activityBuckets(coordinatorOid, activityPath))
+                        .orderBy(wb.sequentialNumber.asc())
+                        .fetch()
+                        .stream()
+                        .map(this::toSchemaObject)
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    public @Nullable BigInteger getAdaptiveBucketSize(@NotNull String coordinatorOid,
+            @NotNull ActivityPath activityPath, @NotNull OperationResult parentResult) {
+        QWorkBucketActivity wba = QWorkBucketActivity.DEFAULT;
+        return execute(OP_GET_ADAPTIVE_BUCKET_SIZE, coordinatorOid, activityPath, parentResult, null,
+                jdbcSession -> jdbcSession.newQuery()
+                        .select(wba.adaptiveBucketSize)
+                        .from(wba)
+                        .where(wba.coordinatorOid.eq(SqaleUtils.oidToUuidMandatory(coordinatorOid))
+                                .and(wba.activityPath.eq(activityPath.toString())))
+                        .fetchOne());
+    }
+
+    @Override
+    public boolean storeAdaptiveBucketSize(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull BigInteger adaptiveBucketSize, @NotNull OperationResult parentResult) {
+        QWorkBucketActivity wba = QWorkBucketActivity.DEFAULT;
+        return execute(OP_STORE_ADAPTIVE_BUCKET_SIZE, coordinatorOid, activityPath, parentResult,
+                r -> r.addParam(PARAM_ADAPTIVE_BUCKET_SIZE, adaptiveBucketSize.toString()),
+                jdbcSession -> jdbcSession.newInsert(wba)
+                        .set(wba.coordinatorOid, SqaleUtils.oidToUuidMandatory(coordinatorOid))
+                        .set(wba.activityPath, activityPath.toString())
+                        .set(wba.adaptiveBucketSize, adaptiveBucketSize)
+                        // Querydsl does not support PostgreSQL upsert, so it is added as a flag.
+                        // The row is not updated (and nothing is written) if the size is the same.
+                        .addFlag(QueryFlag.Position.END, " ON CONFLICT (coordinatorOid, activityPath)"
+                                + " DO UPDATE SET adaptiveBucketSize = EXCLUDED.adaptiveBucketSize"
+                                + " WHERE " + QWorkBucketActivity.TABLE_NAME + ".adaptiveBucketSize"
+                                + " IS DISTINCT FROM EXCLUDED.adaptiveBucketSize")
+                        .execute() > 0);
+    }
+
+    @Override
+    public int deleteBuckets(@NotNull String coordinatorOid, @NotNull ActivityPath activityPath,
+            @NotNull OperationResult parentResult) {
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        QWorkBucketActivity wba = QWorkBucketActivity.DEFAULT;
+        return execute(OP_DELETE_BUCKETS, coordinatorOid, activityPath, parentResult, null,
+                jdbcSession -> {
+                    UUID coordinatorUuid = SqaleUtils.oidToUuidMandatory(coordinatorOid);
+                    Predicate condition = wb.coordinatorOid.eq(coordinatorUuid);
+                    Predicate activityCondition = wba.coordinatorOid.eq(coordinatorUuid);
+                    if (!activityPath.isEmpty()) {
+                        String path = activityPath.toString();
+                        condition = wb.activityPath.eq(path)
+                                .or(wb.activityPath.startsWith(path + '/'))
+                                .and(condition);
+                        activityCondition = wba.activityPath.eq(path)
+                                .or(wba.activityPath.startsWith(path + '/'))
+                                .and(activityCondition);
+                    }
+                    jdbcSession.newDelete(wba)
+                            .where(activityCondition)
+                            .execute();
+                    return (int) jdbcSession.newDelete(wb)
+                            .where(condition)
+                            .execute();
+                });
+    }
+
+    private BooleanExpression activityBuckets(String coordinatorOid, ActivityPath activityPath) {
+        QWorkBucket wb = QWorkBucket.DEFAULT;
+        return wb.coordinatorOid.eq(SqaleUtils.oidToUuidMandatory(coordinatorOid))
+                .and(wb.activityPath.eq(activityPath.toString()));
+    }
+
+    private Predicate bucket(String coordinatorOid, ActivityPath activityPath, int sequentialNumber) {
+        return activityBuckets(coordinatorOid, activityPath)
+                .and(QWorkBucket.DEFAULT.sequentialNumber.eq(sequentialNumber));
+    }
+
+    /**
+     * Executes the function in a standalone transaction which is committed if the function returns normally.
+     * Takes care of the operation result and performance monitoring.
+     */
+    private <R> R execute(String operationKind, String coordinatorOid, ActivityPath activityPath,
+            OperationResult parentResult, @Nullable Function<OperationResultBuilder, OperationResultBuilder> params,
+            Function<JdbcSession, R> function) {
+        OperationResultBuilder resultBuilder = parentResult.subresult(OP_NAME_PREFIX + operationKind)
+                .addParam(OperationResult.PARAM_OID, coordinatorOid)
+                .addParam(PARAM_ACTIVITY_PATH, activityPath.toString());
+        if (params != null) {
+            resultBuilder = params.apply(resultBuilder);
+        }
+        OperationResult operationResult = resultBuilder.build();
+
+        SqlPerformanceMonitorImpl performanceMonitor = repositoryService.getPerformanceMonitor();
+        long opHandle = performanceMonitor != null
+                ? performanceMonitor.registerOperationStart(OP_NAME_PREFIX + operationKind, TaskType.class)
+                : -1;
+        try (JdbcSession jdbcSession = sqlRepoContext.newStandaloneJdbcSession().startTransaction()) {
+            R returnValue = function.apply(jdbcSession);
+            jdbcSession.commit();
+            operationResult.addReturn("result", String.valueOf(returnValue));
+            return returnValue;
+        } catch (RuntimeException e) {
+            operationResult.recordFatalError(e);
+            throw e instanceof SystemException ? e : new SystemException(e.getMessage(), e);
+        } finally {
+            if (performanceMonitor != null) {
+                performanceMonitor.registerOperationFinish(opHandle, 1);
+            }
+            operationResult.close();
+        }
+    }
+
+    private MWorkBucket toRow(String coordinatorOid, ActivityPath activityPath, WorkBucketType bucket) {
+        MWorkBucket row = new MWorkBucket();
+        row.coordinatorOid = SqaleUtils.oidToUuidMandatory(coordinatorOid);
+        row.activityPath = activityPath.toString();
+        row.sequentialNumber = bucket.getSequentialNumber();
+        row.state = bucket.getState() != null ? bucket.getState() : READY;
+        row.workerOid = row.state == DELEGATED && bucket.getWorkerRef() != null
+                ? SqaleUtils.oidToUuid(bucket.getWorkerRef().getOid())
+                : null;
+
+        // state and worker are only in the columns, they change while the content does not
+        WorkBucketType content = bucket.cloneWithoutId()
+                .state(null)
+                .workerRef(null);
+        try {
+            row.fullObject = sqlRepoContext.encodeFullObject(sqlRepoContext.createStringSerializer()
+                    .options(SerializationOptions
+                            .createSerializeReferenceNamesForNullOids()
+                            .skipWhitespaces(true))
+                    .serialize(content.asPrismContainerValue()));
+        } catch (SchemaException e) {
+            throw new SystemException("Couldn't serialize work bucket " + bucket, e);
+        }
+        return row;
+    }
+
+    private WorkBucketType toSchemaObject(@Nullable MWorkBucket row) {
+        if (row == null) {
+            return null;
+        }
+
+        WorkBucketType bucket;
+        try {
+            bucket = sqlRepoContext.parsePrismObject(
+                    sqlRepoContext.decodeFullObject(row.fullObject), WorkBucketType.class).prismValue;
+        } catch (SchemaException e) {
+            throw new SystemException("Couldn't parse work bucket " + row, e);
+        }
+        bucket.state(row.state);
+        if (row.workerOid != null) {
+            bucket.workerRef(row.workerOid.toString(), TaskType.COMPLEX_TYPE);
+        }
+        return bucket;
+    }
+}
@@ -47,6 +47,10 @@ import com.evolveum.midpoint.util.logging.TraceManager;
  * This could be avoided if the runtime maps were updated *only* after the row was successfully
  * read from the DB in other operations - which beats the purposes of those fast operations.
  * Instead, we risk adding the row that is not used, it is no harm; it will likely be used later.
+ *
+ * Reads of cached entries never lock, the maps are concurrent and are only added to.
+ * Only the cache miss in {@link #processCacheableUri(Object)} is synchronized, so the same URI
+ * is not inserted by multiple threads of this node at the same time.
  */
 public class UriCache {
 
@@ -65,7 +69,7 @@ public class UriCache {
     private final Map<String, Integer> uriToId = new ConcurrentHashMap<>();
 
     // WARNING: Each .get() creates new connection, always use in try-with-resource block!
-    private Supplier<JdbcSession> jdbcSessionSupplier;
+    private volatile Supplier<JdbcSession> jdbcSessionSupplier;
 
     /**
      * Initializes the URI cache.
@@ -180,7 +184,7 @@ public class UriCache {
      * Returns ID for URI creating new cache row in DB as needed.
      * Returns null for null URI parameter.
      */
-    public synchronized @Nullable Integer processCacheableUri(@Nullable Object uri) {
+    public @Nullable Integer processCacheableUri(@Nullable Object uri) {
         if (uri == null) {
             return null;
         }
@@ -192,6 +196,15 @@ public class UriCache {
                 ? QNameUtil.qNameToUri((QName) uri)
                 : uri.toString();
 
+        Integer id = uriToId.get(uriString);
+        if (id != null) {
+            return id;
+        }
+        return insertUri(uriString);
+    }
+
+    /** Cache miss path, rechecks the cache and the DB (other node) before inserting the URI. */
+    private synchronized @NotNull Integer insertUri(@NotNull String uriString) {
         Integer id = getId(uriString);
         if (id != null) {
             return id;
@@ -217,7 +230,7 @@ public class UriCache {
             }
             throw e;
         }
-        LOGGER.debug("URI cache inserted URI={} under ID={}", uri, id);
+        LOGGER.debug("URI cache inserted URI={} under ID={}", uriString, id);
         return id;
     }
 
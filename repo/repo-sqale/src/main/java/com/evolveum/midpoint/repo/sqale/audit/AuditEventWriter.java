@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.audit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.repo.sqale.SqaleRepositoryConfiguration;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Writes audit events using background threads for {@link AuditWriteMode#GROUP_COMMIT}
+ * and {@link AuditWriteMode#ASYNC} modes.
+ *
+ * Events are put into a bounded queue; when the queue is full, the auditing thread waits (back-pressure).
+ * Each writer thread takes all the waiting events (up to the batch size) and inserts them in a single
+ * transaction, so the more events are audited at the same time, the bigger the batches are.
+ * If the batch fails, its events are written one by one, so a single bad event does not spoil the others.
+ *
+ * After the shutdown, no event is queued any more; events audited later (e.g. by a thread that obtained the writer
+ * before the shutdown) are written by the auditing thread itself, so nobody waits for the writer threads forever.
+ *
+ * Statistics (queue depth, written events, batch duration) are registered as gauges in the performance monitor
+ * of the audit service and reported in the repository diagnostics; batch inserts are also visible in that monitor.
+ */
+public class AuditEventWriter {
+
+    private static final Trace LOGGER = TraceManager.getTrace(AuditEventWriter.class);
+
+    /** How long the writer waits for the first event of the batch before checking the shutdown flag. */
+    private static final long POLL_TIMEOUT_MS = 200;
+
+    /** How long the shutdown waits for the queued events to be written. */
+    private static final long SHUTDOWN_TIMEOUT_MS = 30_000;
+
+    private final AuditWriteMode mode;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final int threadCount;
+    private final Consumer<List<PreparedAuditEvent>> batchInserter;
+
+    private final BlockingQueue<PreparedAuditEvent> queue;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * Queueing holds the read lock, shutdown takes the write lock after setting {@link #running} to false.
+     * This way, no event is queued after the shutdown starts draining the queue.
+     */
+    private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong batchNanosTotal = new AtomicLong();
+    private final AtomicLong batchNanosMax = new AtomicLong();
+
+    AuditEventWriter(
+            @NotNull SqaleRepositoryConfiguration configuration,
+            @NotNull Consumer<List<PreparedAuditEvent>> batchInserter) {
+        this.mode = configuration.getWriteMode();
+        this.queueCapacity = Math.max(configuration.getWriteQueueCapacity(), 1);
+        this.batchSize = Math.max(configuration.getWriteBatchSize(), 1);
+        this.threadCount = Math.max(configuration.getWriterThreads(), 1);
+        this.batchInserter = batchInserter;
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 1; i <= threadCount; i++) {
+            Thread thread = new Thread(this::run, "sqale-audit-writer-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        LOGGER.info("Audit writer started in mode {} with {} threads, queue capacity {}, batch size {}",
+                mode.value(), threadCount, queueCapacity, batchSize);
+    }
+
+    /** Returns true if the writer was created for the same settings as provided in the configuration. */
+    boolean matches(@NotNull SqaleRepositoryConfiguration configuration) {
+        return mode == configuration.getWriteMode()
+                && queueCapacity == Math.max(configuration.getWriteQueueCapacity(), 1)
+                && batchSize == Math.max(configuration.getWriteBatchSize(), 1)
+                && threadCount == Math.max(configuration.getWriterThreads(), 1);
+    }
+
+    /**
+     * Queues the event for writing, waiting if the queue is full.
+     * For {@link AuditWriteMode#GROUP_COMMIT} it also waits until the event is committed
+     * and throws the exception if the event can't be written.
+     *
+     * If the writer is shut down (or it is being shut down and the queue is full), the event is written right away
+     * by the calling thread.
+     */
+    void write(@NotNull PreparedAuditEvent event) {
+        try {
+            if (!enqueue(event)) {
+                LOGGER.debug("Audit writer is shut down, writing event {} directly", event);
+                writeSingle(event);
+            }
+            if (mode == AuditWriteMode.GROUP_COMMIT) {
+                event.written.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SystemException("Interrupted while writing audit event " + event, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException
+                    ? (RuntimeException) cause
+                    : new SystemException(cause.getMessage(), cause);
+        }
+    }
+
+    /** Returns false if the event was not queued, because the writer is shut down. */
+    private boolean enqueue(PreparedAuditEvent event) throws InterruptedException {
+        shutdownLock.readLock().lock();
+        try {
+            while (running) {
+                if (queue.offer(event, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            shutdownLock.readLock().unlock();
+        }
+    }
+
+    private void run() {
+        List<PreparedAuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PreparedAuditEvent first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                LOGGER.warn("Audit writer {} interrupted, {} events left in the queue",
+                        Thread.currentThread().getName(), queue.size());
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PreparedAuditEvent> batch) {
+        long start = System.nanoTime();
+        try {
+            batchInserter.accept(batch);
+            for (PreparedAuditEvent event : batch) {
+                event.written.complete(null);
+            }
+            writtenCount.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            LOGGER.debug("Writing batch of {} audit events failed, writing them one by one", batch.size(), e);
+            for (PreparedAuditEvent event : batch) {
+                writeSingle(event);
+            }
+        }
+
+        long duration = System.nanoTime() - start;
+        batchCount.incrementAndGet();
+        batchNanosTotal.addAndGet(duration);
+        batchNanosMax.accumulateAndGet(duration, Math::max);
+        LOGGER.trace("Written batch of {} audit events in {} ms, queue size {}",
+                batch.size(), duration / 1_000_000, queue.size());
+    }
+
+    private void writeSingle(PreparedAuditEvent event) {
+        try {
+            event.row.id = null; // ID from the failed batch was not used
+            batchInserter.accept(List.of(event));
+            event.written.complete(null);
+            writtenCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            failedCount.incrementAndGet();
+            if (mode == AuditWriteMode.ASYNC) {
+                // nobody waits for the result, this is the only place where it can be reported
+                LOGGER.error("Audit event {} could not be written", event, e);
+            }
+            event.written.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Stops accepting new events and waits (for limited time) until the queued events are written.
+     * Events that were not written in time are completed exceptionally, so their auditing threads do not wait forever.
+     */
+    void shutdown() {
+        running = false;
+        // Waits for the threads just queueing their events; the threads coming later write the events themselves.
+        shutdownLock.writeLock().lock();
+        shutdownLock.writeLock().unlock();
+
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MS;
+        for (Thread thread : threads) {
+            try {
+                thread.join(Math.max(deadline - System.currentTimeMillis(), 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (thread.isAlive()) {
+                thread.interrupt();
+            }
+        }
+
+        // Only if the threads didn't make it in time, nobody should wait for these forever.
+        int unwrittenCount = 0;
+        PreparedAuditEvent event;
+        while ((event = queue.poll()) != null) {
+            event.written.completeExceptionally(
+                    new SystemException("Audit writer was shut down before the event was written"));
+            unwrittenCount++;
+        }
+        LOGGER.info("Audit writer stopped, written {} events in {} batches (avg {} ms, max {} ms),"
+                        + " {} events failed, {} events left unwritten",
+                writtenCount.get(), batchCount.get(), getAverageBatchMillis(), getMaxBatchMillis(),
+                failedCount.get(), unwrittenCount);
+    }
+
+    public AuditWriteMode getMode() {
+        return mode;
+    }
+
+    /** Returns the number of events waiting in the queue. */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public long getAverageBatchMillis() {
+        long batches = batchCount.get();
+        return batches > 0 ? batchNanosTotal.get() / batches / 1_000_000 : 0;
+    }
+
+    public long getMaxBatchMillis() {
+        return batchNanosMax.get() / 1_000_000;
+    }
+}
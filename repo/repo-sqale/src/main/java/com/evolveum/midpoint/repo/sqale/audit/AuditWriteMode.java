@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.audit;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * How the audit event records are written to the database by {@link SqaleAuditService}.
+ */
+public enum AuditWriteMode {
+
+    /** Each event is written by the auditing thread in its own transaction. */
+    SYNC("sync"),
+
+    /**
+     * Events are written in batches by {@link AuditEventWriter} threads, the auditing thread waits for the commit.
+     * Events audited by many threads at the same time share the transaction, which saves the commits.
+     */
+    GROUP_COMMIT("groupCommit"),
+
+    /**
+     * Events are written in batches by {@link AuditEventWriter} threads, the auditing thread does not wait.
+     * Events still in the queue are lost if the node crashes, and errors are only logged.
+     */
+    ASYNC("async");
+
+    private final String value;
+
+    AuditWriteMode(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public static @NotNull AuditWriteMode fromValue(@NotNull String value) {
+        for (AuditWriteMode mode : values()) {
+            if (mode.value.equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown audit write mode '" + value + "', supported values are: "
+                + SYNC.value + ", " + GROUP_COMMIT.value + ", " + ASYNC.value);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.audit;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.audit.api.AuditEventRecord;
+import com.evolveum.midpoint.audit.api.AuditReferenceValue;
+import com.evolveum.midpoint.repo.sqale.audit.qmodel.MAuditEventRecord;
+
+/**
+ * Audit event converted to rows by the auditing thread, ready to be inserted by any thread.
+ * Conversion (delta serialization, changed items, etc.) is done before the event is queued,
+ * so the writer does not need the original record, except for setting its repo ID.
+ */
+class PreparedAuditEvent {
+
+    @NotNull final AuditEventRecord record;
+
+    /** Event row with transient deltas, ID is assigned when inserted. */
+    @NotNull final MAuditEventRecord row;
+
+    /** Copy of custom column values, the record can be changed after it's queued. */
+    @NotNull final Map<String, String> customColumnValues;
+
+    /** Copy of the references, the record can be changed after it's queued. */
+    @NotNull final Map<String, Set<AuditReferenceValue>> references;
+
+    /** Completed when the event is committed, or exceptionally if it can't be written. */
+    final CompletableFuture<Void> written = new CompletableFuture<>();
+
+    PreparedAuditEvent(
+            @NotNull AuditEventRecord record,
+            @NotNull MAuditEventRecord row,
+            @NotNull Map<String, String> customColumnValues,
+            @NotNull Map<String, Set<AuditReferenceValue>> references) {
+        this.record = record;
+        this.row = row;
+        this.customColumnValues = customColumnValues;
+        this.references = references;
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedAuditEvent{eventIdentifier=" + row.eventIdentifier
+                + ", timestamp=" + row.timestamp + ", id=" + row.id + '}';
+    }
+}
@@ -16,12 +16,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.Instant;
 import java.util.*;
 import javax.xml.datatype.Duration;
 
+import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.SQLExpressions;
 import com.querydsl.sql.dml.DefaultMapper;
+import com.querydsl.sql.dml.SQLDeleteClause;
 import com.querydsl.sql.dml.SQLInsertClause;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.Validate;
@@ -68,8 +74,17 @@ import com.evolveum.prism.xml.ns._public.types_3.ObjectDeltaType;
  */
 public class SqaleAuditService extends SqaleServiceBase implements AuditService {
 
+    /** Operation name used for performance monitoring of batches written by {@link AuditEventWriter}. */
+    public static final String OP_WRITE_AUDIT_BATCH = "writeAuditBatch";
+
+    /** Prefix of names of performance monitor gauges of {@link AuditEventWriter}, see {@link #registerWriterGauges}. */
+    public static final String WRITER_GAUGE_PREFIX = "auditWriter.";
+
     private final SqlQueryExecutor sqlQueryExecutor;
 
+    /** Writer for other than {@link AuditWriteMode#SYNC} mode, see {@link #getAuditEventWriter()}. */
+    private volatile AuditEventWriter auditEventWriter;
+
     // set from SystemConfigurationAuditType
     private boolean escapeIllegalCharacters = false;
     @NotNull private OperationResultDetailLevel deltaSuccessExecutionResult = OperationResultDetailLevel.CLEANED_UP;
@@ -101,33 +116,88 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
 
     private void executeAudit(AuditEventRecord record) {
         long opHandle = registerOperationStart(OP_AUDIT);
-        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+        try {
             record.setRepoId(null); // we want DB to assign the ID
-            MAuditEventRecord auditRow = insertAuditEventRecord(jdbcSession, record);
-            record.setRepoId(auditRow.id);
+            PreparedAuditEvent event = prepareAuditEvent(record);
+
+            AuditEventWriter writer = getAuditEventWriter();
+            if (writer != null) {
+                writer.write(event);
+                return;
+            }
 
-            insertAuditDeltas(jdbcSession, auditRow);
-            insertReferences(jdbcSession, auditRow, record.getReferences());
+            try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+                insertAuditEventRecord(jdbcSession, event);
+                record.setRepoId(event.row.id);
 
-            jdbcSession.commit();
+                insertAuditDeltas(jdbcSession, List.of(event));
+                insertReferences(jdbcSession, List.of(event));
+
+                jdbcSession.commit();
+            }
         } finally {
             registerOperationFinish(opHandle);
         }
     }
 
     /**
-     * Inserts audit event record aggregate root without any subentities.
+     * Returns the writer for the configured {@link AuditWriteMode} or null for {@link AuditWriteMode#SYNC}.
+     * The writer is (re)created when the configuration changes, which is possible in tests.
+     * Also useful for monitoring of the writer, e.g. its queue size.
+     */
+    public @Nullable AuditEventWriter getAuditEventWriter() {
+        SqaleRepositoryConfiguration configuration = repositoryConfiguration();
+        AuditEventWriter writer = auditEventWriter;
+        if (writer != null ? writer.matches(configuration) : configuration.getWriteMode() == AuditWriteMode.SYNC) {
+            return writer;
+        }
+
+        synchronized (this) {
+            if (auditEventWriter != null) {
+                if (auditEventWriter.matches(configuration)) {
+                    return auditEventWriter;
+                }
+                auditEventWriter.shutdown();
+                auditEventWriter = null;
+                unregisterWriterGauges();
+            }
+            if (configuration.getWriteMode() != AuditWriteMode.SYNC) {
+                auditEventWriter = new AuditEventWriter(configuration, this::insertAuditEvents);
+                registerWriterGauges(auditEventWriter);
+            }
+            return auditEventWriter;
+        }
+    }
+
+    /** Makes the writer statistics available in the performance monitor, e.g. for the repository diagnostics. */
+    private void registerWriterGauges(AuditEventWriter writer) {
+        if (performanceMonitor != null) {
+            performanceMonitor.registerGauge(WRITER_GAUGE_PREFIX + "queueSize", writer::getQueueSize);
+            performanceMonitor.registerGauge(WRITER_GAUGE_PREFIX + "writtenCount", writer::getWrittenCount);
+            performanceMonitor.registerGauge(WRITER_GAUGE_PREFIX + "failedCount", writer::getFailedCount);
+            performanceMonitor.registerGauge(WRITER_GAUGE_PREFIX + "batchCount", writer::getBatchCount);
+            performanceMonitor.registerGauge(WRITER_GAUGE_PREFIX + "averageBatchMillis", writer::getAverageBatchMillis);
+            performanceMonitor.registerGauge(WRITER_GAUGE_PREFIX + "maxBatchMillis", writer::getMaxBatchMillis);
+        }
+    }
+
+    private void unregisterWriterGauges() {
+        if (performanceMonitor != null) {
+            performanceMonitor.getGaugeValues().keySet().stream()
+                    .filter(name -> name.startsWith(WRITER_GAUGE_PREFIX))
+                    .forEach(performanceMonitor::unregisterGauge);
+        }
+    }
+
+    /**
+     * Converts the record to rows; this is done by the auditing thread even if the rows are inserted later.
      * Traditional Sqale "insert root first, then insert children" is not optimal here,
      * because to insert root we need to collect some information from children anyway.
      * So we prepare the subentities in collections, gather the needed information
-     * (e.g. changed item paths) and then insert root entity.
-     * Subentities are inserted later out of this method.
-     *
-     * @return inserted row with transient deltas prepared for insertion
+     * (e.g. changed item paths) and then the root entity can be inserted.
      */
-    private MAuditEventRecord insertAuditEventRecord(JdbcSession jdbcSession, AuditEventRecord record) {
+    private PreparedAuditEvent prepareAuditEvent(AuditEventRecord record) {
         QAuditEventRecordMapping aerMapping = QAuditEventRecordMapping.get();
-        QAuditEventRecord aer = aerMapping.defaultAlias();
         MAuditEventRecord row = aerMapping.toRowObject(record);
 
         Collection<MAuditDelta> deltaRows = prepareDeltas(record.getDeltas());
@@ -136,22 +206,90 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
         Set<String> changedItemPaths = collectChangedItemPaths(deltaRows);
         row.changedItemPaths = changedItemPaths.isEmpty() ? null : changedItemPaths.toArray(String[]::new);
 
-        SQLInsertClause insert = jdbcSession.newInsert(aer).populate(row);
         Map<String, ColumnMetadata> customColumns = aerMapping.getExtensionColumns();
-        for (Map.Entry<String, String> property : record.getCustomColumnProperty().entrySet()) {
-            String propertyName = property.getKey();
+        for (String propertyName : record.getCustomColumnProperty().keySet()) {
             if (!customColumns.containsKey(propertyName)) {
                 throw new IllegalArgumentException("Audit event record table doesn't"
                         + " contains column for property " + propertyName);
             }
+        }
+
+        Map<String, Set<AuditReferenceValue>> references = new HashMap<>();
+        record.getReferences().forEach((name, values) -> references.put(name, new HashSet<>(values)));
+        return new PreparedAuditEvent(record, row,
+                new HashMap<>(record.getCustomColumnProperty()), references);
+    }
+
+    /**
+     * Inserts audit event record aggregate root without any subentities, which are inserted later.
+     */
+    private void insertAuditEventRecord(JdbcSession jdbcSession, PreparedAuditEvent event) {
+        QAuditEventRecord aer = QAuditEventRecordMapping.get().defaultAlias();
+        SQLInsertClause insert = jdbcSession.newInsert(aer).populate(event.row);
+        for (Map.Entry<String, String> property : event.customColumnValues.entrySet()) {
             // Like insert.set, but that one is too parameter-type-safe for our generic usage here.
-            insert.columns(aer.getPath(propertyName)).values(property.getValue());
+            insert.columns(aer.getPath(property.getKey())).values(property.getValue());
         }
 
         Long returnedId = insert.executeWithKey(aer.id);
         // If returned ID is null, it was likely provided, so we use that one.
-        row.id = returnedId != null ? returnedId : record.getRepoId();
-        return row;
+        event.row.id = returnedId != null ? returnedId : event.record.getRepoId();
+    }
+
+    /**
+     * Inserts the events in a single transaction using JDBC batches; used by {@link AuditEventWriter}.
+     * IDs are allocated upfront, so the events, deltas and references can all be inserted by batches.
+     * Repo IDs of the records are set only after the commit.
+     */
+    private void insertAuditEvents(List<PreparedAuditEvent> events) {
+        long opHandle = registerOperationStart(OP_WRITE_AUDIT_BATCH);
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+            Iterator<Long> ids = allocateAuditEventIds(jdbcSession, events.size()).iterator();
+
+            QAuditEventRecordMapping aerMapping = QAuditEventRecordMapping.get();
+            QAuditEventRecord aer = aerMapping.defaultAlias();
+            Set<String> customColumns = aerMapping.getExtensionColumns().keySet();
+            SQLInsertClause insertBatch = jdbcSession.newInsert(aer);
+            for (PreparedAuditEvent event : events) {
+                event.row.id = ids.next();
+                // NULLs are important to keep the value count consistent during the batch
+                insertBatch.populate(event.row, DefaultMapper.WITH_NULL_BINDINGS);
+                for (String propertyName : customColumns) {
+                    insertBatch.columns(aer.getPath(propertyName))
+                            .values(event.customColumnValues.get(propertyName));
+                }
+                insertBatch.addBatch();
+            }
+            insertBatch.setBatchToBulk(true);
+            insertBatch.execute();
+
+            insertAuditDeltas(jdbcSession, events);
+            insertReferences(jdbcSession, events);
+
+            jdbcSession.commit();
+        } finally {
+            registerOperationFinish(opHandle);
+        }
+
+        for (PreparedAuditEvent event : events) {
+            event.record.setRepoId(event.row.id);
+        }
+    }
+
+    private List<Long> allocateAuditEventIds(JdbcSession jdbcSession, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        try (PreparedStatement stmt = jdbcSession.connection().prepareStatement(
+                "SELECT nextval('ma_audit_event_id_seq') FROM generate_series(1, ?)")) {
+            stmt.setInt(1, count);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new SystemException("Couldn't allocate IDs for audit events", e);
+        }
+        return ids;
     }
 
     private Collection<MAuditDelta> prepareDeltas(Collection<ObjectDeltaOperation<?>> deltas) {
@@ -300,12 +438,11 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
         return changedItemPaths;
     }
 
-    private void insertAuditDeltas(
-            JdbcSession jdbcSession, MAuditEventRecord auditRow) {
-
-        if (!auditRow.deltas.isEmpty()) {
-            SQLInsertClause insertBatch = jdbcSession.newInsert(
-                    QAuditDeltaMapping.get().defaultAlias());
+    private void insertAuditDeltas(JdbcSession jdbcSession, List<PreparedAuditEvent> events) {
+        SQLInsertClause insertBatch = jdbcSession.newInsert(
+                QAuditDeltaMapping.get().defaultAlias());
+        for (PreparedAuditEvent event : events) {
+            MAuditEventRecord auditRow = event.row;
             for (MAuditDelta deltaRow : auditRow.deltas) {
                 deltaRow.recordId = auditRow.id;
                 deltaRow.timestamp = auditRow.timestamp;
@@ -313,32 +450,33 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
                 // NULLs are important to keep the value count consistent during the batch
                 insertBatch.populate(deltaRow, DefaultMapper.WITH_NULL_BINDINGS).addBatch();
             }
+        }
+        if (insertBatch.getBatchCount() > 0) {
             insertBatch.setBatchToBulk(true);
             insertBatch.execute();
         }
     }
 
-    private void insertReferences(JdbcSession jdbcSession,
-            MAuditEventRecord auditRow, Map<String, Set<AuditReferenceValue>> references) {
-        if (references.isEmpty()) {
-            return;
-        }
-
+    private void insertReferences(JdbcSession jdbcSession, List<PreparedAuditEvent> events) {
         QAuditRefValue qr = QAuditRefValueMapping.get().defaultAlias();
         SQLInsertClause insertBatch = jdbcSession.newInsert(qr);
-        for (String refName : references.keySet()) {
-            for (AuditReferenceValue refValue : references.get(refName)) {
-                // id will be generated, but we're not interested in those here
-                PolyString targetName = refValue.getTargetName();
-                insertBatch.set(qr.recordId, auditRow.id)
-                        .set(qr.timestamp, auditRow.timestamp)
-                        .set(qr.name, refName)
-                        .set(qr.targetOid, SqaleUtils.oidToUuid(refValue.getOid()))
-                        .set(qr.targetType, refValue.getType() != null
-                                ? MObjectType.fromTypeQName(refValue.getType()) : null)
-                        .set(qr.targetNameOrig, PolyString.getOrig(targetName))
-                        .set(qr.targetNameNorm, PolyString.getNorm(targetName))
-                        .addBatch();
+        for (PreparedAuditEvent event : events) {
+            MAuditEventRecord auditRow = event.row;
+            Map<String, Set<AuditReferenceValue>> references = event.references;
+            for (String refName : references.keySet()) {
+                for (AuditReferenceValue refValue : references.get(refName)) {
+                    // id will be generated, but we're not interested in those here
+                    PolyString targetName = refValue.getTargetName();
+                    insertBatch.set(qr.recordId, auditRow.id)
+                            .set(qr.timestamp, auditRow.timestamp)
+                            .set(qr.name, refName)
+                            .set(qr.targetOid, SqaleUtils.oidToUuid(refValue.getOid()))
+                            .set(qr.targetType, refValue.getType() != null
+                                    ? MObjectType.fromTypeQName(refValue.getType()) : null)
+                            .set(qr.targetNameOrig, PolyString.getOrig(targetName))
+                            .set(qr.targetNameNorm, PolyString.getNorm(targetName))
+                            .addBatch();
+                }
             }
         }
         if (insertBatch.getBatchCount() == 0) {
@@ -389,6 +527,7 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
         // It looks like the attempts (and wasted time) are not counted correctly
         cleanupAuditMaxRecords(policy, parentResult);
         cleanupAuditMaxAge(policy, parentResult);
+        createFuturePartitions();
     }
 
     private void cleanupAuditMaxAge(CleanupPolicyType policy, OperationResult parentResult) {
@@ -422,19 +561,102 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
         Instant olderThan = Instant.ofEpochMilli(minValue.getTime());
 
         long start = System.currentTimeMillis();
+        int droppedPartitions = 0;
         long deletedCount = 0;
-        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+        try {
             logger.info("Audit cleanup, deleting records older than {}.", olderThan);
 
-            QAuditEventRecord qae = QAuditEventRecordMapping.get().defaultAlias();
-            deletedCount = jdbcSession.newDelete(qae)
-                    .where(qae.timestamp.lt(olderThan))
-                    .execute();
-            jdbcSession.commit();
+            droppedPartitions = dropPartitionsOlderThan(olderThan);
+            deletedCount = deleteRecordsOlderThan(olderThan);
         } finally {
             registerOperationFinish(opHandle);
-            logger.info("Audit cleanup based on age finished; deleted {} entries in {} seconds.",
-                    deletedCount, (System.currentTimeMillis() - start) / 1000L);
+            logger.info("Audit cleanup based on age finished; dropped {} partitions"
+                            + " and deleted {} entries from other partitions in {} seconds.",
+                    droppedPartitions, deletedCount, (System.currentTimeMillis() - start) / 1000L);
+        }
+    }
+
+    /**
+     * Drops whole monthly partitions containing only records older than the provided instant.
+     * This is much cheaper than deleting the rows, both for the DB and its WAL.
+     * Dropping a partition locks its parent table exclusively, so each partition is dropped in its own transaction;
+     * otherwise the audit tables would be locked (also for new records) until all the partitions are dropped.
+     */
+    private int dropPartitionsOlderThan(Instant olderThan) {
+        List<String> tableSuffixes;
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
+            tableSuffixes = jdbcSession.newQuery()
+                    .select(Expressions.stringTemplate("audit_partitions_older_than({0})", olderThan))
+                    .fetch();
+        }
+        for (String tableSuffix : tableSuffixes) {
+            logger.debug("Dropping audit partitions with suffix {}", tableSuffix);
+            // delta and ref partitions have FK to the event partition, so they go first
+            for (String tableName : List.of(
+                    QAuditDelta.TABLE_NAME, QAuditRefValue.TABLE_NAME, QAuditEventRecord.TABLE_NAME)) {
+                try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+                    jdbcSession.executeStatement("DROP TABLE IF EXISTS \"" + tableName + tableSuffix + "\"");
+                    jdbcSession.commit();
+                }
+            }
+        }
+        return tableSuffixes.size();
+    }
+
+    /**
+     * Deletes the remaining old records (in the boundary partition or in the default partition)
+     * in transactions of limited size, so no single transaction runs for too long.
+     */
+    private long deleteRecordsOlderThan(Instant olderThan) {
+        int batchSize = repositoryConfiguration().getCleanupDeleteBatchSize();
+        QAuditEventRecord qae = QAuditEventRecordMapping.get().defaultAlias();
+        long deletedCount = 0;
+        while (true) {
+            try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+                SQLDeleteClause delete = jdbcSession.newDelete(qae)
+                        .where(qae.timestamp.lt(olderThan));
+                if (batchSize > 0) {
+                    QAuditEventRecord sub = QAuditEventRecordMapping.get().newAlias("sub");
+                    delete.where(qae.id.in(SQLExpressions.select(sub.id)
+                            .from(sub)
+                            .where(sub.timestamp.lt(olderThan))
+                            .limit(batchSize)));
+                }
+                long count = delete.execute();
+                jdbcSession.commit();
+
+                deletedCount += count;
+                if (batchSize <= 0 || count < batchSize) {
+                    return deletedCount;
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes sure that monthly partitions exist for the configured number of months (including the current one),
+     * but only if the partitions are used at all.
+     * Failure is not critical for the cleanup, records go to the default partition in the worst case.
+     */
+    private void createFuturePartitions() {
+        int futurePartitions = repositoryConfiguration().getCleanupFuturePartitions();
+        if (futurePartitions <= 0) {
+            return;
+        }
+
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+            Boolean partitioned = jdbcSession.newQuery()
+                    .select(Expressions.booleanTemplate("audit_has_monthly_partitions()"))
+                    .fetchOne();
+            if (Boolean.TRUE.equals(partitioned)) {
+                jdbcSession.executeStatement("CALL audit_create_monthly_partitions(" + futurePartitions + ")");
+                logger.debug("Audit partitions checked/created for {} months", futurePartitions);
+            }
+            jdbcSession.commit();
+        } catch (RuntimeException e) {
+            // e.g. when the default partition already contains rows for the new partition
+            logger.warn("Creating audit partitions for the next {} months failed: {}",
+                    futurePartitions, e.toString());
         }
     }
 
@@ -791,4 +1013,17 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
     protected long registerOperationStart(String kind) {
         return registerOperationStart(kind, AuditEventRecordType.class);
     }
+
+    @Override
+    public void destroy() {
+        synchronized (this) {
+            if (auditEventWriter != null) {
+                // queued events are written before the performance monitor is gone
+                auditEventWriter.shutdown();
+                auditEventWriter = null;
+                unregisterWriterGauges();
+            }
+        }
+        super.destroy();
+    }
 }
@@ -6,7 +6,6 @@
  */
 package com.evolveum.midpoint.repo.sqale.mapping;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
@@ -439,11 +438,12 @@ public abstract class SqaleTableMapping<S, Q extends FlexibleRelationalPathBase<
         return strings.toArray(String[]::new);
     }
 
-    /** Convenient insert shortcut when the row is fully populated. */
+    /**
+     * Convenient insert shortcut when the row is fully populated.
+     * The insert can be batched, see {@link JdbcSession#startInsertBatching()}.
+     */
     protected void insert(R row, JdbcSession jdbcSession) {
-        jdbcSession.newInsert(defaultAlias())
-                .populate(row)
-                .execute();
+        jdbcSession.insert(defaultAlias(), row);
     }
 
     /**
@@ -471,10 +471,9 @@ public abstract class SqaleTableMapping<S, Q extends FlexibleRelationalPathBase<
     }
 
     protected <T> T parseSchemaObject(byte[] fullObject, String identifier, Class<T> clazz) throws SchemaException {
-        String serializedForm = fullObject != null
-                ? new String(fullObject, StandardCharsets.UTF_8)
-                : null;
+        String serializedForm = null;
         try {
+            serializedForm = repositoryContext().decodeFullObject(fullObject);
             RepositoryObjectParseResult<T> result =
                     repositoryContext().parsePrismObject(serializedForm, clazz);
             T schemaObject = result.prismValue;
@@ -499,15 +498,14 @@ public abstract class SqaleTableMapping<S, Q extends FlexibleRelationalPathBase<
     /** Creates serialized (byte array) form of an object or a container. */
     public <C extends Containerable> byte[] createFullObject(C container) throws SchemaException {
         repositoryContext().normalizeAllRelations(container.asPrismContainerValue());
-        return repositoryContext().createStringSerializer()
+        return repositoryContext().encodeFullObject(repositoryContext().createStringSerializer()
                 .itemsToSkip(fullObjectItemsToSkip())
                 .options(SerializationOptions
                         .createSerializeReferenceNamesForNullOids()
                         .skipIndexOnly(true)
                         .skipTransient(true)
                         .skipWhitespaces(true))
-                .serialize(container.asPrismContainerValue())
-                .getBytes(StandardCharsets.UTF_8);
+                .serialize(container.asPrismContainerValue()));
     }
 
     protected PathSet fullObjectItemsToSkip() {
@@ -11,6 +11,8 @@ import static com.evolveum.midpoint.schema.constants.SchemaConstants.PATH_FOCUS_
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.FocusType.*;
 
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Path;
@@ -21,6 +23,8 @@ import com.evolveum.midpoint.prism.PrismContainer;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.PrismProperty;
 import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.path.PathSet;
 import com.evolveum.midpoint.prism.util.PrismUtil;
 import com.evolveum.midpoint.repo.sqale.ExtensionProcessor;
@@ -115,6 +119,36 @@ public class QFocusMapping<S extends FocusType, Q extends QFocus<R>, R extends M
                 .addItemMapping(ActivationType.F_LOCKOUT_STATUS,
                         enumMapper(q -> q.lockoutStatus));
 
+        addProjectedItem(F_COST_CENTER, q -> List.of(q.costCenter),
+                (row, q, focus) -> focus.setCostCenter(row.get(q.costCenter)));
+        addProjectedItem(F_EMAIL_ADDRESS, q -> List.of(q.emailAddress),
+                (row, q, focus) -> focus.setEmailAddress(row.get(q.emailAddress)));
+        addProjectedItem(F_TELEPHONE_NUMBER, q -> List.of(q.telephoneNumber),
+                (row, q, focus) -> focus.setTelephoneNumber(row.get(q.telephoneNumber)));
+        // Only the activation items are projected, the whole activation contains more than the columns.
+        addProjectedActivationItem(ActivationType.F_ADMINISTRATIVE_STATUS,
+                q -> q.administrativeStatus, ActivationType::setAdministrativeStatus);
+        addProjectedActivationItem(ActivationType.F_EFFECTIVE_STATUS,
+                q -> q.effectiveStatus, ActivationType::setEffectiveStatus);
+        addProjectedActivationItem(ActivationType.F_ENABLE_TIMESTAMP, q -> q.enableTimestamp,
+                (a, v) -> a.setEnableTimestamp(MiscUtil.asXMLGregorianCalendar(v)));
+        addProjectedActivationItem(ActivationType.F_DISABLE_TIMESTAMP, q -> q.disableTimestamp,
+                (a, v) -> a.setDisableTimestamp(MiscUtil.asXMLGregorianCalendar(v)));
+        addProjectedActivationItem(ActivationType.F_DISABLE_REASON,
+                q -> q.disableReason, ActivationType::setDisableReason);
+        addProjectedActivationItem(ActivationType.F_VALIDITY_STATUS,
+                q -> q.validityStatus, ActivationType::setValidityStatus);
+        addProjectedActivationItem(ActivationType.F_VALID_FROM, q -> q.validFrom,
+                (a, v) -> a.setValidFrom(MiscUtil.asXMLGregorianCalendar(v)));
+        addProjectedActivationItem(ActivationType.F_VALID_TO, q -> q.validTo,
+                (a, v) -> a.setValidTo(MiscUtil.asXMLGregorianCalendar(v)));
+        addProjectedActivationItem(ActivationType.F_VALIDITY_CHANGE_TIMESTAMP, q -> q.validityChangeTimestamp,
+                (a, v) -> a.setValidityChangeTimestamp(MiscUtil.asXMLGregorianCalendar(v)));
+        addProjectedActivationItem(ActivationType.F_ARCHIVE_TIMESTAMP, q -> q.archiveTimestamp,
+                (a, v) -> a.setArchiveTimestamp(MiscUtil.asXMLGregorianCalendar(v)));
+        addProjectedActivationItem(ActivationType.F_LOCKOUT_STATUS,
+                q -> q.lockoutStatus, ActivationType::setLockoutStatus);
+
         addRefMapping(F_PERSONA_REF, QObjectReferenceMapping.initForPersona(repositoryContext));
         addRefMapping(F_LINK_REF, QObjectReferenceMapping.initForProjection(repositoryContext));
 
@@ -129,6 +163,10 @@ public class QFocusMapping<S extends FocusType, Q extends QFocus<R>, R extends M
     @Override
     public @NotNull Path<?>[] selectExpressions(
             Q entity, Collection<SelectorOptions<GetOperationOptions>> options) {
+        Path<?>[] projection = projectionSelectExpressions(entity, options);
+        if (projection != null) {
+            return projection;
+        }
 
         List<Path<?>> paths = new ArrayList<>();
         paths.add(entity.oid);
@@ -240,6 +278,26 @@ public class QFocusMapping<S extends FocusType, Q extends QFocus<R>, R extends M
         return focus;
     }
 
+    private <T> void addProjectedActivationItem(@NotNull ItemName name,
+            @NotNull Function<Q, Path<T>> column, @NotNull BiConsumer<ActivationType, T> setter) {
+        addProjectedItem(ItemPath.create(F_ACTIVATION, name), q -> List.of(column.apply(q)),
+                (row, q, focus) -> {
+                    T value = row.get(column.apply(q));
+                    if (value != null) {
+                        setter.accept(activation(focus), value);
+                    }
+                });
+    }
+
+    private ActivationType activation(S focus) {
+        ActivationType activation = focus.getActivation();
+        if (activation == null) {
+            activation = new ActivationType();
+            focus.setActivation(activation);
+        }
+        return activation;
+    }
+
     private void loadFocusIdentitiesNormalizedData(Jsonb normalizedDataJson, S focus) throws SchemaException {
         if (normalizedDataJson != null) {
             Map<String, Object> normalizedDataMap = Jsonb.toMap(normalizedDataJson);
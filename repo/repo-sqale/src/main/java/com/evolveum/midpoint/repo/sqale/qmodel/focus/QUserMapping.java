@@ -8,6 +8,7 @@ package com.evolveum.midpoint.repo.sqale.qmodel.focus;
 
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.UserType.*;
 
+import java.util.List;
 import java.util.Objects;
 
 import org.jetbrains.annotations.NotNull;
@@ -61,6 +62,18 @@ public class QUserMapping
                 q -> q.titleOrig, q -> q.titleNorm));
         addItemMapping(F_ORGANIZATION, multiPolyStringMapper(q -> q.organizations));
         addItemMapping(F_ORGANIZATIONAL_UNIT, multiPolyStringMapper(q -> q.organizationUnits));
+
+        addProjectedItem(F_EMPLOYEE_NUMBER, q -> List.of(q.employeeNumber),
+                (row, q, user) -> user.setEmployeeNumber(row.get(q.employeeNumber)));
+        addProjectedItem(F_FAMILY_NAME, q -> List.of(q.familyNameOrig, q.familyNameNorm),
+                (row, q, user) -> user.setFamilyName(
+                        toPolyStringType(row.get(q.familyNameOrig), row.get(q.familyNameNorm))));
+        addProjectedItem(F_FULL_NAME, q -> List.of(q.fullNameOrig, q.fullNameNorm),
+                (row, q, user) -> user.setFullName(
+                        toPolyStringType(row.get(q.fullNameOrig), row.get(q.fullNameNorm))));
+        addProjectedItem(F_GIVEN_NAME, q -> List.of(q.givenNameOrig, q.givenNameNorm),
+                (row, q, user) -> user.setGivenName(
+                        toPolyStringType(row.get(q.givenNameOrig), row.get(q.givenNameNorm))));
     }
 
     @Override
@@ -10,18 +10,32 @@ import static com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentHol
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Path;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.SerializationOptions;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.path.PathSet;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.repo.api.DeleteObjectResult;
 import com.evolveum.midpoint.repo.api.RepositoryObjectDiagnosticData;
 import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.sqale.FullObjectParsingPool;
+import com.evolveum.midpoint.repo.sqale.FullObjectParsingPool.ParsingTask;
 import com.evolveum.midpoint.repo.sqale.SqaleRepoContext;
 import com.evolveum.midpoint.repo.sqale.SqaleUtils;
 import com.evolveum.midpoint.repo.sqale.mapping.SqaleTableMapping;
@@ -32,8 +46,11 @@ import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrgMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.ref.QObjectReferenceMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.ref.QReferenceMapping;
 import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.repo.sqlbase.SqlQueryContext;
 import com.evolveum.midpoint.repo.sqlbase.mapping.RepositoryMappingException;
+import com.evolveum.midpoint.repo.sqlbase.mapping.ResultListRowTransformer;
 import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.RetrieveOption;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.util.MiscUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -58,8 +75,23 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
 
     public static final String DEFAULT_ALIAS_NAME = "o";
 
+    /** Parallel parsing is not worth it for a few rows, see {@link ParallelParsingRowTransformer}. */
+    private static final int MIN_ROWS_FOR_PARALLEL_PARSING = 10;
+
+    /** Maximal number of OIDs in a single select of column-only items of subtype objects. */
+    private static final int COLUMN_ONLY_ITEMS_SELECT_CHUNK_SIZE = 1000;
+
     private static QObjectMapping<?, ?, ?> instance;
 
+    /** Parsing of the object currently transformed by the thread, if it was submitted to the parsing pool. */
+    private final ThreadLocal<PreParsedObject<S>> preParsedObject = new ThreadLocal<>();
+
+    /** Column-only items of subtype objects selected in bulk for the rows transformed by the thread, by OID. */
+    private final ThreadLocal<Map<UUID, Tuple>> preselectedColumnOnlyItems = new ThreadLocal<>();
+
+    /** Items that can be loaded from columns without the full object, see {@link #addProjectedItem}. */
+    private final List<ProjectedItem<S, Q>> projectedItems = new ArrayList<>();
+
     // Explanation in class Javadoc for SqaleTableMapping
     public static QObjectMapping<?, ?, ?> initObjectMapping(@NotNull SqaleRepoContext repositoryContext) {
         instance = new QObjectMapping<>(
@@ -135,15 +167,135 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
         addContainerTableMapping(F_TRIGGER,
                 QTriggerMapping.init(repositoryContext),
                 joinOn((o, trg) -> o.oid.eq(trg.ownerOid)));
+
+        // OID, name and version are always part of the projection
+        addProjectedItem(F_LIFECYCLE_STATE, q -> List.of(q.lifecycleState),
+                (row, q, object) -> object.setLifecycleState(row.get(q.lifecycleState)));
+        addProjectedItem(F_SUBTYPE, q -> List.of(q.subtypes),
+                (row, q, object) -> {
+                    String[] subtypes = row.get(q.subtypes);
+                    if (subtypes != null) {
+                        object.getSubtype().addAll(List.of(subtypes));
+                    }
+                });
+        // Extension is not projected, only indexed extension items are stored in the ext column.
+    }
+
+    /**
+     * Registers item that can be loaded from the provided columns, which allows to skip the full object
+     * when {@link GetOperationOptions#isProjection projection} is requested.
+     * The item is filled on a new object, there is no need to consider the existing values.
+     */
+    protected void addProjectedItem(
+            @NotNull ItemPath path,
+            @NotNull Function<Q, List<Path<?>>> columns,
+            @NotNull ProjectionLoader<S, Q> loader) {
+        projectedItems.add(new ProjectedItem<>(path, columns, loader, false));
+    }
+
+    /**
+     * Registers single-valued item that is stored only in the provided columns and is skipped in the full object.
+     * Modifications touching only such items do not rewrite the full object, see {@link #isColumnOnlyItem}.
+     * The item is always loaded from the columns and can be used for projections too.
+     *
+     * Loader must set the value even if it is null, as full objects stored before may still contain the item.
+     */
+    protected void addColumnOnlyItem(
+            @NotNull ItemPath path,
+            @NotNull Function<Q, List<Path<?>>> columns,
+            @NotNull ProjectionLoader<S, Q> loader) {
+        projectedItems.add(new ProjectedItem<>(path, columns, loader, true));
+    }
+
+    /** Returns true if the item is stored only in columns, which means that full object does not contain it. */
+    public boolean isColumnOnlyItem(@NotNull ItemPath path) {
+        return projectedItems.stream()
+                .anyMatch(pi -> pi.columnOnly && pi.path.equivalent(path));
+    }
+
+    @Override
+    protected PathSet fullObjectItemsToSkip() {
+        return PathSet.of(projectedItems.stream()
+                .filter(pi -> pi.columnOnly)
+                .map(pi -> pi.path)
+                .toArray(ItemPath[]::new));
     }
 
     @Override
     public @NotNull Path<?>[] selectExpressions(
             Q entity, Collection<SelectorOptions<GetOperationOptions>> options) {
-        // TODO: there is currently no support for index-only extensions (from entity.ext).
-        //  See how QShadowMapping.loadIndexOnly() is used, and probably compose the result of this call
-        //  using super... call in the subclasses. (joining arrays? providing mutable list?)
-        return new Path[] { entity.oid, entity.fullObject };
+        Path<?>[] projection = projectionSelectExpressions(entity, options);
+        if (projection != null) {
+            return projection;
+        }
+        return fullObjectSelectExpressions(entity).toArray(new Path[0]);
+    }
+
+    /**
+     * Returns mutable list of columns needed for the object from the full object.
+     * Besides OID and the full object itself this contains version and columns of
+     * {@link #addColumnOnlyItem column-only items}, as the full object is not updated when only these are modified.
+     * Object type is used to find objects of subtypes with their own column-only items.
+     */
+    protected List<Path<?>> fullObjectSelectExpressions(Q entity) {
+        List<Path<?>> paths = new ArrayList<>(
+                List.of(entity.oid, entity.objectType, entity.fullObject, entity.version));
+        for (ProjectedItem<S, Q> item : projectedItems) {
+            if (item.columnOnly) {
+                paths.addAll(item.columns.apply(entity));
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Returns columns for the partial object if {@link GetOperationOptions#isProjection projection} is requested
+     * and all the included items can be loaded from columns.
+     * Returns null otherwise, which means that the full object must be selected.
+     * Subclasses overriding {@link #selectExpressions} should call this first if they support projections.
+     */
+    protected @Nullable Path<?>[] projectionSelectExpressions(
+            Q entity, Collection<SelectorOptions<GetOperationOptions>> options) {
+        List<ProjectedItem<S, Q>> items = projectedItemsFor(options);
+        if (items == null) {
+            return null;
+        }
+
+        Set<Path<?>> paths = new LinkedHashSet<>(
+                List.of(entity.oid, entity.objectType, entity.nameOrig, entity.nameNorm, entity.version));
+        for (ProjectedItem<S, Q> item : items) {
+            paths.addAll(item.columns.apply(entity));
+        }
+        return paths.toArray(new Path[0]);
+    }
+
+    /** Returns projected items for the included paths or null if projection is not requested or possible. */
+    private @Nullable List<ProjectedItem<S, Q>> projectedItemsFor(
+            Collection<SelectorOptions<GetOperationOptions>> options) {
+        GetOperationOptions rootOptions = SelectorOptions.findRootOptions(options);
+        if (!GetOperationOptions.isProjection(rootOptions)
+                || GetOperationOptions.isAttachDiagData(rootOptions)
+                || GetOperationOptions.getRetrieve(rootOptions) == RetrieveOption.INCLUDE) {
+            return null;
+        }
+
+        List<ProjectedItem<S, Q>> result = new ArrayList<>();
+        for (SelectorOptions<GetOperationOptions> option : SelectorOptions.filterRetrieveOptions(options)) {
+            if (option.isRoot() || option.getOptions().getRetrieve() != RetrieveOption.INCLUDE) {
+                continue;
+            }
+            ItemPath path = option.getSelector().getPath();
+            ProjectedItem<S, Q> item = projectedItems.stream()
+                    .filter(pi -> pi.path.equivalent(path))
+                    .findFirst()
+                    .orElse(null);
+            if (item == null) {
+                logger.trace("Projection not possible for {}, item {} requires full object", schemaType(), path);
+                return null;
+            }
+            result.add(item);
+        }
+        return result;
     }
 
     @Override
@@ -166,9 +318,17 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
             @NotNull JdbcSession jdbcSession,
             Collection<SelectorOptions<GetOperationOptions>> options)
             throws SchemaException {
-        byte[] fullObject = Objects.requireNonNull(row.get(entityPath.fullObject));
+        byte[] fullObject = row.get(entityPath.fullObject);
+        if (fullObject == null) {
+            List<ProjectedItem<S, Q>> items = projectedItemsFor(options);
+            if (items != null) {
+                return toPartialSchemaObject(row, entityPath, items);
+            }
+        }
+        Objects.requireNonNull(fullObject);
         UUID oid = Objects.requireNonNull(row.get(entityPath.oid));
         S ret = parseSchemaObject(fullObject, oid.toString());
+        loadColumnOnlyItems(row, entityPath, ret, jdbcSession);
         if (GetOperationOptions.isAttachDiagData(SelectorOptions.findRootOptions(options))) {
             RepositoryObjectDiagnosticData diagData = new RepositoryObjectDiagnosticData(fullObject.length);
             ret.asPrismContainer().setUserData(RepositoryService.KEY_DIAG_DATA, diagData);
@@ -176,6 +336,201 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
         return ret;
     }
 
+    /**
+     * Sets version and column-only items from the columns, which are always up-to-date, unlike the full object.
+     * This is done only if the version was selected, that is when {@link #fullObjectSelectExpressions} were used.
+     * If the object was read using the mapping of its supertype, column-only items are taken from those
+     * selected in bulk by {@link ColumnOnlyItemsRowTransformer}, or selected separately for a single object.
+     */
+    private void loadColumnOnlyItems(Tuple row, Q entityPath, S object, JdbcSession jdbcSession)
+            throws SchemaException {
+        Integer version = row.get(entityPath.version);
+        if (version == null) {
+            return;
+        }
+
+        object.setVersion(String.valueOf(version));
+        if (object.getClass() != schemaType()) {
+            QObjectMapping<S, ?, ?> objectMapping =
+                    repositoryContext().getMappingBySchemaType(SqaleUtils.getClass(object));
+            if (!objectMapping.hasColumnOnlyItems()) {
+                return;
+            }
+            UUID oid = SqaleUtils.oidToUuidMandatory(object.getOid());
+            Map<UUID, Tuple> preselected = preselectedColumnOnlyItems.get();
+            Tuple columnOnlyRow = preselected != null
+                    ? preselected.get(oid)
+                    : objectMapping.selectColumnOnlyItems(List.of(oid), jdbcSession).get(oid);
+            if (columnOnlyRow != null) {
+                objectMapping.loadColumnOnlyItems(columnOnlyRow, object);
+            }
+            return;
+        }
+
+        for (ProjectedItem<S, Q> item : projectedItems) {
+            if (item.columnOnly) {
+                item.loader.load(row, entityPath, object);
+            }
+        }
+    }
+
+    /** Returns true if there are any {@link #addColumnOnlyItem column-only items} for this type. */
+    public boolean hasColumnOnlyItems() {
+        return projectedItems.stream().anyMatch(pi -> pi.columnOnly);
+    }
+
+    /**
+     * Selects columns of column-only items for the provided OIDs, in chunks if necessary.
+     * Returned rows are keyed by OID and are to be loaded by {@link #loadColumnOnlyItems(Tuple, ObjectType)}.
+     */
+    private Map<UUID, Tuple> selectColumnOnlyItems(List<UUID> oids, JdbcSession jdbcSession) {
+        Q q = defaultAlias();
+        List<Path<?>> columns = new ArrayList<>(List.of(q.oid));
+        for (ProjectedItem<S, Q> item : projectedItems) {
+            if (item.columnOnly) {
+                columns.addAll(item.columns.apply(q));
+            }
+        }
+
+        Map<UUID, Tuple> rows = new HashMap<>();
+        for (int from = 0; from < oids.size(); from += COLUMN_ONLY_ITEMS_SELECT_CHUNK_SIZE) {
+            List<UUID> chunk = oids.subList(from, Math.min(from + COLUMN_ONLY_ITEMS_SELECT_CHUNK_SIZE, oids.size()));
+            List<Tuple> chunkRows = jdbcSession.newQuery()
+                    .select(columns.toArray(new Path[0]))
+                    .from(q)
+                    .where(q.oid.in(chunk))
+                    .fetch();
+            for (Tuple row : chunkRows) {
+                rows.put(row.get(q.oid), row);
+            }
+        }
+        return rows;
+    }
+
+    private void loadColumnOnlyItems(Tuple row, S object) throws SchemaException {
+        Q q = defaultAlias();
+        for (ProjectedItem<S, Q> item : projectedItems) {
+            if (item.columnOnly) {
+                item.loader.load(row, q, object);
+            }
+        }
+    }
+
+    /**
+     * Selects column-only items of all subtype objects in the rows with one select per type
+     * (and chunk of OIDs), to avoid a separate select for each object in {@link #loadColumnOnlyItems}.
+     */
+    private Map<UUID, Tuple> preselectColumnOnlyItems(
+            List<Tuple> rowTuples, Q entityPath, JdbcSession jdbcSession) {
+        Map<MObjectType, List<UUID>> oidsByType = new HashMap<>();
+        for (Tuple rowTuple : rowTuples) {
+            MObjectType objectType = rowTuple.get(entityPath.objectType);
+            UUID oid = rowTuple.get(entityPath.oid);
+            if (objectType != null && oid != null && rowTuple.get(entityPath.version) != null
+                    && objectType.getSchemaType() != schemaType()) {
+                oidsByType.computeIfAbsent(objectType, k -> new ArrayList<>()).add(oid);
+            }
+        }
+
+        Map<UUID, Tuple> rows = new HashMap<>();
+        oidsByType.forEach((objectType, oids) -> {
+            QObjectMapping<?, ?, ?> objectMapping = objectMapping(objectType.getSchemaType());
+            if (objectMapping.hasColumnOnlyItems()) {
+                rows.putAll(objectMapping.selectColumnOnlyItems(oids, jdbcSession));
+            }
+        });
+        return rows;
+    }
+
+    /**
+     * Selects objects with the provided OIDs, e.g. owners of containers or references found by a search.
+     * Objects are read like by {@link #toSchemaObject}, with version and column-only items (for subtypes selected
+     * in bulk), so they are not stale even if only column-only items were modified.
+     * Objects that do not exist are not in the returned map.
+     */
+    public Map<UUID, S> selectObjects(Collection<UUID> oids, JdbcSession jdbcSession) throws SchemaException {
+        Q q = defaultAlias();
+        List<Tuple> rows = jdbcSession.newQuery()
+                .select(fullObjectSelectExpressions(q).toArray(new Path[0]))
+                .from(q)
+                .where(q.oid.in(oids))
+                .fetch();
+
+        Map<UUID, S> objects = new HashMap<>();
+        Map<UUID, Tuple> outerPreselected = preselectedColumnOnlyItems.get(); // if called during a transformation
+        preselectedColumnOnlyItems.set(preselectColumnOnlyItems(rows, q, jdbcSession));
+        try {
+            for (Tuple row : rows) {
+                objects.put(Objects.requireNonNull(row.get(q.oid)), toSchemaObject(row, q, jdbcSession, null));
+            }
+        } finally {
+            if (outerPreselected != null) {
+                preselectedColumnOnlyItems.set(outerPreselected);
+            } else {
+                preselectedColumnOnlyItems.remove();
+            }
+        }
+        return objects;
+    }
+
+    private <T extends ObjectType> QObjectMapping<T, ?, ?> objectMapping(Class<T> schemaType) {
+        return repositoryContext().getMappingBySchemaType(schemaType);
+    }
+
+    /**
+     * Returns serialized form of the object as stored in the repository for {@link DeleteObjectResult},
+     * including column-only items that are not in the full object.
+     * Row must be selected with {@link #fullObjectSelectExpressions} and this must be called before the delete,
+     * as column-only items may need to be selected for objects of subtypes.
+     */
+    public String serializeForDeleteResult(Tuple row, Q entityPath, JdbcSession jdbcSession)
+            throws SchemaException {
+        byte[] fullObject = Objects.requireNonNull(row.get(entityPath.fullObject));
+        MObjectType objectType = Objects.requireNonNull(row.get(entityPath.objectType));
+        QObjectMapping<?, ?, ?> objectMapping = objectMapping(objectType.getSchemaType());
+        if (!objectMapping.hasColumnOnlyItems()) {
+            return repositoryContext().decodeFullObject(fullObject);
+        }
+
+        S object = toSchemaObject(row, entityPath, jdbcSession, null);
+        return repositoryContext().createStringSerializer()
+                .options(SerializationOptions
+                        .createSerializeReferenceNamesForNullOids()
+                        .skipIndexOnly(true)
+                        .skipTransient(true)
+                        .skipWhitespaces(true))
+                .serialize(object.asPrismContainerValue());
+    }
+
+    /**
+     * Creates partial object from the columns selected by {@link #projectionSelectExpressions}.
+     * Object has OID, name and version and the included items, it is marked with
+     * {@link RepositoryService#KEY_PARTIAL_OBJECT} user data.
+     */
+    private S toPartialSchemaObject(Tuple row, Q entityPath, List<ProjectedItem<S, Q>> items)
+            throws SchemaException {
+        MObjectType objectType = Objects.requireNonNull(row.get(entityPath.objectType));
+        //noinspection unchecked
+        PrismObject<S> prismObject = (PrismObject<S>) prismContext().createObject(objectType.getSchemaType());
+        S object = prismObject.asObjectable();
+        object.setOid(Objects.requireNonNull(row.get(entityPath.oid)).toString());
+        object.setName(toPolyStringType(row.get(entityPath.nameOrig), row.get(entityPath.nameNorm)));
+        Integer version = row.get(entityPath.version);
+        if (version != null) {
+            object.setVersion(String.valueOf(version));
+        }
+        for (ProjectedItem<S, Q> item : items) {
+            item.loader.load(row, entityPath, object);
+        }
+        prismObject.setUserData(RepositoryService.KEY_PARTIAL_OBJECT, Boolean.TRUE);
+        return object;
+    }
+
+    /** Returns poly-string for projected item from its orig and norm columns. */
+    protected @Nullable PolyStringType toPolyStringType(@Nullable String orig, @Nullable String norm) {
+        return orig != null ? new PolyStringType(new PolyString(orig, norm)) : null;
+    }
+
     /**
      * The same function as in overridden method, but softer exception handling.
      * This targets cases like {@link RepositoryService#searchObjects} where single wrong object
@@ -206,6 +561,156 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
         }
     }
 
+    /**
+     * Uses the result of parallel parsing if the object is being transformed by {@link ParallelParsingRowTransformer}.
+     */
+    @Override
+    protected S parseSchemaObject(byte[] fullObject, String identifier) throws SchemaException {
+        PreParsedObject<S> preParsed = preParsedObject.get();
+        if (preParsed != null && preParsed.fullObject == fullObject) {
+            return preParsed.parsingTask.get();
+        }
+        return super.parseSchemaObject(fullObject, identifier);
+    }
+
+    @Override
+    public ResultListRowTransformer<S, Q, R> createRowTransformer(
+            SqlQueryContext<S, Q, R> sqlQueryContext, JdbcSession jdbcSession) {
+        FullObjectParsingPool parsingPool = repositoryContext().getFullObjectParsingPool();
+        ResultListRowTransformer<S, Q, R> transformer = parsingPool != null
+                ? new ParallelParsingRowTransformer(parsingPool, jdbcSession)
+                : super.createRowTransformer(sqlQueryContext, jdbcSession);
+        return new ColumnOnlyItemsRowTransformer(transformer, jdbcSession);
+    }
+
+    /**
+     * Selects column-only items of subtype objects for all the rows (of a fetched chunk) before the rows are
+     * transformed by the wrapped transformer, see {@link #preselectColumnOnlyItems}.
+     */
+    private class ColumnOnlyItemsRowTransformer implements ResultListRowTransformer<S, Q, R> {
+
+        private final ResultListRowTransformer<S, Q, R> transformer;
+        private final JdbcSession jdbcSession;
+
+        private Map<UUID, Tuple> preselected = Map.of();
+
+        private ColumnOnlyItemsRowTransformer(ResultListRowTransformer<S, Q, R> transformer, JdbcSession jdbcSession) {
+            this.transformer = transformer;
+            this.jdbcSession = jdbcSession;
+        }
+
+        @Override
+        public void beforeTransformation(List<Tuple> rowTuples, Q entityPath) throws SchemaException {
+            transformer.beforeTransformation(rowTuples, entityPath);
+            preselected = preselectColumnOnlyItems(rowTuples, entityPath, jdbcSession);
+        }
+
+        @Override
+        public S transform(Tuple rowTuple, Q entityPath, Collection<SelectorOptions<GetOperationOptions>> options) {
+            preselectedColumnOnlyItems.set(preselected);
+            try {
+                return transformer.transform(rowTuple, entityPath, options);
+            } finally {
+                preselectedColumnOnlyItems.remove();
+            }
+        }
+
+        @Override
+        public void finishTransformation() throws SchemaException {
+            preselected = Map.of();
+            transformer.finishTransformation();
+        }
+    }
+
+    /**
+     * Submits parsing of all the full objects to the parsing pool before the rows are transformed
+     * in their original order.
+     * The transformation itself is unchanged, only {@link #parseSchemaObject(byte[], String)} takes the object
+     * from the finished parsing task - or runs the task if the pool has not started it yet.
+     */
+    private class ParallelParsingRowTransformer implements ResultListRowTransformer<S, Q, R> {
+
+        private final FullObjectParsingPool parsingPool;
+        private final JdbcSession jdbcSession;
+
+        // Identity is enough, the transformation gets the very same byte array from the same tuple.
+        private final Map<byte[], ParsingTask<S>> parsingTasks = new IdentityHashMap<>();
+
+        private ParallelParsingRowTransformer(FullObjectParsingPool parsingPool, JdbcSession jdbcSession) {
+            this.parsingPool = parsingPool;
+            this.jdbcSession = jdbcSession;
+        }
+
+        @Override
+        public void beforeTransformation(List<Tuple> rowTuples, Q entityPath) {
+            if (rowTuples.size() < MIN_ROWS_FOR_PARALLEL_PARSING) {
+                return;
+            }
+            for (Tuple rowTuple : rowTuples) {
+                byte[] fullObject = rowTuple.get(entityPath.fullObject);
+                UUID oid = rowTuple.get(entityPath.oid);
+                if (fullObject != null && oid != null) {
+                    parsingTasks.put(fullObject, parsingPool.submit(
+                            () -> parseSchemaObject(fullObject, oid.toString())));
+                }
+            }
+        }
+
+        @Override
+        public S transform(Tuple rowTuple, Q entityPath, Collection<SelectorOptions<GetOperationOptions>> options) {
+            byte[] fullObject = rowTuple.get(entityPath.fullObject);
+            ParsingTask<S> parsingTask = fullObject != null ? parsingTasks.remove(fullObject) : null;
+            if (parsingTask == null) {
+                return toSchemaObjectCompleteSafe(rowTuple, entityPath, options, jdbcSession, false);
+            }
+
+            preParsedObject.set(new PreParsedObject<>(fullObject, parsingTask));
+            try {
+                return toSchemaObjectCompleteSafe(rowTuple, entityPath, options, jdbcSession, false);
+            } finally {
+                preParsedObject.remove();
+            }
+        }
+
+        @Override
+        public void finishTransformation() {
+            // Normally empty, unless some rows were not transformed.
+            parsingTasks.values().forEach(ParsingTask::cancel);
+            parsingTasks.clear();
+        }
+    }
+
+    /** Loads the projected item from the selected columns into the new partial object. */
+    @FunctionalInterface
+    protected interface ProjectionLoader<S, Q> {
+        void load(Tuple row, Q entityPath, S object) throws SchemaException;
+    }
+
+    private static class ProjectedItem<S, Q> {
+        private final ItemPath path;
+        private final Function<Q, List<Path<?>>> columns;
+        private final ProjectionLoader<S, Q> loader;
+        private final boolean columnOnly;
+
+        private ProjectedItem(ItemPath path, Function<Q, List<Path<?>>> columns,
+                ProjectionLoader<S, Q> loader, boolean columnOnly) {
+            this.path = path;
+            this.columns = columns;
+            this.loader = loader;
+            this.columnOnly = columnOnly;
+        }
+    }
+
+    private static class PreParsedObject<S> {
+        private final byte[] fullObject;
+        private final ParsingTask<S> parsingTask;
+
+        private PreParsedObject(byte[] fullObject, ParsingTask<S> parsingTask) {
+            this.fullObject = fullObject;
+            this.parsingTask = parsingTask;
+        }
+    }
+
     /**
      * Override this to fill additional row attributes after calling this super version.
      *
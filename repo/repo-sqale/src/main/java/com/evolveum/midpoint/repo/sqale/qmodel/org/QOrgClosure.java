@@ -6,6 +6,9 @@
  */
 package com.evolveum.midpoint.repo.sqale.qmodel.org;
 
+import java.sql.Types;
+
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.sql.ColumnMetadata;
 
 import com.evolveum.midpoint.repo.sqale.SqaleQueryContext;
@@ -18,12 +21,16 @@ import com.evolveum.midpoint.repo.sqlbase.querydsl.UuidPath;
  * Can also be used for common table expression (CTE) representing org hierarchy on the fly.
  * This does not have to be under {@link FlexibleRelationalPathBase}, but is for convenience.
  *
+ * The table is maintained incrementally by DB triggers when parent-org references of orgs change.
+ * Column `paths` contains the number of different paths between the ancestor and the descendant.
+ *
  * [IMPORTANT]
- * *Be aware that the materialized view is refreshed only on demand!*
+ * *Be aware that after some changes (e.g. cycle in the hierarchy) the table is rebuilt only on demand!*
  * This is executed when {@link com.evolveum.midpoint.prism.query.OrgFilter} is used in
  * {@link SqaleQueryContext#beforeQuery()} or when executing
  * {@link SqaleRepositoryService#isAnySubordinate(java.lang.String, java.util.Collection)}.
  * If any access via other paths is done, use statement `CALL m_refresh_org_closure()` before.
+ * The call is cheap when no rebuild is needed.
  */
 @SuppressWarnings("unused")
 public class QOrgClosure extends FlexibleRelationalPathBase<MOrgClosure> {
@@ -38,9 +45,12 @@ public class QOrgClosure extends FlexibleRelationalPathBase<MOrgClosure> {
             ColumnMetadata.named("ancestor_oid").ofType(UuidPath.UUID_TYPE);
     public static final ColumnMetadata DESCENDANT_OID =
             ColumnMetadata.named("descendant_oid").ofType(UuidPath.UUID_TYPE);
+    public static final ColumnMetadata PATHS =
+            ColumnMetadata.named("paths").ofType(Types.BIGINT);
 
     public final UuidPath ancestorOid = createUuid("ancestorOid", ANCESTOR_OID);
     public final UuidPath descendantOid = createUuid("descendantOid", DESCENDANT_OID);
+    public final NumberPath<Long> paths = createLong("paths", PATHS);
 
     public QOrgClosure() {
         this(DEFAULT_ALIAS_NAME, DEFAULT_SCHEMA_NAME);
@@ -101,6 +101,16 @@ public class QShadowMapping
                 ctx -> new CountItemDeltaProcessor<>(ctx, q -> q.pendingOperationCount)));
         addRelationResolver(F_PENDING_OPERATION,
                 new CountMappingResolver<>(q -> q.pendingOperationCount));
+
+        // Updated on each synchronization, which should not rewrite full objects with many attributes.
+        addColumnOnlyItem(F_SYNCHRONIZATION_TIMESTAMP, q -> List.of(q.synchronizationTimestamp),
+                (row, q, shadow) -> shadow.setSynchronizationTimestamp(
+                        MiscUtil.asXMLGregorianCalendar(row.get(q.synchronizationTimestamp))));
+        addColumnOnlyItem(F_FULL_SYNCHRONIZATION_TIMESTAMP, q -> List.of(q.fullSynchronizationTimestamp),
+                (row, q, shadow) -> shadow.setFullSynchronizationTimestamp(
+                        MiscUtil.asXMLGregorianCalendar(row.get(q.fullSynchronizationTimestamp))));
+        addColumnOnlyItem(F_SYNCHRONIZATION_SITUATION, q -> List.of(q.synchronizationSituation),
+                (row, q, shadow) -> shadow.setSynchronizationSituation(row.get(q.synchronizationSituation)));
     }
 
     @Override
@@ -207,10 +217,11 @@ public class QShadowMapping
             Collection<SelectorOptions<GetOperationOptions>> options) {
         var retrieveOptions = SelectorOptions.filterRetrieveOptions(options);
         boolean isRaw = GetOperationOptions.isRaw(SelectorOptions.findRootOptions(options));
+        List<Path<?>> paths = fullObjectSelectExpressions(entity);
         if (isRaw || SelectorOptions.hasToFetchPathNotRetrievedByDefault(F_ATTRIBUTES, retrieveOptions)) {
-            return new Path[] { entity.oid, entity.fullObject, entity.attributes };
+            paths.add(entity.attributes);
         }
-        return new Path[] { entity.oid, entity.fullObject };
+        return paths.toArray(new Path[0]);
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
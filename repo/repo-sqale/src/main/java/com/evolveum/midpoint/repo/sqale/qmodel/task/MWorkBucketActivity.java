@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.qmodel.task;
+
+import java.math.BigInteger;
+import java.util.UUID;
+
+/**
+ * Querydsl "row bean" type related to {@link QWorkBucketActivity}.
+ */
+public class MWorkBucketActivity {
+
+    public UUID coordinatorOid;
+    public String activityPath;
+    public BigInteger adaptiveBucketSize;
+
+    @Override
+    public String toString() {
+        return "MWorkBucketActivity{" +
+                "coordinatorOid=" + coordinatorOid +
+                ", activityPath='" + activityPath + '\'' +
+                ", adaptiveBucketSize=" + adaptiveBucketSize +
+                '}';
+    }
+}
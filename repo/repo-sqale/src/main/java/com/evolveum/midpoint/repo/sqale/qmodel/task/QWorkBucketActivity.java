@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.qmodel.task;
+
+import java.math.BigInteger;
+import java.sql.Types;
+
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.PrimaryKey;
+
+import com.evolveum.midpoint.repo.sqlbase.querydsl.FlexibleRelationalPathBase;
+import com.evolveum.midpoint.repo.sqlbase.querydsl.UuidPath;
+
+/**
+ * Querydsl query type for {@value #TABLE_NAME} table that contains per-activity data of distributed activities
+ * with buckets in {@link QWorkBucket#TABLE_NAME} table, see {@link com.evolveum.midpoint.repo.sqale.SqaleWorkBucketStore}.
+ * This entity is not registered to any schema type so it doesn't have related mapping class.
+ * Use {@link #DEFAULT} for default alias directly.
+ */
+public class QWorkBucketActivity extends FlexibleRelationalPathBase<MWorkBucketActivity> {
+
+    private static final long serialVersionUID = -6232064941790165384L;
+
+    public static final String TABLE_NAME = "m_work_bucket_activity";
+
+    public static final QWorkBucketActivity DEFAULT = new QWorkBucketActivity("wba");
+
+    public static final ColumnMetadata COORDINATOR_OID =
+            ColumnMetadata.named("coordinatorOid").ofType(UuidPath.UUID_TYPE).notNull();
+    public static final ColumnMetadata ACTIVITY_PATH =
+            ColumnMetadata.named("activityPath").ofType(Types.VARCHAR).notNull();
+    public static final ColumnMetadata ADAPTIVE_BUCKET_SIZE =
+            ColumnMetadata.named("adaptiveBucketSize").ofType(Types.NUMERIC);
+
+    public final UuidPath coordinatorOid = createUuid("coordinatorOid", COORDINATOR_OID);
+    public final StringPath activityPath = createString("activityPath", ACTIVITY_PATH);
+    public final NumberPath<BigInteger> adaptiveBucketSize =
+            createNumber("adaptiveBucketSize", BigInteger.class, ADAPTIVE_BUCKET_SIZE);
+
+    public final PrimaryKey<MWorkBucketActivity> pk = createPrimaryKey(coordinatorOid, activityPath);
+
+    public QWorkBucketActivity(String variable) {
+        this(variable, DEFAULT_SCHEMA_NAME, TABLE_NAME);
+    }
+
+    public QWorkBucketActivity(String variable, String schema, String table) {
+        super(MWorkBucketActivity.class, variable, schema, table);
+    }
+}
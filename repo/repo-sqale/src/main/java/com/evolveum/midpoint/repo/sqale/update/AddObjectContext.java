@@ -52,7 +52,8 @@ public class AddObjectContext<S extends ObjectType, Q extends QObject<R>, R exte
      */
     public String execute()
             throws SchemaException, ObjectAlreadyExistsException {
-        try (JdbcSession jdbcSession = repositoryContext.newJdbcSession().startTransaction()) {
+        try (JdbcSession jdbcSession =
+                repositoryContext.newJdbcSessionForWriting(object.getCompileTimeClass()).startTransaction()) {
             String oid = execute(jdbcSession);
             jdbcSession.commit();
             return oid;
@@ -79,6 +80,27 @@ public class AddObjectContext<S extends ObjectType, Q extends QObject<R>, R exte
         }
     }
 
+    /**
+     * Like {@link #execute(JdbcSession)}, but all the rows (including the main one) are inserted
+     * using {@link JdbcSession#insert}, so they can be batched together with rows of other objects.
+     * Object without OID gets it generated here, as we can't wait for the database to do so.
+     */
+    public String executeBatched(JdbcSession jdbcSession) throws SchemaException {
+        object.setVersion(INITIAL_VERSION_STRING);
+        initContexts();
+        if (object.getOid() == null) {
+            object.setOid(UUID.randomUUID().toString());
+        }
+
+        R row = toRowWithFullObject(jdbcSession);
+        jdbcSession.insert(root, row);
+
+        row.objectType = objectType; // sub-entities can use it, now it's safe to set it
+        rootMapping.storeRelatedEntities(row, object.asObjectable(), jdbcSession);
+
+        return object.getOid();
+    }
+
     public void executeReindexed(JdbcSession jdbcSession)
             throws SchemaException, ObjectAlreadyExistsException {
         try {
@@ -101,11 +123,7 @@ public class AddObjectContext<S extends ObjectType, Q extends QObject<R>, R exte
     }
 
     private String addObjectWithOid(JdbcSession jdbcSession) throws SchemaException {
-        long lastCid = new ContainerValueIdGenerator(object).generateForNewObject();
-        S schemaObject = object.asObjectable();
-        R row = rootMapping.toRowObjectWithoutFullObject(schemaObject, jdbcSession);
-        row.containerIdSeq = lastCid + 1;
-        rootMapping.setFullObject(row, schemaObject);
+        R row = toRowWithFullObject(jdbcSession);
 
         UUID oid = jdbcSession.newInsert(root)
                 // default populate mapper ignores null, that's good, especially for objectType
@@ -113,12 +131,22 @@ public class AddObjectContext<S extends ObjectType, Q extends QObject<R>, R exte
                 .executeWithKey(root.oid);
 
         row.objectType = objectType; // sub-entities can use it, now it's safe to set it
-        rootMapping.storeRelatedEntities(row, schemaObject, jdbcSession);
+        rootMapping.storeRelatedEntities(row, object.asObjectable(), jdbcSession);
 
         return Objects.requireNonNull(oid, "OID of inserted object can't be null")
                 .toString();
     }
 
+    /** Object must have OID at this point. */
+    private R toRowWithFullObject(JdbcSession jdbcSession) throws SchemaException {
+        long lastCid = new ContainerValueIdGenerator(object).generateForNewObject();
+        S schemaObject = object.asObjectable();
+        R row = rootMapping.toRowObjectWithoutFullObject(schemaObject, jdbcSession);
+        row.containerIdSeq = lastCid + 1;
+        rootMapping.setFullObject(row, schemaObject);
+        return row;
+    }
+
     private String addObjectWithoutOid(JdbcSession jdbcSession) throws SchemaException {
         S schemaObject = object.asObjectable();
         R row = rootMapping.toRowObjectWithoutFullObject(schemaObject, jdbcSession);
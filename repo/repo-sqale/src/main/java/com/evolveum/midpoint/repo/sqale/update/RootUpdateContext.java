@@ -52,6 +52,9 @@ public class RootUpdateContext<S extends ObjectType, Q extends QObject<R>, R ext
 
     private ContainerValueIdGenerator cidGenerator;
 
+    /** False if only column-only items were modified and the full object does not need to be rewritten. */
+    private boolean fullObjectChanged = true;
+
     public RootUpdateContext(SqaleRepoContext repositoryContext,
             JdbcSession jdbcSession, S object, R rootRow) {
         super(repositoryContext, jdbcSession, rootRow);
@@ -103,6 +106,9 @@ public class RootUpdateContext<S extends ObjectType, Q extends QObject<R>, R ext
 
         cidGenerator = new ContainerValueIdGenerator(getPrismObject())
                 .forModifyObject(row.containerIdSeq);
+        // Without table updates the columns would not be changed, so the full object must be.
+        fullObjectChanged = !updateTables
+                || modifications.stream().anyMatch(m -> !mapping.isColumnOnlyItem(m.getPath()));
 
         for (ItemDelta<?, ?> modification : modifications) {
             try {
@@ -163,7 +169,9 @@ public class RootUpdateContext<S extends ObjectType, Q extends QObject<R>, R ext
     /**
      * Executes all necessary SQL updates (including sub-entity inserts/deletes)
      * for the enclosed {@link #object}.
-     * This also increments the version information and serializes `fullObject`.
+     * This also increments the version information and serializes `fullObject`,
+     * unless only {@link QObjectMapping#isColumnOnlyItem column-only items} were modified.
+     * In that case the full object is not touched at all, which saves a lot of writing for big objects.
      *
      * This is made public for cases when we want to update full object even without modifications.
      */
@@ -180,7 +188,11 @@ public class RootUpdateContext<S extends ObjectType, Q extends QObject<R>, R ext
         if (cidGenerator != null) {
             update.set(rootPath.containerIdSeq, cidGenerator.lastUsedId() + 1);
         }
-        update.set(rootPath.fullObject, mapping.createFullObject(object));
+        if (fullObjectChanged) {
+            update.set(rootPath.fullObject, mapping.createFullObject(object));
+        } else {
+            logger.trace("Only column-only items were modified, full object is not updated");
+        }
 
         long rows = update.execute();
         if (rows != 1) {
@@ -104,6 +104,8 @@ public class SqaleRepoBaseTest extends AbstractSpringTest
             // truncate does not run ON DELETE trigger, many refs/container tables are not cleaned
             jdbcSession.executeStatement("TRUNCATE m_object_oid CASCADE;");
             // but after truncating m_object_oid it cleans all the tables
+            // truncate also flags org closure for rebuild, it's cheap now and closure is maintained again
+            jdbcSession.executeStatement("CALL m_refresh_org_closure(true);");
 
             // audit is cleaned on-demand using clearAudit()
 
@@ -8,16 +8,26 @@ package com.evolveum.midpoint.repo.sqale.func;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
 import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Date;
 import java.util.UUID;
 
+import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.core.types.dsl.NumberExpression;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.Test;
 
 import com.evolveum.midpoint.audit.api.AuditEventRecord;
+import com.evolveum.midpoint.init.AuditServiceProxy;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.SqaleRepositoryConfiguration;
+import com.evolveum.midpoint.repo.sqale.audit.SqaleAuditService;
+import com.evolveum.midpoint.repo.sqale.audit.qmodel.QAuditDelta;
 import com.evolveum.midpoint.repo.sqale.audit.qmodel.QAuditEventRecord;
 import com.evolveum.midpoint.repo.sqale.audit.qmodel.QAuditEventRecordMapping;
 import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
@@ -32,6 +42,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
 
 /**
  * Just a functional test, not performance.
+ * Partitions are created only by test300 and are dropped after the class.
  */
 @SuppressWarnings("unchecked")
 public class AuditCleanupTest extends SqaleRepoBaseTest {
@@ -146,6 +157,102 @@ public class AuditCleanupTest extends SqaleRepoBaseTest {
                 .isZero(); // start + 40s should be < now - 60s, it should be all gone
     }
 
+    @Test
+    public void test210CleanupByAgeInBatches() throws SchemaException {
+        given("audit has 100 records across the last 100s and small delete batch size");
+        OperationResult operationResult = createOperationResult();
+        long startTimestamp = System.currentTimeMillis() - 100_000;
+        prepareAuditRecords(startTimestamp, 100, operationResult);
+        QAuditEventRecord qae = QAuditEventRecordMapping.get().defaultAlias();
+        SqaleRepositoryConfiguration auditConfiguration = ((AuditServiceProxy) auditService)
+                .getImplementation(SqaleAuditService.class).repositoryConfiguration();
+        int originalBatchSize = auditConfiguration.getCleanupDeleteBatchSize();
+        auditConfiguration.setCleanupDeleteBatchSize(7);
+
+        try {
+            when("audit cleanup is called to leave just last 1 minute");
+            auditService.cleanupAudit(new CleanupPolicyType()
+                    .maxAge(XmlTypeConverter.createDuration("PT1M")), operationResult);
+        } finally {
+            auditConfiguration.setCleanupDeleteBatchSize(originalBatchSize);
+        }
+
+        then("operation is success and the result is the same as with a single delete");
+        assertThatOperationResult(operationResult).isSuccess();
+        assertThat(count(qae)).isLessThanOrEqualTo(60)
+                .isGreaterThan(55);
+        assertThat(count(qae, qae.timestamp.lt(Instant.ofEpochMilli(startTimestamp + 40_000))))
+                .isZero();
+        assertThat(count(QAuditDelta.class)).isEqualTo(count(qae)); // one delta per record
+    }
+
+    @Test
+    public void test300CleanupByAgeDropsOldPartitions() throws SchemaException {
+        given("audit partitions for the last months and records in old and current partitions");
+        clearAudit();
+        executeStatement("CALL audit_create_monthly_partitions(-4)");
+        OperationResult operationResult = createOperationResult();
+        long now = System.currentTimeMillis();
+        long oldTimestamp = now - 80L * 24 * 3600 * 1000; // 80 days ago
+        prepareAuditRecords(oldTimestamp, 10, operationResult);
+        String oldPartitionSuffix = new SimpleDateFormat("yyyyMM").format(new Date(oldTimestamp));
+        assertThat(tableExists("ma_audit_event_" + oldPartitionSuffix)).isTrue();
+        addAuditRecordsWithoutClearing(now - 1000, 5, operationResult);
+        QAuditEventRecord qae = QAuditEventRecordMapping.get().defaultAlias();
+        assertCount(qae, 15);
+
+        when("audit cleanup is called to leave just the last 40 days");
+        auditService.cleanupAudit(new CleanupPolicyType()
+                .maxAge(XmlTypeConverter.createDuration("P40D")), operationResult);
+
+        then("operation is success and the old partition is dropped with all its child partitions");
+        assertThatOperationResult(operationResult).isSuccess();
+        assertThat(tableExists("ma_audit_event_" + oldPartitionSuffix)).isFalse();
+        assertThat(tableExists("ma_audit_delta_" + oldPartitionSuffix)).isFalse();
+        assertThat(tableExists("ma_audit_ref_" + oldPartitionSuffix)).isFalse();
+        assertCount(qae, 5);
+
+        and("partitions for the following months are created");
+        String nextMonthSuffix = new SimpleDateFormat("yyyyMM").format(
+                Date.from(ZonedDateTime.now().plusMonths(1).toInstant()));
+        assertThat(tableExists("ma_audit_event_" + nextMonthSuffix)).isTrue();
+    }
+
+    @AfterClass
+    public void dropMonthlyPartitions() throws SQLException {
+        clearAudit();
+        // drops all partitions created by tests, other test classes don't expect them;
+        // the procedure commits after each partition, so it must not be called in a transaction
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession()) {
+            jdbcSession.connection().setAutoCommit(true);
+            jdbcSession.executeStatement("CALL audit_drop_partitions_older_than('infinity')");
+        }
+    }
+
+    private void addAuditRecordsWithoutClearing(long startTimestamp, int count, OperationResult result) {
+        for (int i = 1; i <= count; i++) {
+            AuditEventRecord record = new AuditEventRecord();
+            record.setParameter("new-" + i);
+            record.setTimestamp(startTimestamp + i);
+            auditService.audit(record, NullTaskImpl.INSTANCE, result);
+        }
+    }
+
+    private void executeStatement(String sql) {
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.executeStatement(sql);
+            jdbcSession.commit();
+        }
+    }
+
+    private boolean tableExists(String tableName) {
+        try (JdbcSession jdbcSession = startReadOnlyTransaction()) {
+            return Boolean.TRUE.equals(jdbcSession.newQuery()
+                    .select(Expressions.booleanTemplate("to_regclass({0}) is not null", tableName))
+                    .fetchOne());
+        }
+    }
+
     private long selectMinMaxId(QAuditEventRecord qae, NumberExpression<Long> minMaxPath) {
         try (JdbcSession jdbcSession = startReadOnlyTransaction()) {
             return jdbcSession.newQuery()
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.audit.api.AuditEventRecord;
+import com.evolveum.midpoint.init.AuditServiceProxy;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.SqaleRepositoryConfiguration;
+import com.evolveum.midpoint.repo.sqale.audit.AuditEventWriter;
+import com.evolveum.midpoint.repo.sqale.audit.AuditWriteMode;
+import com.evolveum.midpoint.repo.sqale.audit.SqaleAuditService;
+import com.evolveum.midpoint.repo.sqale.audit.qmodel.QAuditDelta;
+import com.evolveum.midpoint.repo.sqale.audit.qmodel.QAuditEventRecord;
+import com.evolveum.midpoint.repo.sqale.audit.qmodel.QAuditRefValue;
+import com.evolveum.midpoint.schema.LabeledString;
+import com.evolveum.midpoint.schema.ObjectDeltaOperation;
+import com.evolveum.midpoint.schema.RepositoryDiag;
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.ObjectTypeUtil;
+import com.evolveum.midpoint.task.api.test.NullTaskImpl;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests of audit write modes other than the default synchronous one.
+ * Mode is changed on the configuration of the audit service, the writer is recreated by the service.
+ */
+public class AuditWriteModeTest extends SqaleRepoBaseTest {
+
+    private int originalBatchSize;
+
+    @BeforeMethod
+    public void rememberBatchSize() {
+        originalBatchSize = auditConfiguration().getWriteBatchSize();
+    }
+
+    @AfterMethod
+    public void resetWriteMode() {
+        auditConfiguration().setWriteMode(AuditWriteMode.SYNC);
+        auditConfiguration().setWriteBatchSize(originalBatchSize);
+        assertThat(sqaleAuditService().getAuditEventWriter()).isNull();
+    }
+
+    @Test
+    public void test100AsyncWriteIsCompleteAfterWriterShutdown() throws Exception {
+        OperationResult result = createOperationResult();
+        clearAudit();
+
+        given("async write mode");
+        auditConfiguration().setWriteMode(AuditWriteMode.ASYNC);
+
+        when("many records are audited");
+        int count = 500;
+        List<AuditEventRecord> records = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            AuditEventRecord record = createRecord(i);
+            auditService.audit(record, NullTaskImpl.INSTANCE, result);
+            records.add(record);
+        }
+        AuditEventWriter writer = sqaleAuditService().getAuditEventWriter();
+        assertThat(writer).isNotNull();
+
+        and("write mode is switched back to sync, which shuts down and drains the writer");
+        auditConfiguration().setWriteMode(AuditWriteMode.SYNC);
+        assertThat(sqaleAuditService().getAuditEventWriter()).isNull();
+
+        then("all records are written with their deltas and references");
+        assertThatOperationResult(result).isSuccess();
+        assertCount(QAuditEventRecord.class, count);
+        assertCount(QAuditDelta.class, count);
+        assertCount(QAuditRefValue.class, count);
+        assertThat(records).allMatch(r -> r.getRepoId() != null);
+        assertThat(writer.getWrittenCount()).isEqualTo(count);
+        assertThat(writer.getFailedCount()).isZero();
+        assertThat(writer.getBatchCount()).isBetween(1L, (long) count);
+        assertThat(writer.getQueueSize()).isZero();
+    }
+
+    @Test
+    public void test200GroupCommitWaitsForTheCommit() throws Exception {
+        OperationResult result = createOperationResult();
+        clearAudit();
+
+        given("group commit write mode with small batches");
+        auditConfiguration().setWriteMode(AuditWriteMode.GROUP_COMMIT);
+        auditConfiguration().setWriteBatchSize(10);
+
+        when("records are audited by concurrent threads");
+        int threads = 8;
+        int perThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                OperationResult threadResult = createOperationResult();
+                for (int i = 1; i <= perThread; i++) {
+                    AuditEventRecord record = createRecord(i);
+                    auditService.audit(record, NullTaskImpl.INSTANCE, threadResult);
+
+                    // committed when audit returns, ID is known
+                    assertThat(record.getRepoId()).isNotNull();
+                    ids.add(record.getRepoId());
+                }
+                return ids;
+            }));
+        }
+        List<Long> allIds = new ArrayList<>();
+        for (Future<List<Long>> future : futures) {
+            allIds.addAll(future.get(1, TimeUnit.MINUTES));
+        }
+        executor.shutdown();
+
+        then("all records are written immediately, each with its own ID");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(allIds).hasSize(threads * perThread).doesNotHaveDuplicates();
+        assertCount(QAuditEventRecord.class, threads * perThread);
+        assertCount(QAuditDelta.class, threads * perThread);
+        assertCount(QAuditRefValue.class, threads * perThread);
+    }
+
+    @Test
+    public void test210GroupCommitReportsFailedRecord() throws Exception {
+        OperationResult result = createOperationResult();
+        clearAudit();
+
+        given("group commit write mode");
+        auditConfiguration().setWriteMode(AuditWriteMode.GROUP_COMMIT);
+
+        expect("record that can't be stored is reported to the auditing thread");
+        AuditEventRecord badRecord = createRecord(1);
+        badRecord.setMessage("zero byte \u0000 is not accepted by the database");
+        assertThatThrownBy(() -> auditService.audit(badRecord, NullTaskImpl.INSTANCE, result))
+                .isInstanceOf(RuntimeException.class);
+        assertThat(badRecord.getRepoId()).isNull();
+
+        and("the following record is written");
+        AuditEventRecord record = createRecord(2);
+        auditService.audit(record, NullTaskImpl.INSTANCE, createOperationResult());
+        assertThat(record.getRepoId()).isNotNull();
+        assertCount(QAuditEventRecord.class, 1);
+        assertThat(sqaleAuditService().getAuditEventWriter().getFailedCount()).isEqualTo(1);
+
+        and("writer statistics are in the repository diagnostics");
+        RepositoryDiag diag = repositoryService.getRepositoryDiag();
+        assertThat(diag.getAdditionalDetails())
+                .filteredOn(ls -> ls.getLabel().equals("gauge.auditWriter.failedCount"))
+                .singleElement()
+                .extracting(LabeledString::getData)
+                .isEqualTo("1");
+        assertThat(diag.getAdditionalDetails())
+                .extracting(LabeledString::getLabel)
+                .contains("gauge.auditWriter.queueSize");
+    }
+
+    private AuditEventRecord createRecord(int i) throws SchemaException {
+        AuditEventRecord record = new AuditEventRecord();
+        record.setParameter(String.valueOf(i));
+        record.getCustomColumnProperty().put("foo", "foo-" + i);
+
+        ObjectDeltaOperation<UserType> delta = new ObjectDeltaOperation<>();
+        delta.setObjectDelta(prismContext.deltaFor(UserType.class)
+                .item(UserType.F_FULL_NAME).replace(PolyString.fromOrig("name-" + i))
+                .asObjectDelta(UUID.randomUUID().toString()));
+        record.addDelta(delta);
+
+        record.addReferenceValue("ref1",
+                ObjectTypeUtil.createObjectRef(UUID.randomUUID().toString(), ObjectTypes.USER)
+                        .asReferenceValue());
+        return record;
+    }
+
+    private SqaleAuditService sqaleAuditService() {
+        return ((AuditServiceProxy) auditService).getImplementation(SqaleAuditService.class);
+    }
+
+    /** Audit service has its own configuration, changing the repository one would have no effect. */
+    private SqaleRepositoryConfiguration auditConfiguration() {
+        return sqaleAuditService().repositoryConfiguration();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqlbase.DataSourceFactory;
+import com.evolveum.midpoint.repo.sqlbase.ReadReplicas;
+import com.evolveum.midpoint.repo.sqlbase.perfmon.DataSourceStatistics;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests routing of reads to {@link ReadReplicas}.
+ * The "replica" is the same database accessed via second connection pool, which is enough to check the routing.
+ * The "broken replica" points to a port where no database is running.
+ */
+public class ReadReplicaTest extends SqaleRepoBaseTest {
+
+    private static final String REPLICA = "replica";
+    private static final String BROKEN_REPLICA = "broken-replica";
+
+    private static final Collection<SelectorOptions<GetOperationOptions>> STALE_OK =
+            SelectorOptions.createCollection(GetOperationOptions.createStaleness(1000L));
+
+    private DataSourceFactory dataSourceFactory;
+    private DataSource replicaDataSource;
+    private DataSource brokenReplicaDataSource;
+
+    private String userOid;
+
+    @BeforeClass
+    public void initReplicas() throws Exception {
+        dataSourceFactory = new DataSourceFactory(repositoryConfiguration);
+        replicaDataSource = dataSourceFactory.createReplicaDataSource(
+                "mp-repo-test-replica", repositoryConfiguration.getJdbcUrl(), 5000);
+        brokenReplicaDataSource = dataSourceFactory.createReplicaDataSource(
+                "mp-repo-test-broken-replica", "jdbc:postgresql://localhost:1/midpoint", 250);
+
+        userOid = repositoryService.addObject(
+                new UserType().name("replica-user").asPrismObject(), null, createOperationResult());
+    }
+
+    @AfterMethod
+    public void resetReplicas() {
+        sqlRepoContext.setReadReplicas(null);
+        repositoryService.endCommitBatch();
+    }
+
+    @AfterClass
+    public void closeReplicas() throws Exception {
+        dataSourceFactory.destroy();
+    }
+
+    @Test
+    public void test100OnlyStaleOkReadsAreRoutedToReplicaByDefault() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("replica for stale-ok reads only");
+        useReplicas(false, REPLICA, replicaDataSource);
+
+        when("object is read and searched without and with staleness option");
+        repositoryService.getObject(UserType.class, userOid, null, result);
+        repositoryService.searchObjects(UserType.class, null, null, result);
+        repositoryService.countObjects(UserType.class, null, null, result);
+        repositoryService.getObject(UserType.class, userOid, STALE_OK, result);
+        repositoryService.searchObjects(UserType.class, null, STALE_OK, result);
+
+        then("only the reads with staleness use the replica");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(dataSourceStatistics()).containsOnlyKeys(REPLICA);
+        assertThat(dataSourceStatistics().get(REPLICA).getUsageCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void test110AllSearchesAreRoutedToReplicaIfConfigured() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("replica for all searches");
+        useReplicas(true, REPLICA, replicaDataSource);
+
+        when("object is searched, counted and read without options");
+        assertThat(repositoryService.searchObjects(UserType.class, null, null, result)).isNotEmpty();
+        assertThat(repositoryService.countObjects(UserType.class, null, null, result)).isPositive();
+        repositoryService.getObject(UserType.class, userOid, null, result);
+
+        then("searches and counts use the replica, plain read does not");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(dataSourceStatistics().get(REPLICA).getUsageCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void test200ReplicaIsNotUsedInCommitBatch() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("replica for all searches and commit batch with a new user");
+        useReplicas(true, REPLICA, replicaDataSource);
+        repositoryService.beginCommitBatch(10, Long.MAX_VALUE);
+        String oid = repositoryService.addObject(
+                new UserType().name(getTestNameShort()).asPrismObject(), null, result);
+
+        expect("stale-ok read in the same thread sees the uncommitted user");
+        assertThat(repositoryService.getObject(UserType.class, oid, STALE_OK, result)).isNotNull();
+        assertThat(dataSourceStatistics()).isEmpty();
+    }
+
+    @Test
+    public void test300FailingReplicaIsSkipped() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("broken replica and working replica");
+        useReplicas(false, BROKEN_REPLICA, brokenReplicaDataSource, REPLICA, replicaDataSource);
+
+        when("stale-ok reads are executed");
+        for (int i = 0; i < 4; i++) {
+            repositoryService.getObject(UserType.class, userOid, STALE_OK, result);
+        }
+
+        then("broken replica fails once and then it is skipped, working replica serves all reads");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(dataSourceStatistics().get(BROKEN_REPLICA).getFailureCount()).isEqualTo(1);
+        assertThat(dataSourceStatistics().get(BROKEN_REPLICA).getUsageCount()).isZero();
+        assertThat(dataSourceStatistics().get(REPLICA).getUsageCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void test310PrimaryIsUsedWhenNoReplicaIsAvailable() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("only the broken replica");
+        useReplicas(false, BROKEN_REPLICA, brokenReplicaDataSource);
+
+        when("stale-ok search is executed");
+        assertThat(repositoryService.searchObjects(UserType.class, null, STALE_OK, result)).isNotEmpty();
+
+        then("it falls back to the primary data source");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(dataSourceStatistics().get(BROKEN_REPLICA).getFailureCount()).isEqualTo(1);
+        assertThat(dataSourceStatistics().get(ReadReplicas.PRIMARY_NAME).getUsageCount()).isEqualTo(1);
+    }
+
+    /** Sets new replicas (name/data source pairs) with long retry interval and clears the statistics. */
+    private void useReplicas(boolean forAllSearches, Object... namesAndDataSources) {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndDataSources.length; i += 2) {
+            dataSources.put((String) namesAndDataSources[i], (DataSource) namesAndDataSources[i + 1]);
+        }
+        sqlRepoContext.setReadReplicas(new ReadReplicas(dataSources, forAllSearches, 60_000));
+        clearPerformanceMonitor();
+    }
+
+    private Map<String, DataSourceStatistics> dataSourceStatistics() {
+        return getPerformanceMonitor().getDataSourceStatistics();
+    }
+}
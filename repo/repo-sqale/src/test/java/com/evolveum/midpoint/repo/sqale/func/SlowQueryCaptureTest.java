@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import com.querydsl.core.types.dsl.Expressions;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.repo.sqlbase.perfmon.SlowQueryStatistics;
+import com.evolveum.midpoint.schema.LabeledString;
+import com.evolveum.midpoint.schema.RepositoryDiag;
+
+/**
+ * Tests of slow query capture, see {@link com.evolveum.midpoint.repo.sqlbase.querydsl.SlowQueryListener}.
+ * Slow queries are simulated with `pg_sleep`, the threshold is set accordingly.
+ */
+public class SlowQueryCaptureTest extends SqaleRepoBaseTest {
+
+    private static final long THRESHOLD_MS = 20;
+
+    @BeforeMethod
+    public void clearStatistics() {
+        clearPerformanceMonitor();
+    }
+
+    @AfterMethod
+    public void resetConfiguration() {
+        repositoryConfiguration.setSlowQueryThresholdMs(0);
+        repositoryConfiguration.setSlowQueryExplain(false);
+    }
+
+    @Test
+    public void test100FastQueriesAreNotCaptured() {
+        given("slow query threshold");
+        repositoryConfiguration.setSlowQueryThresholdMs(THRESHOLD_MS);
+
+        when("fast query is executed");
+        selectWithSleep(0);
+
+        then("nothing is captured");
+        assertThat(getPerformanceMonitor().getSlowQueryStatistics()).isEmpty();
+    }
+
+    @Test
+    public void test110SlowQueriesAreAggregatedByFingerprint() {
+        given("slow query threshold");
+        repositoryConfiguration.setSlowQueryThresholdMs(THRESHOLD_MS);
+
+        when("slow query is executed twice with different parameter values");
+        selectWithSleep(0.03);
+        selectWithSleep(0.04);
+
+        then("both executions are captured under the same fingerprint");
+        List<SlowQueryStatistics> statistics = getPerformanceMonitor().getSlowQueryStatistics();
+        assertThat(statistics).hasSize(1);
+        SlowQueryStatistics slowQuery = statistics.get(0);
+        assertThat(slowQuery.getCount()).isEqualTo(2);
+        assertThat(slowQuery.getMaxTimeMs()).isGreaterThanOrEqualTo(40);
+        assertThat(slowQuery.getTotalTimeMs()).isGreaterThanOrEqualTo(70);
+        assertThat(slowQuery.getHistogram()[0]).isEqualTo(2); // both under 100 ms
+        assertThat(slowQuery.getFingerprint()).contains("pg_sleep(?)");
+        assertThat(slowQuery.getLastParameterTypes()).isEqualTo("(Double)");
+        assertThat(slowQuery.getExecutionPlan()).isNull();
+    }
+
+    @Test
+    public void test120SlowQueryIsExplainedOnce() {
+        given("slow query threshold with explain");
+        repositoryConfiguration.setSlowQueryThresholdMs(THRESHOLD_MS);
+        repositoryConfiguration.setSlowQueryExplain(true);
+
+        when("slow query is executed");
+        selectWithSleep(0.03);
+
+        then("estimated execution plan of the query is captured without executing it again");
+        SlowQueryStatistics slowQuery = getPerformanceMonitor().getSlowQueryStatistics().get(0);
+        assertThat(slowQuery.getExecutionPlan())
+                .contains("Function Scan on pg_sleep")
+                .doesNotContain("Execution Time");
+    }
+
+    @Test
+    public void test130SlowQueriesAreReportedInRepositoryDiag() {
+        given("captured slow query");
+        repositoryConfiguration.setSlowQueryThresholdMs(THRESHOLD_MS);
+        selectWithSleep(0.03);
+
+        when("repository diagnostics is obtained");
+        RepositoryDiag diag = repositoryService.getRepositoryDiag();
+
+        then("slow query is in the details");
+        assertThat(diag.getAdditionalDetails())
+                .filteredOn(ls -> ls.getLabel().equals("slowQuery.01"))
+                .singleElement()
+                .extracting(LabeledString::getData)
+                .asString()
+                .contains("1x", "pg_sleep(?)");
+    }
+
+    @Test
+    public void test200Fingerprint() {
+        expect("literals and parameter lists are normalized in the fingerprint");
+        assertThat(SlowQueryStatistics.fingerprint(
+                "select u.oid\nfrom m_user u  where u.oid in (?, ?,?) and u.nameNorm = 'it''s' limit 10"))
+                .isEqualTo("select u.oid from m_user u where u.oid in (?, ...) and u.nameNorm = ? limit ?");
+        assertThat(SlowQueryStatistics.fingerprint("select * from m_ext_item where id = ?"))
+                .isEqualTo(SlowQueryStatistics.fingerprint("select * from m_ext_item where id = 42"));
+    }
+
+    private void selectWithSleep(double seconds) {
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.newQuery()
+                    .select(Expressions.numberTemplate(Integer.class, "(select 1 from pg_sleep({0}))", seconds))
+                    .fetchOne();
+            jdbcSession.commit();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import com.evolveum.midpoint.prism.Containerable;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.path.ItemName;
 import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.repo.api.AddObjectOutcome;
 import com.evolveum.midpoint.repo.api.DeleteObjectResult;
 import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
@@ -64,6 +65,7 @@ import com.evolveum.midpoint.repo.sqale.qmodel.resource.MResource;
 import com.evolveum.midpoint.repo.sqale.qmodel.resource.QResource;
 import com.evolveum.midpoint.repo.sqale.qmodel.role.MArchetype;
 import com.evolveum.midpoint.repo.sqale.qmodel.role.QArchetype;
+import com.evolveum.midpoint.repo.sqale.qmodel.role.QRole;
 import com.evolveum.midpoint.repo.sqale.qmodel.shadow.MShadow;
 import com.evolveum.midpoint.repo.sqale.qmodel.shadow.QShadow;
 import com.evolveum.midpoint.repo.sqale.qmodel.system.QSystemConfiguration;
@@ -72,6 +74,7 @@ import com.evolveum.midpoint.repo.sqale.qmodel.task.QTask;
 import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.result.OperationResultStatus;
 import com.evolveum.midpoint.util.DOMUtil;
 import com.evolveum.midpoint.util.MiscUtil;
 import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
@@ -630,6 +633,86 @@ public class SqaleRepoAddDeleteObjectTest extends SqaleRepoBaseTest {
     }
     // endregion
 
+    // region adding multiple objects
+    @Test
+    public void test295AddObjectsInsertsAllObjectsWithTheirRows() throws Exception {
+        OperationResult result = createOperationResult();
+        long previousUserCount = count(QUser.class);
+        long previousRoleCount = count(QRole.class);
+
+        given("users and a role, some with OID and with containers and refs");
+        String namePrefix = "user" + getTestNumber() + "-";
+        String providedOid = UUID.randomUUID().toString();
+        UUID linkOid = UUID.randomUUID();
+        List<PrismObject<? extends ObjectType>> objects = List.of(
+                new UserType().name(namePrefix + 1).asPrismObject(),
+                new UserType().oid(providedOid).name(namePrefix + 2)
+                        .assignment(new AssignmentType()
+                                .targetRef(UUID.randomUUID().toString(), RoleType.COMPLEX_TYPE))
+                        .linkRef(linkOid.toString(), ShadowType.COMPLEX_TYPE)
+                        .asPrismObject(),
+                new RoleType().name("role" + getTestNumber()).asPrismObject(),
+                new UserType().name(namePrefix + 3).asPrismObject());
+
+        when("adding them to the repository at once");
+        List<AddObjectOutcome> outcomes = repositoryService.addObjects(objects, null, result);
+
+        then("all objects are added");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(outcomes).hasSize(4).allMatch(AddObjectOutcome::isSuccess);
+        assertThat(outcomes.get(1).getOid()).isEqualTo(providedOid);
+        for (int i = 0; i < objects.size(); i++) {
+            assertThat(objects.get(i).getOid()).isEqualTo(outcomes.get(i).getOid());
+        }
+        assertThat(count(QUser.class)).isEqualTo(previousUserCount + 3);
+        assertThat(count(QRole.class)).isEqualTo(previousRoleCount + 1);
+
+        and("each object has its own successful subresult");
+        assertThat(result.getLastSubresult().getSubresults())
+                .hasSize(4)
+                .allMatch(r -> r.getStatus() == OperationResultStatus.SUCCESS);
+
+        and("rows of the containers and refs are inserted too");
+        UUID userOid = UUID.fromString(providedOid);
+        QAssignment<?> a = QAssignmentMapping.getAssignmentMapping().defaultAlias();
+        assertThat(select(a, a.ownerOid.eq(userOid))).hasSize(1);
+        QObjectReference<?> or = QObjectReferenceMapping.getForProjection().defaultAlias();
+        assertThat(select(or, or.ownerOid.eq(userOid)))
+                .singleElement()
+                .matches(r -> r.targetOid.equals(linkOid));
+        assertThat(repositoryService.getObject(UserType.class, providedOid, null, result)
+                .asObjectable().getAssignment()).hasSize(1);
+    }
+
+    @Test
+    public void test296AddObjectsReportsFailuresForEachObject() throws Exception {
+        OperationResult result = createOperationResult();
+        long previousUserCount = count(QUser.class);
+
+        given("existing user");
+        String namePrefix = "user" + getTestNumber() + "-";
+        repositoryService.addObject(new UserType().name(namePrefix + "existing").asPrismObject(), null, result);
+
+        and("users to add, one with the same name and one without name");
+        List<PrismObject<? extends ObjectType>> objects = List.of(
+                new UserType().name(namePrefix + 1).asPrismObject(),
+                new UserType().name(namePrefix + "existing").asPrismObject(),
+                new UserType().asPrismObject(),
+                new UserType().name(namePrefix + 2).asPrismObject());
+
+        when("adding them to the repository at once");
+        List<AddObjectOutcome> outcomes = repositoryService.addObjects(objects, null, result);
+
+        then("only the conflicting objects are not added");
+        assertThat(outcomes).hasSize(4);
+        assertThat(outcomes.get(0).isSuccess()).isTrue();
+        assertThat(outcomes.get(1).getException()).isInstanceOf(ObjectAlreadyExistsException.class);
+        assertThat(outcomes.get(2).getException()).isInstanceOf(SchemaException.class);
+        assertThat(outcomes.get(3).isSuccess()).isTrue();
+        assertThat(count(QUser.class)).isEqualTo(previousUserCount + 3);
+    }
+    // endregion
+
     // region extension items
     @Test
     public void test300AddObjectWithIndexedStringExtension()
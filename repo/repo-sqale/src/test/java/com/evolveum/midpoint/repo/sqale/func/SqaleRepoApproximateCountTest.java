@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+import java.util.Collection;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests of count with {@link GetOperationOptions#isApproximateCount approximate count option}.
+ * Users are added and table is analyzed, so the planner estimates are predictable enough.
+ */
+public class SqaleRepoApproximateCountTest extends SqaleRepoBaseTest {
+
+    private static final int USER_COUNT = 200;
+
+    private static final Collection<SelectorOptions<GetOperationOptions>> APPROXIMATE =
+            SelectorOptions.createCollection(GetOperationOptions.createApproximateCount());
+
+    private int originalThreshold;
+
+    @BeforeClass
+    public void initObjects() throws Exception {
+        OperationResult result = createOperationResult();
+        for (int i = 1; i <= USER_COUNT; i++) {
+            repositoryService.addObject(
+                    new UserType().name("user-" + i).asPrismObject(), null, result);
+        }
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.executeStatement("ANALYZE m_user");
+            jdbcSession.commit();
+        }
+    }
+
+    @BeforeMethod
+    public void rememberThreshold() {
+        originalThreshold = repositoryConfiguration.getApproximateCountThreshold();
+    }
+
+    @AfterMethod
+    public void resetThreshold() {
+        repositoryConfiguration.setApproximateCountThreshold(originalThreshold);
+    }
+
+    @Test
+    public void test100EstimateUnderThresholdIsReplacedByExactCount() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("threshold higher than the number of users");
+        repositoryConfiguration.setApproximateCountThreshold(USER_COUNT * 10);
+
+        expect("approximate count returns the exact count");
+        assertThat(repositoryService.countObjects(UserType.class, null, APPROXIMATE, result))
+                .isEqualTo(USER_COUNT);
+        assertThatOperationResult(result).isSuccess();
+    }
+
+    @Test
+    public void test110UnfilteredEstimateIsReturned() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("low threshold");
+        repositoryConfiguration.setApproximateCountThreshold(1);
+
+        when("users are counted with approximate count option");
+        int count = repositoryService.countObjects(UserType.class, null, APPROXIMATE, result);
+
+        then("the estimate from table statistics is returned");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(count).isCloseTo(USER_COUNT, withinPercentage(20));
+    }
+
+    @Test
+    public void test120FilteredEstimateIsReturned() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("low threshold and query for a single user");
+        repositoryConfiguration.setApproximateCountThreshold(1);
+        ObjectQuery query = prismContext.queryFor(UserType.class)
+                .item(UserType.F_NAME).eqPoly("user-1")
+                .build();
+
+        when("users are counted with approximate count option");
+        int count = repositoryService.countObjects(UserType.class, query, APPROXIMATE, result);
+
+        then("the planner estimate is returned, which is at least 1");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(count).isBetween(1, USER_COUNT);
+    }
+
+    @Test
+    public void test130EstimateIsNotUsedWithoutOption() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("low threshold");
+        repositoryConfiguration.setApproximateCountThreshold(1);
+
+        expect("count without approximate count option is exact");
+        assertThat(repositoryService.countObjects(UserType.class, null, null, result))
+                .isEqualTo(USER_COUNT);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.qmodel.focus.QUser;
+import com.evolveum.midpoint.repo.sqlbase.CommitBatch;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests {@link CommitBatch} used via repository service.
+ */
+public class SqaleRepoCommitBatchTest extends SqaleRepoBaseTest {
+
+    @AfterMethod
+    public void endCommitBatch() {
+        repositoryService.endCommitBatch();
+    }
+
+    @Test
+    public void test100ChangesAreVisibleToOtherThreadsOnlyAfterCommit() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("commit batch for 3 checkpoints");
+        assertThat(repositoryService.beginCommitBatch(3, Long.MAX_VALUE)).isTrue();
+        assertThat(repositoryService.beginCommitBatch(3, Long.MAX_VALUE))
+                .as("nested batch").isFalse();
+
+        when("user is added and the first checkpoint is reached");
+        String oid = repositoryService.addObject(
+                new UserType().name(getTestNameShort()).asPrismObject(), null, result);
+        repositoryService.commitBatchCheckpoint();
+
+        then("the user is visible in the current thread only");
+        assertThat(repositoryService.getObject(UserType.class, oid, null, result)).isNotNull();
+        assertThat(isVisibleInOtherThread(oid)).isFalse();
+
+        when("the batch size is reached");
+        repositoryService.commitBatchCheckpoint();
+        repositoryService.commitBatchCheckpoint();
+
+        then("the user is visible in other threads");
+        assertThat(isVisibleInOtherThread(oid)).isTrue();
+    }
+
+    @Test
+    public void test200FailedOperationDoesNotAffectOthers() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("commit batch with a user added");
+        repositoryService.beginCommitBatch(10, Long.MAX_VALUE);
+        String oid1 = repositoryService.addObject(
+                new UserType().name(getTestNameShort() + "-1").asPrismObject(), null, result);
+
+        when("adding a conflicting user fails and then another user is added");
+        assertThatThrownBy(() -> repositoryService.addObject(
+                new UserType().name(getTestNameShort() + "-1").asPrismObject(), null, result))
+                .isInstanceOf(ObjectAlreadyExistsException.class);
+        String oid2 = repositoryService.addObject(
+                new UserType().name(getTestNameShort() + "-2").asPrismObject(), null, result);
+
+        and("the batch is ended");
+        repositoryService.endCommitBatch();
+
+        then("both successfully added users are committed");
+        assertThat(isVisibleInOtherThread(oid1)).isTrue();
+        assertThat(isVisibleInOtherThread(oid2)).isTrue();
+    }
+
+    @Test
+    public void test300BatchIsCommittedWhenDelayElapses() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("commit batch with zero delay");
+        repositoryService.beginCommitBatch(100, 0);
+
+        when("user is added and a checkpoint is reached");
+        String oid = repositoryService.addObject(
+                new UserType().name(getTestNameShort()).asPrismObject(), null, result);
+        repositoryService.commitBatchCheckpoint();
+
+        then("the user is committed");
+        assertThat(isVisibleInOtherThread(oid)).isTrue();
+    }
+
+    @Test
+    public void test400AfterCommitActionsAreExecutedAfterCommit() throws Exception {
+        OperationResult result = createOperationResult();
+        List<String> executed = new ArrayList<>();
+
+        given("commit batch without uncommitted modifications");
+        repositoryService.beginCommitBatch(10, Long.MAX_VALUE);
+
+        when("action is registered");
+        repositoryService.executeAfterCommit(() -> executed.add("immediate"), false);
+
+        then("it is executed right away");
+        assertThat(executed).containsExactly("immediate");
+        assertThat(repositoryService.hasUncommittedModifications()).isFalse();
+
+        when("user is added and actions are registered");
+        String oid = repositoryService.addObject(
+                new UserType().name(getTestNameShort()).asPrismObject(), null, result);
+        repositoryService.executeAfterCommit(() -> executed.add("after-commit"), false);
+        repositoryService.executeAfterCommit(
+                () -> executed.add("after-commit-visible-" + isVisibleInOtherThreadUnchecked(oid)), true);
+
+        then("they are not executed yet");
+        assertThat(repositoryService.hasUncommittedModifications()).isTrue();
+        assertThat(executed).containsExactly("immediate");
+
+        when("the batch is committed");
+        repositoryService.flushCommitBatch();
+
+        then("the actions are executed after the commit, in the order of registration");
+        assertThat(repositoryService.hasUncommittedModifications()).isFalse();
+        assertThat(executed).containsExactly("immediate", "after-commit", "after-commit-visible-true");
+    }
+
+    @Test
+    public void test500FailedReadAbortingTheBatchIsReported() throws Exception {
+        OperationResult result = createOperationResult();
+        List<String> executed = new ArrayList<>();
+
+        given("commit batch with a user added and an action registered");
+        repositoryService.beginCommitBatch(10, Long.MAX_VALUE);
+        String oid = repositoryService.addObject(
+                new UserType().name(getTestNameShort()).asPrismObject(), null, result);
+        repositoryService.executeAfterCommit(() -> executed.add("committed"), () -> executed.add("failed"));
+
+        when("statement of a read-only session fails (read-only sessions have no savepoint)");
+        assertThatThrownBy(() -> {
+            try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
+                jdbcSession.executeStatement("SELECT 1/0");
+            }
+        }).isInstanceOf(SystemException.class);
+
+        then("the failure action is executed and the user is lost");
+        assertThat(executed).containsExactly("failed");
+        assertThat(repositoryService.hasUncommittedModifications()).isFalse();
+        assertThat(isVisibleInOtherThread(oid)).isFalse();
+
+        and("the loss is reported by the next commit");
+        assertThatThrownBy(() -> repositoryService.flushCommitBatch())
+                .isInstanceOf(SystemException.class)
+                .hasMessageContaining("1 operation(s) were lost");
+
+        and("the batch can be used again");
+        String oid2 = repositoryService.addObject(
+                new UserType().name(getTestNameShort() + "-2").asPrismObject(), null, result);
+        repositoryService.flushCommitBatch();
+        assertThat(isVisibleInOtherThread(oid2)).isTrue();
+    }
+
+    @Test
+    public void test510OperationsAfterAbortAreLostWithTheBatch() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("commit batch aborted by a failed statement of a read-only session");
+        repositoryService.beginCommitBatch(10, Long.MAX_VALUE);
+        repositoryService.addObject(new UserType().name(getTestNameShort()).asPrismObject(), null, result);
+        assertThatThrownBy(() -> {
+            try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
+                jdbcSession.executeStatement("SELECT 1/0");
+            }
+        }).isInstanceOf(SystemException.class);
+
+        when("another user is added and the batch is committed");
+        String oid2 = repositoryService.addObject(
+                new UserType().name(getTestNameShort() + "-2").asPrismObject(), null, result);
+        assertThatThrownBy(() -> repositoryService.flushCommitBatch())
+                .isInstanceOf(SystemException.class)
+                .hasMessageContaining("2 operation(s) were lost");
+
+        then("the user added after the abort is lost as well, so all the work since the last commit can be redone");
+        assertThat(repositoryService.hasUncommittedModifications()).isFalse();
+        repositoryService.flushCommitBatch();
+        assertThat(isVisibleInOtherThread(oid2)).isFalse();
+    }
+
+    private boolean isVisibleInOtherThreadUnchecked(String oid) {
+        try {
+            return isVisibleInOtherThread(oid);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private boolean isVisibleInOtherThread(String oid) throws Exception {
+        return CompletableFuture.supplyAsync(() -> {
+            try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
+                QUser u = aliasFor(QUser.class);
+                return jdbcSession.newQuery()
+                        .from(u)
+                        .where(u.oid.eq(UUID.fromString(oid)))
+                        .fetchCount() > 0;
+            }
+        }).get();
+    }
+}
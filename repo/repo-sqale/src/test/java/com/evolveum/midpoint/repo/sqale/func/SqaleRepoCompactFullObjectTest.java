@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.api.RepoModifyOptions;
+import com.evolveum.midpoint.repo.sqale.FullObjectCodec;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.qmodel.focus.MUser;
+import com.evolveum.midpoint.repo.sqale.qmodel.focus.QUser;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.MTask;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.QTask;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OperationResultStatusType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OperationResultType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.TaskType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests compact form of `fullObject` (see {@link FullObjectCodec}) and reading of plain rows.
+ */
+public class SqaleRepoCompactFullObjectTest extends SqaleRepoBaseTest {
+
+    @AfterMethod
+    public void resetFullObjectFormat() {
+        repositoryConfiguration.setFullObjectCompact(false);
+    }
+
+    @Test
+    public void test100CodecRoundTrip() throws Exception {
+        expect("serialized form is the same after encoding and decoding");
+        String serializedForm = serializeFullObject(new UserType()
+                .name("codec-user")
+                .emailAddress("codec-user@example.com"));
+        byte[] encoded = FullObjectCodec.encode(serializedForm);
+        assertThat(FullObjectCodec.isCompact(encoded)).isTrue();
+        assertThat(encoded.length).isLessThan(serializedForm.length());
+        assertThat(FullObjectCodec.decode(encoded)).isEqualTo(serializedForm);
+
+        and("plain form is decoded as is");
+        assertThat(FullObjectCodec.decode(serializedForm.getBytes(StandardCharsets.UTF_8)))
+                .isEqualTo(serializedForm);
+    }
+
+    @Test
+    public void test110CorruptedCompactFormIsSchemaException() {
+        expect("truncated compact form is reported as schema exception");
+        byte[] encoded = FullObjectCodec.encode("{\"user\":{\"name\":\"truncated\"}}");
+        byte[] truncated = new byte[encoded.length - 3];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+        assertThatThrownBy(() -> FullObjectCodec.decode(truncated))
+                .isInstanceOf(SchemaException.class);
+    }
+
+    @Test
+    public void test200ObjectIsStoredInCompactForm() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("compact full object format");
+        repositoryConfiguration.setFullObjectCompact(true);
+
+        when("user is added");
+        String oid = repositoryService.addObject(
+                new UserType().name("compact-user").emailAddress("compact@example.com").asPrismObject(),
+                null, result);
+
+        then("full object is stored in compact form and the user can be read");
+        MUser row = selectObjectByOid(QUser.class, oid);
+        assertThat(FullObjectCodec.isCompact(row.fullObject)).isTrue();
+        UserType user = repositoryService.getObject(UserType.class, oid, null, result).asObjectable();
+        assertThat(user.getName().getOrig()).isEqualTo("compact-user");
+        assertThat(user.getEmailAddress()).isEqualTo("compact@example.com");
+    }
+
+    @Test
+    public void test210TaskResultIsStoredInCompactForm() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("compact full object format");
+        repositoryConfiguration.setFullObjectCompact(true);
+
+        when("task with result is added");
+        String oid = repositoryService.addObject(new TaskType()
+                .name("compact-task")
+                .result(new OperationResultType()
+                        .operation("compact-operation")
+                        .status(OperationResultStatusType.SUCCESS))
+                .asPrismObject(), null, result);
+
+        then("result is stored in compact form and can be read");
+        MTask row = selectObjectByOid(QTask.class, oid);
+        assertThat(FullObjectCodec.isCompact(row.fullResult)).isTrue();
+        TaskType task = repositoryService.getObject(TaskType.class, oid,
+                retrieveGetOptions(TaskType.F_RESULT), result).asObjectable();
+        assertThat(task.getResult().getOperation()).isEqualTo("compact-operation");
+    }
+
+    @Test
+    public void test300PlainRowIsReadableAndReencodedByReindex() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("user stored in plain format");
+        String oid = repositoryService.addObject(
+                new UserType().name("plain-user").asPrismObject(), null, result);
+        assertThat(FullObjectCodec.isCompact(selectObjectByOid(QUser.class, oid).fullObject)).isFalse();
+
+        when("compact format is configured");
+        repositoryConfiguration.setFullObjectCompact(true);
+
+        then("the plain user is still readable");
+        assertThat(repositoryService.getObject(UserType.class, oid, null, result).asObjectable()
+                .getName().getOrig()).isEqualTo("plain-user");
+
+        when("the user is reindexed (as by Ninja reencode command)");
+        repositoryService.modifyObject(UserType.class, oid,
+                Collections.emptyList(), RepoModifyOptions.createForceReindex(), result);
+
+        then("it is stored in compact form");
+        assertThat(FullObjectCodec.isCompact(selectObjectByOid(QUser.class, oid).fullObject)).isTrue();
+        assertThat(repositoryService.getObject(UserType.class, oid, null, result).asObjectable()
+                .getName().getOrig()).isEqualTo("plain-user");
+    }
+}
@@ -33,6 +33,7 @@ import com.evolveum.midpoint.prism.path.ItemName;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.repo.api.DeleteObjectResult;
 import com.evolveum.midpoint.repo.api.RepoModifyOptions;
 import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
@@ -520,6 +521,128 @@ public class SqaleRepoModifyObjectTest extends SqaleRepoBaseTest {
         assertThat(row.dead).isNull();
     }
 
+    @Test
+    public void test122ChangeColumnOnlyItemDoesNotRewriteFullObject()
+            throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
+        OperationResult result = createOperationResult();
+
+        given("delta changing synchronization timestamp and situation of shadow 1");
+        ObjectDelta<ShadowType> delta = prismContext.deltaFor(ShadowType.class)
+                .item(ShadowType.F_SYNCHRONIZATION_TIMESTAMP).replace(MiscUtil.asXMLGregorianCalendar(1L))
+                .item(ShadowType.F_SYNCHRONIZATION_SITUATION).replace(SynchronizationSituationType.LINKED)
+                .asObjectDelta(shadow1Oid);
+
+        and("shadow row before the change");
+        MShadow originalRow = selectObjectByOid(QShadow.class, shadow1Oid);
+
+        when("modifyObject is called");
+        repositoryService.modifyObject(
+                ShadowType.class, shadow1Oid, delta.getModifications(), result);
+
+        then("operation is successful");
+        assertThatOperationResult(result).isSuccess();
+
+        and("externalized columns and version are updated, but full object is not rewritten");
+        MShadow row = selectObjectByOid(QShadow.class, shadow1Oid);
+        assertThat(row.version).isEqualTo(originalRow.version + 1);
+        assertThat(row.synchronizationTimestamp).isEqualTo(Instant.ofEpochMilli(1));
+        assertThat(row.synchronizationSituation).isEqualTo(SynchronizationSituationType.LINKED);
+        assertThat(row.fullObject).isEqualTo(originalRow.fullObject);
+
+        and("object read from the repository contains the new values and version");
+        ShadowType shadowObject = repositoryService
+                .getObject(ShadowType.class, shadow1Oid, null, result)
+                .asObjectable();
+        assertThat(shadowObject.getVersion()).isEqualTo(String.valueOf(originalRow.version + 1));
+        assertThat(shadowObject.getSynchronizationTimestamp())
+                .isEqualTo(MiscUtil.asXMLGregorianCalendar(1L));
+        assertThat(shadowObject.getSynchronizationSituation()).isEqualTo(SynchronizationSituationType.LINKED);
+    }
+
+    @Test
+    public void test123ChangeOfOtherItemRewritesFullObjectWithoutColumnOnlyItems()
+            throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
+        OperationResult result = createOperationResult();
+
+        given("delta changing synchronization timestamp and intent of shadow 1");
+        ObjectDelta<ShadowType> delta = prismContext.deltaFor(ShadowType.class)
+                .item(ShadowType.F_SYNCHRONIZATION_TIMESTAMP).replace(MiscUtil.asXMLGregorianCalendar(2L))
+                .item(ShadowType.F_INTENT).replace("column-only-test")
+                .asObjectDelta(shadow1Oid);
+
+        and("shadow row before the change");
+        MShadow originalRow = selectObjectByOid(QShadow.class, shadow1Oid);
+
+        when("modifyObject is called");
+        repositoryService.modifyObject(
+                ShadowType.class, shadow1Oid, delta.getModifications(), result);
+
+        then("operation is successful");
+        assertThatOperationResult(result).isSuccess();
+
+        and("full object is rewritten, but column-only items are not stored in it");
+        MShadow row = selectObjectByOid(QShadow.class, shadow1Oid);
+        assertThat(row.version).isEqualTo(originalRow.version + 1);
+        assertThat(row.fullObject).isNotEqualTo(originalRow.fullObject);
+        ShadowType fullObject = parseFullObject(row.fullObject);
+        assertThat(fullObject.getIntent()).isEqualTo("column-only-test");
+        assertThat(fullObject.getSynchronizationTimestamp()).isNull();
+        assertThat(fullObject.getSynchronizationSituation()).isNull();
+
+        and("object read from the repository contains the column-only items");
+        ShadowType shadowObject = repositoryService
+                .getObject(ShadowType.class, shadow1Oid, null, result)
+                .asObjectable();
+        assertThat(shadowObject.getSynchronizationTimestamp())
+                .isEqualTo(MiscUtil.asXMLGregorianCalendar(2L));
+        assertThat(shadowObject.getSynchronizationSituation()).isEqualTo(SynchronizationSituationType.LINKED);
+    }
+
+    @Test
+    public void test124ColumnOnlyItemsOfSubtypesAreLoadedInBulkAndReturnedByDelete()
+            throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
+        OperationResult result = createOperationResult();
+
+        given("two shadows with changed column-only items");
+        List<String> oids = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            String oid = repositoryService.addObject(
+                    new ShadowType().name("shadow-" + getTestName() + "-" + i).asPrismObject(), null, result);
+            repositoryService.modifyObject(ShadowType.class, oid,
+                    prismContext.deltaFor(ShadowType.class)
+                            .item(ShadowType.F_SYNCHRONIZATION_SITUATION).replace(SynchronizationSituationType.UNLINKED)
+                            .asItemDeltas(),
+                    result);
+            oids.add(oid);
+        }
+
+        when("shadows are searched as objects");
+        queryRecorder.clearBufferAndStartRecording();
+        SearchResultList<PrismObject<ObjectType>> objects = repositoryService.searchObjects(ObjectType.class,
+                prismContext.queryFor(ObjectType.class).id(oids.toArray(String[]::new)).build(),
+                null, result);
+        queryRecorder.stopRecording();
+
+        then("column-only items are loaded with a single select for both shadows");
+        assertThat(objects).hasSize(2)
+                .allMatch(o -> ((ShadowType) o.asObjectable()).getSynchronizationSituation()
+                        == SynchronizationSituationType.UNLINKED);
+        assertThat(queryRecorder.getQueryBuffer())
+                .extracting(e -> e.sql)
+                .filteredOn(sql -> sql.contains("m_shadow"))
+                .hasSize(1);
+
+        when("one of the shadows is deleted");
+        DeleteObjectResult deleteResult = repositoryService.deleteObject(ShadowType.class, oids.get(0), result);
+
+        then("delete result contains the column-only items too");
+        assertThat(deleteResult.getObjectTextRepresentation()).contains("synchronizationSituation");
+        assertThatOperationResult(result).isSuccess();
+
+        // cleanup, so the shadows don't affect other tests
+        repositoryService.deleteObject(ShadowType.class, oids.get(1), result);
+    }
+
     @Test
     public void test125ChangeTaskFullResult()
             throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
@@ -595,6 +718,43 @@ public class SqaleRepoModifyObjectTest extends SqaleRepoBaseTest {
         assertThat(row.fullResult).isNull();
     }
 
+    @Test
+    public void test127ColumnOnlyItemsOfOwnersOfSearchedContainersAreLoaded()
+            throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
+        OperationResult result = createOperationResult();
+
+        given("shadow with operation execution and changed column-only item");
+        String oid = repositoryService.addObject(
+                new ShadowType().name("shadow-" + getTestName())
+                        .operationExecution(new OperationExecutionType()
+                                .status(OperationResultStatusType.SUCCESS)
+                                .timestamp(MiscUtil.asXMLGregorianCalendar(1L)))
+                        .asPrismObject(),
+                null, result);
+        repositoryService.modifyObject(ShadowType.class, oid,
+                prismContext.deltaFor(ShadowType.class)
+                        .item(ShadowType.F_SYNCHRONIZATION_SITUATION).replace(SynchronizationSituationType.LINKED)
+                        .asItemDeltas(),
+                result);
+
+        when("operation executions of the shadow are searched");
+        SearchResultList<OperationExecutionType> executions = repositoryService.searchContainers(
+                OperationExecutionType.class,
+                prismContext.queryFor(OperationExecutionType.class).ownerId(oid).build(),
+                null, result);
+
+        then("owner of the container has the column-only item from the column");
+        assertThat(executions).hasSize(1);
+        ShadowType owner = ObjectTypeUtil.getParentObject(executions.get(0));
+        assertThat(owner).isNotNull();
+        assertThat(owner.getSynchronizationSituation()).isEqualTo(SynchronizationSituationType.LINKED);
+        assertThat(owner.getVersion()).isEqualTo(repositoryService.getVersion(ShadowType.class, oid, result));
+        assertThatOperationResult(result).isSuccess();
+
+        // cleanup, so the shadow doesn't affect other tests
+        repositoryService.deleteObject(ShadowType.class, oid, result);
+    }
+
     @Test
     public void test130ChangePolyStringItem()
             throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
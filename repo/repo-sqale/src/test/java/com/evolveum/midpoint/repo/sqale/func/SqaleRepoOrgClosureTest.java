@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.qmodel.org.MOrgClosure;
+import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrgClosure;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.schema.SearchResultList;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.MiscSchemaUtil;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests of `m_org_closure` maintained incrementally by triggers.
+ * After each change the closure must be the same as after the full rebuild, except for identity rows
+ * of orgs that are not in the hierarchy anymore, which are removed only by the rebuild.
+ */
+public class SqaleRepoOrgClosureTest extends SqaleRepoBaseTest {
+
+    private String rootOid;
+    private String org1Oid;
+    private String org2Oid;
+    private String org11Oid;
+    private String org111Oid;
+    private String userOid;
+
+    @Test
+    public void test100AddOrgHierarchy() throws Exception {
+        OperationResult result = createOperationResult();
+
+        when("org hierarchy with a user is added");
+        rootOid = addOrg("root");
+        org1Oid = addOrg("org1", rootOid);
+        org2Oid = addOrg("org2", rootOid);
+        org11Oid = addOrg("org11", org1Oid);
+        org111Oid = addOrg("org111", org11Oid);
+        userOid = repositoryService.addObject(new UserType().name("user111")
+                        .parentOrgRef(org111Oid, OrgType.COMPLEX_TYPE)
+                        .asPrismObject(),
+                null, result);
+
+        then("closure contains all ancestor-descendant pairs without any rebuild");
+        Map<String, Long> closure = closureRows();
+        assertThat(closure.get(key(rootOid, org111Oid))).isEqualTo(1L);
+        assertThat(closure.get(key(org1Oid, org11Oid))).isEqualTo(1L);
+        assertThat(closure.get(key(org111Oid, org111Oid))).isEqualTo(1L);
+        assertThat(closure).doesNotContainKey(key(org2Oid, org11Oid));
+        assertClosureEqualsRebuiltClosure(closure);
+    }
+
+    @Test
+    public void test200MoveSubtree() throws Exception {
+        when("org11 (with its subtree) is moved from org1 to org2");
+        modifyParentOrg(org11Oid, org2Oid);
+
+        then("closure reflects the new position of the whole subtree");
+        Map<String, Long> closure = closureRows();
+        assertThat(closure).doesNotContainKeys(key(org1Oid, org11Oid), key(org1Oid, org111Oid));
+        assertThat(closure.get(key(org2Oid, org111Oid))).isEqualTo(1L);
+        assertThat(closure.get(key(rootOid, org111Oid))).isEqualTo(1L);
+        assertClosureEqualsRebuiltClosure(closure);
+
+        and("org filter finds the user under the new parent");
+        SearchResultList<PrismObject<UserType>> users = repositoryService.searchObjects(UserType.class,
+                prismContext.queryFor(UserType.class).isChildOf(org2Oid).build(),
+                null, createOperationResult());
+        assertThat(users).extracting(PrismObject::getOid).containsExactly(userOid);
+    }
+
+    @Test
+    public void test300MultipleParents() throws Exception {
+        when("org11 gets the second parent");
+        repositoryService.modifyObject(OrgType.class, org11Oid,
+                prismContext.deltaFor(OrgType.class)
+                        .item(ObjectType.F_PARENT_ORG_REF)
+                        .add(MiscSchemaUtil.createObjectReference(org1Oid, OrgType.COMPLEX_TYPE))
+                        .asItemDeltas(),
+                createOperationResult());
+
+        then("root is reached by two paths");
+        Map<String, Long> closure = closureRows();
+        assertThat(closure.get(key(rootOid, org111Oid))).isEqualTo(2L);
+        assertThat(closure.get(key(org1Oid, org111Oid))).isEqualTo(1L);
+        assertClosureEqualsRebuiltClosure(closure);
+
+        when("the original parent is removed");
+        repositoryService.modifyObject(OrgType.class, org11Oid,
+                prismContext.deltaFor(OrgType.class)
+                        .item(ObjectType.F_PARENT_ORG_REF)
+                        .delete(MiscSchemaUtil.createObjectReference(org2Oid, OrgType.COMPLEX_TYPE))
+                        .asItemDeltas(),
+                createOperationResult());
+
+        then("the other path is preserved");
+        closure = closureRows();
+        assertThat(closure.get(key(rootOid, org111Oid))).isEqualTo(1L);
+        assertThat(closure.get(key(org1Oid, org111Oid))).isEqualTo(1L);
+        assertThat(closure).doesNotContainKey(key(org2Oid, org111Oid));
+        assertClosureEqualsRebuiltClosure(closure);
+    }
+
+    @Test
+    public void test400CycleIsHandledByRebuild() throws Exception {
+        when("cycle is created (root under org111)");
+        modifyParentOrg(rootOid, org111Oid);
+
+        then("org filter query still works, closure is rebuilt before it");
+        SearchResultList<PrismObject<UserType>> users = repositoryService.searchObjects(UserType.class,
+                prismContext.queryFor(UserType.class).isChildOf(org11Oid).build(),
+                null, createOperationResult());
+        assertThat(users).extracting(PrismObject::getOid).containsExactly(userOid);
+
+        when("cycle is removed");
+        repositoryService.modifyObject(OrgType.class, rootOid,
+                prismContext.deltaFor(OrgType.class)
+                        .item(ObjectType.F_PARENT_ORG_REF).replace()
+                        .asItemDeltas(),
+                createOperationResult());
+        refreshOrgClosure();
+
+        and("closure is maintained incrementally again");
+        modifyParentOrg(org11Oid, org2Oid);
+        Map<String, Long> closure = closureRows();
+        assertThat(closure.get(key(org2Oid, org111Oid))).isEqualTo(1L);
+        assertThat(closure).doesNotContainKey(key(org1Oid, org111Oid));
+        assertClosureEqualsRebuiltClosure(closure);
+    }
+
+    @Test
+    public void test500DeleteOrgs() throws Exception {
+        when("user and leaf org are deleted");
+        repositoryService.deleteObject(UserType.class, userOid, createOperationResult());
+        repositoryService.deleteObject(OrgType.class, org111Oid, createOperationResult());
+
+        then("closure does not contain the deleted org");
+        Map<String, Long> closure = closureRows();
+        assertThat(closure.keySet()).noneMatch(k -> k.contains(org111Oid));
+        assertClosureEqualsRebuiltClosure(closure);
+    }
+
+    @Test
+    public void test600UserInOrgOutsideOfHierarchy() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("org without parent and children");
+        String orgOid = addOrg("standalone");
+        assertThat(closureRows()).doesNotContainKey(key(orgOid, orgOid));
+
+        when("user is added to the org");
+        String standaloneUserOid = repositoryService.addObject(new UserType().name("user-standalone")
+                        .parentOrgRef(orgOid, OrgType.COMPLEX_TYPE)
+                        .asPrismObject(),
+                null, result);
+
+        then("identity row of the org is added");
+        Map<String, Long> closure = closureRows();
+        assertThat(closure.get(key(orgOid, orgOid))).isEqualTo(1L);
+        assertClosureEqualsRebuiltClosure(closure);
+
+        when("user is deleted");
+        repositoryService.deleteObject(UserType.class, standaloneUserOid, result);
+
+        then("identity row is kept until the rebuild, which removes it");
+        assertThat(closureRows().get(key(orgOid, orgOid))).isEqualTo(1L);
+        refreshOrgClosureForce();
+        assertThat(closureRows()).doesNotContainKey(key(orgOid, orgOid));
+    }
+
+    @Test
+    public void test700PathCountsInDiamondHierarchy() throws Exception {
+        when("hierarchy of 20 diamonds (org with two children having the same child) is added");
+        String topOid = addOrg("diamond-top");
+        String bottomOid = addDiamonds("diamond", topOid, 1, 20, new ArrayList<>());
+
+        then("the number of paths doubles with each diamond, rebuild computes the same counts");
+        Map<String, Long> closure = closureRows();
+        assertThat(closure.get(key(topOid, bottomOid))).isEqualTo(1L << 20);
+        assertClosureEqualsRebuiltClosure(closure);
+    }
+
+    @Test
+    public void test710PathCountOverflow() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("hierarchy of 20 diamonds");
+        String topOid = addOrg("overflow-top");
+        List<String> orgOids = new ArrayList<>();
+        orgOids.add(topOid);
+        String bottomOid = addDiamonds("overflow", topOid, 1, 20, orgOids);
+
+        when("more diamonds are added, so that the number of paths is out of range");
+        bottomOid = addDiamonds("overflow", bottomOid, 21, 64, orgOids);
+        String diamondUserOid = repositoryService.addObject(new UserType().name("user-overflow")
+                        .parentOrgRef(bottomOid, OrgType.COMPLEX_TYPE)
+                        .asPrismObject(),
+                null, result);
+
+        then("org filter query still works, closure without path counts is used");
+        SearchResultList<PrismObject<UserType>> users = repositoryService.searchObjects(UserType.class,
+                prismContext.queryFor(UserType.class).isChildOf(topOid).build(),
+                null, result);
+        assertThat(users).extracting(PrismObject::getOid).containsExactly(diamondUserOid);
+        assertThat(closureRows().get(key(topOid, bottomOid))).isEqualTo(1L);
+
+        when("the diamonds are deleted");
+        repositoryService.deleteObject(UserType.class, diamondUserOid, result);
+        Collections.reverse(orgOids);
+        for (String orgOid : orgOids) {
+            repositoryService.deleteObject(OrgType.class, orgOid, result);
+        }
+        refreshOrgClosure();
+
+        then("path counts are maintained incrementally again");
+        modifyParentOrg(org11Oid, org1Oid);
+        Map<String, Long> closure = closureRows();
+        assertThat(closure.get(key(rootOid, org11Oid))).isEqualTo(1L);
+        assertThat(closure).doesNotContainKey(key(org2Oid, org11Oid));
+        assertClosureEqualsRebuiltClosure(closure);
+    }
+
+    /**
+     * Adds diamonds with given numbers, each under the bottom org of the previous one, and returns the bottom org
+     * of the last one. OIDs of the added orgs are collected to the provided list.
+     */
+    private String addDiamonds(String prefix, String topOid, int from, int to, List<String> addedOids)
+            throws Exception {
+        for (int i = from; i <= to; i++) {
+            String leftOid = addOrg(prefix + "-left" + i, topOid);
+            String rightOid = addOrg(prefix + "-right" + i, topOid);
+            topOid = addOrg(prefix + "-bottom" + i, leftOid, rightOid);
+            addedOids.addAll(List.of(leftOid, rightOid, topOid));
+        }
+        return topOid;
+    }
+
+    private String addOrg(String name, String... parentOids) throws Exception {
+        OrgType org = new OrgType().name(name + "-" + getClass().getSimpleName());
+        for (String parentOid : parentOids) {
+            org.parentOrgRef(parentOid, OrgType.COMPLEX_TYPE);
+        }
+        return repositoryService.addObject(org.asPrismObject(), null, createOperationResult());
+    }
+
+    private void modifyParentOrg(String orgOid, String newParentOid) throws Exception {
+        repositoryService.modifyObject(OrgType.class, orgOid,
+                prismContext.deltaFor(OrgType.class)
+                        .item(ObjectType.F_PARENT_ORG_REF)
+                        .replace(MiscSchemaUtil.createObjectReference(newParentOid, OrgType.COMPLEX_TYPE))
+                        .asItemDeltas(),
+                createOperationResult());
+    }
+
+    private void refreshOrgClosure() {
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.executeStatement("CALL m_refresh_org_closure()");
+            jdbcSession.commit();
+        }
+    }
+
+    private void assertClosureEqualsRebuiltClosure(Map<String, Long> closure) {
+        refreshOrgClosureForce();
+        assertThat(closureRows()).isEqualTo(closure);
+    }
+
+    private Map<String, Long> closureRows() {
+        Map<String, Long> rows = new HashMap<>();
+        for (MOrgClosure row : select(new QOrgClosure())) {
+            rows.put(key(row.ancestorOid, row.descendantOid), row.paths);
+        }
+        return rows;
+    }
+
+    private String key(Object ancestorOid, Object descendantOid) {
+        return ancestorOid + "->" + descendantOid;
+    }
+}
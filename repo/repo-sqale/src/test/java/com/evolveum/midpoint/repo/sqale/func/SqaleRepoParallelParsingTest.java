@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.repo.sqale.FullObjectParsingPool;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.SqaleUtils;
+import com.evolveum.midpoint.repo.sqale.qmodel.focus.QUserMapping;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests search results parsed by {@link FullObjectParsingPool}.
+ */
+public class SqaleRepoParallelParsingTest extends SqaleRepoBaseTest {
+
+    private static final int USER_COUNT = 50;
+    private static final String NAME_PREFIX = "parallel-parsing-";
+
+    private final List<String> userOids = new ArrayList<>();
+
+    @BeforeClass
+    public void initObjects() throws Exception {
+        OperationResult result = createOperationResult();
+        for (int i = 1; i <= USER_COUNT; i++) {
+            userOids.add(repositoryService.addObject(
+                    new UserType()
+                            .name(String.format("%s%03d", NAME_PREFIX, i))
+                            .emailAddress("user" + i + "@example.com")
+                            .subtype("subtype-" + i % 3)
+                            .asPrismObject(),
+                    null, result));
+        }
+    }
+
+    @AfterMethod
+    public void resetParsingThreads() {
+        repositoryConfiguration.setFullObjectParsingThreads(0);
+    }
+
+    @Test
+    public void test100ParallelParsingReturnsTheSameResultsInTheSameOrder() throws Exception {
+        given("query ordered by name");
+        ObjectQuery query = prismContext.queryFor(UserType.class)
+                .item(UserType.F_NAME).startsWith(NAME_PREFIX)
+                .asc(UserType.F_NAME)
+                .build();
+        List<UserType> sequentialResult = searchObjects(UserType.class, query, createOperationResult());
+
+        when("the same search is executed with parallel parsing");
+        repositoryConfiguration.setFullObjectParsingThreads(3);
+        List<UserType> parallelResult = searchObjects(UserType.class, query, createOperationResult());
+
+        then("the results are equal and in the same order");
+        assertThat(parallelResult).hasSize(USER_COUNT);
+        for (int i = 0; i < USER_COUNT; i++) {
+            assertThat(parallelResult.get(i).asPrismObject())
+                    .isEqualTo(sequentialResult.get(i).asPrismObject());
+        }
+    }
+
+    @Test
+    public void test200UnreadableObjectDoesNotSpoilOtherResults() throws Exception {
+        given("user with corrupted full object");
+        String corruptedOid = userOids.get(USER_COUNT / 2);
+        QUserMapping mapping = QUserMapping.getUserMapping();
+        try (JdbcSession session = mapping.repositoryContext().newJdbcSession().startTransaction()) {
+            session.newUpdate(mapping.defaultAlias())
+                    .set(mapping.defaultAlias().fullObject, "{ not parsable".getBytes(StandardCharsets.UTF_8))
+                    .where(mapping.defaultAlias().oid.eq(SqaleUtils.oidToUuid(corruptedOid)))
+                    .execute();
+            session.commit();
+        }
+
+        when("users are searched with parallel parsing");
+        repositoryConfiguration.setFullObjectParsingThreads(2);
+        List<UserType> result = searchObjects(UserType.class,
+                prismContext.queryFor(UserType.class)
+                        .item(UserType.F_NAME).startsWith(NAME_PREFIX)
+                        .asc(UserType.F_NAME)
+                        .build(),
+                createOperationResult());
+
+        then("surrogate object is returned for the corrupted one at its position, other objects are fine");
+        assertThat(result).hasSize(USER_COUNT);
+        assertThat(result.get(USER_COUNT / 2).getOid()).isEqualTo(corruptedOid);
+        assertThat(result.get(USER_COUNT / 2).getName().getOrig()).isEqualTo("Unreadable object");
+        assertThat(result.get(USER_COUNT / 2 + 1).getName().getOrig())
+                .isEqualTo(String.format("%s%03d", NAME_PREFIX, USER_COUNT / 2 + 2));
+    }
+}
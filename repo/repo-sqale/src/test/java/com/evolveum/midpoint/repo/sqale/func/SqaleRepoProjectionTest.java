@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SchemaService;
+import com.evolveum.midpoint.schema.SearchResultList;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Tests of partial objects loaded from columns for {@link GetOperationOptions#isProjection()}.
+ */
+public class SqaleRepoProjectionTest extends SqaleRepoBaseTest {
+
+    private String userOid;
+
+    @BeforeClass
+    public void initObjects() throws Exception {
+        OperationResult result = createOperationResult();
+        userOid = repositoryService.addObject(
+                new UserType()
+                        .name("projected-user")
+                        .fullName("Projected User")
+                        .emailAddress("projected@example.com")
+                        .description("Description is only in the full object")
+                        .activation(new ActivationType()
+                                .administrativeStatus(ActivationStatusType.DISABLED)
+                                .disableReason("test"))
+                        .assignment(new AssignmentType()
+                                .targetRef(UUID.randomUUID().toString(), RoleType.COMPLEX_TYPE))
+                        .asPrismObject(),
+                null, result);
+    }
+
+    @Test
+    public void test100SearchWithProjectionReturnsPartialObject() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("projection options including items stored in columns");
+        Collection<SelectorOptions<GetOperationOptions>> options = SchemaService.get()
+                .getOperationOptionsBuilder()
+                .projection()
+                .item(UserType.F_FULL_NAME).retrieve()
+                .item(UserType.F_ACTIVATION, ActivationType.F_ADMINISTRATIVE_STATUS).retrieve()
+                .item(UserType.F_ACTIVATION, ActivationType.F_DISABLE_REASON).retrieve()
+                .build();
+
+        when("users are searched");
+        queryRecorder.clearBufferAndStartRecording();
+        SearchResultList<PrismObject<UserType>> users =
+                repositoryService.searchObjects(UserType.class, null, options, result);
+        queryRecorder.stopRecording();
+
+        then("partial user is returned without reading full object");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(queryRecorder.getQueryBuffer())
+                .extracting(e -> e.sql)
+                .noneMatch(sql -> sql.contains("fullObject"));
+        assertThat(users).hasSize(1);
+        PrismObject<UserType> user = users.get(0);
+        assertThat(user.getUserData(RepositoryService.KEY_PARTIAL_OBJECT)).isEqualTo(Boolean.TRUE);
+
+        UserType userBean = user.asObjectable();
+        assertThat(userBean.getOid()).isEqualTo(userOid);
+        assertThat(userBean.getName().getOrig()).isEqualTo("projected-user");
+        assertThat(userBean.getVersion()).isEqualTo("1");
+        assertThat(userBean.getFullName().getOrig()).isEqualTo("Projected User");
+        assertThat(userBean.getActivation().getAdministrativeStatus()).isEqualTo(ActivationStatusType.DISABLED);
+        assertThat(userBean.getActivation().getDisableReason()).isEqualTo("test");
+
+        and("items that were not included are not loaded");
+        assertThat(userBean.getEmailAddress()).isNull();
+        assertThat(userBean.getDescription()).isNull();
+        assertThat(userBean.getAssignment()).isEmpty();
+    }
+
+    @Test
+    public void test110GetObjectWithProjectionOnlyReturnsBasicItems() throws Exception {
+        OperationResult result = createOperationResult();
+
+        when("object is read with projection option and no included items");
+        UserType user = repositoryService.getObject(UserType.class, userOid,
+                SelectorOptions.createCollection(GetOperationOptions.createProjection()), result)
+                .asObjectable();
+
+        then("only OID, name and version are loaded");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(user.asPrismObject().getUserData(RepositoryService.KEY_PARTIAL_OBJECT)).isEqualTo(Boolean.TRUE);
+        assertThat(user.getName().getOrig()).isEqualTo("projected-user");
+        assertThat(user.getVersion()).isEqualTo("1");
+        assertThat(user.getFullName()).isNull();
+        assertThat(user.getActivation()).isNull();
+    }
+
+    @Test
+    public void test120ProjectionFallsBackToFullObjectForUnsupportedItem() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("projection options including item not stored in columns");
+        Collection<SelectorOptions<GetOperationOptions>> options = SchemaService.get()
+                .getOperationOptionsBuilder()
+                .projection()
+                .item(UserType.F_FULL_NAME).retrieve()
+                .item(UserType.F_DESCRIPTION).retrieve()
+                .build();
+
+        when("object is read");
+        PrismObject<UserType> user = repositoryService.getObject(UserType.class, userOid, options, result);
+
+        then("full object is returned");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(user.getUserData(RepositoryService.KEY_PARTIAL_OBJECT)).isNull();
+        assertThat(user.asObjectable().getDescription()).isEqualTo("Description is only in the full object");
+        assertThat(user.asObjectable().getAssignment()).hasSize(1);
+    }
+
+    @Test
+    public void test125ProjectionFallsBackToFullObjectForWholeActivationAndExtension() throws Exception {
+        OperationResult result = createOperationResult();
+
+        expect("whole activation, which may contain items not stored in columns, is read from the full object");
+        PrismObject<UserType> user = repositoryService.getObject(UserType.class, userOid,
+                SchemaService.get().getOperationOptionsBuilder()
+                        .projection()
+                        .item(UserType.F_ACTIVATION).retrieve()
+                        .build(),
+                result);
+        assertThat(user.getUserData(RepositoryService.KEY_PARTIAL_OBJECT)).isNull();
+        assertThat(user.asObjectable().getActivation().getAdministrativeStatus())
+                .isEqualTo(ActivationStatusType.DISABLED);
+
+        expect("extension, which has only indexed items in the column, is read from the full object");
+        user = repositoryService.getObject(UserType.class, userOid,
+                SchemaService.get().getOperationOptionsBuilder()
+                        .projection()
+                        .item(UserType.F_EXTENSION).retrieve()
+                        .build(),
+                result);
+        assertThat(user.getUserData(RepositoryService.KEY_PARTIAL_OBJECT)).isNull();
+        assertThatOperationResult(result).isSuccess();
+    }
+
+    @Test
+    public void test130SearchOfSupertypeUsesOnlyCommonColumns() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("projection options with lifecycle state");
+        Collection<SelectorOptions<GetOperationOptions>> options = SchemaService.get()
+                .getOperationOptionsBuilder()
+                .projection()
+                .item(ObjectType.F_LIFECYCLE_STATE).retrieve()
+                .build();
+
+        when("objects are searched");
+        SearchResultList<PrismObject<ObjectType>> objects = repositoryService.searchObjects(ObjectType.class,
+                prismContext.queryFor(ObjectType.class).id(userOid).build(), options, result);
+
+        then("partial object of the right type is returned");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(objects).hasSize(1);
+        assertThat(objects.get(0).asObjectable()).isInstanceOf(UserType.class);
+        assertThat(objects.get(0).getUserData(RepositoryService.KEY_PARTIAL_OBJECT)).isEqualTo(Boolean.TRUE);
+    }
+}
@@ -19,7 +19,9 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
@@ -35,6 +37,9 @@ import com.evolveum.midpoint.schema.SearchResultMetadata;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.IterationMethodType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectReferenceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
 
 /**
@@ -391,6 +396,184 @@ public class SqaleRepoSearchIterativeTest extends SqaleRepoBaseTest {
         assertThat(testHandler.getCounter()).isEqualTo(COUNT_OF_CREATED_USERS - 100);
     }
 
+    @Test
+    public void test140SearchIterativeWithMultiPathOrdering() throws Exception {
+        OperationResult operationResult = createOperationResult();
+        repositoryConfiguration.setIterativeSearchByPagingBatchSize(15);
+
+        given("query with ordering by two paths in different directions");
+        ObjectQuery query = prismContext.queryFor(UserType.class)
+                .asc(UserType.F_COST_CENTER)
+                .desc(UserType.F_NAME)
+                .build();
+
+        when("calling search iterative");
+        SearchResultMetadata metadata = searchObjectsIterative(query, operationResult);
+
+        then("result metadata is not null and not partial result");
+        assertThatOperationResult(operationResult).isSuccess();
+        assertThat(metadata).isNotNull();
+        assertThat(metadata.isPartialResults()).isFalse();
+
+        and("all objects were processed in the requested order");
+        QUser u = aliasFor(QUser.class);
+        assertThat(testHandler.getCounter()).isEqualTo(count(QUser.class));
+        try (JdbcSession jdbcSession = startReadOnlyTransaction()) {
+            List<String> result = jdbcSession.newQuery()
+                    .from(u)
+                    .orderBy(u.costCenter.asc(), u.nameOrig.desc(), u.oid.desc())
+                    .select(u.employeeNumber)
+                    .fetch();
+
+            for (int i = 0; i < result.size(); i++) {
+                assertThat(result.get(i)).isEqualTo(getTestNumber() + "-" + i); // order matches
+            }
+        }
+    }
+
+    @Test
+    public void test145SearchIterativeWithOrderingByItemWithNullValues() throws Exception {
+        OperationResult operationResult = createOperationResult();
+        // Each object is the last one on its page, including the one without cost center.
+        repositoryConfiguration.setIterativeSearchByPagingBatchSize(1);
+
+        given("query with descending ordering by cost center, which is null for some users (nulls go first)");
+        ObjectQuery query = prismContext.queryFor(UserType.class)
+                .desc(UserType.F_COST_CENTER)
+                .build();
+
+        when("calling search iterative");
+        SearchResultMetadata metadata = searchObjectsIterative(query, operationResult);
+
+        then("all objects were processed");
+        assertThatOperationResult(operationResult).isSuccess();
+        assertThat(metadata.isPartialResults()).isFalse();
+        assertThat(testHandler.getCounter()).isEqualTo(count(QUser.class));
+
+        when("calling search iterative with ascending ordering (nulls go last)");
+        testHandler.reset();
+        searchObjectsIterative(prismContext.queryFor(UserType.class)
+                .asc(UserType.F_COST_CENTER)
+                .build(), operationResult);
+
+        then("all objects were processed again");
+        assertThatOperationResult(operationResult).isSuccess();
+        assertThat(testHandler.getCounter()).isEqualTo(count(QUser.class));
+    }
+
+    @Test
+    public void test146SearchIterativeWithOrderingByReferenceTargetItem() throws Exception {
+        OperationResult operationResult = createOperationResult();
+        // Each page ends with a user with a tenant, so the next page depends on the tenant name.
+        repositoryConfiguration.setIterativeSearchByPagingBatchSize(3);
+
+        given("some users with tenants");
+        String tenantAOid = repositoryService.addObject(
+                new OrgType().name("tenant-" + getTestNumber() + "-a").asPrismObject(), null, operationResult);
+        String tenantBOid = repositoryService.addObject(
+                new OrgType().name("tenant-" + getTestNumber() + "-b").asPrismObject(), null, operationResult);
+        List<PrismObject<UserType>> users = repositoryService.searchObjects(UserType.class,
+                prismContext.queryFor(UserType.class).asc(UserType.F_NAME).maxSize(10).build(),
+                null, operationResult);
+        for (int i = 0; i < users.size(); i++) {
+            repositoryService.modifyObject(UserType.class, users.get(i).getOid(),
+                    prismContext.deltaFor(UserType.class)
+                            .item(UserType.F_TENANT_REF)
+                            .replace(new ObjectReferenceType()
+                                    .oid(i < 5 ? tenantBOid : tenantAOid)
+                                    .type(OrgType.COMPLEX_TYPE))
+                            .asItemDeltas(),
+                    operationResult);
+        }
+
+        and("query with ordering by the name of the tenant");
+        ItemPath tenantNamePath =
+                ItemPath.create(UserType.F_TENANT_REF, PrismConstants.T_OBJECT_REFERENCE, OrgType.F_NAME);
+
+        when("calling search iterative with ascending ordering (users without tenants go last)");
+        testHandler.reset();
+        SearchResultMetadata metadata = searchObjectsIterative(
+                prismContext.queryFor(UserType.class).asc(tenantNamePath).build(), operationResult);
+
+        then("all objects were processed");
+        assertThatOperationResult(operationResult).isSuccess();
+        assertThat(metadata.isPartialResults()).isFalse();
+        assertThat(testHandler.getCounter()).isEqualTo(count(QUser.class));
+
+        when("calling search iterative with descending ordering (users without tenants go first)");
+        testHandler.reset();
+        searchObjectsIterative(prismContext.queryFor(UserType.class).desc(tenantNamePath).build(), operationResult);
+
+        then("all objects were processed again");
+        assertThatOperationResult(operationResult).isSuccess();
+        assertThat(testHandler.getCounter()).isEqualTo(count(QUser.class));
+    }
+
+    @Test
+    public void test150SearchIterativeWithSingleTransactionStreamsObjects() throws Exception {
+        OperationResult operationResult = createOperationResult();
+        SqlPerformanceMonitorImpl pm = getPerformanceMonitor();
+        pm.clearGlobalPerformanceInformation();
+        repositoryConfiguration.setIterativeSearchFetchSize(7);
+
+        given("query with ordering and single transaction iteration method");
+        ObjectQuery query = prismContext.queryFor(UserType.class)
+                .asc(UserType.F_NAME)
+                .build();
+
+        when("calling search iterative");
+        SearchResultMetadata metadata = searchObjectsIterative(query, operationResult,
+                SelectorOptions.create(GetOperationOptions.createIterationMethod(
+                        IterationMethodType.SINGLE_TRANSACTION)));
+
+        then("result metadata is not null and not partial result");
+        assertThatOperationResult(operationResult).isSuccess();
+        assertThat(metadata).isNotNull();
+        assertThat(metadata.getApproxNumberOfAllResults()).isEqualTo(testHandler.getCounter());
+        assertThat(metadata.isPartialResults()).isFalse();
+
+        and("objects were read by a single query, not by pages");
+        assertOperationRecordedCount(
+                REPO_OP_PREFIX + RepositoryService.OP_SEARCH_OBJECTS_ITERATIVE, 1);
+        assertOperationRecordedCount(
+                REPO_OP_PREFIX + RepositoryService.OP_SEARCH_OBJECTS_ITERATIVE_PAGE, 0);
+
+        and("all objects were processed in the requested order");
+        QUser u = aliasFor(QUser.class);
+        assertThat(testHandler.getCounter()).isEqualTo(count(QUser.class));
+        try (JdbcSession jdbcSession = startReadOnlyTransaction()) {
+            List<String> result = jdbcSession.newQuery()
+                    .from(u)
+                    .orderBy(u.nameOrig.asc())
+                    .select(u.employeeNumber)
+                    .fetch();
+
+            for (int i = 0; i < result.size(); i++) {
+                assertThat(result.get(i)).isEqualTo(getTestNumber() + "-" + i); // order matches
+            }
+        }
+    }
+
+    @Test
+    public void test151SearchIterativeWithSingleTransactionStoppedByHandler() throws Exception {
+        OperationResult operationResult = createOperationResult();
+        repositoryConfiguration.setIterativeSearchFetchSize(7);
+
+        given("handler that stops after 20 objects");
+        testHandler.setStoppingPredicate(u -> testHandler.getCounter() >= 20);
+
+        when("calling search iterative with single transaction iteration method");
+        SearchResultMetadata metadata = searchObjectsIterative(null, operationResult,
+                SelectorOptions.create(GetOperationOptions.createIterationMethod(
+                        IterationMethodType.SINGLE_TRANSACTION)));
+
+        then("result metadata reports partial result");
+        assertThatOperationResult(operationResult).isSuccess();
+        assertThat(metadata.isPartialResults()).isTrue();
+        assertThat(metadata.getApproxNumberOfAllResults()).isEqualTo(20);
+        assertThat(testHandler.getCounter()).isEqualTo(20);
+    }
+
     @SafeVarargs
     private SearchResultMetadata searchObjectsIterative(
             ObjectQuery query,
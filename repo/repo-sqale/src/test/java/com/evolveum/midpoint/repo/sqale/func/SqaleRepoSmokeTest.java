@@ -123,6 +123,11 @@ public class SqaleRepoSmokeTest extends SqaleRepoBaseTest {
                 .parentOrgRef(orgOid, OrgType.COMPLEX_TYPE);
         repositoryService.addObject(user.asPrismObject(), null, result);
 
+        and("closure rows of the new orgs are lost (closure is otherwise maintained by triggers)");
+        assertThat(count(new QOrgClosure())).isEqualTo(baseCount + 3);
+        deleteOrgClosureRows(rootOid, orgOid);
+        assertThat(count(new QOrgClosure())).isEqualTo(baseCount);
+
         when("testOrgClosureConsistency() is called with rebuild flag");
         repositoryService.testOrgClosureConsistency(true, result);
 
@@ -156,7 +161,14 @@ public class SqaleRepoSmokeTest extends SqaleRepoBaseTest {
         UserType user = new UserType().name("user" + getTestNumber())
                 .parentOrgRef(orgOid, OrgType.COMPLEX_TYPE);
         String userOid = repositoryService.addObject(user.asPrismObject(), null, result);
-        assertThat(count(new QOrgClosure())).isEqualTo(baseCount); // not refreshed yet
+        assertThat(count(new QOrgClosure())).isEqualTo(baseCount + 3); // maintained by triggers
+
+        and("closure needs rebuild (e.g. after truncate or cycle in the hierarchy)");
+        deleteOrgClosureRows(rootOid, orgOid);
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.executeStatement("SELECT m_org_closure_mark_for_rebuild()");
+            jdbcSession.commit();
+        }
 
         when("query with org filter is used");
         SearchResultList<PrismObject<UserType>> users = repositoryService.searchObjects(
@@ -173,6 +185,16 @@ public class SqaleRepoSmokeTest extends SqaleRepoBaseTest {
         assertThat(count(new QOrgClosure())).isEqualTo(baseCount + 3); // see previous test
     }
 
+    private void deleteOrgClosureRows(String... orgOids) {
+        try (JdbcSession jdbcSession = startTransaction()) {
+            QOrgClosure oc = new QOrgClosure();
+            jdbcSession.newDelete(oc)
+                    .where(oc.descendantOid.in(Arrays.stream(orgOids).map(UUID::fromString).toArray(UUID[]::new)))
+                    .execute();
+            jdbcSession.commit();
+        }
+    }
+
     @Test
     public void test100AddObject() throws ObjectAlreadyExistsException, SchemaException {
         OperationResult result = createOperationResult();
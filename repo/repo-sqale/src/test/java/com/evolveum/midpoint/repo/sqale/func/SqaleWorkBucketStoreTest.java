@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.UUID;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.api.WorkBucketStore;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.SqaleWorkBucketStore;
+import com.evolveum.midpoint.repo.sqale.qmodel.task.QWorkBucket;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.task.ActivityPath;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Tests of {@link SqaleWorkBucketStore}.
+ * Each test uses its own activity path, so the tests do not affect each other.
+ */
+public class SqaleWorkBucketStoreTest extends SqaleRepoBaseTest {
+
+    private static final String WORKER_1 = UUID.randomUUID().toString();
+    private static final String WORKER_2 = UUID.randomUUID().toString();
+
+    private String coordinatorOid;
+    private WorkBucketStore store;
+
+    @BeforeClass
+    public void initObjects() throws Exception {
+        OperationResult result = createOperationResult();
+        coordinatorOid = repositoryService.addObject(
+                new TaskType().name("coordinator").asPrismObject(), null, result);
+        repositoryConfiguration.setWorkBucketTable(true);
+    }
+
+    @AfterClass
+    public void disableWorkBucketTable() {
+        repositoryConfiguration.setWorkBucketTable(false);
+    }
+
+    @Test
+    public void test100StoreIsAvailableWhenEnabled() {
+        when("store is obtained from the repository service");
+        store = repositoryService.getWorkBucketStore();
+
+        then("it is available");
+        assertThat(store).isInstanceOf(SqaleWorkBucketStore.class);
+    }
+
+    @Test
+    public void test110AddBucketsAndGetThem() {
+        OperationResult result = createOperationResult();
+        ActivityPath path = ActivityPath.fromId("add");
+
+        when("buckets are added");
+        boolean added = store.addBuckets(coordinatorOid, path,
+                List.of(bucket(1).state(WorkBucketStateType.DELEGATED).workerRef(WORKER_1, TaskType.COMPLEX_TYPE),
+                        bucket(2).state(WorkBucketStateType.READY)),
+                result);
+
+        then("they are stored with their content, state and worker");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(added).isTrue();
+        List<WorkBucketType> buckets = store.getBuckets(coordinatorOid, path, result);
+        assertThat(buckets).hasSize(2);
+        WorkBucketType first = buckets.get(0);
+        assertThat(first.getSequentialNumber()).isEqualTo(1);
+        assertThat(first.getState()).isEqualTo(WorkBucketStateType.DELEGATED);
+        assertThat(first.getWorkerRef().getOid()).isEqualTo(WORKER_1);
+        assertThat(first.getContent()).isInstanceOf(NumericIntervalWorkBucketContentType.class);
+        NumericIntervalWorkBucketContentType content = (NumericIntervalWorkBucketContentType) first.getContent();
+        assertThat(content.getFrom()).isEqualTo(BigInteger.valueOf(0));
+        assertThat(content.getTo()).isEqualTo(BigInteger.valueOf(100));
+        assertThat(buckets.get(1).getState()).isEqualTo(WorkBucketStateType.READY);
+        assertThat(buckets.get(1).getWorkerRef()).isNull();
+
+        and("the last bucket is the one with the highest number");
+        assertThat(store.getLastBucket(coordinatorOid, path, result).getSequentialNumber()).isEqualTo(2);
+        assertThat(store.getLastBucket(coordinatorOid, ActivityPath.fromId("other"), result)).isNull();
+    }
+
+    @Test
+    public void test120ConflictingBucketsAreNotAdded() {
+        OperationResult result = createOperationResult();
+        ActivityPath path = ActivityPath.fromId("conflict");
+
+        given("existing bucket");
+        store.addBuckets(coordinatorOid, path, List.of(bucket(2)), result);
+
+        when("buckets with the same sequential number are added");
+        boolean added = store.addBuckets(coordinatorOid, path, List.of(bucket(1), bucket(2), bucket(3)), result);
+
+        then("none of them is added");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(added).isFalse();
+        assertThat(store.countBuckets(coordinatorOid, path, null, result)).isEqualTo(1);
+    }
+
+    @Test
+    public void test200AllocateReadyBuckets() {
+        OperationResult result = createOperationResult();
+        ActivityPath path = ActivityPath.fromId("allocate");
+
+        given("two ready buckets");
+        store.addBuckets(coordinatorOid, path, List.of(bucket(1), bucket(2)), result);
+
+        when("buckets are allocated by two workers");
+        WorkBucketType bucket1 = store.allocateReadyBucket(coordinatorOid, path, WORKER_1, null, result);
+        WorkBucketType bucket2 = store.allocateReadyBucket(coordinatorOid, path, WORKER_2, null, result);
+
+        then("each worker gets its own bucket");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(bucket1.getSequentialNumber()).isEqualTo(1);
+        assertThat(bucket1.getState()).isEqualTo(WorkBucketStateType.DELEGATED);
+        assertThat(bucket1.getWorkerRef().getOid()).isEqualTo(WORKER_1);
+        assertThat(bucket2.getSequentialNumber()).isEqualTo(2);
+        assertThat(bucket2.getWorkerRef().getOid()).isEqualTo(WORKER_2);
+
+        and("there is nothing more to allocate");
+        assertThat(store.allocateReadyBucket(coordinatorOid, path, WORKER_1, null, result)).isNull();
+
+        and("delegated buckets can be found by the worker");
+        assertThat(store.findDelegatedBucket(coordinatorOid, path, WORKER_2, result).getSequentialNumber())
+                .isEqualTo(2);
+        assertThat(store.findDelegatedBucket(coordinatorOid, path, UUID.randomUUID().toString(), result))
+                .isNull();
+    }
+
+    @Test
+    public void test210AllocationSkipsLockedBucket() {
+        OperationResult result = createOperationResult();
+        ActivityPath path = ActivityPath.fromId("skip-locked");
+
+        given("two ready buckets");
+        store.addBuckets(coordinatorOid, path, List.of(bucket(1), bucket(2)), result);
+
+        when("the first bucket is locked by another transaction and a bucket is allocated");
+        WorkBucketType allocated;
+        try (JdbcSession jdbcSession = startTransaction()) {
+            QWorkBucket wb = QWorkBucket.DEFAULT;
+            assertThat(jdbcSession.newQuery()
+                    .select(wb.sequentialNumber)
+                    .from(wb)
+                    .where(wb.coordinatorOid.eq(UUID.fromString(coordinatorOid))
+                            .and(wb.activityPath.eq(path.toString()))
+                            .and(wb.sequentialNumber.eq(1)))
+                    .forUpdate()
+                    .fetchOne())
+                    .isEqualTo(1);
+
+            allocated = store.allocateReadyBucket(coordinatorOid, path, WORKER_1, null, result);
+            jdbcSession.rollback();
+        }
+
+        then("the locked bucket is skipped without waiting");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(allocated.getSequentialNumber()).isEqualTo(2);
+        assertThat(store.countBuckets(coordinatorOid, path, WorkBucketStateType.READY, result)).isEqualTo(1);
+    }
+
+    @Test
+    public void test220AllocationForPrefetchSkipsLowerBuckets() {
+        OperationResult result = createOperationResult();
+        ActivityPath path = ActivityPath.fromId("prefetch");
+
+        given("worker processing bucket 2, with bucket 1 released and bucket 3 ready");
+        store.addBuckets(coordinatorOid, path, List.of(bucket(1), delegated(2, WORKER_1), bucket(3)), result);
+
+        when("a bucket is allocated after the current one");
+        WorkBucketType allocated = store.allocateReadyBucket(coordinatorOid, path, WORKER_1, 2, result);
+
+        then("the bucket with lower number than the current one is skipped");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(allocated.getSequentialNumber()).isEqualTo(3);
+        assertThat(store.findDelegatedBucket(coordinatorOid, path, WORKER_1, result).getSequentialNumber())
+                .isEqualTo(2);
+
+        and("nothing more is allocated after the current one");
+        assertThat(store.allocateReadyBucket(coordinatorOid, path, WORKER_1, 2, result)).isNull();
+    }
+
+    @Test
+    public void test300CompleteBucket() {
+        OperationResult result = createOperationResult();
+        ActivityPath path = ActivityPath.fromId("complete");
+
+        given("allocated bucket and a ready one");
+        store.addBuckets(coordinatorOid, path, List.of(bucket(1), bucket(2)), result);
+        store.allocateReadyBucket(coordinatorOid, path, WORKER_1, null, result);
+
+        when("the bucket is completed");
+        boolean completed = store.completeBucket(coordinatorOid, path, 1, WORKER_1, result);
+
+        then("it is complete");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(completed).isTrue();
+        assertThat(store.countBuckets(coordinatorOid, path, WorkBucketStateType.COMPLETE, result)).isEqualTo(1);
+
+        and("bucket not in the store can't be completed");
+        assertThat(store.completeBucket(coordinatorOid, path, 3, WORKER_1, result)).isFalse();
+
+        and("ready bucket can't be completed");
+        assertThatThrownBy(() -> store.completeBucket(coordinatorOid, path, 2, WORKER_1, createOperationResult()))
+                .isInstanceOf(SystemException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void test310ReleaseAndReclaimBuckets() {
+        OperationResult result = createOperationResult();
+        ActivityPath path = ActivityPath.fromId("release");
+
+        given("buckets delegated to two workers");
+        store.addBuckets(coordinatorOid, path,
+                List.of(delegated(1, WORKER_1), delegated(2, WORKER_1), delegated(3, WORKER_1), delegated(4, WORKER_2)),
+                result);
+
+        expect("specific bucket is released only for the right worker");
+        assertThat(store.releaseBuckets(coordinatorOid, path, WORKER_2, 1, result)).isZero();
+        assertThat(store.releaseBuckets(coordinatorOid, path, WORKER_1, 1, result)).isEqualTo(1);
+
+        and("all buckets of a worker can be released");
+        assertThat(store.releaseBuckets(coordinatorOid, path, WORKER_1, null, result)).isEqualTo(2);
+        assertThat(store.countBuckets(coordinatorOid, path, WorkBucketStateType.READY, result)).isEqualTo(3);
+
+        and("buckets of dead workers are reclaimed");
+        assertThat(store.reclaimBuckets(coordinatorOid, path, List.of(WORKER_2), result)).isZero();
+        assertThat(store.reclaimBuckets(coordinatorOid, path, List.of(WORKER_1), result)).isEqualTo(1);
+        assertThat(store.countBuckets(coordinatorOid, path, WorkBucketStateType.DELEGATED, result)).isZero();
+        assertThatOperationResult(result).isSuccess();
+    }
+
+    @Test
+    public void test320StealBucketNotBeingProcessed() {
+        OperationResult result = createOperationResult();
+        ActivityPath path = ActivityPath.fromId("steal");
+
+        given("worker 1 with three delegated buckets and worker 2 with one");
+        store.addBuckets(coordinatorOid, path,
+                List.of(delegated(1, WORKER_1), delegated(2, WORKER_1), delegated(3, WORKER_1), delegated(4, WORKER_2)),
+                result);
+        String thief = UUID.randomUUID().toString();
+
+        when("a bucket is taken over by another worker");
+        WorkBucketType stolen = store.stealBucket(coordinatorOid, path, thief, result);
+
+        then("the last bucket of the worker with the most buckets is taken");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(stolen.getSequentialNumber()).isEqualTo(3);
+        assertThat(stolen.getState()).isEqualTo(WorkBucketStateType.DELEGATED);
+        assertThat(stolen.getWorkerRef().getOid()).isEqualTo(thief);
+        assertThat(stolen.getContent()).isInstanceOf(NumericIntervalWorkBucketContentType.class);
+        assertThat(store.countDelegatedBuckets(coordinatorOid, path, WORKER_1, result)).isEqualTo(2);
+        assertThat(store.countDelegatedBuckets(coordinatorOid, path, thief, result)).isEqualTo(1);
+
+        expect("bucket #2 is taken next, but never the first bucket of any worker");
+        assertThat(store.stealBucket(coordinatorOid, path, thief, result).getSequentialNumber()).isEqualTo(2);
+        assertThat(store.stealBucket(coordinatorOid, path, thief, result)).isNull();
+        assertThat(store.countDelegatedBuckets(coordinatorOid, path, WORKER_1, result)).isEqualTo(1);
+        assertThat(store.countDelegatedBuckets(coordinatorOid, path, WORKER_2, result)).isEqualTo(1);
+    }
+
+    @Test
+    public void test330StoreAdaptiveBucketSize() {
+        OperationResult result = createOperationResult();
+        ActivityPath path = ActivityPath.fromId("adaptive");
+
+        expect("no adaptive bucket size initially");
+        assertThat(store.getAdaptiveBucketSize(coordinatorOid, path, result)).isNull();
+
+        when("the size is stored and then stored again with the same value");
+        boolean firstChanged = store.storeAdaptiveBucketSize(coordinatorOid, path, BigInteger.valueOf(100), result);
+        boolean secondChanged = store.storeAdaptiveBucketSize(coordinatorOid, path, BigInteger.valueOf(100), result);
+
+        then("only the first call changes the stored size");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(firstChanged).isTrue();
+        assertThat(secondChanged).isFalse();
+        assertThat(store.getAdaptiveBucketSize(coordinatorOid, path, result)).isEqualTo(BigInteger.valueOf(100));
+
+        when("a different size is stored");
+        boolean thirdChanged = store.storeAdaptiveBucketSize(coordinatorOid, path, BigInteger.valueOf(250), result);
+
+        then("the stored size is replaced");
+        assertThat(thirdChanged).isTrue();
+        assertThat(store.getAdaptiveBucketSize(coordinatorOid, path, result)).isEqualTo(BigInteger.valueOf(250));
+        assertThat(store.getAdaptiveBucketSize(coordinatorOid, ActivityPath.fromId("adaptive", "other"), result))
+                .isNull();
+    }
+
+    @Test
+    public void test400DeleteBucketsOfActivityAndSubActivities() {
+        OperationResult result = createOperationResult();
+        ActivityPath parent = ActivityPath.fromId("delete");
+        ActivityPath child = ActivityPath.fromId("delete", "child");
+        ActivityPath sibling = ActivityPath.fromId("delete-sibling");
+
+        given("buckets for parent, child and sibling activity");
+        store.addBuckets(coordinatorOid, parent, List.of(bucket(1)), result);
+        store.addBuckets(coordinatorOid, child, List.of(bucket(1), bucket(2)), result);
+        store.addBuckets(coordinatorOid, sibling, List.of(bucket(1)), result);
+        store.storeAdaptiveBucketSize(coordinatorOid, child, BigInteger.TEN, result);
+        store.storeAdaptiveBucketSize(coordinatorOid, sibling, BigInteger.TEN, result);
+
+        when("buckets of the parent activity are deleted");
+        int deleted = store.deleteBuckets(coordinatorOid, parent, result);
+
+        then("buckets of the parent and child activity are gone");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(deleted).isEqualTo(3);
+        assertThat(store.countBuckets(coordinatorOid, child, null, result)).isZero();
+        assertThat(store.countBuckets(coordinatorOid, sibling, null, result)).isEqualTo(1);
+        assertThat(store.getAdaptiveBucketSize(coordinatorOid, child, result)).isNull();
+        assertThat(store.getAdaptiveBucketSize(coordinatorOid, sibling, result)).isEqualTo(BigInteger.TEN);
+
+        when("all buckets of the coordinator are deleted");
+        store.deleteBuckets(coordinatorOid, ActivityPath.empty(), result);
+
+        then("no buckets remain");
+        assertThat(store.countBuckets(coordinatorOid, sibling, null, result)).isZero();
+        assertThat(store.getAdaptiveBucketSize(coordinatorOid, sibling, result)).isNull();
+    }
+
+    private WorkBucketType bucket(int sequentialNumber) {
+        return new WorkBucketType()
+                .sequentialNumber(sequentialNumber)
+                .content(new NumericIntervalWorkBucketContentType()
+                        .from(BigInteger.valueOf((sequentialNumber - 1) * 100L))
+                        .to(BigInteger.valueOf(sequentialNumber * 100L)));
+    }
+
+    private WorkBucketType delegated(int sequentialNumber, String workerOid) {
+        return bucket(sequentialNumber)
+                .state(WorkBucketStateType.DELEGATED)
+                .workerRef(workerOid, TaskType.COMPLEX_TYPE);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.perf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.sqale.ExtItemCache;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.UriCache;
+import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItem;
+import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItemCardinality;
+import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItemHolderType;
+import com.evolveum.midpoint.tools.testng.PerformanceTestClassMixin;
+
+/**
+ * The test is not part of automatically run tests (it is not mentioned in suite XMLs).
+ * Measures throughput of cache hits of {@link UriCache} and {@link ExtItemCache}
+ * from many concurrent threads, which is how these caches are used during object writes and reads.
+ * Thread count can be changed with `-DthreadCount=16`.
+ */
+public class CacheContentionPerfTest extends SqaleRepoBaseTest
+        implements PerformanceTestClassMixin {
+
+    public static final int THREAD_COUNT = Integer.parseInt(System.getProperty("threadCount", "64"));
+    public static final int OPERATIONS_PER_THREAD = 1_000_000;
+    public static final int DISTINCT_ITEMS = 100;
+
+    @Test
+    public void test100UriCacheHits() throws Exception {
+        given("URIs are cached");
+        List<String> uris = new ArrayList<>();
+        for (int i = 0; i < DISTINCT_ITEMS; i++) {
+            String uri = "http://example.com/contention#uri" + i;
+            sqlRepoContext.processCacheableUri(uri);
+            uris.add(uri);
+        }
+
+        expect("cached URIs are processed and resolved by many threads, results are displayed");
+        runConcurrently("URI cache", i -> {
+            Integer id = sqlRepoContext.processCacheableUri(uris.get(i % DISTINCT_ITEMS));
+            sqlRepoContext.resolveIdToUri(id);
+        });
+    }
+
+    @Test
+    public void test200ExtItemCacheHits() throws Exception {
+        given("extension items are cached");
+        List<MExtItem.Key> keys = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < DISTINCT_ITEMS; i++) {
+            MExtItem.Key key = new MExtItem.Key();
+            key.itemName = "{http://example.com/contention}item" + i;
+            key.valueType = "{http://www.w3.org/2001/XMLSchema}string";
+            key.holderType = MExtItemHolderType.EXTENSION;
+            key.cardinality = MExtItemCardinality.SCALAR;
+            ids.add(sqlRepoContext.resolveExtensionItem(key).id);
+            keys.add(key);
+        }
+
+        expect("cached items are resolved by key and ID by many threads, results are displayed");
+        runConcurrently("Ext item cache", i -> {
+            sqlRepoContext.resolveExtensionItem(keys.get(i % DISTINCT_ITEMS));
+            sqlRepoContext.getExtensionItem(ids.get(i % DISTINCT_ITEMS));
+        });
+    }
+
+    private void runConcurrently(String label, IntConsumer operation) throws Exception {
+        for (int round = 1; round <= 2; round++) { // second round is after warm-up
+            ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < THREAD_COUNT; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        operation.accept(i + offset);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long nanos = System.nanoTime() - start;
+            executor.shutdown();
+            assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+            long operations = (long) THREAD_COUNT * OPERATIONS_PER_THREAD;
+            display(String.format("%s, round %d: %d threads, %d operations in %d ms, %.0f ops/s",
+                    label, round, THREAD_COUNT, operations, nanos / 1_000_000,
+                    operations * 1e9 / nanos));
+        }
+    }
+}
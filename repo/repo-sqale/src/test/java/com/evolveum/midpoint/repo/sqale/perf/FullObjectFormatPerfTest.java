@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.sqale.FullObjectCodec;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.qmodel.focus.QUserMapping;
+import com.evolveum.midpoint.schema.util.MiscSchemaUtil;
+import com.evolveum.midpoint.tools.testng.PerformanceTestClassMixin;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivationStatusType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * The test is not part of automatically run tests (it is not mentioned in suite XMLs).
+ * Compares size, serialization and parsing throughput of plain and compact full object formats
+ * (see {@link FullObjectCodec}), without the database.
+ * Object count can be changed with `-DobjectCount=100000`.
+ */
+public class FullObjectFormatPerfTest extends SqaleRepoBaseTest
+        implements PerformanceTestClassMixin {
+
+    public static final int OBJECT_COUNT = Integer.parseInt(System.getProperty("objectCount", "20000"));
+    public static final int ASSIGNMENTS_PER_USER = 10;
+
+    @Test
+    public void test100CompareFormats() throws Exception {
+        given("users with some typical content");
+        List<UserType> users = new ArrayList<>();
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            UserType user = new UserType()
+                    .oid(UUID.randomUUID().toString())
+                    .name(String.format("user-%08d", i))
+                    .givenName("Given" + i)
+                    .familyName("Family" + i)
+                    .fullName("Given" + i + " Family" + i)
+                    .emailAddress("user" + i + "@example.com")
+                    .activation(new ActivationType().administrativeStatus(ActivationStatusType.ENABLED));
+            for (int a = 0; a < ASSIGNMENTS_PER_USER; a++) {
+                user.beginAssignment()
+                        .id((long) a + 1)
+                        .targetRef(MiscSchemaUtil.createObjectReference(
+                                UUID.randomUUID().toString(), RoleType.COMPLEX_TYPE));
+            }
+            users.add(user);
+        }
+        QUserMapping mapping = QUserMapping.getUserMapping();
+
+        expect("users are serialized and parsed in plain and compact form, results are displayed");
+        for (boolean compact : new boolean[] { false, true, false, true }) { // second round is after warm-up
+            repositoryConfiguration.setFullObjectCompact(compact);
+            List<byte[]> serialized = new ArrayList<>(users.size());
+            long totalSize = 0;
+            long start = System.nanoTime();
+            for (UserType user : users) {
+                byte[] fullObject = mapping.createFullObject(user);
+                totalSize += fullObject.length;
+                serialized.add(fullObject);
+            }
+            long serializationNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (byte[] fullObject : serialized) {
+                sqlRepoContext.parsePrismObject(FullObjectCodec.decode(fullObject), UserType.class);
+            }
+            long parsingNanos = System.nanoTime() - start;
+
+            display(String.format("%s: %d objects, avg size %d B, serialization %.0f obj/s, parsing %.0f obj/s",
+                    compact ? "compact" : "plain", users.size(), totalSize / users.size(),
+                    users.size() * 1e9 / serializationNanos, users.size() * 1e9 / parsingNanos));
+        }
+        repositoryConfiguration.setFullObjectCompact(false);
+    }
+}
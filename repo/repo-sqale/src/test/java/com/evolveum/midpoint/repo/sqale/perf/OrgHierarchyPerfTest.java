@@ -9,6 +9,7 @@ package com.evolveum.midpoint.repo.sqale.perf;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.security.SecureRandom;
+import java.util.List;
 
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -20,6 +21,7 @@ import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrg;
 import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrgClosure;
 import com.evolveum.midpoint.schema.SearchResultList;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.MiscSchemaUtil;
 import com.evolveum.midpoint.util.MiscUtil;
 import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -28,6 +30,10 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
 
+/**
+ * The test is not part of automatically run tests (it is not mentioned in suite XMLs).
+ * Besides org filter search it measures moves of org subtrees with the closure maintained incrementally.
+ */
 public class OrgHierarchyPerfTest extends SqaleRepoBaseTest {
 
     public static final SecureRandom RANDOM = new SecureRandom();
@@ -88,11 +94,11 @@ public class OrgHierarchyPerfTest extends SqaleRepoBaseTest {
 
     @Test
     public void test100Xxx() throws Exception {
-        given("there are orgs and users, closure is not yet updated");
+        given("there are orgs and users, closure is maintained by triggers");
         OperationResult operationResult = createOperationResult();
         display("Orgs: " + count(QOrg.CLASS));
         display("Users: " + count(QUser.class));
-        assertThat(count(new QOrgClosure())).isZero();
+        assertThat(count(new QOrgClosure())).isPositive();
         OrgType org1x1x1 = searchObjects(OrgType.class,
                 prismContext.queryFor(OrgType.class)
                         .item(ObjectType.F_NAME).eq(PolyString.fromOrig("org1x1x1"))
@@ -106,11 +112,49 @@ public class OrgHierarchyPerfTest extends SqaleRepoBaseTest {
                         .build(),
                 operationResult);
 
-        then("non-empty result is returned and org closure has been initialized");
+        then("non-empty result is returned");
         assertThat(result).isNotEmpty();
         assertThat(count(new QOrgClosure())).isPositive();
         display("Orgs: " + count(QOrg.CLASS));
         display("Org closure: " + count(new QOrgClosure()));
         display("Users: " + count(QUser.class));
     }
+
+    @Test
+    public void test200MoveOrgs() throws Exception {
+        given("some orgs from the org1 subtree and another root to move them under");
+        OperationResult operationResult = createOperationResult();
+        List<OrgType> movedOrgs = searchObjects(OrgType.class,
+                prismContext.queryFor(OrgType.class)
+                        .item(ObjectType.F_NAME).startsWith("org1x")
+                        .and().item(ObjectType.F_NAME).endsWith("x1")
+                        .build(),
+                operationResult);
+        OrgType newParent = searchObjects(OrgType.class,
+                prismContext.queryFor(OrgType.class)
+                        .item(ObjectType.F_NAME).eq(PolyString.fromOrig("org2"))
+                        .build(),
+                operationResult).get(0);
+
+        when("orgs (with their subtrees) are moved to another root");
+        long start = System.nanoTime();
+        for (OrgType org : movedOrgs) {
+            repositoryService.modifyObject(OrgType.class, org.getOid(),
+                    prismContext.deltaFor(OrgType.class)
+                            .item(ObjectType.F_PARENT_ORG_REF)
+                            .replace(MiscSchemaUtil.createObjectReference(newParent.getOid(), OrgType.COMPLEX_TYPE))
+                            .asItemDeltas(),
+                    operationResult);
+        }
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+
+        then("closure is consistent without any rebuild");
+        display(String.format("Moved %d orgs in %d ms, %.2f ms per move",
+                movedOrgs.size(), durationMs, (double) durationMs / movedOrgs.size()));
+        repositoryService.testOrgClosureConsistency(false, operationResult);
+        OperationResult subresult = operationResult.getLastSubresult();
+        assertThat(subresult.getReturnSingle("closure-count"))
+                .isEqualTo(subresult.getReturnSingle("expected-count"));
+        display("Org closure: " + count(new QOrgClosure()));
+    }
 }
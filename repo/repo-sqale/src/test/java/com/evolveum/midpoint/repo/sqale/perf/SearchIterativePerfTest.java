@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.perf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.repo.api.AddObjectOutcome;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.SqaleRepositoryService;
+import com.evolveum.midpoint.repo.sqale.qmodel.shadow.QShadow;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.MiscSchemaUtil;
+import com.evolveum.midpoint.tools.testng.PerformanceTestClassMixin;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
+
+/**
+ * The test is not part of automatically run tests (it is not mentioned in suite XMLs).
+ * It checks that pages of {@link SqaleRepositoryService#searchObjectsIterative} take about the same time
+ * regardless of how many pages were already processed, which is the point of the keyset pagination.
+ * Shadow count can be changed with `-DshadowCount=5000000`; data are created only if there are fewer shadows.
+ * For really big counts, it's better to run it against a standalone database (not the embedded one).
+ */
+public class SearchIterativePerfTest extends SqaleRepoBaseTest
+        implements PerformanceTestClassMixin {
+
+    public static final int SHADOW_COUNT = Integer.parseInt(System.getProperty("shadowCount", "200000"));
+    public static final int PAGE_SIZE = 1000;
+    public static final int ADD_BATCH_SIZE = 1000;
+
+    /** Number of pages at the start and at the end of the iteration that are compared. */
+    public static final int COMPARED_PAGES = 20;
+
+    @BeforeClass
+    public void initObjects() throws Exception {
+        long existingCount = count(QShadow.class);
+        if (existingCount >= SHADOW_COUNT) {
+            display("Using " + existingCount + " existing shadows");
+            return;
+        }
+
+        OperationResult result = createOperationResult();
+        String resourceOid = repositoryService.addObject(
+                new ResourceType().name("resource-" + getClass().getSimpleName()).asPrismObject(),
+                null, result);
+
+        Stopwatch stopwatch = stopwatch("shadow.addObjects", "Repository addObjects(shadows)");
+        List<PrismObject<? extends ObjectType>> batch = new ArrayList<>();
+        for (long i = existingCount + 1; i <= SHADOW_COUNT; i++) {
+            batch.add(new ShadowType()
+                    .name(PolyStringType.fromOrig(String.format("shadow-%08d", i)))
+                    .resourceRef(MiscSchemaUtil.createObjectReference(resourceOid, ResourceType.COMPLEX_TYPE))
+                    .asPrismObject());
+            if (batch.size() == ADD_BATCH_SIZE || i == SHADOW_COUNT) {
+                try (Split ignored = stopwatch.start()) {
+                    assertThat(repositoryService.addObjects(batch, null, result))
+                            .allMatch(AddObjectOutcome::isSuccess);
+                }
+                batch.clear();
+            }
+        }
+        display("Shadows: " + count(QShadow.class));
+    }
+
+    @Test
+    public void test100SearchIterativeWithoutOrdering() throws Exception {
+        iterateAndComparePages("oid", null);
+    }
+
+    @Test
+    public void test110SearchIterativeOrderedByName() throws Exception {
+        iterateAndComparePages("name", prismContext.queryFor(ShadowType.class)
+                .asc(ShadowType.F_NAME)
+                .build());
+    }
+
+    private void iterateAndComparePages(String label, ObjectQuery query) throws Exception {
+        OperationResult result = createOperationResult();
+        int originalBatchSize = repositoryConfiguration.getIterativeSearchByPagingBatchSize();
+        repositoryConfiguration.setIterativeSearchByPagingBatchSize(PAGE_SIZE);
+
+        when("all shadows are iterated over");
+        List<Long> pageNanos = new ArrayList<>();
+        long[] lastTimestamp = { System.nanoTime() };
+        int[] counter = { 0 };
+        try {
+            repositoryService.searchObjectsIterative(ShadowType.class, query,
+                    (object, parentResult) -> {
+                        if (++counter[0] % PAGE_SIZE == 0) {
+                            // Handler is fast, so this is (mostly) the time of the page query and object parsing.
+                            long now = System.nanoTime();
+                            pageNanos.add(now - lastTimestamp[0]);
+                            lastTimestamp[0] = now;
+                        }
+                        return true;
+                    }, null, true, result);
+        } finally {
+            repositoryConfiguration.setIterativeSearchByPagingBatchSize(originalBatchSize);
+        }
+
+        then("pages at the end do not take (much) longer than pages at the start");
+        assertThat(counter[0]).isEqualTo(count(QShadow.class));
+        assertThat(pageNanos).hasSizeGreaterThan(COMPARED_PAGES * 2);
+        double startAvgMs = averageMillis(pageNanos.subList(0, COMPARED_PAGES));
+        double endAvgMs = averageMillis(pageNanos.subList(pageNanos.size() - COMPARED_PAGES, pageNanos.size()));
+        display(String.format("%d pages ordered by %s: first %d pages avg %.2f ms/page, last %d pages avg %.2f ms/page",
+                pageNanos.size(), label, COMPARED_PAGES, startAvgMs, COMPARED_PAGES, endAvgMs));
+        // With OFFSET paging the ratio would grow linearly with the number of pages.
+        assertThat(endAvgMs).isLessThan(startAvgMs * 2 + 5);
+    }
+
+    private double averageMillis(List<Long> nanos) {
+        return nanos.stream().mapToLong(n -> n).average().orElse(0) / 1_000_000;
+    }
+}
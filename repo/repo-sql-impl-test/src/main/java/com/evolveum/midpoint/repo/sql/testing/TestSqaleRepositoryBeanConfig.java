@@ -88,6 +88,8 @@ public class TestSqaleRepositoryBeanConfig {
             // But truncate does not run ON DELETE trigger, many refs/container tables are not cleaned,
             // because their FK references OID pool table. After truncating m_object_oid it cleans all the tables.
             jdbcSession.executeStatement("TRUNCATE m_object_oid CASCADE;");
+            // Truncate flags the org closure for rebuild, with empty tables it's cheap to do it right away.
+            jdbcSession.executeStatement("CALL m_refresh_org_closure(true);");
 
             jdbcSession.executeStatement("TRUNCATE ma_audit_event CASCADE;");
             jdbcSession.commit();
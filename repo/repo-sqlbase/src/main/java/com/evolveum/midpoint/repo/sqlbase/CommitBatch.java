@@ -0,0 +1,398 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqlbase;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.dml.SQLDeleteClause;
+import com.querydsl.sql.dml.SQLInsertClause;
+import com.querydsl.sql.dml.SQLUpdateClause;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Group commit of the work done by a single thread: all JDBC sessions created by the thread
+ * (see {@link SqlRepoContext#newJdbcSession()}) share one connection and one database transaction,
+ * which is committed only after given number of checkpoints (see {@link #checkpoint()}) or when given time elapses.
+ *
+ * Each "transaction" of a JDBC session is represented by a savepoint. Its commit releases the savepoint,
+ * its rollback (or closing the session without a commit) rolls back to the savepoint. So a failed operation
+ * is undone without affecting other operations in the batch, and it is reported to the caller as usual.
+ * The savepoint is set lazily, before the first statement of the session, and only for sessions that
+ * are not read-only; so a read-only session costs no extra round-trip, and a writing one costs two
+ * (savepoint and its release).
+ *
+ * Statements of read-only sessions are not protected by a savepoint. If such a session is closed
+ * without a commit (which is the case when its statement failed), the batch transaction is checked,
+ * and if it was aborted, the pending operations are reported as lost by the next commit of the batch.
+ * That commit discards also the operations done after the abort, so the work lost by a failed commit
+ * is always all the work since the last successful commit.
+ *
+ * The connection is returned to the pool after each commit, and acquired again when needed.
+ *
+ * Side effects that other threads or nodes may observe (e.g. invalidation of global and cluster-wide caches,
+ * writing audit records) must not precede the commit, see {@link #executeAfterCommit(Runnable, boolean)}.
+ * Otherwise, another thread could e.g. cache the old (still committed) state of an object after the invalidation.
+ *
+ * Locking cost: the rows modified in the batch stay locked until the batch is committed, i.e. for the duration
+ * of processing of all the items in the batch, not only of the item that modified them. Other threads that want
+ * to modify such rows wait for the commit (and deadlocks between batches are more probable), so the contention
+ * grows with the batch size and delay. This is why objects shared by many threads should be written using
+ * {@link SqlRepoContext#newStandaloneJdbcSession()}. Also, the approach assumes "read committed" transaction isolation.
+ *
+ * Not thread-safe, it is used only by the thread that created it.
+ */
+public class CommitBatch {
+
+    private static final Trace LOGGER = TraceManager.getTrace(CommitBatch.class);
+
+    @NotNull private final SqlRepoContext sqlRepoContext;
+    private final int maxCheckpoints;
+    private final long maxDelayMillis;
+
+    /** Connection with the open batch transaction; null if there is none. */
+    private Connection connection;
+
+    /** Number of operations committed in the batch transaction since the last real commit. */
+    private int pendingOperations;
+
+    /** Number of checkpoints with some pending operations since the last real commit. */
+    private int pendingCheckpoints;
+
+    /** When the first pending operation was done. */
+    private long firstPendingTimestamp;
+
+    /** Number of operations lost because the batch transaction was aborted, reported by the next commit. */
+    private int lostOperations;
+
+    /** Actions to be executed after the pending operations are committed, see {@link #executeAfterCommit}. */
+    private final List<AfterCommitAction> afterCommitActions = new ArrayList<>();
+
+    CommitBatch(@NotNull SqlRepoContext sqlRepoContext, int maxCheckpoints, long maxDelayMillis) {
+        this.sqlRepoContext = sqlRepoContext;
+        this.maxCheckpoints = maxCheckpoints;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    JdbcSession newJdbcSession() {
+        if (connection == null) {
+            connection = sqlRepoContext.newConnection();
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                closeConnection();
+                throw new SystemException("SQL connection setup problem for commit batch", e);
+            }
+        }
+        return new BatchedJdbcSession(connection);
+    }
+
+    private void operationCommitted() {
+        if (pendingOperations++ == 0) {
+            firstPendingTimestamp = System.currentTimeMillis();
+        }
+    }
+
+    /** Returns true if there are operations done in the batch transaction that were not committed yet. */
+    public boolean hasPendingOperations() {
+        return pendingOperations > 0;
+    }
+
+    /**
+     * Executes the action after the operations done so far are committed; or right away, if there is nothing
+     * to be committed.
+     *
+     * @param evenIfFailed If true, the action is executed also when the commit fails. This is meant for actions
+     * that are harmless in that case (like cache invalidations), but must not be lost.
+     */
+    public void executeAfterCommit(@NotNull Runnable action, boolean evenIfFailed) {
+        executeAfterCommit(action, evenIfFailed ? action : null);
+    }
+
+    /**
+     * Like {@link #executeAfterCommit(Runnable, boolean)}, but if the commit fails (and the pending operations
+     * are lost), `onFailure` is executed instead of the action, if it is provided.
+     */
+    public void executeAfterCommit(@NotNull Runnable action, @Nullable Runnable onFailure) {
+        if (pendingOperations == 0) {
+            action.run();
+        } else {
+            afterCommitActions.add(new AfterCommitAction(action, onFailure));
+        }
+    }
+
+    /**
+     * Marks the end of a unit of work; commits the batch if the limits are reached.
+     */
+    public void checkpoint() {
+        if (lostOperations > 0) {
+            commit();
+        }
+        if (pendingOperations == 0) {
+            return;
+        }
+        pendingCheckpoints++;
+        if (pendingCheckpoints >= maxCheckpoints
+                || System.currentTimeMillis() - firstPendingTimestamp >= maxDelayMillis) {
+            commit();
+        }
+    }
+
+    /**
+     * Commits the pending operations (if any) and returns the connection to the pool.
+     */
+    public void commit() {
+        if (lostOperations > 0) {
+            // The operations done after the abort are discarded as well, so the caller can simply redo
+            // all the work since the last successful commit.
+            int lost = lostOperations + pendingOperations;
+            lostOperations = 0;
+            pendingOperations = 0;
+            pendingCheckpoints = 0;
+            if (connection != null) {
+                closeConnection();
+            }
+            executeAfterCommitActions(false);
+            throw new SystemException("Batch transaction was aborted by a failed statement, "
+                    + lost + " operation(s) were lost");
+        }
+        if (connection == null) {
+            return;
+        }
+        boolean committed = false;
+        try {
+            if (pendingOperations > 0) {
+                LOGGER.debug("Committing batch of {} operation(s) from {} checkpoint(s)",
+                        pendingOperations, pendingCheckpoints);
+                connection.commit();
+                committed = true;
+            } else {
+                connection.rollback(); // just to end the (read-only) transaction
+            }
+        } catch (SQLException e) {
+            throw new SystemException("Couldn't commit batch of " + pendingOperations + " operation(s) from "
+                    + pendingCheckpoints + " checkpoint(s), the changes are lost", e);
+        } finally {
+            pendingOperations = 0;
+            pendingCheckpoints = 0;
+            closeConnection();
+            executeAfterCommitActions(committed);
+        }
+    }
+
+    /**
+     * Called when the batch transaction was found aborted: the pending operations can't be committed anymore.
+     * The connection is returned to the pool (which rolls it back), so the following operations can proceed
+     * in a new batch transaction.
+     */
+    private void transactionAborted() {
+        LOGGER.error("Batch transaction was aborted by a failed statement, {} pending operation(s) are lost",
+                pendingOperations);
+        lostOperations += pendingOperations;
+        pendingOperations = 0;
+        pendingCheckpoints = 0;
+        closeConnection();
+        executeAfterCommitActions(false);
+    }
+
+    private void executeAfterCommitActions(boolean committed) {
+        List<AfterCommitAction> actions = new ArrayList<>(afterCommitActions);
+        afterCommitActions.clear();
+        for (AfterCommitAction action : actions) {
+            Runnable runnable = committed ? action.action : action.onFailure;
+            if (runnable != null) {
+                try {
+                    runnable.run();
+                } catch (RuntimeException e) {
+                    // Other actions must be executed, and the commit (or its failure) must be reported as usual.
+                    LOGGER.error("Couldn't execute after-commit action: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private void closeConnection() {
+        try {
+            // If the commit failed, the pool rolls back the transaction.
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.warn("Couldn't close connection of commit batch: {}", e.getMessage(), e);
+        } finally {
+            connection = null;
+        }
+    }
+
+    private static class AfterCommitAction {
+
+        @NotNull private final Runnable action;
+        @Nullable private final Runnable onFailure;
+
+        private AfterCommitAction(@NotNull Runnable action, @Nullable Runnable onFailure) {
+            this.action = action;
+            this.onFailure = onFailure;
+        }
+    }
+
+    /**
+     * Session using the connection of the batch. Transactions are replaced by savepoints, see the class javadoc.
+     */
+    private class BatchedJdbcSession extends JdbcSession {
+
+        /** Set by {@link #startTransaction()}: statements of the session must be undone if it is not committed. */
+        private boolean writable;
+        private boolean readOnly;
+        private boolean committed;
+
+        /** True if any statement was (or is about to be) executed in the session. */
+        private boolean used;
+
+        /** Savepoint set before the first statement of a writable session; null if there is none yet. */
+        private Savepoint savepoint;
+
+        private BatchedJdbcSession(@NotNull Connection connection) {
+            super(connection, sqlRepoContext.getJdbcRepositoryConfiguration(), sqlRepoContext);
+        }
+
+        @Override
+        public JdbcSession startTransaction() {
+            writable = true;
+            return this;
+        }
+
+        @Override
+        public JdbcSession startTransaction(int transactionLevel) {
+            throw new SystemException("Transaction isolation level cannot be changed within a commit batch");
+        }
+
+        @Override
+        public JdbcSession startReadOnlyTransaction() {
+            readOnly = true;
+            return this;
+        }
+
+        /** All statements get the connection from here, so this is where the savepoint is set. */
+        @Override
+        public Connection connection() {
+            beforeStatement();
+            return super.connection();
+        }
+
+        @Override
+        public SQLQuery<?> newQuery() {
+            beforeStatement();
+            return super.newQuery();
+        }
+
+        @Override
+        public SQLInsertClause newInsert(RelationalPath<?> entity) {
+            beforeStatement();
+            return super.newInsert(entity);
+        }
+
+        @Override
+        public SQLUpdateClause newUpdate(RelationalPath<?> entity) {
+            beforeStatement();
+            return super.newUpdate(entity);
+        }
+
+        @Override
+        public SQLDeleteClause newDelete(RelationalPath<?> entity) {
+            beforeStatement();
+            return super.newDelete(entity);
+        }
+
+        @Override
+        public void executeStatement(String sql) throws SystemException {
+            beforeStatement();
+            super.executeStatement(sql);
+        }
+
+        private void beforeStatement() {
+            used = true;
+            committed = false;
+            if (writable && savepoint == null) {
+                try {
+                    savepoint = super.connection().setSavepoint();
+                } catch (SQLException e) {
+                    throw new SystemException("Couldn't set savepoint in commit batch", e);
+                }
+            }
+        }
+
+        @Override
+        public void commit() {
+            committed = true;
+            if (savepoint == null) {
+                return;
+            }
+            try {
+                LOGGER.trace("Releasing savepoint (session {})", sessionId());
+                super.connection().releaseSavepoint(savepoint);
+            } catch (SQLException e) {
+                throw new SystemException("Couldn't release savepoint in commit batch", e);
+            } finally {
+                // Next transaction of the session sets a new savepoint with its first statement, if there is any.
+                savepoint = null;
+            }
+            operationCommitted();
+        }
+
+        @Override
+        public void rollback() {
+            rollbackToSavepoint();
+        }
+
+        /**
+         * Rolls back uncommitted work of the session (as the pool would do); the connection stays open.
+         * For an uncommitted read-only session, it checks whether its failed statement aborted the batch transaction.
+         */
+        @Override
+        public void close() {
+            if (savepoint != null) {
+                rollbackToSavepoint();
+            } else if (readOnly && used && !committed && isTransactionAborted()) {
+                transactionAborted();
+            }
+        }
+
+        private boolean isTransactionAborted() {
+            try (Statement stmt = super.connection().createStatement()) {
+                stmt.execute("SELECT 1");
+                return false;
+            } catch (SQLException e) {
+                LOGGER.debug("Batch transaction is not usable anymore (session {}): {}", sessionId(), e.toString());
+                return true;
+            }
+        }
+
+        private void rollbackToSavepoint() {
+            if (savepoint == null) {
+                return;
+            }
+            try {
+                LOGGER.trace("Rolling back to savepoint (session {})", sessionId());
+                super.connection().rollback(savepoint);
+                super.connection().releaseSavepoint(savepoint);
+            } catch (SQLException e) {
+                throw new SystemException("Couldn't roll back to savepoint in commit batch", e);
+            } finally {
+                savepoint = null;
+            }
+        }
+    }
+}
@@ -8,6 +8,8 @@ package com.evolveum.midpoint.repo.sqlbase;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.PreDestroy;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
@@ -31,6 +33,8 @@ public class DataSourceFactory {
 
     private DataSource dataSource;
 
+    private final List<HikariDataSource> replicaDataSources = new ArrayList<>();
+
     public DataSourceFactory(JdbcRepositoryConfiguration configuration) {
         this.configuration = configuration;
     }
@@ -74,6 +78,33 @@ public class DataSourceFactory {
         return dataSource;
     }
 
+    /**
+     * Creates pooled data source for a read-only replica of the database with provided JDBC URL.
+     * Credentials and pool settings are the same as for the main data source, but the replica
+     * is not required to be available during the startup and its connections are read-only.
+     * Connection timeout should be short, because the caller can fall back to other data source.
+     */
+    public DataSource createReplicaDataSource(String applicationName, String jdbcUrl, long connectionTimeout)
+            throws RepositoryServiceFactoryException {
+        try {
+            LOGGER.info("Constructing read replica datasource '{}' with connection pooling; JDBC URL: {}",
+                    applicationName, jdbcUrl);
+            HikariConfig config = createHikariConfig(applicationName);
+            config.setJdbcUrl(jdbcUrl);
+            config.setPoolName(applicationName);
+            config.setReadOnly(true);
+            config.setConnectionTimeout(connectionTimeout);
+            config.setInitializationFailTimeout(-1); // replica can be down now, pool will try later
+            HikariDataSource replicaDataSource = new HikariDataSource(config);
+            replicaDataSources.add(replicaDataSource);
+            return replicaDataSource;
+        } catch (Exception ex) {
+            throw new RepositoryServiceFactoryException(
+                    "Couldn't initialize read replica datasource using JDBC URL " + jdbcUrl
+                            + ", reason: " + ex.getMessage(), ex);
+        }
+    }
+
     public DataSource getDataSource() {
         return dataSource;
     }
@@ -127,6 +158,10 @@ public class DataSourceFactory {
 
     @PreDestroy
     public void destroy() throws IOException {
+        for (HikariDataSource replicaDataSource : replicaDataSources) {
+            replicaDataSource.close();
+        }
+        replicaDataSources.clear();
         if (internalDataSource && dataSource instanceof Closeable) {
             ((Closeable) dataSource).close();
         }
@@ -125,4 +125,30 @@ public interface JdbcRepositoryConfiguration {
     int getIterativeSearchByPagingBatchSize();
 
     boolean isCreateMissingCustomColumns();
+
+    /**
+     * Returns the lowest estimated count returned for counts with approximate count option,
+     * smaller estimates are replaced with the exact count.
+     * Value of 0 or less means that approximate count option is ignored.
+     */
+    default int getApproximateCountThreshold() {
+        return 0;
+    }
+
+    /**
+     * Returns duration of SQL statement in milliseconds after which it is captured in slow query statistics
+     * of the performance monitor, see {@link com.evolveum.midpoint.repo.sqlbase.perfmon.SlowQueryStatistics}.
+     * Value of 0 or less means that slow queries are not captured.
+     */
+    default long getSlowQueryThresholdMs() {
+        return 0;
+    }
+
+    /**
+     * Returns true if the first captured slow select of each kind should be explained
+     * with plain `EXPLAIN`, which only plans the select and does not execute it again.
+     */
+    default boolean isSlowQueryExplain() {
+        return false;
+    }
 }
@@ -10,6 +10,8 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 
 import com.querydsl.sql.ColumnMetadata;
@@ -59,6 +61,9 @@ public class JdbcSession implements AutoCloseable {
 
     private boolean rollbackForReadOnly;
 
+    /** Pending inserts per table, see {@link #startInsertBatching()}; null if inserts are executed immediately. */
+    private Map<RelationalPath<?>, SQLInsertClause> insertBatches;
+
     public JdbcSession(
             @NotNull Connection connection,
             @NotNull JdbcRepositoryConfiguration jdbcRepositoryConfiguration,
@@ -244,6 +249,50 @@ public class JdbcSession implements AutoCloseable {
         return sqlRepoContext.newInsert(connection, entity);
     }
 
+    /**
+     * Inserts fully populated row into the table, either immediately or - after {@link #startInsertBatching()}
+     * was called - by adding it to the JDBC batch for the table.
+     */
+    public void insert(RelationalPath<?> entity, Object row) {
+        if (insertBatches == null) {
+            newInsert(entity)
+                    .populate(row)
+                    .execute();
+        } else {
+            insertBatches.computeIfAbsent(entity, this::newInsert)
+                    .populate(row)
+                    .addBatch();
+        }
+    }
+
+    /**
+     * Makes {@link #insert(RelationalPath, Object)} collect the rows in JDBC batches, one for each table,
+     * until {@link #flushInsertBatches()} is called.
+     * Batches are executed in the order in which the tables were first used; so rows with foreign keys
+     * to other rows must be inserted after them.
+     */
+    public void startInsertBatching() {
+        if (insertBatches == null) {
+            insertBatches = new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Executes pending insert batches, if there are any; the batching mode is not changed.
+     */
+    public void flushInsertBatches() {
+        if (insertBatches == null) {
+            return;
+        }
+        for (SQLInsertClause insert : insertBatches.values()) {
+            if (!insert.isEmpty()) {
+                LOGGER.trace("Executing insert batch of {} row(s) (session {})", insert.getBatchCount(), sessionId);
+                insert.execute();
+            }
+        }
+        insertBatches.clear();
+    }
+
     public SQLUpdateClause newUpdate(RelationalPath<?> entity) {
         return sqlRepoContext.newUpdate(connection, entity);
     }
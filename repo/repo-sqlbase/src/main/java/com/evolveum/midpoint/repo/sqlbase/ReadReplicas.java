@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqlbase;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.repo.sqlbase.perfmon.SqlPerformanceMonitorImpl;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Read-only replicas of the repository database used for reads that can tolerate stale data.
+ * This is the case for reads with non-zero `staleness` option, or for all searches and counts if configured so.
+ *
+ * Replicas are used in round-robin fashion.
+ * Replica that fails to provide a connection is skipped for the retry interval and the next one is tried.
+ * If no replica provides the connection, the caller should fall back to the primary data source,
+ * see {@link SqlRepoContext#newReadOnlyJdbcSession}.
+ */
+public class ReadReplicas {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ReadReplicas.class);
+
+    /** Name of the main data source in data source statistics, used only when replicas fail. */
+    public static final String PRIMARY_NAME = "primary";
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final boolean forAllSearches;
+    private final long retryIntervalMillis;
+
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    /**
+     * @param dataSources replica data sources indexed by their names (used in statistics), order is preserved
+     */
+    public ReadReplicas(
+            @NotNull Map<String, DataSource> dataSources, boolean forAllSearches, long retryIntervalMillis) {
+        dataSources.forEach((name, dataSource) -> replicas.add(new Replica(name, dataSource)));
+        this.forAllSearches = forAllSearches;
+        this.retryIntervalMillis = retryIntervalMillis;
+    }
+
+    /**
+     * Returns true if the read with provided options can be served by a replica.
+     *
+     * @param search true for searches and counts, false for reads of a single object
+     */
+    public boolean isApplicable(
+            @Nullable Collection<SelectorOptions<GetOperationOptions>> options, boolean search) {
+        if (search && forAllSearches) {
+            return true;
+        }
+        return GetOperationOptions.getStaleness(SelectorOptions.findRootOptions(options)) > 0;
+    }
+
+    /**
+     * Returns a connection from the next available replica, or null if no replica provides it.
+     * Usage and failures are reported to the monitor, if provided.
+     */
+    @Nullable Connection getConnection(@Nullable SqlPerformanceMonitorImpl monitor) {
+        int start = Math.floorMod(nextIndex.getAndIncrement(), replicas.size());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.unavailableUntil > now) {
+                continue;
+            }
+
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                if (monitor != null) {
+                    monitor.registerDataSourceUsage(replica.name);
+                }
+                return connection;
+            } catch (SQLException e) {
+                replica.unavailableUntil = System.currentTimeMillis() + retryIntervalMillis;
+                LOGGER.warn("Read replica '{}' failed to provide a connection, it will not be used for {} ms: {}",
+                        replica.name, retryIntervalMillis, e.toString());
+                if (monitor != null) {
+                    monitor.registerDataSourceFailure(replica.name);
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Returns the names of the replicas, in the order they are used. */
+    public List<String> getNames() {
+        return replicas.stream().map(r -> r.name).collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return "ReadReplicas{" + getNames() + ", forAllSearches=" + forAllSearches + '}';
+    }
+
+    private static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+
+        /** Time in millis after which the replica can be tried again, 0 if it didn't fail. */
+        private volatile long unavailableUntil;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -8,16 +8,22 @@ package com.evolveum.midpoint.repo.sqlbase;
 
 import java.util.*;
 import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.xml.namespace.QName;
 
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.QueryFlag;
 import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Path;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.StatementOptions;
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.ItemDefinition;
@@ -89,6 +95,9 @@ public abstract class SqlQueryContext<S, Q extends FlexibleRelationalPathBase<R>
      */
     public static final int MAX_ID_IN_FOR_TO_MANY_FETCH = 100;
 
+    /** Finds row estimates in the JSON output of `EXPLAIN`. */
+    private static final Pattern PLAN_ROWS_PATTERN = Pattern.compile("\"Plan Rows\": (\\d+)");
+
     protected final SQLQuery<?> sqlQuery;
 
     protected final Q entityPath;
@@ -349,6 +358,22 @@ public abstract class SqlQueryContext<S, Q extends FlexibleRelationalPathBase<R>
                 .fetchCount();
     }
 
+    /**
+     * Returns the number of rows estimated by PostgreSQL query planner, without executing the query.
+     * For unfiltered queries this is based on `pg_class.reltuples` (scaled to the current table size),
+     * for filtered queries the column statistics are used, so the estimate can be way off for complex filters.
+     * Returns -1 if the estimate is not available.
+     */
+    public long executeCountEstimate(JdbcSession jdbcSession) {
+        List<String> plan = sqlQuery.clone(jdbcSession.connection())
+                .addFlag(QueryFlag.Position.START, "EXPLAIN (FORMAT JSON) ")
+                .select(Expressions.stringTemplate("1"))
+                .fetch();
+        Matcher matcher = plan.isEmpty() ? null : PLAN_ROWS_PATTERN.matcher(plan.get(0));
+        // The first "Plan Rows" is for the top plan node, nested plans are listed after its properties.
+        return matcher != null && matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
     /**
      * Adds new LEFT JOIN to the query and returns {@link SqlQueryContext} for this join path.
      * The returned context still uses the same SQL query; any further filter processing will
@@ -477,14 +502,70 @@ public abstract class SqlQueryContext<S, Q extends FlexibleRelationalPathBase<R>
 
             return transformedResult;
         } catch (RepositoryMappingException e) {
-            Throwable cause = e.getCause();
-            if (cause instanceof SchemaException) {
-                throw (SchemaException) cause;
-            } else if (cause instanceof QueryException) {
-                throw (QueryException) cause;
-            } else {
-                throw e;
+            throw unwrapMappingException(e);
+        }
+    }
+
+    /**
+     * Executes the query and streams the results to the handler, without reading all the rows into memory.
+     * Rows are fetched from the database using a server-side cursor, `fetchSize` rows at a time;
+     * this requires a transaction, which is why the JDBC session must have one started.
+     * The rows are read in chunks of `fetchSize` rows (i.e. one fetch from the cursor), each chunk is preprocessed
+     * by {@link ResultListRowTransformer#beforeTransformation} at once (e.g. additional data are fetched
+     * for all its rows by a single query), and each row is transformed to the schema type just before
+     * it is passed to the handler.
+     *
+     * Note that the connection (and the transaction) is held while the handler processes the rows,
+     * so the handler should not take long; see {@link SqlQueryExecutor#iterate}.
+     *
+     * Unlike {@link #executeQuery}, no default limit is applied, and {@link SqlDetailFetchMapper}s are not supported.
+     *
+     * @return number of results passed to the handler
+     */
+    public int executeQueryStreaming(JdbcSession jdbcSession, int fetchSize, StreamedResultHandler<S> handler)
+            throws SchemaException, QueryException {
+        SQLQuery<?> query = sqlQuery.clone(jdbcSession.connection());
+        query.setStatementOptions(StatementOptions.builder().setFetchSize(fetchSize).build());
+
+        Q entity = root();
+        int count = 0;
+        try (CloseableIterator<Tuple> rows = query.select(buildSelectExpressions(entity, query)).iterate()) {
+            ResultListRowTransformer<S, Q, R> rowTransformer =
+                    entityPathMapping.createRowTransformer(this, jdbcSession);
+            int chunkSize = Math.max(fetchSize, 1);
+            List<Tuple> chunk = new ArrayList<>(chunkSize);
+            boolean stopped = false;
+            while (!stopped && rows.hasNext()) {
+                chunk.clear();
+                while (chunk.size() < chunkSize && rows.hasNext()) {
+                    chunk.add(rows.next());
+                }
+                rowTransformer.beforeTransformation(chunk, entityPath);
+                for (Tuple row : chunk) {
+                    S result = rowTransformer.transform(row, entityPath, options);
+                    count++;
+                    if (!handler.handle(result)) {
+                        stopped = true;
+                        break;
+                    }
+                }
             }
+            rowTransformer.finishTransformation();
+            return count;
+        } catch (RepositoryMappingException e) {
+            throw unwrapMappingException(e);
+        }
+    }
+
+    private RuntimeException unwrapMappingException(RepositoryMappingException e)
+            throws SchemaException, QueryException {
+        Throwable cause = e.getCause();
+        if (cause instanceof SchemaException) {
+            throw (SchemaException) cause;
+        } else if (cause instanceof QueryException) {
+            throw (QueryException) cause;
+        } else {
+            return e;
         }
     }
 
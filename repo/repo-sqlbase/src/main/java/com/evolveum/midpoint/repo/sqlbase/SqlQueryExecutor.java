@@ -45,11 +45,29 @@ public class SqlQueryExecutor {
         context.processOptions(options);
 
         context.beforeQuery();
-        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
+        try (JdbcSession jdbcSession =
+                sqlRepoContext.newReadOnlyJdbcSession(options, true).startReadOnlyTransaction()) {
+            if (isApproximateCountApplicable(options)) {
+                long estimate = context.executeCountEstimate(jdbcSession);
+                if (estimate >= sqlRepoContext.getJdbcRepositoryConfiguration().getApproximateCountThreshold()) {
+                    return (int) Math.min(estimate, Integer.MAX_VALUE);
+                }
+            }
             return context.executeCount(jdbcSession);
         }
     }
 
+    /**
+     * Approximate count uses planner estimate that is PostgreSQL specific.
+     * If the estimate is below the configured threshold, exact count is used, because it's cheap enough.
+     */
+    private boolean isApproximateCountApplicable(Collection<SelectorOptions<GetOperationOptions>> options) {
+        JdbcRepositoryConfiguration configuration = sqlRepoContext.getJdbcRepositoryConfiguration();
+        return GetOperationOptions.isApproximateCount(SelectorOptions.findRootOptions(options))
+                && configuration.getApproximateCountThreshold() > 0
+                && configuration.isUsingPostgreSQL();
+    }
+
     public <S, Q extends FlexibleRelationalPathBase<R>, R> SearchResultList<S> list(
             @NotNull SqlQueryContext<S, Q, R> context,
             ObjectQuery query,
@@ -64,13 +82,46 @@ public class SqlQueryExecutor {
 
         context.beforeQuery();
         PageOf<Tuple> result;
-        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
+        try (JdbcSession jdbcSession =
+                sqlRepoContext.newReadOnlyJdbcSession(options, true).startReadOnlyTransaction()) {
             result = context.executeQuery(jdbcSession);
             PageOf<S> transformedResult = context.transformToSchemaType(result, jdbcSession);
             return createSearchResultList(transformedResult);
         }
     }
 
+    /**
+     * Streams the results to the handler using a server-side cursor, see {@link SqlQueryContext#executeQueryStreaming}.
+     * The whole iteration runs in a single (read-only) transaction on a dedicated connection, so that
+     * e.g. a {@link CommitBatch} of the current thread does not end the transaction prematurely.
+     *
+     * The connection is held (and the transaction is open) until the iteration is finished, which includes
+     * the time spent in the handler. A slow handler thus keeps a pooled connection busy (in addition to any connections
+     * it uses itself) and its long-running transaction holds back the vacuum of the whole database.
+     * The handler should be fast, or the caller should use the (default) paged iteration instead.
+     *
+     * @return number of results passed to the handler
+     */
+    public <S, Q extends FlexibleRelationalPathBase<R>, R> int iterate(
+            @NotNull SqlQueryContext<S, Q, R> context,
+            ObjectQuery query,
+            Collection<SelectorOptions<GetOperationOptions>> options,
+            int fetchSize,
+            @NotNull StreamedResultHandler<S> handler)
+            throws RepositoryException, SchemaException {
+
+        if (query != null) {
+            context.processFilter(query.getFilter());
+            context.processObjectPaging(query.getPaging());
+        }
+        context.processOptions(options);
+
+        context.beforeQuery();
+        try (JdbcSession jdbcSession = sqlRepoContext.newStandaloneJdbcSession().startReadOnlyTransaction()) {
+            return context.executeQueryStreaming(jdbcSession, fetchSize, handler);
+        }
+    }
+
     @NotNull
     private <T> SearchResultList<T> createSearchResultList(PageOf<T> result) {
         SearchResultMetadata metadata = new SearchResultMetadata();
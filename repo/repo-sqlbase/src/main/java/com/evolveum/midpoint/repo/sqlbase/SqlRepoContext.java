@@ -8,6 +8,7 @@ package com.evolveum.midpoint.repo.sqlbase;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collection;
 import javax.sql.DataSource;
 import javax.xml.namespace.QName;
 
@@ -16,15 +17,20 @@ import com.querydsl.sql.dml.SQLDeleteClause;
 import com.querydsl.sql.dml.SQLInsertClause;
 import com.querydsl.sql.dml.SQLUpdateClause;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.repo.sqlbase.mapping.QueryModelMappingRegistry;
 import com.evolveum.midpoint.repo.sqlbase.mapping.QueryTableMapping;
+import com.evolveum.midpoint.repo.sqlbase.perfmon.SqlPerformanceMonitorImpl;
 import com.evolveum.midpoint.repo.sqlbase.querydsl.FlexibleRelationalPathBase;
 import com.evolveum.midpoint.repo.sqlbase.querydsl.QuerydslUtils;
+import com.evolveum.midpoint.repo.sqlbase.querydsl.SlowQueryListener;
+import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.RelationRegistry;
 import com.evolveum.midpoint.schema.SchemaService;
+import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.util.ObjectTypeUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.exception.SystemException;
@@ -43,6 +49,12 @@ public class SqlRepoContext {
     private final DataSource dataSource;
 
     private SQLBaseListener querydslSqlListener;
+    private SlowQueryListener slowQueryListener;
+
+    private volatile ReadReplicas readReplicas; // null if no replica is used
+    private volatile SqlPerformanceMonitorImpl performanceMonitor; // for data source statistics, can be null
+
+    private final ThreadLocal<CommitBatch> currentCommitBatch = new ThreadLocal<>();
 
     public SqlRepoContext(
             JdbcRepositoryConfiguration jdbcRepositoryConfiguration,
@@ -123,15 +135,148 @@ public class SqlRepoContext {
      * This call be followed by {@link JdbcSession#startTransaction()} (or one of its variants).
      * If the transaction is not started the connection will likely be in auto-commit mode.
      * *We want to start transaction for any work in production code* but for tests it's ok not to.
+     *
+     * If there is a {@link CommitBatch} for the current thread, the session is a part of it.
      */
     public JdbcSession newJdbcSession() {
+        CommitBatch commitBatch = currentCommitBatch.get();
+        if (commitBatch != null) {
+            return commitBatch.newJdbcSession();
+        }
+        return newStandaloneJdbcSession();
+    }
+
+    /**
+     * Like {@link #newJdbcSession()} but the session always has its own connection and transaction,
+     * even if there is a {@link CommitBatch} for the current thread.
+     */
+    public JdbcSession newStandaloneJdbcSession() {
+        return new JdbcSession(newConnection(), jdbcRepositoryConfiguration, this);
+    }
+
+    /**
+     * Creates {@link JdbcSession} for read-only work, which is served by a {@link ReadReplicas read replica}
+     * if there is any and the read can tolerate stale data, see {@link ReadReplicas#isApplicable}.
+     * Replica is never used if there is a {@link CommitBatch} for the current thread, because
+     * its uncommitted changes would not be visible there.
+     * If no replica provides the connection, this falls back to {@link #newJdbcSession()}.
+     *
+     * @param search true for searches and counts, false for reads of a single object
+     */
+    public JdbcSession newReadOnlyJdbcSession(
+            @Nullable Collection<SelectorOptions<GetOperationOptions>> options, boolean search) {
+        ReadReplicas replicas = readReplicas;
+        if (replicas == null || currentCommitBatch.get() != null || !replicas.isApplicable(options, search)) {
+            return newJdbcSession();
+        }
+
+        SqlPerformanceMonitorImpl monitor = performanceMonitor;
+        Connection connection = replicas.getConnection(monitor);
+        if (connection != null) {
+            return new JdbcSession(connection, jdbcRepositoryConfiguration, this);
+        }
+        if (monitor != null) {
+            monitor.registerDataSourceUsage(ReadReplicas.PRIMARY_NAME);
+        }
+        return newJdbcSession();
+    }
+
+    public @Nullable ReadReplicas getReadReplicas() {
+        return readReplicas;
+    }
+
+    /** Sets read replicas for {@link #newReadOnlyJdbcSession}, null means that only the primary is used. */
+    public void setReadReplicas(@Nullable ReadReplicas readReplicas) {
+        this.readReplicas = readReplicas;
+    }
+
+    /**
+     * Sets the monitor that collects data source statistics (see {@link #newReadOnlyJdbcSession})
+     * and slow query statistics (see {@link SlowQueryListener}).
+     */
+    public void setPerformanceMonitor(@Nullable SqlPerformanceMonitorImpl performanceMonitor) {
+        this.performanceMonitor = performanceMonitor;
+
+        SQLListeners listeners = querydslConfig.getListeners();
+        if (slowQueryListener != null) {
+            listeners.getListeners().remove(slowQueryListener);
+            slowQueryListener = null;
+        }
+        if (performanceMonitor != null) {
+            slowQueryListener = new SlowQueryListener(
+                    jdbcRepositoryConfiguration, querydslConfig, performanceMonitor);
+            listeners.add(slowQueryListener);
+        }
+    }
+
+    Connection newConnection() {
         try {
-            return new JdbcSession(dataSource.getConnection(), jdbcRepositoryConfiguration, this);
+            return dataSource.getConnection();
         } catch (SQLException e) {
             throw new SystemException("Cannot create JDBC connection", e);
         }
     }
 
+    /**
+     * Starts a {@link CommitBatch} for the current thread.
+     *
+     * @return false if there already is a batch for the current thread
+     */
+    public boolean beginCommitBatch(int maxCheckpoints, long maxDelayMillis) {
+        if (currentCommitBatch.get() != null) {
+            return false;
+        }
+        currentCommitBatch.set(new CommitBatch(this, maxCheckpoints, maxDelayMillis));
+        return true;
+    }
+
+    /** Returns the commit batch of the current thread, if there is any. */
+    public @Nullable CommitBatch getCommitBatch() {
+        return currentCommitBatch.get();
+    }
+
+    /**
+     * Executes the action after the modifications done by the current thread are committed,
+     * see {@link CommitBatch#executeAfterCommit(Runnable, boolean)}. Without a commit batch, the action is executed
+     * right away, as the modifications are committed at the end of each operation.
+     */
+    public void executeAfterCommit(@NotNull Runnable action, boolean evenIfFailed) {
+        CommitBatch commitBatch = currentCommitBatch.get();
+        if (commitBatch != null) {
+            commitBatch.executeAfterCommit(action, evenIfFailed);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Like {@link #executeAfterCommit(Runnable, boolean)}, but `onFailure` is executed instead of the action
+     * if the batch commit fails, see {@link CommitBatch#executeAfterCommit(Runnable, Runnable)}.
+     */
+    public void executeAfterCommit(@NotNull Runnable action, @NotNull Runnable onFailure) {
+        CommitBatch commitBatch = currentCommitBatch.get();
+        if (commitBatch != null) {
+            commitBatch.executeAfterCommit(action, onFailure);
+        } else {
+            action.run();
+        }
+    }
+
+    /** Returns true if there are modifications of the current thread waiting for the commit of its batch. */
+    public boolean hasUncommittedModifications() {
+        CommitBatch commitBatch = currentCommitBatch.get();
+        return commitBatch != null && commitBatch.hasPendingOperations();
+    }
+
+    /** Commits and removes the commit batch of the current thread, if there is any. */
+    public void endCommitBatch() {
+        CommitBatch commitBatch = currentCommitBatch.get();
+        if (commitBatch != null) {
+            currentCommitBatch.remove();
+            commitBatch.commit();
+        }
+    }
+
     public <T> Class<? extends T> qNameToSchemaClass(QName qName) {
         return schemaService.typeQNameToSchemaClass(qName);
     }
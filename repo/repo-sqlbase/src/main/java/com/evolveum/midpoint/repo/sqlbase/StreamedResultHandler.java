@@ -0,0 +1,21 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqlbase;
+
+/**
+ * Handler for the results streamed by {@link SqlQueryExecutor#iterate}, called for each result as soon as it is read.
+ *
+ * @param <S> schema type of the results
+ */
+@FunctionalInterface
+public interface StreamedResultHandler<S> {
+
+    /**
+     * Returns false if the iteration should be stopped.
+     */
+    boolean handle(S result);
+}
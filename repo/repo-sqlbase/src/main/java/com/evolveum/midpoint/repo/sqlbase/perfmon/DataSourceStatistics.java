@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqlbase.perfmon;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Usage of a single data source by the reads that can be served by a read replica.
+ * See {@link SqlPerformanceMonitorImpl#getDataSourceStatistics()}.
+ */
+public class DataSourceStatistics {
+
+    private final AtomicLong usageCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    void registerUsage() {
+        usageCount.incrementAndGet();
+    }
+
+    void registerFailure() {
+        failureCount.incrementAndGet();
+    }
+
+    /** Returns the number of sessions using connection from this data source. */
+    public long getUsageCount() {
+        return usageCount.get();
+    }
+
+    /** Returns the number of times this data source failed to provide the connection. */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "used " + usageCount.get() + "x, failed " + failureCount.get() + "x";
+    }
+}
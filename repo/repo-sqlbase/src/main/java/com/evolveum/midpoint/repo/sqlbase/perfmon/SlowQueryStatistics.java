@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqlbase.perfmon;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Aggregated information about slow SQL statements with the same fingerprint, that is SQL
+ * with literals and lists of parameters normalized, see {@link #fingerprint(String)}.
+ * See {@link SqlPerformanceMonitorImpl#getSlowQueryStatistics()}.
+ *
+ * Besides the count and durations it contains the histogram of durations (in milliseconds),
+ * types of the parameter values of the last occurrence and optionally the execution plan
+ * of the first explained occurrence.
+ */
+public class SlowQueryStatistics {
+
+    /** Upper bounds (inclusive) of histogram buckets in milliseconds, last bucket is for longer durations. */
+    public static final long[] HISTOGRAM_BOUNDS_MS = { 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 30_000 };
+
+    private final String fingerprint;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalTimeMs = new AtomicLong();
+    private final AtomicLong maxTimeMs = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BOUNDS_MS.length + 1);
+
+    private volatile String lastSql;
+    private volatile String lastParameterTypes;
+
+    private final AtomicBoolean explainClaimed = new AtomicBoolean();
+    private volatile String executionPlan;
+
+    SlowQueryStatistics(@NotNull String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    void register(String sql, String parameterTypes, long durationMs) {
+        count.incrementAndGet();
+        totalTimeMs.addAndGet(durationMs);
+        maxTimeMs.accumulateAndGet(durationMs, Math::max);
+        histogram.incrementAndGet(bucketIndex(durationMs));
+        lastSql = sql;
+        lastParameterTypes = parameterTypes;
+    }
+
+    private static int bucketIndex(long durationMs) {
+        for (int i = 0; i < HISTOGRAM_BOUNDS_MS.length; i++) {
+            if (durationMs <= HISTOGRAM_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return HISTOGRAM_BOUNDS_MS.length;
+    }
+
+    /**
+     * Returns true only for the first caller, who is then responsible for setting the execution plan.
+     * This makes sure that only one statement with this fingerprint is explained.
+     */
+    public boolean claimExplain() {
+        return explainClaimed.compareAndSet(false, true);
+    }
+
+    public void setExecutionPlan(String executionPlan) {
+        this.executionPlan = executionPlan;
+    }
+
+    public @NotNull String getFingerprint() {
+        return fingerprint;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalTimeMs() {
+        return totalTimeMs.get();
+    }
+
+    public long getMaxTimeMs() {
+        return maxTimeMs.get();
+    }
+
+    /** Returns counts for buckets defined by {@link #HISTOGRAM_BOUNDS_MS}, with one more bucket for longer durations. */
+    public long[] getHistogram() {
+        long[] result = new long[histogram.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = histogram.get(i);
+        }
+        return result;
+    }
+
+    /** Returns SQL of the last occurrence, this is the same as fingerprint except for list of parameters. */
+    public String getLastSql() {
+        return lastSql;
+    }
+
+    /** Returns simple class names of the parameter values of the last occurrence, not the values themselves. */
+    public String getLastParameterTypes() {
+        return lastParameterTypes;
+    }
+
+    /** Returns output of `EXPLAIN` for the first occurrence, if enabled and available. */
+    public String getExecutionPlan() {
+        return executionPlan;
+    }
+
+    /**
+     * Returns normalized SQL, with white-spaces collapsed, literals replaced by `?`
+     * and lists of parameters (e.g. for `IN`) collapsed to `?, ...`.
+     * The same query with different number of `IN` values then has the same fingerprint.
+     */
+    public static @NotNull String fingerprint(@NotNull String sql) {
+        return sql.trim()
+                .replaceAll("\\s+", " ")
+                .replaceAll("'(?:[^']|'')*'", "?")
+                .replaceAll("\\b\\d+\\b", "?")
+                .replaceAll("\\?(?:\\s*,\\s*\\?)+", "?, ...");
+    }
+
+    @Override
+    public String toString() {
+        long count = getCount();
+        StringBuilder sb = new StringBuilder()
+                .append(count).append("x, total ").append(getTotalTimeMs())
+                .append(" ms, avg ").append(count > 0 ? getTotalTimeMs() / count : 0)
+                .append(" ms, max ").append(getMaxTimeMs()).append(" ms, histogram");
+        long[] histogram = getHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] > 0) {
+                sb.append(i < HISTOGRAM_BOUNDS_MS.length
+                                ? " <=" + HISTOGRAM_BOUNDS_MS[i]
+                                : " >" + HISTOGRAM_BOUNDS_MS[HISTOGRAM_BOUNDS_MS.length - 1])
+                        .append(": ").append(histogram[i]);
+            }
+        }
+        sb.append(", params ").append(lastParameterTypes)
+                .append(": ").append(fingerprint);
+        if (executionPlan != null) {
+            sb.append('\n').append(executionPlan);
+        }
+        return sb.toString();
+    }
+}
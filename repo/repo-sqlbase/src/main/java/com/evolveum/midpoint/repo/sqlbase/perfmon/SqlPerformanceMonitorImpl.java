@@ -9,8 +9,13 @@ package com.evolveum.midpoint.repo.sqlbase.perfmon;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.repo.api.perf.OperationRecord;
+import com.evolveum.midpoint.repo.api.perf.PerformanceInformation;
 import com.evolveum.midpoint.repo.api.perf.PerformanceMonitor;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
@@ -28,6 +33,9 @@ public class SqlPerformanceMonitorImpl implements PerformanceMonitor {
     public static final int LEVEL_LOCAL_STATISTICS = 4;
     public static final int LEVEL_DETAILS = 10;
 
+    /** Statements with new fingerprints are not captured when there are already this many of them. */
+    public static final int MAX_SLOW_QUERY_FINGERPRINTS = 200;
+
     private final int initialLevel;
     private final String statisticsFile;
 
@@ -60,6 +68,24 @@ public class SqlPerformanceMonitorImpl implements PerformanceMonitor {
      */
     private final PerformanceInformationImpl globalPerformanceInformation = new PerformanceInformationImpl();
 
+    /**
+     * Usage of data sources by reads that can be served by a read replica, indexed by data source name.
+     * It is used regardless of the level, it's just a couple of counters.
+     */
+    private final Map<String, DataSourceStatistics> dataSourceStatistics = new ConcurrentHashMap<>();
+
+    /**
+     * Statistics of slow SQL statements indexed by their fingerprints.
+     * It is used regardless of the level, but only statements over the configured threshold are registered.
+     */
+    private final Map<String, SlowQueryStatistics> slowQueryStatistics = new ConcurrentHashMap<>();
+
+    /**
+     * Gauges registered by the monitored component (e.g. depth of its queues), indexed by name.
+     * Their values are read only when requested, see {@link #getGaugeValues()}.
+     */
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
     public SqlPerformanceMonitorImpl(int initialLevel, String statisticsFile) {
         this.initialLevel = initialLevel;
         this.statisticsFile = statisticsFile;
@@ -79,6 +105,8 @@ public class SqlPerformanceMonitorImpl implements PerformanceMonitor {
     public void clearGlobalPerformanceInformation() {
         globalPerformanceInformation.clear();
         finishedOperations.clear();
+        dataSourceStatistics.clear();
+        slowQueryStatistics.clear();
     }
 
     @Override
@@ -96,6 +124,15 @@ public class SqlPerformanceMonitorImpl implements PerformanceMonitor {
         return threadLocalPerformanceInformation.get();
     }
 
+    @Override
+    public void setThreadLocalPerformanceInformation(PerformanceInformation information) {
+        if (information != null) {
+            threadLocalPerformanceInformation.set((PerformanceInformationImpl) information);
+        } else {
+            threadLocalPerformanceInformation.remove();
+        }
+    }
+
     @Override
     public void stopThreadLocalPerformanceInformationCollection() {
         threadLocalPerformanceInformation.remove();
@@ -114,6 +151,17 @@ public class SqlPerformanceMonitorImpl implements PerformanceMonitor {
         if (level >= LEVEL_GLOBAL_STATISTICS) {
             LOGGER.info("Global performance information:\n{}", globalPerformanceInformation.debugDump());
         }
+        if (!dataSourceStatistics.isEmpty()) {
+            LOGGER.info("Data source statistics: {}", dataSourceStatistics);
+        }
+        if (!slowQueryStatistics.isEmpty()) {
+            LOGGER.info("Slow query statistics:\n{}", getSlowQueryStatistics().stream()
+                    .map(Object::toString)
+                    .collect(Collectors.joining("\n")));
+        }
+        if (!gauges.isEmpty()) {
+            LOGGER.info("Gauges: {}", getGaugeValues());
+        }
         OperationsPerformanceMonitorImpl.INSTANCE.shutdown();
     }
 
@@ -184,6 +232,64 @@ public class SqlPerformanceMonitorImpl implements PerformanceMonitor {
         }
     }
 
+    /** Registers that a session for replica-eligible read uses a connection from the specified data source. */
+    public void registerDataSourceUsage(String dataSourceName) {
+        dataSourceStatistics.computeIfAbsent(dataSourceName, k -> new DataSourceStatistics()).registerUsage();
+    }
+
+    /** Registers that the specified data source failed to provide a connection and other one was tried. */
+    public void registerDataSourceFailure(String dataSourceName) {
+        dataSourceStatistics.computeIfAbsent(dataSourceName, k -> new DataSourceStatistics()).registerFailure();
+    }
+
+    /**
+     * Returns usage statistics of data sources for the reads that can be served by read replicas.
+     * Other reads and writes always use the primary data source and are not counted here.
+     */
+    public Map<String, DataSourceStatistics> getDataSourceStatistics() {
+        return Collections.unmodifiableMap(dataSourceStatistics);
+    }
+
+    /**
+     * Registers slow SQL statement and returns statistics for its fingerprint.
+     * Returns null if the statement has a new fingerprint and {@link #MAX_SLOW_QUERY_FINGERPRINTS} was reached.
+     */
+    public SlowQueryStatistics registerSlowQuery(String sql, String parameterTypes, long durationMs) {
+        String fingerprint = SlowQueryStatistics.fingerprint(sql);
+        SlowQueryStatistics statistics = slowQueryStatistics.get(fingerprint);
+        if (statistics == null) {
+            if (slowQueryStatistics.size() >= MAX_SLOW_QUERY_FINGERPRINTS) {
+                LOGGER.debug("Slow query not captured, max number of fingerprints reached: {}", fingerprint);
+                return null;
+            }
+            statistics = slowQueryStatistics.computeIfAbsent(fingerprint, SlowQueryStatistics::new);
+        }
+        statistics.register(sql, parameterTypes, durationMs);
+        return statistics;
+    }
+
+    public void registerGauge(@NotNull String name, @NotNull LongSupplier valueSupplier) {
+        gauges.put(name, valueSupplier);
+    }
+
+    public void unregisterGauge(@NotNull String name) {
+        gauges.remove(name);
+    }
+
+    @Override
+    public @NotNull Map<String, Long> getGaugeValues() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, valueSupplier) -> values.put(name, valueSupplier.getAsLong()));
+        return values;
+    }
+
+    /** Returns statistics of captured slow SQL statements, sorted by total time, the worst first. */
+    public List<SlowQueryStatistics> getSlowQueryStatistics() {
+        return slowQueryStatistics.values().stream()
+                .sorted(Comparator.comparingLong(SlowQueryStatistics::getTotalTimeMs).reversed())
+                .collect(Collectors.toList());
+    }
+
     // to be used in tests
     @SuppressWarnings("unused")     // maybe in future
     public List<OperationRecord> getFinishedOperations(String kind) {
@@ -7,7 +7,10 @@
 package com.evolveum.midpoint.repo.sqlbase.perfmon;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -63,4 +66,33 @@ public class SqlPerformanceMonitorsCollectionImpl implements SqlPerformanceMonit
             monitor.startThreadLocalPerformanceInformationCollection();
         }
     }
+
+    @Override
+    public synchronized @NotNull Map<PerformanceMonitor, PerformanceInformation> getThreadLocalPerformanceInformationByMonitor() {
+        Map<PerformanceMonitor, PerformanceInformation> informationMap = new HashMap<>();
+        for (PerformanceMonitor monitor : monitors) {
+            PerformanceInformation information = monitor.getThreadLocalPerformanceInformation();
+            if (information != null) {
+                informationMap.put(monitor, information);
+            }
+        }
+        return informationMap;
+    }
+
+    @Override
+    public synchronized void setThreadLocalPerformanceInformation(
+            @NotNull Map<PerformanceMonitor, PerformanceInformation> informationMap) {
+        for (PerformanceMonitor monitor : monitors) {
+            monitor.setThreadLocalPerformanceInformation(informationMap.get(monitor));
+        }
+    }
+
+    @Override
+    public synchronized @NotNull Map<String, Long> getGaugeValues() {
+        Map<String, Long> values = new TreeMap<>();
+        for (PerformanceMonitor monitor : monitors) {
+            values.putAll(monitor.getGaugeValues());
+        }
+        return values;
+    }
 }
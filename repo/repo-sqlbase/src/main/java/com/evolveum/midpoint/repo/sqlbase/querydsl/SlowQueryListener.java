@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqlbase.querydsl;
+
+import java.sql.*;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.SQLBaseListener;
+import com.querydsl.sql.SQLBindings;
+import com.querydsl.sql.SQLListenerContext;
+import com.querydsl.sql.types.Null;
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.repo.sqlbase.JdbcRepositoryConfiguration;
+import com.evolveum.midpoint.repo.sqlbase.perfmon.SlowQueryStatistics;
+import com.evolveum.midpoint.repo.sqlbase.perfmon.SqlPerformanceMonitorImpl;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Querydsl listener capturing statements longer than {@link JdbcRepositoryConfiguration#getSlowQueryThresholdMs()}
+ * into slow query statistics of the performance monitor.
+ * The threshold is read for each statement, so it can be changed without restart (at least in tests).
+ *
+ * If {@link JdbcRepositoryConfiguration#isSlowQueryExplain()} is true, the first select with each fingerprint
+ * is explained with plain `EXPLAIN` on the same connection to get the estimated plan.
+ * Only PostgreSQL is supported for this and only selects are explained.
+ * Plain explain only plans the statement and does not execute it, so it is cheap, does not take any row locks
+ * (e.g. for `FOR UPDATE` selects) and has no side effects (e.g. of functions like `nextval` called in the select).
+ * The explain is executed inside a savepoint, so its failure does not break the current transaction.
+ *
+ * Unlike {@link SqlLogger}, this is not replaced by {@link com.evolveum.midpoint.repo.sqlbase.SqlRepoContext#setQuerydslSqlListener}.
+ */
+public class SlowQueryListener extends SQLBaseListener {
+
+    private static final Trace LOGGER = TraceManager.getTrace(SlowQueryListener.class);
+
+    private static final String START_NANOS_CTX_KEY = "slowQueryStartNanos";
+
+    private final JdbcRepositoryConfiguration repositoryConfiguration;
+    private final Configuration querydslConfiguration;
+    private final SqlPerformanceMonitorImpl performanceMonitor;
+
+    public SlowQueryListener(
+            @NotNull JdbcRepositoryConfiguration repositoryConfiguration,
+            @NotNull Configuration querydslConfiguration,
+            @NotNull SqlPerformanceMonitorImpl performanceMonitor) {
+        this.repositoryConfiguration = repositoryConfiguration;
+        this.querydslConfiguration = querydslConfiguration;
+        this.performanceMonitor = performanceMonitor;
+    }
+
+    @Override
+    public void start(SQLListenerContext context) {
+        if (repositoryConfiguration.getSlowQueryThresholdMs() > 0) {
+            context.setData(START_NANOS_CTX_KEY, System.nanoTime());
+        }
+    }
+
+    /** End is called for all statements, after exceptions too. */
+    @Override
+    public void end(SQLListenerContext context) {
+        Object startNanos = context.getData(START_NANOS_CTX_KEY);
+        long thresholdMs = repositoryConfiguration.getSlowQueryThresholdMs();
+        if (!(startNanos instanceof Long) || thresholdMs <= 0) {
+            return;
+        }
+
+        long durationMs = (System.nanoTime() - (long) startNanos) / 1_000_000;
+        if (durationMs < thresholdMs) {
+            return;
+        }
+
+        SQLBindings sqlBindings = context.getSQLBindings();
+        if (sqlBindings == null || sqlBindings.getSQL() == null) {
+            return;
+        }
+
+        try {
+            List<Object> params = sqlBindings.getNullFriendlyBindings();
+            SlowQueryStatistics statistics = performanceMonitor.registerSlowQuery(
+                    sqlBindings.getSQL(), parameterTypes(params), durationMs);
+            if (statistics != null && isExplainable(context, sqlBindings.getSQL())
+                    && statistics.claimExplain()) {
+                statistics.setExecutionPlan(explain(context.getConnection(), sqlBindings.getSQL(), params));
+            }
+        } catch (Exception e) {
+            LoggingUtils.logUnexpectedException(LOGGER, e);
+        }
+    }
+
+    private String parameterTypes(List<Object> params) {
+        return params.stream()
+                .map(p -> p == null || p instanceof Null ? "NULL" : p.getClass().getSimpleName())
+                .collect(Collectors.joining(", ", "(", ")"));
+    }
+
+    private boolean isExplainable(SQLListenerContext context, String sql) {
+        return repositoryConfiguration.isSlowQueryExplain()
+                && repositoryConfiguration.isUsingPostgreSQL()
+                && context.getException() == null
+                && context.getConnection() != null
+                && sql.stripLeading().toLowerCase(Locale.ROOT).startsWith("select");
+    }
+
+    private String explain(Connection connection, String sql, List<Object> params) throws SQLException {
+        Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+        try (PreparedStatement stmt = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                querydslConfiguration.set(stmt, null, i + 1, params.get(i));
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+            if (savepoint != null) {
+                connection.releaseSavepoint(savepoint);
+            }
+            return plan.toString().stripTrailing();
+        } catch (SQLException e) {
+            if (savepoint != null) {
+                connection.rollback(savepoint);
+            }
+            LOGGER.debug("Explain of slow query failed: {}", e.toString());
+            return "Explain failed: " + e.getMessage();
+        }
+    }
+}
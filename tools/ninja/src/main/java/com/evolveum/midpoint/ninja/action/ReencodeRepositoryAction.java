@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2010-2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.ninja.action;
+
+import java.util.Collections;
+
+import com.evolveum.midpoint.ninja.opts.ReencodeOptions;
+import com.evolveum.midpoint.ninja.util.NinjaUtils;
+import com.evolveum.midpoint.ninja.util.OperationStatus;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.repo.api.RepoModifyOptions;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.ResultHandler;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Rewrites stored objects, so they are stored in the full object format currently configured
+ * for the repository (e.g. `compact` for the native repository).
+ * Objects are reindexed by the repository, which also recreates all their index rows.
+ */
+public class ReencodeRepositoryAction extends RepositoryAction<ReencodeOptions> {
+
+    private static final String DOT_CLASS = ReencodeRepositoryAction.class.getName() + ".";
+
+    private static final String OPERATION_REENCODE = DOT_CLASS + "reencode";
+
+    @Override
+    public void execute() throws Exception {
+        OperationResult result = new OperationResult(OPERATION_REENCODE);
+
+        OperationStatus operation = new OperationStatus(context, result);
+        operation.start();
+
+        log.info("Starting reencode");
+
+        for (ObjectTypes type : NinjaUtils.getTypes(options.getType())) {
+            ObjectQuery query = NinjaUtils.createObjectQuery(options.getFilter(), context, type.getClassDefinition());
+            reencode(type, query, operation, result);
+        }
+
+        operation.finish();
+        handleResultOnFinish(operation, "Reencode finished");
+    }
+
+    private void reencode(ObjectTypes type, ObjectQuery query, OperationStatus operation, OperationResult result)
+            throws SchemaException {
+        RepositoryService repository = context.getRepository();
+        RepoModifyOptions modifyOptions = RepoModifyOptions.createForceReindex();
+
+        ResultHandler<?> handler = (prismObject, operationResult) -> {
+            try {
+                repository.modifyObject(prismObject.getCompileTimeClass(), prismObject.getOid(),
+                        Collections.emptyList(), modifyOptions, operationResult);
+                operation.incrementTotal();
+            } catch (Exception ex) {
+                context.getLog().error("Couldn't reencode object {}, reason: {}", ex, prismObject, ex.getMessage());
+                operation.incrementError();
+            }
+            return true;
+        };
+
+        repository.searchObjectsIterative(type.getClassDefinition(), query, handler,
+                SelectorOptions.createCollection(GetOperationOptions.createRaw()), true, result);
+    }
+}
@@ -6,6 +6,7 @@
  */
 package com.evolveum.midpoint.ninja.action.worker;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -18,6 +19,7 @@ import com.evolveum.midpoint.ninja.opts.ImportOptions;
 import com.evolveum.midpoint.ninja.util.OperationStatus;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.crypto.Protector;
+import com.evolveum.midpoint.repo.api.AddObjectOutcome;
 import com.evolveum.midpoint.repo.api.RepoAddOptions;
 import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.schema.result.OperationResult;
@@ -28,6 +30,9 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
  */
 public class ImportRepositoryConsumerWorker extends BaseWorker<ImportOptions, ObjectType> {
 
+    /** Objects are taken from the queue and added to the repository in batches of (at most) this size. */
+    private static final int ADD_BATCH_SIZE = 100;
+
     public ImportRepositoryConsumerWorker(
             NinjaContext context, ImportOptions options, BlockingQueue<ObjectType> queue,
             OperationStatus operation, List<ImportRepositoryConsumerWorker> consumers) {
@@ -41,27 +46,50 @@ public class ImportRepositoryConsumerWorker extends BaseWorker<ImportOptions, Ob
 
         try {
             while (!shouldConsumerStop()) {
-                ObjectType object = null;
+                List<PrismObject<? extends ObjectType>> batch = new ArrayList<>();
                 try {
-                    object = queue.poll(CONSUMER_POLL_TIMEOUT, TimeUnit.SECONDS);
+                    ObjectType object = queue.poll(CONSUMER_POLL_TIMEOUT, TimeUnit.SECONDS);
                     if (object == null) {
                         continue;
                     }
-                    PrismObject<? extends ObjectType> prismObject = object.asPrismObject();
+                    List<ObjectType> objects = new ArrayList<>();
+                    objects.add(object);
+                    queue.drainTo(objects, ADD_BATCH_SIZE - 1);
 
                     RepoAddOptions opts = createRepoAddOptions(options);
-
-                    if (!opts.isAllowUnencryptedValues()) {
-                        CryptoUtil.encryptValues(protector, prismObject);
+                    for (ObjectType o : objects) {
+                        PrismObject<? extends ObjectType> prismObject = o.asPrismObject();
+                        try {
+                            if (!opts.isAllowUnencryptedValues()) {
+                                CryptoUtil.encryptValues(protector, prismObject);
+                            }
+                            batch.add(prismObject);
+                        } catch (Exception ex) {
+                            context.getLog().error("Couldn't add object {}, reason: {}", ex, o, ex.getMessage());
+                            operation.incrementError();
+                        }
                     }
 
                     RepositoryService repository = context.getRepository();
-                    repository.addObject(prismObject, opts, new OperationResult("Import object"));
+                    List<AddObjectOutcome> outcomes =
+                            repository.addObjects(batch, opts, new OperationResult("Import objects"));
 
-                    operation.incrementTotal();
+                    for (int i = 0; i < outcomes.size(); i++) {
+                        AddObjectOutcome outcome = outcomes.get(i);
+                        if (outcome.isSuccess()) {
+                            operation.incrementTotal();
+                        } else {
+                            Exception ex = outcome.getException();
+                            context.getLog().error("Couldn't add object {}, reason: {}",
+                                    ex, batch.get(i), ex != null ? ex.getMessage() : null);
+                            operation.incrementError();
+                        }
+                    }
                 } catch (Exception ex) {
-                    context.getLog().error("Couldn't add object {}, reason: {}", ex, object, ex.getMessage());
-                    operation.incrementError();
+                    context.getLog().error("Couldn't add objects {}, reason: {}", ex, batch, ex.getMessage());
+                    for (int i = 0; i < batch.size(); i++) {
+                        operation.incrementError();
+                    }
                 }
             }
         } finally {
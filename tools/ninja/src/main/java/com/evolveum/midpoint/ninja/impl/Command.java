@@ -37,7 +37,9 @@ public enum Command {
 
     EXPORT_AUDIT("exportAudit", ExportAuditOptions.class, ExportAuditRepositoryAction.class, null),
 
-    TRACE("trace", EditTraceOptions.class, EditTraceAction.class, null);
+    TRACE("trace", EditTraceOptions.class, EditTraceAction.class, null),
+
+    REENCODE("reencode", ReencodeOptions.class, ReencodeRepositoryAction.class, null);
 
     // todo reencrypt, modify, bulk, etc
 